@@ -0,0 +1,259 @@
+package com.nmodi.ticketserviceapp.benchmarks;
+
+import com.nmodi.ticketserviceapp.allocation.AllocationPolicy;
+import com.nmodi.ticketserviceapp.allocation.BestFitAllocationPolicy;
+import com.nmodi.ticketserviceapp.allocation.FragmentationAwareAllocationPolicy;
+import com.nmodi.ticketserviceapp.dao.impl.TicketHandlerDaoImpl;
+import com.nmodi.ticketserviceapp.exception.CustomerRequestNotValidException;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * This simulator replays a stream of hold requests of an on-sale against the dao with every allocation policy, and
+ * reports the sell-through and the latency of each policy.
+ *
+ * Every request holds the best available seats of a party. A party only buys seats sitting together, in one block of
+ * a row or stacked on rows next to each other, so the seats split apart are released again and the request is lost.
+ * Some parties abandon their hold, and their seats are released when the hold expires a few requests later, in the
+ * middle of the seats sold meanwhile, which is what fragments a venue during an on-sale. The seats left open at the end
+ * in blocks of a single seat are the orphan seats, which no party of 2 or more can buy.
+ *
+ * A recorded request stream file (see {@link RequestStreams}) is replayed, else a stream of random party sizes buying
+ * as many seats as the venue has. To run it type
+ *
+ * 'java -cp target/benchmarks.jar com.nmodi.ticketserviceapp.benchmarks.AllocationSimulator STADIUM [requestFile]'
+ */
+public final class AllocationSimulator {
+
+    /**
+     * The no of requests after which an abandoned hold expires
+     */
+    private static final int HOLD_EXPIRY_REQUESTS = 32;
+
+    /**
+     * The fraction of the holds of the random request stream which are abandoned
+     */
+    private static final double ABANDON_RATE = 0.25;
+
+    private AllocationSimulator() {
+    }
+
+    /**
+     * This method runs the simulation.
+     *
+     * @param args The venue size, and the file of the recorded request stream.
+     * @throws IOException if the request stream can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (System.getProperty("log4j.configuration") == null) {
+            System.setProperty("log4j.configuration", "log4j-benchmarks.properties");
+        }
+        Venues.VenueSize venueSize = Venues.VenueSize.valueOf(args.length > 0 ? args[0] : "THEATRE");
+        int[] partySizes = args.length > 1 ? RequestStreams.read(args[1])
+                : RequestStreams.random(venueSize.getNoOfRows() * venueSize.getNoOfColumns(), ABANDON_RATE);
+
+        System.out.printf("%-22s %9s %9s %9s %9s %9s %9s %9s%n", "Policy", "Requests", "Sold", "Lost", "Orphans",
+                "Sold %", "p50 us", "p99 us");
+        AllocationPolicy[] allocationPolicies = {new BestFitAllocationPolicy(),
+                new FragmentationAwareAllocationPolicy()};
+        for (AllocationPolicy allocationPolicy : allocationPolicies) {
+            // a first run warms up the code, the second one is reported
+            simulate(venueSize, partySizes, allocationPolicy);
+            simulate(venueSize, partySizes, allocationPolicy).print(allocationPolicy);
+        }
+    }
+
+    /**
+     * This method replays the request stream against a new venue.
+     *
+     * @param venueSize The venue size.
+     * @param partySizes The party size of every request, negative for an abandoned hold.
+     * @param allocationPolicy The allocation policy.
+     * @return The result of the simulation
+     */
+    private static Result simulate(Venues.VenueSize venueSize, int[] partySizes, AllocationPolicy allocationPolicy) {
+        SeatGrid seatGrid = Venues.create(venueSize, 0.0);
+        TicketHandlerDaoImpl ticketHandlerDao = new TicketHandlerDaoImpl();
+        ticketHandlerDao.setAllocationPolicy(allocationPolicy);
+        Result result = new Result(partySizes.length, seatGrid.getNoOfSeats());
+        Deque<int[]> abandonedHolds = new ArrayDeque<int[]>();
+        Deque<Integer> holdExpiries = new ArrayDeque<Integer>();
+        for (int requestNo = 0; requestNo < partySizes.length; requestNo++) {
+            while (!holdExpiries.isEmpty() && holdExpiries.peekFirst() <= requestNo) {
+                holdExpiries.removeFirst();
+                releaseSeats(seatGrid, abandonedHolds.removeFirst());
+            }
+            int request = partySizes[requestNo];
+            int partySize = Math.abs(request);
+            if (seatGrid.getSeatCount(SeatStatus.OPEN) < partySize) {
+                result.lostRequests++;
+                continue;
+            }
+            long startTime = System.nanoTime();
+            int[] heldSeatIds;
+            try {
+                heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(seatGrid, partySize);
+            } catch (CustomerRequestNotValidException ex) {
+                result.lostRequests++;
+                continue;
+            }
+            result.latencies[result.noOfLatencies++] = System.nanoTime() - startTime;
+            if (!isSeatedTogether(seatGrid, heldSeatIds)) {
+                releaseSeats(seatGrid, heldSeatIds);
+                result.lostRequests++;
+            } else if (request < 0) {
+                abandonedHolds.addLast(heldSeatIds);
+                holdExpiries.addLast(requestNo + HOLD_EXPIRY_REQUESTS);
+            } else {
+                for (int seatId : heldSeatIds) {
+                    seatGrid.setSeatStatus(seatGrid.getSeatRow(seatId), seatGrid.getSeatColumn(seatId),
+                            SeatStatus.RESERVED);
+                }
+                result.soldSeats += partySize;
+            }
+        }
+        while (!abandonedHolds.isEmpty()) {
+            releaseSeats(seatGrid, abandonedHolds.removeFirst());
+        }
+        result.orphanSeats = countOrphanSeats(seatGrid);
+        return result;
+    }
+
+    /**
+     * This method opens the held seats again.
+     *
+     * @param seatGrid The seat grid.
+     * @param heldSeatIds The held seat ids.
+     */
+    private static void releaseSeats(SeatGrid seatGrid, int[] heldSeatIds) {
+        for (int seatId : heldSeatIds) {
+            seatGrid.setSeatStatus(seatGrid.getSeatRow(seatId), seatGrid.getSeatColumn(seatId), SeatStatus.OPEN);
+        }
+    }
+
+    /**
+     * This method returns whether the held seats sit together, the seats of every row next to each other in rows next
+     * to each other.
+     *
+     * @param seatGrid The seat grid.
+     * @param heldSeatIds The held seat ids.
+     * @return true if the seats sit together
+     */
+    private static boolean isSeatedTogether(SeatGrid seatGrid, int[] heldSeatIds) {
+        int[] seatIds = heldSeatIds.clone();
+        Arrays.sort(seatIds);
+        for (int i = 1; i < seatIds.length; i++) {
+            int row = seatGrid.getSeatRow(seatIds[i]);
+            int previousRow = seatGrid.getSeatRow(seatIds[i - 1]);
+            if (row == previousRow ? seatIds[i] != seatIds[i - 1] + 1 : row != previousRow + 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method counts the open seats which are not next to any other open seat.
+     *
+     * @param seatGrid The seat grid.
+     * @return The no of orphan seats
+     */
+    private static int countOrphanSeats(SeatGrid seatGrid) {
+        int[] blockStarts = new int[(seatGrid.getNoOfColumns() + 1) / 2];
+        int[] blockSizes = new int[blockStarts.length];
+        int orphanSeats = 0;
+        for (int row = 0; row < seatGrid.getNoOfRows(); row++) {
+            int noOfBlocks = seatGrid.getOpenBlocks(row, blockStarts, blockSizes);
+            for (int block = 0; block < noOfBlocks; block++) {
+                orphanSeats += blockSizes[block] == 1 ? 1 : 0;
+            }
+        }
+        return orphanSeats;
+    }
+
+    /**
+     * This class holds the result of a simulation.
+     */
+    private static final class Result {
+
+        /**
+         * The no of requests
+         */
+        private final int noOfRequests;
+
+        /**
+         * The no of seats of the venue
+         */
+        private final int noOfSeats;
+
+        /**
+         * The latency of every hold, in nanoseconds
+         */
+        private final long[] latencies;
+
+        /**
+         * The no of latencies
+         */
+        private int noOfLatencies;
+
+        /**
+         * The no of seats sold
+         */
+        private int soldSeats;
+
+        /**
+         * The no of requests which could not be seated together
+         */
+        private int lostRequests;
+
+        /**
+         * The no of open seats left alone at the end
+         */
+        private int orphanSeats;
+
+        /**
+         * Constructor for a result.
+         *
+         * @param noOfRequests The no of requests.
+         * @param noOfSeats The no of seats of the venue.
+         */
+        private Result(int noOfRequests, int noOfSeats) {
+            this.noOfRequests = noOfRequests;
+            this.noOfSeats = noOfSeats;
+            this.latencies = new long[noOfRequests];
+        }
+
+        /**
+         * This method prints the result.
+         *
+         * @param allocationPolicy The allocation policy simulated.
+         */
+        private void print(AllocationPolicy allocationPolicy) {
+            long[] sortedLatencies = Arrays.copyOf(latencies, noOfLatencies);
+            Arrays.sort(sortedLatencies);
+            System.out.printf("%-22s %9d %9d %9d %9d %9.2f %9.2f %9.2f%n",
+                    allocationPolicy.getClass().getSimpleName().replace("AllocationPolicy", ""), noOfRequests,
+                    soldSeats, lostRequests, orphanSeats, 100.0 * soldSeats / noOfSeats,
+                    percentile(sortedLatencies, 0.50) / 1000.0, percentile(sortedLatencies, 0.99) / 1000.0);
+        }
+
+        /**
+         * This method returns a percentile of sorted latencies.
+         *
+         * @param sortedLatencies The sorted latencies.
+         * @param fraction The percentile, between 0 and 1.
+         * @return The latency, 0 without any latency
+         */
+        private static long percentile(long[] sortedLatencies, double fraction) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            return sortedLatencies[Math.min(sortedLatencies.length - 1, (int) (fraction * sortedLatencies.length))];
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.nmodi.ticketserviceapp.benchmarks;
+
+import com.nmodi.ticketserviceapp.dao.TicketHandlerDao;
+import com.nmodi.ticketserviceapp.dao.impl.TicketHandlerDaoImpl;
+import com.nmodi.ticketserviceapp.grid.Seat;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures listing and counting the available seats of a venue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmarks.properties")
+public class AvailabilityScanBenchmark {
+
+    @Param({"SMALL", "THEATRE", "STADIUM"})
+    private Venues.VenueSize venueSize;
+
+    @Param({"0.0", "0.3", "0.7"})
+    private double fragmentation;
+
+    private final TicketHandlerDao ticketHandlerDao = new TicketHandlerDaoImpl();
+
+    private SeatGrid seatGrid;
+
+    private int[] seatIds;
+
+    @Setup
+    public void setUp() {
+        seatGrid = Venues.create(venueSize, fragmentation);
+        seatIds = new int[seatGrid.getNoOfRows() * seatGrid.getNoOfColumns()];
+    }
+
+    @Benchmark
+    public List<Seat> getAvailableSeatsAsList() {
+        return ticketHandlerDao.getAvailableSeatsAsList(seatGrid);
+    }
+
+    @Benchmark
+    public int[] getAvailableSeatIds() {
+        return ticketHandlerDao.getAvailableSeatIds(seatGrid);
+    }
+
+    @Benchmark
+    public int getAvailableSeatIdsIntoArray() {
+        return ticketHandlerDao.getAvailableSeatIds(seatGrid, seatIds);
+    }
+
+    @Benchmark
+    public int getAvailableSeatCount() {
+        return ticketHandlerDao.getAvailableSeatCount(seatGrid);
+    }
+}
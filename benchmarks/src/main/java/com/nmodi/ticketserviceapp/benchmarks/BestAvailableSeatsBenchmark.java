@@ -0,0 +1,70 @@
+package com.nmodi.ticketserviceapp.benchmarks;
+
+import com.nmodi.ticketserviceapp.dao.TicketHandlerDao;
+import com.nmodi.ticketserviceapp.dao.impl.TicketHandlerDaoImpl;
+import com.nmodi.ticketserviceapp.grid.Seat;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import com.nmodi.ticketserviceapp.grid.SightlineScoringModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures finding and holding the best available seats of a venue. Every operation opens the held
+ * seats again, so the seat grid keeps the same fragmentation for the whole run. The scored runs allocate the seats
+ * with a sightline scoring model instead of the back rows first. The large parties of a fragmented venue rarely fit
+ * a single row, and measure the stacked placement on rows next to each other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmarks.properties")
+public class BestAvailableSeatsBenchmark {
+
+    @Param({"SMALL", "THEATRE", "STADIUM"})
+    private Venues.VenueSize venueSize;
+
+    @Param({"0.0", "0.3", "0.7"})
+    private double fragmentation;
+
+    @Param({"2", "6", "24"})
+    private int partySize;
+
+    @Param({"false", "true"})
+    private boolean scored;
+
+    private final TicketHandlerDao ticketHandlerDao = new TicketHandlerDaoImpl();
+
+    private SeatGrid seatGrid;
+
+    @Setup
+    public void setUp() {
+        seatGrid = Venues.create(venueSize, fragmentation);
+        if (scored) {
+            seatGrid.setSeatScoringModel(new SightlineScoringModel());
+        }
+    }
+
+    @Benchmark
+    public List<Seat> holdAndReleaseBestAvailableSeats() {
+        List<Seat> heldSeats = ticketHandlerDao.getBestAvailableSeats(seatGrid, partySize);
+        for (Seat seat : heldSeats) {
+            seatGrid.setSeatStatus(seat.getRow(), seat.getColumn(), SeatStatus.OPEN);
+        }
+        return heldSeats;
+    }
+}
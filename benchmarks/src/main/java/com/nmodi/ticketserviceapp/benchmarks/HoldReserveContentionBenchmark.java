@@ -0,0 +1,75 @@
+package com.nmodi.ticketserviceapp.benchmarks;
+
+import com.nmodi.ticketserviceapp.grid.Seat;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import com.nmodi.ticketserviceapp.service.TicketService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures concurrent buyers holding and reserving seats of the same venue through the ticket service.
+ * Every operation opens the reserved seats again, as a refund would, so the venue never sells out during the run.
+ * The number of buyers is set with the -t option.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmarks.properties")
+public class HoldReserveContentionBenchmark {
+
+    @Param({"THEATRE", "STADIUM"})
+    private Venues.VenueSize venueSize;
+
+    @Param({"0.0", "0.5"})
+    private double fragmentation;
+
+    @Param({"4"})
+    private int partySize;
+
+    private ClassPathXmlApplicationContext applicationContext;
+
+    private TicketService ticketService;
+
+    private SeatGrid seatGrid;
+
+    @Setup
+    public void setUp() {
+        applicationContext = new ClassPathXmlApplicationContext("applicationContext.xml");
+        ticketService = applicationContext.getBean("ticketServiceImpl", TicketService.class);
+        seatGrid = Venues.create(venueSize, fragmentation);
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public List<Seat> holdAndReserveSeats() {
+        int seatHoldId = ticketService.holdBestAvailableSeats(seatGrid, partySize, "buyer@benchmark.com");
+        List<Seat> reservedSeats = ticketService.reserveHeldSeats(seatGrid, seatHoldId, "buyer@benchmark.com");
+        for (Seat seat : reservedSeats) {
+            seatGrid.setSeatStatus(seat.getRow(), seat.getColumn(), SeatStatus.OPEN);
+        }
+        return reservedSeats;
+    }
+}
@@ -0,0 +1,452 @@
+package com.nmodi.ticketserviceapp.benchmarks;
+
+import com.nmodi.ticketserviceapp.exception.CustomerRequestNotValidException;
+import com.nmodi.ticketserviceapp.exception.ReservationRequestNotValidException;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import com.nmodi.ticketserviceapp.service.TicketServiceImpl;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This simulator replays the traffic of an on-sale against the ticket service of the spring context, with concurrent
+ * clients holding and reserving the seats of the same venue until it sells out, and reports what a production on-sale
+ * would be judged on: the throughput, the tail latencies of the holds and of the reservations, the allocation rate,
+ * and whether a seat was sold twice or a hold leaked.
+ *
+ * Every client takes the next request of the stream, holds the best available seats of the party and reserves them,
+ * or leaves the hold to expire for a party abandoning its hold. By default the party sizes follow a Zipf distribution,
+ * mostly single seats and couples with a long tail of larger parties, else a recorded request stream file (see
+ * {@link RequestStreams}) is replayed. The mix is set with the system properties zipf.exponent, max.party.size,
+ * abandon.rate and hold.timeout.millis. To run it type
+ *
+ * 'java -cp target/benchmarks.jar com.nmodi.ticketserviceapp.benchmarks.LoadSimulator STADIUM 8 [requestFile]'
+ */
+public final class LoadSimulator {
+
+    /**
+     * The default exponent of the Zipf distribution of the party sizes
+     */
+    private static final double DEFAULT_ZIPF_EXPONENT = 1.2;
+
+    /**
+     * The default largest party size
+     */
+    private static final int DEFAULT_MAX_PARTY_SIZE = 10;
+
+    /**
+     * The default fraction of the holds which are abandoned
+     */
+    private static final double DEFAULT_ABANDON_RATE = 0.2;
+
+    /**
+     * The default time, in milliseconds, after which an abandoned hold expires
+     */
+    private static final long DEFAULT_HOLD_TIMEOUT_MILLIS = 200;
+
+    /**
+     * The time, in milliseconds, given to the scheduler to expire the last holds after the hold timeout
+     */
+    private static final long EXPIRY_MARGIN_MILLIS = 500;
+
+    private LoadSimulator() {
+    }
+
+    /**
+     * This method runs the simulation.
+     *
+     * @param args The venue size, the no of clients, and the file of the recorded request stream.
+     * @throws IOException if the request stream can't be read
+     * @throws InterruptedException if the simulation is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (System.getProperty("log4j.configuration") == null) {
+            System.setProperty("log4j.configuration", "log4j-benchmarks.properties");
+        }
+        Venues.VenueSize venueSize = Venues.VenueSize.valueOf(args.length > 0 ? args[0] : "THEATRE");
+        int noOfClients = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long holdTimeoutMillis = Long.getLong("hold.timeout.millis", DEFAULT_HOLD_TIMEOUT_MILLIS);
+        int[] partySizes = args.length > 2 ? RequestStreams.read(args[2])
+                : RequestStreams.zipf(venueSize.getNoOfRows() * venueSize.getNoOfColumns(),
+                Integer.getInteger("max.party.size", DEFAULT_MAX_PARTY_SIZE),
+                Double.parseDouble(System.getProperty("zipf.exponent", String.valueOf(DEFAULT_ZIPF_EXPONENT))),
+                Double.parseDouble(System.getProperty("abandon.rate", String.valueOf(DEFAULT_ABANDON_RATE))));
+
+        ClassPathXmlApplicationContext applicationContext =
+                new ClassPathXmlApplicationContext("applicationContext.xml");
+        try {
+            TicketServiceImpl ticketService = applicationContext.getBean("ticketServiceImpl", TicketServiceImpl.class);
+            ticketService.setHoldTimeoutMillis(holdTimeoutMillis);
+            // a first run warms up the code, the second one is reported
+            simulate(ticketService, venueSize, noOfClients, partySizes);
+            Result result = simulate(ticketService, venueSize, noOfClients, partySizes);
+            Thread.sleep(holdTimeoutMillis + EXPIRY_MARGIN_MILLIS);
+            result.print(venueSize, noOfClients);
+        } finally {
+            applicationContext.close();
+        }
+    }
+
+    /**
+     * This method replays the request stream against a new venue with concurrent clients.
+     *
+     * @param ticketService The ticket service.
+     * @param venueSize The venue size.
+     * @param noOfClients The no of clients.
+     * @param partySizes The party size of every request, negative for an abandoned hold.
+     * @return The result of the simulation, checked once the abandoned holds expire
+     * @throws InterruptedException if the simulation is interrupted
+     */
+    private static Result simulate(TicketServiceImpl ticketService, Venues.VenueSize venueSize, int noOfClients,
+                                   int[] partySizes) throws InterruptedException {
+        SeatGrid seatGrid = Venues.create(venueSize, 0.0);
+        AtomicInteger nextRequest = new AtomicInteger();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        Client[] clients = new Client[noOfClients];
+        Thread[] threads = new Thread[noOfClients];
+        for (int clientNo = 0; clientNo < noOfClients; clientNo++) {
+            clients[clientNo] = new Client(clientNo, ticketService, seatGrid, partySizes, nextRequest, startSignal);
+            threads[clientNo] = new Thread(clients[clientNo], "load-client-" + clientNo);
+            threads[clientNo].start();
+        }
+        long startTime = System.nanoTime();
+        startSignal.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new Result(seatGrid, clients, System.nanoTime() - startTime);
+    }
+
+    /**
+     * This method returns the bytes allocated by the current thread so far.
+     *
+     * @return The allocated bytes, -1 if the jvm does not measure them
+     */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * This method returns a percentile of sorted latencies.
+     *
+     * @param sortedLatencies The sorted latencies.
+     * @param fraction The percentile, between 0 and 1.
+     * @return The latency, 0 without any latency
+     */
+    private static long percentile(long[] sortedLatencies, double fraction) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        return sortedLatencies[Math.min(sortedLatencies.length - 1, (int) (fraction * sortedLatencies.length))];
+    }
+
+    /**
+     * This class is a client taking the requests of the stream one at a time, until the stream is consumed. It keeps
+     * its latencies and reserved seats to itself, so the clients only share the request counter and the service.
+     */
+    private static final class Client implements Runnable {
+
+        /**
+         * The customer email of the client
+         */
+        private final String customerEmail;
+
+        /**
+         * The ticket service
+         */
+        private final TicketServiceImpl ticketService;
+
+        /**
+         * The seat grid
+         */
+        private final SeatGrid seatGrid;
+
+        /**
+         * The party size of every request, negative for an abandoned hold
+         */
+        private final int[] partySizes;
+
+        /**
+         * The index of the next request of the stream, shared by the clients
+         */
+        private final AtomicInteger nextRequest;
+
+        /**
+         * The signal starting the clients together
+         */
+        private final CountDownLatch startSignal;
+
+        /**
+         * The latency of every hold, in nanoseconds
+         */
+        private long[] holdLatencies = new long[256];
+
+        /**
+         * The no of hold latencies
+         */
+        private int noOfHolds;
+
+        /**
+         * The latency of every reservation, in nanoseconds
+         */
+        private long[] reserveLatencies = new long[256];
+
+        /**
+         * The no of reservation latencies
+         */
+        private int noOfReservations;
+
+        /**
+         * The reserved seat ids
+         */
+        private int[] reservedSeatIds = new int[1024];
+
+        /**
+         * The no of reserved seat ids
+         */
+        private int noOfReservedSeats;
+
+        /**
+         * The no of holds abandoned
+         */
+        private int abandonedHolds;
+
+        /**
+         * The no of requests rejected, the venue not having enough seats left
+         */
+        private int rejectedRequests;
+
+        /**
+         * The no of reservations failed
+         */
+        private int failedReservations;
+
+        /**
+         * The bytes allocated while replaying the requests, -1 if the jvm does not measure them
+         */
+        private long allocatedBytes;
+
+        /**
+         * Constructor for a client.
+         *
+         * @param clientNo The no of the client.
+         * @param ticketService The ticket service.
+         * @param seatGrid The seat grid.
+         * @param partySizes The party size of every request, negative for an abandoned hold.
+         * @param nextRequest The index of the next request of the stream.
+         * @param startSignal The signal starting the clients together.
+         */
+        private Client(int clientNo, TicketServiceImpl ticketService, SeatGrid seatGrid, int[] partySizes,
+                       AtomicInteger nextRequest, CountDownLatch startSignal) {
+            this.customerEmail = "client-" + clientNo + "@loadtest.com";
+            this.ticketService = ticketService;
+            this.seatGrid = seatGrid;
+            this.partySizes = partySizes;
+            this.nextRequest = nextRequest;
+            this.startSignal = startSignal;
+        }
+
+        /**
+         * This method replays the requests of the stream.
+         */
+        @Override
+        public void run() {
+            try {
+                startSignal.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long startBytes = getAllocatedBytes();
+            for (int requestNo = nextRequest.getAndIncrement(); requestNo < partySizes.length;
+                 requestNo = nextRequest.getAndIncrement()) {
+                int request = partySizes[requestNo];
+                long startTime = System.nanoTime();
+                int seatHoldId;
+                try {
+                    seatHoldId = ticketService.holdBestAvailableSeats(seatGrid, Math.abs(request), customerEmail);
+                } catch (CustomerRequestNotValidException ex) {
+                    rejectedRequests++;
+                    continue;
+                }
+                long holdTime = System.nanoTime();
+                holdLatencies = record(holdLatencies, noOfHolds++, holdTime - startTime);
+                if (request < 0) {
+                    // the hold is left to expire
+                    abandonedHolds++;
+                    continue;
+                }
+                int[] seatIds;
+                try {
+                    seatIds = ticketService.reserveHeldSeatIds(seatGrid, seatHoldId, customerEmail);
+                } catch (ReservationRequestNotValidException ex) {
+                    failedReservations++;
+                    continue;
+                }
+                reserveLatencies = record(reserveLatencies, noOfReservations++, System.nanoTime() - holdTime);
+                if (noOfReservedSeats + seatIds.length > reservedSeatIds.length) {
+                    reservedSeatIds = Arrays.copyOf(reservedSeatIds,
+                            Math.max(reservedSeatIds.length * 2, noOfReservedSeats + seatIds.length));
+                }
+                System.arraycopy(seatIds, 0, reservedSeatIds, noOfReservedSeats, seatIds.length);
+                noOfReservedSeats += seatIds.length;
+            }
+            long endBytes = getAllocatedBytes();
+            allocatedBytes = startBytes < 0 || endBytes < 0 ? -1 : endBytes - startBytes;
+        }
+
+        /**
+         * This method records a latency, growing the latencies when they are full.
+         *
+         * @param latencies The latencies.
+         * @param index The index of the latency.
+         * @param latency The latency, in nanoseconds.
+         * @return The latencies recorded
+         */
+        private static long[] record(long[] latencies, int index, long latency) {
+            long[] recordedLatencies = index < latencies.length ? latencies
+                    : Arrays.copyOf(latencies, latencies.length * 2);
+            recordedLatencies[index] = latency;
+            return recordedLatencies;
+        }
+    }
+
+    /**
+     * This class holds the result of a simulation, merged from the clients.
+     */
+    private static final class Result {
+
+        /**
+         * The seat grid
+         */
+        private final SeatGrid seatGrid;
+
+        /**
+         * The clients
+         */
+        private final Client[] clients;
+
+        /**
+         * The time the clients took to consume the stream, in nanoseconds
+         */
+        private final long elapsedNanos;
+
+        /**
+         * Constructor for a result.
+         *
+         * @param seatGrid The seat grid.
+         * @param clients The clients.
+         * @param elapsedNanos The time the clients took to consume the stream, in nanoseconds.
+         */
+        private Result(SeatGrid seatGrid, Client[] clients, long elapsedNanos) {
+            this.seatGrid = seatGrid;
+            this.clients = clients;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * This method prints the result, and checks no seat is sold twice and no hold leaked.
+         *
+         * @param venueSize The venue size.
+         * @param noOfClients The no of clients.
+         */
+        private void print(Venues.VenueSize venueSize, int noOfClients) {
+            long[] holdLatencies = new long[0];
+            long[] reserveLatencies = new long[0];
+            int abandonedHolds = 0;
+            int rejectedRequests = 0;
+            int failedReservations = 0;
+            long allocatedBytes = 0;
+            for (Client client : clients) {
+                holdLatencies = concat(holdLatencies, client.holdLatencies, client.noOfHolds);
+                reserveLatencies = concat(reserveLatencies, client.reserveLatencies, client.noOfReservations);
+                abandonedHolds += client.abandonedHolds;
+                rejectedRequests += client.rejectedRequests;
+                failedReservations += client.failedReservations;
+                allocatedBytes = allocatedBytes < 0 || client.allocatedBytes < 0 ? -1
+                        : allocatedBytes + client.allocatedBytes;
+            }
+            Arrays.sort(holdLatencies);
+            Arrays.sort(reserveLatencies);
+            int noOfOperations = holdLatencies.length + reserveLatencies.length;
+            double elapsedSeconds = elapsedNanos / 1e9;
+
+            System.out.printf("Venue %s, %d seats, %d clients%n", venueSize, seatGrid.getNoOfSeats(), noOfClients);
+            System.out.printf("Holds %d, reservations %d, abandoned %d, rejected %d, failed reservations %d%n",
+                    holdLatencies.length, reserveLatencies.length, abandonedHolds, rejectedRequests,
+                    failedReservations);
+            System.out.printf("Throughput %.0f ops/s in %.1f ms%n", noOfOperations / elapsedSeconds,
+                    elapsedNanos / 1e6);
+            System.out.printf("%-8s %9s %9s %9s %9s%n", "Latency", "p50 us", "p99 us", "p999 us", "max us");
+            printLatencies("hold", holdLatencies);
+            printLatencies("reserve", reserveLatencies);
+            if (allocatedBytes >= 0) {
+                System.out.printf("Allocation %.1f MB/s, %d bytes/op%n", allocatedBytes / elapsedSeconds / 1e6,
+                        noOfOperations == 0 ? 0 : allocatedBytes / noOfOperations);
+            }
+            System.out.printf("Oversold seats %d, leaked held seats %d%n", countOversoldSeats(),
+                    seatGrid.getSeatCount(SeatStatus.HOLD));
+        }
+
+        /**
+         * This method prints the percentiles of sorted latencies.
+         *
+         * @param name The name of the operation.
+         * @param sortedLatencies The sorted latencies.
+         */
+        private static void printLatencies(String name, long[] sortedLatencies) {
+            System.out.printf("%-8s %9.2f %9.2f %9.2f %9.2f%n", name, percentile(sortedLatencies, 0.50) / 1000.0,
+                    percentile(sortedLatencies, 0.99) / 1000.0, percentile(sortedLatencies, 0.999) / 1000.0,
+                    percentile(sortedLatencies, 1.0) / 1000.0);
+        }
+
+        /**
+         * This method counts the seats sold twice, reserved by more than one client or not reserved in the grid, and the
+         * seats reserved in the grid no client reserved.
+         *
+         * @return The no of oversold seats, 0 for a consistent on-sale
+         */
+        private int countOversoldSeats() {
+            BitSet soldSeatIds = new BitSet(seatGrid.getNoOfRows() * seatGrid.getNoOfColumns());
+            int oversoldSeats = 0;
+            int noOfReservedSeats = 0;
+            for (Client client : clients) {
+                for (int i = 0; i < client.noOfReservedSeats; i++) {
+                    int seatId = client.reservedSeatIds[i];
+                    if (soldSeatIds.get(seatId) || seatGrid.getSeatStatus(seatGrid.getSeatRow(seatId),
+                            seatGrid.getSeatColumn(seatId)) != SeatStatus.RESERVED) {
+                        oversoldSeats++;
+                    }
+                    soldSeatIds.set(seatId);
+                }
+                noOfReservedSeats += client.noOfReservedSeats;
+            }
+            return oversoldSeats + Math.abs(seatGrid.getSeatCount(SeatStatus.RESERVED) - noOfReservedSeats);
+        }
+
+        /**
+         * This method appends the recorded latencies of a client.
+         *
+         * @param latencies The latencies appended so far.
+         * @param clientLatencies The latencies of the client.
+         * @param noOfClientLatencies The no of latencies of the client.
+         * @return The latencies appended
+         */
+        private static long[] concat(long[] latencies, long[] clientLatencies, int noOfClientLatencies) {
+            long[] appendedLatencies = Arrays.copyOf(latencies, latencies.length + noOfClientLatencies);
+            System.arraycopy(clientLatencies, 0, appendedLatencies, latencies.length, noOfClientLatencies);
+            return appendedLatencies;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.nmodi.ticketserviceapp.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This is a utility class to read the recorded request streams of an on-sale, and to create synthetic ones. A request
+ * stream is the party size of every hold request in order, negative for a hold which is abandoned and left to expire.
+ *
+ * A recorded request stream is a text file with the party size of every request on its own line, followed by the word
+ * abandon for a hold which is abandoned, the lines starting with # being comments.
+ */
+public final class RequestStreams {
+
+    /**
+     * The seed of the synthetic request streams, so every run replays the same requests
+     */
+    private static final long SEED = 42L;
+
+    /**
+     * The party sizes of the random request stream, a size appearing as many times as it is likely
+     */
+    private static final int[] PARTY_SIZES = {1, 2, 2, 2, 2, 2, 2, 2, 3, 3, 3, 4, 4, 4, 4, 5, 6, 6, 8, 10};
+
+    /**
+     * The word following the party size of an abandoned hold in a recorded request stream
+     */
+    private static final String ABANDON = "abandon";
+
+    private RequestStreams() {
+    }
+
+    /**
+     * This method reads a recorded request stream.
+     *
+     * @param fileName The file of the request stream.
+     * @return The party size of every request, negative for an abandoned hold
+     * @throws IOException if the file can't be read
+     */
+    public static int[] read(String fileName) throws IOException {
+        int[] partySizes = new int[1024];
+        int noOfRequests = 0;
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (noOfRequests == partySizes.length) {
+                    partySizes = Arrays.copyOf(partySizes, noOfRequests * 2);
+                }
+                String[] fields = line.split("\\s+");
+                int partySize = Integer.parseInt(fields[0]);
+                partySizes[noOfRequests++] = fields.length > 1 && ABANDON.equals(fields[1]) ? -partySize : partySize;
+            }
+        } finally {
+            reader.close();
+        }
+        return Arrays.copyOf(partySizes, noOfRequests);
+    }
+
+    /**
+     * This method creates a stream of random party sizes, mostly couples and small groups, buying as many seats as
+     * the venue has.
+     *
+     * @param noOfSeats The no of seats of the venue.
+     * @param abandonRate The fraction of the holds which are abandoned.
+     * @return The party size of every request, negative for an abandoned hold
+     */
+    public static int[] random(int noOfSeats, double abandonRate) {
+        Random random = new Random(SEED);
+        int[] partySizes = new int[noOfSeats * 2];
+        int noOfRequests = 0;
+        for (int requestedSeats = 0; requestedSeats < noOfSeats; noOfRequests++) {
+            if (noOfRequests == partySizes.length) {
+                partySizes = Arrays.copyOf(partySizes, noOfRequests * 2);
+            }
+            int partySize = PARTY_SIZES[random.nextInt(PARTY_SIZES.length)];
+            partySizes[noOfRequests] = random.nextDouble() < abandonRate ? -partySize : partySize;
+            requestedSeats += partySizes[noOfRequests] > 0 ? partySize : 0;
+        }
+        return Arrays.copyOf(partySizes, noOfRequests);
+    }
+
+    /**
+     * This method creates a stream of party sizes following a Zipf distribution, where the party of k seats is
+     * 1 / k^exponent as likely as a single seat, buying as many seats as the venue has.
+     *
+     * @param noOfSeats The no of seats of the venue.
+     * @param maxPartySize The largest party size.
+     * @param exponent The exponent of the distribution, the larger the fewer large parties.
+     * @param abandonRate The fraction of the holds which are abandoned.
+     * @return The party size of every request, negative for an abandoned hold
+     */
+    public static int[] zipf(int noOfSeats, int maxPartySize, double exponent, double abandonRate) {
+        double[] cumulativeWeights = new double[maxPartySize];
+        double totalWeight = 0;
+        for (int partySize = 1; partySize <= maxPartySize; partySize++) {
+            totalWeight += 1 / Math.pow(partySize, exponent);
+            cumulativeWeights[partySize - 1] = totalWeight;
+        }
+        Random random = new Random(SEED);
+        int[] partySizes = new int[noOfSeats * 2];
+        int noOfRequests = 0;
+        for (int requestedSeats = 0; requestedSeats < noOfSeats; noOfRequests++) {
+            if (noOfRequests == partySizes.length) {
+                partySizes = Arrays.copyOf(partySizes, noOfRequests * 2);
+            }
+            int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble() * totalWeight);
+            int partySize = (index < 0 ? -index - 1 : index) + 1;
+            partySizes[noOfRequests] = random.nextDouble() < abandonRate ? -partySize : partySize;
+            requestedSeats += partySizes[noOfRequests] > 0 ? partySize : 0;
+        }
+        return Arrays.copyOf(partySizes, noOfRequests);
+    }
+}
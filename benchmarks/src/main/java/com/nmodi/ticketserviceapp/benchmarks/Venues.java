@@ -0,0 +1,79 @@
+package com.nmodi.ticketserviceapp.benchmarks;
+
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
+
+import java.util.Random;
+
+/**
+ * This is a utility class to set up the seat grids used by the benchmarks.
+ */
+public final class Venues {
+
+    /**
+     * The seed of the random reserved seats, so every run benchmarks the same seat grids
+     */
+    private static final long SEED = 42L;
+
+    /**
+     * This enum defines the venue sizes which are benchmarked.
+     */
+    public enum VenueSize {
+
+        SMALL(10, 10), THEATRE(40, 50), STADIUM(200, 400);
+
+        private final int noOfRows;
+
+        private final int noOfColumns;
+
+        /**
+         * Constructor to set the venue dimensions.
+         * @param noOfRows The no of rows.
+         * @param noOfColumns The no of columns.
+         */
+        private VenueSize(int noOfRows, int noOfColumns) {
+            this.noOfRows = noOfRows;
+            this.noOfColumns = noOfColumns;
+        }
+
+        /**
+         * Getter method for noOfRows.
+         * @return the noOfRows
+         */
+        public int getNoOfRows() {
+            return noOfRows;
+        }
+
+        /**
+         * Getter method for noOfColumns.
+         * @return the noOfColumns
+         */
+        public int getNoOfColumns() {
+            return noOfColumns;
+        }
+    }
+
+    private Venues() {
+    }
+
+    /**
+     * This method creates a seat grid in which the given fraction of seats is already reserved, spread at random
+     * so the open seats are fragmented in blocks of various sizes.
+     *
+     * @param venueSize The venue size.
+     * @param fragmentation The fraction of reserved seats, between 0 and 1.
+     * @return The seat grid
+     */
+    public static SeatGrid create(VenueSize venueSize, double fragmentation) {
+        SeatGrid seatGrid = new SeatGrid(venueSize.getNoOfRows(), venueSize.getNoOfColumns());
+        Random random = new Random(SEED);
+        for (int row = 0; row < venueSize.getNoOfRows(); row++) {
+            for (int column = 0; column < venueSize.getNoOfColumns(); column++) {
+                if (random.nextDouble() < fragmentation) {
+                    seatGrid.setSeatStatus(row, column, SeatStatus.RESERVED);
+                }
+            }
+        }
+        return seatGrid;
+    }
+}
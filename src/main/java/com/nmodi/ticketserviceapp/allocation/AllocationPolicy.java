@@ -0,0 +1,24 @@
+package com.nmodi.ticketserviceapp.allocation;
+
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+
+/**
+ * This interface chooses where a party is placed among the blocks of open seats next to each other of a venue.
+ *
+ * A policy only finds the block, the seats are then held by the dao under the row lock. As the seats keep changing
+ * meanwhile, the block found is only a hint which the dao checks again before holding it.
+ */
+public interface AllocationPolicy {
+
+    /**
+     * This method is used to find the block of open seats next to each other to place a party in, within a range of
+     * rows.
+     *
+     * @param seatGrid The seat grid.
+     * @param blockSize The no of seats required together.
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     * @return The seat id of the first seat of the block, -1 if no row of the range can accommodate the block
+     */
+    int findOpenBlock(SeatGrid seatGrid, int blockSize, int firstRow, int lastRow);
+}
@@ -0,0 +1,36 @@
+package com.nmodi.ticketserviceapp.allocation;
+
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+
+/**
+ * This class places a party in the best fitting block of the furthest row able to accommodate it, or in the block
+ * with the highest score for a grid having a seat scoring model. It is the default policy of the dao.
+ *
+ * Only the furthest row is looked at, so the block may leave a single seat which never sells while another row had a
+ * block of the exact size, see {@link FragmentationAwareAllocationPolicy}.
+ */
+public class BestFitAllocationPolicy implements AllocationPolicy {
+
+    /**
+     * This method is used to find the best fitting block of the furthest row, or the block with the highest score.
+     *
+     * @param seatGrid The seat grid.
+     * @param blockSize The no of seats required together.
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     * @return The seat id of the first seat of the block, -1 if no row of the range can accommodate the block
+     */
+    @Override
+    public int findOpenBlock(SeatGrid seatGrid, int blockSize, int firstRow, int lastRow) {
+        if (seatGrid.getSeatScoringModel() != null) {
+            return seatGrid.findBestScoredOpenBlock(blockSize, firstRow, lastRow);
+        }
+        // the far is better
+        int row = seatGrid.findLastRowWithOpenBlock(blockSize, firstRow, lastRow);
+        if (row < 0) {
+            return -1;
+        }
+        int firstSeat = seatGrid.findBestFitOpenBlock(row, blockSize);
+        return firstSeat < 0 ? -1 : seatGrid.getSeatId(row, firstSeat);
+    }
+}
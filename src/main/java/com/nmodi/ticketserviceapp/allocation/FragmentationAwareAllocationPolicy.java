@@ -0,0 +1,166 @@
+package com.nmodi.ticketserviceapp.allocation;
+
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * This class places a party where it leaves the venue the least fragmented, to keep the most inventory sellable.
+ *
+ * The candidates of a row are read from the open block index of the grid, smallest first: the best fitting blocks
+ * of the party, which hold the exact fit and the blocks leaving orphan seats, and the best fitting blocks leaving a
+ * sellable block over, so the best placement without a seat scoring model is always among them. The fragmentation a
+ * placement creates is scored by the orphan seats it leaves: the seats left over in the block next to the party which
+ * are fewer than the smallest sellable block. A placement leaving no orphan seat is always preferred. Among the
+ * placements leaving as many orphan seats, the smallest block is picked so the large blocks stay intact for the large
+ * parties, then the furthest row. For a grid having a seat scoring model the block with the highest score is picked
+ * instead of the smallest, among the positions leaving no orphan seat in the candidate blocks, each found from the
+ * precomputed scores of the grid.
+ *
+ * The rows are visited from the back with the open block index of the grid, skipping the rows too small for the
+ * party, and an exact fit stops the search without a seat scoring model. The candidate blocks are read into buffers
+ * kept per thread, so a search allocates nothing.
+ */
+public class FragmentationAwareAllocationPolicy implements AllocationPolicy {
+
+    /**
+     * The default no of seats of the smallest sellable block
+     */
+    private static final int DEFAULT_MIN_SELLABLE_BLOCK_SIZE = 2;
+
+    /**
+     * The no of seats of the smallest sellable block, the seats left over in a smaller block are orphans
+     */
+    @Getter
+    @Setter
+    private int minSellableBlockSize = DEFAULT_MIN_SELLABLE_BLOCK_SIZE;
+
+    /**
+     * The default no of candidate blocks read from a row for each of the two block sizes searched
+     */
+    private static final int DEFAULT_MAX_CANDIDATE_BLOCKS = 4;
+
+    /**
+     * The no of candidate blocks read from a row for each of the two block sizes searched, only the first one of each
+     * matters without a seat scoring model
+     */
+    @Getter
+    @Setter
+    private int maxCandidateBlocks = DEFAULT_MAX_CANDIDATE_BLOCKS;
+
+    /**
+     * The buffers of every thread the candidate blocks are read into, the starts then the sizes
+     */
+    private final ThreadLocal<int[][]> candidateBlocks = new ThreadLocal<int[][]>();
+
+    /**
+     * This method is used to find the block of open seats leaving the fewest orphan seats.
+     *
+     * @param seatGrid The seat grid.
+     * @param blockSize The no of seats required together.
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     * @return The seat id of the first seat of the block, -1 if no row of the range can accommodate the block
+     */
+    @Override
+    public int findOpenBlock(SeatGrid seatGrid, int blockSize, int firstRow, int lastRow) {
+        boolean scored = seatGrid.getSeatScoringModel() != null;
+        int[][] buffers = getCandidateBlocks();
+        int[] blockStarts = buffers[0];
+        int[] blockSizes = buffers[1];
+        int bestSeatId = -1;
+        int bestOrphanSeats = Integer.MAX_VALUE;
+        long bestRank = Long.MIN_VALUE;
+        int row = seatGrid.findLastRowWithOpenBlock(blockSize, firstRow, lastRow);
+        while (row >= 0) {
+            // the best fits of the party first, then the best fits leaving a sellable block over
+            int sellableBlockSize = Math.max(1, minSellableBlockSize);
+            for (int minBlockSize = blockSize; minBlockSize <= blockSize + sellableBlockSize;
+                 minBlockSize += sellableBlockSize) {
+                int noOfBlocks = seatGrid.getBestFitOpenBlocks(row, minBlockSize, blockStarts, blockSizes);
+                for (int block = 0; block < noOfBlocks; block++) {
+                    int orphanSeats = getOrphanSeats(blockSizes[block], blockSize);
+                    if (orphanSeats > bestOrphanSeats) {
+                        continue;
+                    }
+                    int start = scored ? findBestScoredStart(seatGrid, row, blockStarts[block], blockSizes[block],
+                            blockSize) : blockStarts[block];
+                    // the smaller block is the better without a seat scoring model
+                    long rank = scored ? seatGrid.getBlockScore(row, start, blockSize) : -blockSizes[block];
+                    if (orphanSeats < bestOrphanSeats || rank > bestRank) {
+                        bestOrphanSeats = orphanSeats;
+                        bestRank = rank;
+                        bestSeatId = seatGrid.getSeatId(row, start);
+                    }
+                }
+            }
+            if (!scored && bestOrphanSeats == 0 && bestRank == -blockSize) {
+                // an exact fit of the furthest row can't be beaten
+                break;
+            }
+            row = row > firstRow ? seatGrid.findLastRowWithOpenBlock(blockSize, firstRow, row - 1) : -1;
+        }
+        return bestSeatId;
+    }
+
+    /**
+     * This method returns the buffers of the current thread the candidate blocks are read into, sized to the no of
+     * candidate blocks.
+     *
+     * @return The block starts and the block sizes buffers
+     */
+    private int[][] getCandidateBlocks() {
+        int noOfBlocks = Math.max(1, maxCandidateBlocks);
+        int[][] buffers = candidateBlocks.get();
+        if (buffers == null || buffers[0].length != noOfBlocks) {
+            buffers = new int[][]{new int[noOfBlocks], new int[noOfBlocks]};
+            candidateBlocks.set(buffers);
+        }
+        return buffers;
+    }
+
+    /**
+     * This method returns the orphan seats left by a party placed at one end of an open block.
+     *
+     * @param openBlockSize The no of seats of the open block.
+     * @param blockSize The no of seats of the party.
+     * @return The no of orphan seats, 0 if the seats left over are sellable or the block is too small
+     */
+    private int getOrphanSeats(int openBlockSize, int blockSize) {
+        int seatsLeftOver = openBlockSize - blockSize;
+        return seatsLeftOver > 0 && seatsLeftOver < minSellableBlockSize ? seatsLeftOver : 0;
+    }
+
+    /**
+     * This method finds the position of a party with the highest score within an open block, among the positions
+     * leaving no more orphan seats than a party at one end of the block: either end of the block, or any position
+     * leaving sellable blocks on both sides.
+     *
+     * @param seatGrid The seat grid.
+     * @param row The row position.
+     * @param openBlockStart The first column of the open block.
+     * @param openBlockSize The no of seats of the open block.
+     * @param blockSize The no of seats of the party.
+     * @return The first column of the party
+     */
+    private int findBestScoredStart(SeatGrid seatGrid, int row, int openBlockStart, int openBlockSize,
+                                    int blockSize) {
+        int lastStart = openBlockStart + openBlockSize - blockSize;
+        int bestStart = openBlockStart;
+        long bestScore = seatGrid.getBlockScore(row, openBlockStart, blockSize);
+        if (openBlockStart + minSellableBlockSize <= lastStart - minSellableBlockSize) {
+            int start = seatGrid.findBestScoredBlockStart(row, openBlockStart + minSellableBlockSize,
+                    lastStart - minSellableBlockSize, blockSize);
+            long score = seatGrid.getBlockScore(row, start, blockSize);
+            if (score > bestScore) {
+                bestScore = score;
+                bestStart = start;
+            }
+        }
+        if (lastStart > bestStart && seatGrid.getBlockScore(row, lastStart, blockSize) > bestScore) {
+            bestStart = lastStart;
+        }
+        return bestStart;
+    }
+}
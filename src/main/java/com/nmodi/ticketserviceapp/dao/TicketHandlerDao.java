@@ -15,6 +15,40 @@ public interface TicketHandlerDao {
      */
     List<Seat> getAvailableSeatsAsList(SeatGrid sourceSeatGrid);
 
+    /**
+     * This method is used to get the number of available seats.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @return The number of available seats
+     */
+    int getAvailableSeatCount(SeatGrid sourceSeatGrid);
+
+    /**
+     * This method is used to get the number of available seats of a price tier.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param tier The price tier
+     * @return The number of available seats of the tier
+     */
+    int getAvailableSeatCount(SeatGrid sourceSeatGrid, String tier);
+
+    /**
+     * This method is used to get all available seats as seat ids, row * no of columns + column.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @return The available seat ids, in ascending order
+     */
+    int[] getAvailableSeatIds(SeatGrid sourceSeatGrid);
+
+    /**
+     * This method is used to get the available seats as seat ids into the given array, without any allocation.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param seatIds The array to write the seat ids to, in ascending order
+     * @return The number of seat ids written, at most the length of the array
+     */
+    int getAvailableSeatIds(SeatGrid sourceSeatGrid, int[] seatIds);
+
     /**
      * This method is used to get all available seats
      * and hold the seats as depending on the request.
@@ -24,4 +58,23 @@ public interface TicketHandlerDao {
      * @return The list of held seat
      */
     List<Seat> getBestAvailableSeats(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+
+    /**
+     * This method is used to hold the best available seats depending on the request, as seat ids.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param numberOfRequestedSeats The number of seats in request
+     * @return The held seat ids
+     */
+    int[] getBestAvailableSeatIds(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+
+    /**
+     * This method is used to hold the best available seats of a price tier depending on the request, as seat ids.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param numberOfRequestedSeats The number of seats in request
+     * @param tier The price tier, null for any seat of the venue
+     * @return The held seat ids
+     */
+    int[] getBestAvailableSeatIds(SeatGrid sourceSeatGrid, int numberOfRequestedSeats, String tier);
 }
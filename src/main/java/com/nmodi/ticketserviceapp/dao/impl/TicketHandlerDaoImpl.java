@@ -1,20 +1,81 @@
 package com.nmodi.ticketserviceapp.dao.impl;
 
+import com.nmodi.ticketserviceapp.allocation.AllocationPolicy;
+import com.nmodi.ticketserviceapp.allocation.BestFitAllocationPolicy;
 import com.nmodi.ticketserviceapp.dao.TicketHandlerDao;
 import com.nmodi.ticketserviceapp.exception.CustomerRequestNotValidException;
 import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
 import com.nmodi.ticketserviceapp.grid.Seat;
 import com.nmodi.ticketserviceapp.grid.SeatGrid;
 import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import com.nmodi.ticketserviceapp.grid.SeatZone;
+import com.nmodi.ticketserviceapp.metrics.TicketMetrics;
 
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.Lock;
 
 /**
  * This is the find available util class to find the total available/open seats to hold/reserve within venue.
  */
 public class TicketHandlerDaoImpl implements TicketHandlerDao {
 
+    /**
+     * The default no of seats of a grid from which the available seats are scanned in parallel
+     */
+    private static final int DEFAULT_PARALLEL_SCAN_THRESHOLD = 64 * 1024;
+
+    /**
+     * The no of seats below which a part of a parallel scan is not split anymore
+     */
+    private static final int SEATS_PER_SCAN_TASK = 8 * 1024;
+
+    /**
+     * The default no of rows a party too large for any row may be stacked on
+     */
+    private static final int DEFAULT_MAX_STACKED_ROWS = 3;
+
+    /**
+     * The pool running the parallel scans, shared by all the daos
+     */
+    private static final ForkJoinPool SCAN_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The no of seats of a grid from which the available seats are scanned in parallel
+     */
+    @Getter
+    @Setter
+    private int parallelScanThreshold = DEFAULT_PARALLEL_SCAN_THRESHOLD;
+
+    /**
+     * The no of rows a party too large for any row may be stacked on, below 2 to split such a party right away
+     */
+    @Getter
+    @Setter
+    private int maxStackedRows = DEFAULT_MAX_STACKED_ROWS;
+
+    /**
+     * The policy choosing the block of open seats where a party is placed
+     */
+    @Getter
+    @Setter
+    private AllocationPolicy allocationPolicy = new BestFitAllocationPolicy();
+
+    /**
+     * The metrics recording the searches of the holds and the contention on the row locks
+     */
+    @Resource
+    @Getter
+    @Setter
+    private TicketMetrics ticketMetrics = new TicketMetrics();
+
     /**
      * This method is used to get all available seats at list.
      *
@@ -23,18 +84,110 @@ public class TicketHandlerDaoImpl implements TicketHandlerDao {
      */
     @Override
     public List<Seat> getAvailableSeatsAsList(SeatGrid sourceSeatGrid) {
+        int[] seatIds = getAvailableSeatIds(sourceSeatGrid);
+        int noOfColumns = sourceSeatGrid.getNoOfColumns();
+        List<Seat> availableSeats = new ArrayList<Seat>(seatIds.length);
+        for (int seatId : seatIds) {
+            availableSeats.add(new Seat(seatId / noOfColumns, seatId % noOfColumns, SeatStatus.OPEN));
+        }
+        return availableSeats;
+    }
+
+    /**
+     * This method is used to get the number of available seats, from the live counters of the grid.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @return The number of available seats
+     */
+    @Override
+    public int getAvailableSeatCount(SeatGrid sourceSeatGrid) {
         if (sourceSeatGrid == null) {
             throw new SeatingArrangementNotValidException("source seat grid can not be null.");
         }
-        List<Seat> availableSeats = new ArrayList<Seat>();
-        for (int x = 0; x < sourceSeatGrid.getNoOfRows(); x++) {
-            for (int y = 0; y < sourceSeatGrid.getNoOfColumns(); y++) {
-                if (sourceSeatGrid.getSeatStatus(x, y).equals(SeatStatus.OPEN)) {
-                    availableSeats.add(sourceSeatGrid.getSeat(x, y));
-                }
+        return sourceSeatGrid.getSeatCount(SeatStatus.OPEN);
+    }
+
+    /**
+     * This method is used to get the number of available seats of a price tier, from the counts of its zones.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param tier The price tier
+     * @return The number of available seats of the tier
+     */
+    @Override
+    public int getAvailableSeatCount(SeatGrid sourceSeatGrid, String tier) {
+        if (sourceSeatGrid == null) {
+            throw new SeatingArrangementNotValidException("source seat grid can not be null.");
+        }
+        return sourceSeatGrid.getTierSeatCount(tier, SeatStatus.OPEN);
+    }
+
+    /**
+     * This method is used to get all available seats as seat ids. The rows of a grid of at least
+     * {@link #getParallelScanThreshold()} seats are split across a fork/join pool.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @return The available seat ids, in ascending order
+     */
+    @Override
+    public int[] getAvailableSeatIds(SeatGrid sourceSeatGrid) {
+        if (sourceSeatGrid == null) {
+            throw new SeatingArrangementNotValidException("source seat grid can not be null.");
+        }
+        int noOfRows = sourceSeatGrid.getNoOfRows();
+        if ((long) noOfRows * sourceSeatGrid.getNoOfColumns() >= parallelScanThreshold) {
+            return getAvailableSeatIdsInParallel(sourceSeatGrid, noOfRows);
+        }
+        // sized for every seat, so a seat released while the grid is scanned is not left out
+        int[] seatIds = new int[sourceSeatGrid.getNoOfSeats()];
+        int noOfSeatIds = sourceSeatGrid.getSeatIds(SeatStatus.OPEN, seatIds);
+        return noOfSeatIds == seatIds.length ? seatIds : Arrays.copyOf(seatIds, noOfSeatIds);
+    }
+
+    /**
+     * This method is used to scan the available seats of the rows in parallel. Every row has its own range of the
+     * result, as long as the row, so the tasks write straight into a single array and a row is read only once. A seat
+     * released while the grid is scanned is never left out for lack of room, and the gaps left by the rows having seats
+     * which are not available are closed once the scan is done.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param noOfRows The no of rows.
+     * @return The available seat ids, in ascending order
+     */
+    private static int[] getAvailableSeatIdsInParallel(SeatGrid sourceSeatGrid, int noOfRows) {
+        int[] rowOffsets = new int[noOfRows + 1];
+        for (int row = 0; row < noOfRows; row++) {
+            rowOffsets[row + 1] = rowOffsets[row] + sourceSeatGrid.getRowLength(row);
+        }
+        int[] seatIds = new int[rowOffsets[noOfRows]];
+        int[] rowSeatIdCounts = new int[noOfRows];
+        int rowsPerTask = Math.max(1, SEATS_PER_SCAN_TASK / sourceSeatGrid.getNoOfColumns());
+        SCAN_POOL.invoke(new AvailableSeatScan(sourceSeatGrid, 0, noOfRows, rowsPerTask, rowOffsets, seatIds,
+                rowSeatIdCounts));
+
+        int noOfSeatIds = 0;
+        for (int row = 0; row < noOfRows; row++) {
+            if (noOfSeatIds != rowOffsets[row]) {
+                System.arraycopy(seatIds, rowOffsets[row], seatIds, noOfSeatIds, rowSeatIdCounts[row]);
             }
+            noOfSeatIds += rowSeatIdCounts[row];
         }
-        return availableSeats;
+        return noOfSeatIds == seatIds.length ? seatIds : Arrays.copyOf(seatIds, noOfSeatIds);
+    }
+
+    /**
+     * This method is used to get the available seats as seat ids into the given array.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param seatIds The array to write the seat ids to, in ascending order
+     * @return The number of seat ids written, at most the length of the array
+     */
+    @Override
+    public int getAvailableSeatIds(SeatGrid sourceSeatGrid, int[] seatIds) {
+        if (sourceSeatGrid == null) {
+            throw new SeatingArrangementNotValidException("source seat grid can not be null.");
+        }
+        return sourceSeatGrid.getSeatIds(SeatStatus.OPEN, seatIds);
     }
 
     /**
@@ -46,147 +199,399 @@ public class TicketHandlerDaoImpl implements TicketHandlerDao {
      */
     @Override
     public List<Seat> getBestAvailableSeats(SeatGrid sourceSeatGrid, int requiredSeatCount) {
+        int[] seatIds = getBestAvailableSeatIds(sourceSeatGrid, requiredSeatCount);
+        List<Seat> heldSeats = new ArrayList<Seat>(seatIds.length);
+        SeatGrid.Cursor cursor = sourceSeatGrid.cursor();
+        for (int seatId : seatIds) {
+            heldSeats.add(cursor.moveTo(seatId).getSeat());
+        }
+        return heldSeats;
+    }
+
+    /**
+     * This method is used to find and hold the particular seat for given venue, as seat ids.
+     *
+     * The best block which can accommodate all the remaining seats together is chosen by the allocation policy, by
+     * default the furthest row for a grid without a seat scoring model, else the block with the highest score.
+     * If no row can, the party is stacked on rows next to each other, directly front and back, on 2 rows first and up
+     * to the max stacked rows. If no stack fits either, the largest block of the grid is held and the rest of the
+     * seats are searched again. Each block is held under the lock of its row, if the block was taken by a concurrent
+     * request meanwhile the search is simply done again.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param requiredSeatCount The number of seats coming in request.
+     * @return The held seat ids
+     */
+    @Override
+    public int[] getBestAvailableSeatIds(SeatGrid sourceSeatGrid, int requiredSeatCount) {
+        return getBestAvailableSeatIds(sourceSeatGrid, requiredSeatCount, null);
+    }
+
+    /**
+     * This method is used to find and hold the particular seat of a price tier, as seat ids. The open blocks are only
+     * searched within the rows of the zones of the tier, the same way as for the whole venue.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param requiredSeatCount The number of seats coming in request.
+     * @param tier The price tier, null for any seat of the venue.
+     * @return The held seat ids
+     */
+    @Override
+    public int[] getBestAvailableSeatIds(SeatGrid sourceSeatGrid, int requiredSeatCount, String tier) {
 
         if (sourceSeatGrid == null) {
             throw new SeatingArrangementNotValidException("source seat grid can not be null.");
         }
-        if (requiredSeatCount == 0) {
-            throw new CustomerRequestNotValidException("The number of seats in request can not be 0");
-        }
-        List<Seat> availableSeats = new ArrayList<Seat>();
-        int heldSeats = 0;
-        while (heldSeats < requiredSeatCount) {
-            int highestSeatSlot = 0;
-            int bestRowToAccomodateGuest = Integer.MIN_VALUE;
-            // assign the best seats if available, the far is better
-            for (int row = (sourceSeatGrid.getNoOfRows() - 1); row >= 0; row--) {
-                List<Seat> initiallyAssignedSeatList = assignSeats(sourceSeatGrid, row, requiredSeatCount);
-                availableSeats.addAll(initiallyAssignedSeatList);
-                heldSeats = heldSeats + initiallyAssignedSeatList.size();
-                // when request is fulfilled
-                if(heldSeats == requiredSeatCount) {
-                    return availableSeats;
-                }
+        if (requiredSeatCount <= 0) {
+            throw new CustomerRequestNotValidException("The number of seats in request must be greater than 0");
+        }
+        boolean scored = sourceSeatGrid.getSeatScoringModel() != null;
+        List<SeatZone> seatZones = tier == null ? null : sourceSeatGrid.getTierZones(tier);
+        int[] heldSeatIds = new int[requiredSeatCount];
+        int remainingSeats = requiredSeatCount;
+        int noOfSearches = 0;
+        while (remainingSeats > 0) {
+            // assign the best seats if available
+            int blockSize = remainingSeats;
+            int firstSeatId = findBestOpenBlock(sourceSeatGrid, blockSize, scored, seatZones);
+            noOfSearches++;
+            if (firstSeatId < 0 && remainingSeats == requiredSeatCount
+                    && holdStackedSeats(sourceSeatGrid, requiredSeatCount, scored, seatZones, heldSeatIds)) {
+                ticketMetrics.recordSearchLength(noOfSearches);
+                return heldSeatIds;
+            }
+            if (firstSeatId < 0) {
                 // based on the request, find best suitable row and place if the request is not easily fulfil
                 // E.g. if 5 seats are requested and seats are available in 1, 2 and 3 blocks then it should fulfil 3 first.
-                List<Integer> slotsAvailableByRow = getSeatCountsInGroupsByRow(sourceSeatGrid, row);
-                for (Integer slotAvailable : slotsAvailableByRow) {
-                    if (slotAvailable > highestSeatSlot) {
-                        highestSeatSlot = slotAvailable;
-                        bestRowToAccomodateGuest = row;
-                    }
+                // the block found may also have been taken meanwhile, so the largest block may fit all the seats
+                blockSize = Math.min(getLargestOpenBlock(sourceSeatGrid, seatZones), remainingSeats);
+                if (blockSize == 0) {
+                    releaseSeats(sourceSeatGrid, heldSeatIds, requiredSeatCount - remainingSeats);
+                    throw new CustomerRequestNotValidException("Not enough seats are available"
+                            + (tier == null ? "" : " in tier " + tier) + " to hold " + requiredSeatCount + " seats");
                 }
-            }
-            // Still some s\eats are not issued
-            if (heldSeats != requiredSeatCount) {
-                if (bestRowToAccomodateGuest != Integer.MIN_VALUE) {
-                    int remainingSeats = requiredSeatCount - heldSeats;
-                    highestSeatSlot = remainingSeats < highestSeatSlot ? remainingSeats : highestSeatSlot;
-                    List<Seat> bestAssignedSeatList = assignSeats(sourceSeatGrid, bestRowToAccomodateGuest, highestSeatSlot);
-                    availableSeats.addAll(bestAssignedSeatList);
-                    heldSeats = heldSeats + bestAssignedSeatList.size();
+                firstSeatId = findBestOpenBlock(sourceSeatGrid, blockSize, scored, seatZones);
+                noOfSearches++;
+                if (firstSeatId < 0) {
+                    continue;
                 }
             }
+            remainingSeats = remainingSeats - holdSeatsNextToEachOther(sourceSeatGrid, firstSeatId, blockSize,
+                    heldSeatIds, requiredSeatCount - remainingSeats);
         }
-        return availableSeats;
+        ticketMetrics.recordSearchLength(noOfSearches);
+        return heldSeatIds;
+    }
+
+    /**
+     * This method is used to find the best block of open seats next to each other with the allocation policy, within
+     * the rows of the given zones.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param requiredSeatCount The number of required seats.
+     * @param scored Whether the grid has a seat scoring model.
+     * @param seatZones The zones to search, null for the whole grid.
+     * @return The seat id of the first seat of the block, -1 if no block was found
+     */
+    private int findBestOpenBlock(SeatGrid sourceSeatGrid, int requiredSeatCount, boolean scored,
+                                  List<SeatZone> seatZones) {
+        if (seatZones == null) {
+            return allocationPolicy.findOpenBlock(sourceSeatGrid, requiredSeatCount, 0,
+                    sourceSeatGrid.getNoOfRows() - 1);
+        }
+        int bestSeatId = -1;
+        for (SeatZone seatZone : seatZones) {
+            int seatId = allocationPolicy.findOpenBlock(sourceSeatGrid, requiredSeatCount, seatZone.getFirstRow(),
+                    seatZone.getLastRow());
+            if (seatId >= 0 && (bestSeatId < 0 || isBetterBlock(sourceSeatGrid, requiredSeatCount, scored, seatId,
+                    bestSeatId))) {
+                bestSeatId = seatId;
+            }
+        }
+        return bestSeatId;
     }
 
     /**
-     * This method is used to assign the seats.
+     * This method is used to hold a party too large for any row on a stack of rows next to each other, the fewest rows
+     * first.
      *
      * @param sourceSeatGrid The source seat grid.
      * @param requiredSeatCount The number of seats coming in request.
-     * @return The list of held seats
+     * @param scored Whether the grid has a seat scoring model.
+     * @param seatZones The zones to search, null for the whole grid.
+     * @param heldSeatIds The array to add the held seat ids to.
+     * @return true if the seats were held, false if no stack was found or it was taken meanwhile
      */
-    private static List<Seat> assignSeats(SeatGrid sourceSeatGrid, int row, int requiredSeatCount) {
-        // a list which includes number of seats available together in group
-        List<Integer> seatGroup = getSeatCountsInGroupsByRow(sourceSeatGrid, row);
-        if (seatGroup.contains(requiredSeatCount)) {
-            return findAndHoldSeatsNextToEachOther(sourceSeatGrid, row, requiredSeatCount, 0);
-        } else {
-            // maximum suitable seat, based on the number of requested seats
-            // For example, if a person wants to request only single seat and a row has 2, 3 adn 4 seat blocks available than
-            // the person should be given a ticket from 2 seat blocks (based on difference between requiredSeatCount and blockSize)
-            int maxSuitableSeat = Integer.MAX_VALUE;
-            for (Integer seatBlockSize: seatGroup) {
-                int differenceInSeatBlockAndRequestedSeat = seatBlockSize - requiredSeatCount;
-                maxSuitableSeat = (differenceInSeatBlockAndRequestedSeat > 0) &&
-                        (differenceInSeatBlockAndRequestedSeat < maxSuitableSeat)? seatBlockSize : maxSuitableSeat;
+    private boolean holdStackedSeats(SeatGrid sourceSeatGrid, int requiredSeatCount, boolean scored,
+                                     List<SeatZone> seatZones, int[] heldSeatIds) {
+        for (int noOfStackedRows = 2; noOfStackedRows <= maxStackedRows; noOfStackedRows++) {
+            int frontSeatId = findStackedOpenBlock(sourceSeatGrid, requiredSeatCount, noOfStackedRows, scored,
+                    seatZones);
+            if (frontSeatId >= 0) {
+                return holdSeatsFrontAndBack(sourceSeatGrid, frontSeatId, requiredSeatCount, noOfStackedRows,
+                        heldSeatIds);
             }
-            // check whether the maxSuitableSeat is updated and able to allot requested seats
-            if ((maxSuitableSeat != Integer.MAX_VALUE) && (maxSuitableSeat > requiredSeatCount)) {
-                return findAndHoldSeatsNextToEachOther(sourceSeatGrid, row, requiredSeatCount, maxSuitableSeat);
+        }
+        return false;
+    }
+
+    /**
+     * This method is used to find the best stack of open blocks within the rows of the given zones.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param requiredSeatCount The number of required seats.
+     * @param noOfStackedRows The no of rows of the stack.
+     * @param scored Whether the grid has a seat scoring model.
+     * @param seatZones The zones to search, null for the whole grid.
+     * @return The seat id of the first seat of the front row of the stack, -1 if no stack was found
+     */
+    private static int findStackedOpenBlock(SeatGrid sourceSeatGrid, int requiredSeatCount, int noOfStackedRows,
+                                            boolean scored, List<SeatZone> seatZones) {
+        if (seatZones == null) {
+            return sourceSeatGrid.findStackedOpenBlock(requiredSeatCount, noOfStackedRows, 0,
+                    sourceSeatGrid.getNoOfRows() - 1);
+        }
+        int bestSeatId = -1;
+        for (SeatZone seatZone : seatZones) {
+            int seatId = sourceSeatGrid.findStackedOpenBlock(requiredSeatCount, noOfStackedRows,
+                    seatZone.getFirstRow(), seatZone.getLastRow());
+            if (seatId >= 0 && (bestSeatId < 0 || (scored
+                    ? getStackedBlockScore(sourceSeatGrid, seatId, requiredSeatCount, noOfStackedRows)
+                    > getStackedBlockScore(sourceSeatGrid, bestSeatId, requiredSeatCount, noOfStackedRows)
+                    : seatId > bestSeatId))) {
+                bestSeatId = seatId;
             }
         }
-        return new ArrayList<Seat>();
+        return bestSeatId;
     }
 
     /**
-     * This method is used to book/hold the seats, which also takes a look for
-     * availability of neighbor seats.
+     * This method returns the total score of the blocks of a stack.
      *
      * @param sourceSeatGrid The source seat grid.
-     * @param row The row number.
-     * @param requiredSeatCount The number of required seats
-     * @param highestAvailableSeat The highest available seat from which the seat should be given.
-     * @return The list of integer, which gives the available seat blocks in specific row
-     */
-    private static List<Seat> findAndHoldSeatsNextToEachOther(SeatGrid sourceSeatGrid, int row, int requiredSeatCount, int highestAvailableSeat) {
-        List<Seat> seats = new ArrayList<Seat>();
-        for (int seatNumber = 0; seatNumber < sourceSeatGrid.getNoOfColumns(); seatNumber++) {
-            if (sourceSeatGrid.getSeatStatus(row, seatNumber).equals(SeatStatus.OPEN)) {
-                int seatGroupCount = 1;
-                int nextSeat = (seatNumber + 1) < sourceSeatGrid.getNoOfColumns() ? seatNumber + 1 : -1;
-                while (nextSeat > 0 && sourceSeatGrid.getSeatStatus(row, nextSeat).equals(SeatStatus.OPEN)) {
-                    seatGroupCount++;
-                    nextSeat = (nextSeat + 1) < sourceSeatGrid.getNoOfColumns() ? nextSeat + 1 : -1;
-                }
-                if (seatGroupCount == requiredSeatCount) {
-                    while (requiredSeatCount != 0) {
-                        // Hold specific seat
-                        sourceSeatGrid.setSeatStatus(row, seatNumber, SeatStatus.HOLD);
-                        seats.add(sourceSeatGrid.getSeat(row, seatNumber++));
-                        requiredSeatCount--;
-                    }
-                    return seats;
-                } else if ((seatGroupCount == highestAvailableSeat) &&
-                        (seatGroupCount > requiredSeatCount)) {
-                    while (requiredSeatCount != 0) {
-                        // Hold specific seat
-                        sourceSeatGrid.setSeatStatus(row, seatNumber, SeatStatus.HOLD);
-                        seats.add(sourceSeatGrid.getSeat(row, seatNumber++));
-                        requiredSeatCount--;
-                    }
-                    return seats;
-                } else {
-                    seatNumber = seatNumber + seatGroupCount;
+     * @param frontSeatId The seat id of the first seat of the front row of the stack.
+     * @param requiredSeatCount The number of seats of the stack.
+     * @param noOfStackedRows The no of rows of the stack.
+     * @return The total score
+     */
+    private static long getStackedBlockScore(SeatGrid sourceSeatGrid, int frontSeatId, int requiredSeatCount,
+                                             int noOfStackedRows) {
+        int frontRow = sourceSeatGrid.getSeatRow(frontSeatId);
+        int firstSeat = sourceSeatGrid.getSeatColumn(frontSeatId);
+        int blockSize = SeatGrid.getStackedBlockSize(requiredSeatCount, noOfStackedRows);
+        long score = sourceSeatGrid.getBlockScore(frontRow, firstSeat,
+                requiredSeatCount - (noOfStackedRows - 1) * blockSize);
+        for (int row = frontRow + 1; row < frontRow + noOfStackedRows; row++) {
+            score += sourceSeatGrid.getBlockScore(row, firstSeat, blockSize);
+        }
+        return score;
+    }
+
+    /**
+     * This method is used to book/hold the seats of a stack of blocks found open. The rows of the stack are all locked
+     * while their blocks are checked, so the seats are held all together or not at all.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param frontSeatId The seat id of the first seat of the front row of the stack.
+     * @param requiredSeatCount The number of seats of the stack.
+     * @param noOfStackedRows The no of rows of the stack.
+     * @param heldSeatIds The array to add the held seat ids to.
+     * @return true if the seats were held, false if a block is no longer open
+     */
+    private boolean holdSeatsFrontAndBack(SeatGrid sourceSeatGrid, int frontSeatId, int requiredSeatCount,
+                                          int noOfStackedRows, int[] heldSeatIds) {
+        int frontRow = sourceSeatGrid.getSeatRow(frontSeatId);
+        int firstSeat = sourceSeatGrid.getSeatColumn(frontSeatId);
+        int blockSize = SeatGrid.getStackedBlockSize(requiredSeatCount, noOfStackedRows);
+        int frontBlockSize = requiredSeatCount - (noOfStackedRows - 1) * blockSize;
+        int backRow = frontRow + noOfStackedRows - 1;
+        for (int row = frontRow; row <= backRow; row++) {
+            ticketMetrics.lock(sourceSeatGrid.getRowLock(row));
+        }
+        try {
+            for (int row = frontRow; row <= backRow; row++) {
+                if (!sourceSeatGrid.isOpenBlock(row, firstSeat, row == frontRow ? frontBlockSize : blockSize)) {
+                    return false;
                 }
             }
+            // the back row first, as the seats are held further first
+            int noOfHeldSeats = 0;
+            for (int row = backRow; row >= frontRow; row--) {
+                noOfHeldSeats += holdSeatsNextToEachOther(sourceSeatGrid, sourceSeatGrid.getSeatId(row, firstSeat),
+                        row == frontRow ? frontBlockSize : blockSize, heldSeatIds, noOfHeldSeats);
+            }
+            return true;
+        } finally {
+            for (int row = backRow; row >= frontRow; row--) {
+                sourceSeatGrid.getRowLock(row).unlock();
+            }
+        }
+    }
+
+    /**
+     * This method compares two blocks of open seats found in different zones.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param requiredSeatCount The number of seats of the blocks.
+     * @param scored Whether the grid has a seat scoring model.
+     * @param seatId The seat id of the first seat of the block.
+     * @param bestSeatId The seat id of the first seat of the best block so far.
+     * @return true if the block has a higher score, or is further without a seat scoring model
+     */
+    private static boolean isBetterBlock(SeatGrid sourceSeatGrid, int requiredSeatCount, boolean scored, int seatId,
+                                         int bestSeatId) {
+        if (!scored) {
+            return seatId > bestSeatId;
+        }
+        return sourceSeatGrid.getBlockScore(sourceSeatGrid.getSeatRow(seatId), sourceSeatGrid.getSeatColumn(seatId),
+                requiredSeatCount) > sourceSeatGrid.getBlockScore(sourceSeatGrid.getSeatRow(bestSeatId),
+                sourceSeatGrid.getSeatColumn(bestSeatId), requiredSeatCount);
+    }
+
+    /**
+     * This method returns the size of the largest block of open seats next to each other within the given zones.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param seatZones The zones, null for the whole grid.
+     * @return The size of the largest open block, 0 if no seat is open
+     */
+    private static int getLargestOpenBlock(SeatGrid sourceSeatGrid, List<SeatZone> seatZones) {
+        if (seatZones == null) {
+            return sourceSeatGrid.getLargestOpenBlock();
+        }
+        int largestOpenBlock = 0;
+        for (SeatZone seatZone : seatZones) {
+            largestOpenBlock = Math.max(largestOpenBlock,
+                    sourceSeatGrid.getLargestOpenBlock(seatZone.getFirstRow(), seatZone.getLastRow()));
+        }
+        return largestOpenBlock;
+    }
+
+    /**
+     * This method is used to book/hold the seats next to each other of a block found open.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param firstSeatId The seat id of the first seat of the block.
+     * @param requiredSeatCount The number of required seats
+     * @param heldSeatIds The array to add the held seat ids to.
+     * @param noOfHeldSeats The number of seat ids already in the array.
+     * @return The number of held seats, 0 if the block is no longer open
+     */
+    private int holdSeatsNextToEachOther(SeatGrid sourceSeatGrid, int firstSeatId, int requiredSeatCount,
+                                         int[] heldSeatIds, int noOfHeldSeats) {
+        int row = sourceSeatGrid.getSeatRow(firstSeatId);
+        int firstSeat = sourceSeatGrid.getSeatColumn(firstSeatId);
+        Lock rowLock = sourceSeatGrid.getRowLock(row);
+        ticketMetrics.lock(rowLock);
+        try {
+            if (!sourceSeatGrid.isOpenBlock(row, firstSeat, requiredSeatCount)) {
+                return 0;
+            }
+            SeatGrid.Cursor cursor = sourceSeatGrid.cursor();
+            int lastSeat = firstSeat + requiredSeatCount;
+            for (int seatNumber = firstSeat; seatNumber < lastSeat; seatNumber++) {
+                // Hold specific seat, the block was checked open under the row lock
+                cursor.moveTo(row, seatNumber).setSeatStatus(SeatStatus.HOLD);
+                heldSeatIds[noOfHeldSeats++] = firstSeatId++;
+            }
+            return requiredSeatCount;
+        } finally {
+            rowLock.unlock();
         }
-        return seats;
     }
 
     /**
-     * This method is used to get the seat count by row.
+     * This method is used to open again the seats held by a request which could not be fulfilled.
      *
      * @param sourceSeatGrid The source seat grid.
-     * @param row The row number.
-     * @return The list of integer, which gives the available seat blocks in specific row
+     * @param heldSeatIds The held seat ids.
+     * @param noOfHeldSeats The number of held seats.
      */
-    private static List<Integer> getSeatCountsInGroupsByRow(SeatGrid sourceSeatGrid, int row) {
-        List<Integer> seatGroup = new ArrayList<Integer>();
-        for (int seatNumber = 0; seatNumber < sourceSeatGrid.getNoOfColumns(); seatNumber++) {
-            if (sourceSeatGrid.getSeatStatus(row, seatNumber).equals(SeatStatus.OPEN)) {
-                int seatGroupCount = 1;
-                int nextSeat = (seatNumber + 1) < sourceSeatGrid.getNoOfColumns() ? seatNumber + 1 : -1;
-                while (nextSeat > 0 && sourceSeatGrid.getSeatStatus(row, nextSeat).equals(SeatStatus.OPEN)) {
-                    seatGroupCount++;
-                    nextSeat = (nextSeat + 1) < sourceSeatGrid.getNoOfColumns() ? nextSeat + 1 : -1;
+    private static void releaseSeats(SeatGrid sourceSeatGrid, int[] heldSeatIds, int noOfHeldSeats) {
+        for (int i = 0; i < noOfHeldSeats; i++) {
+            sourceSeatGrid.setSeatStatus(sourceSeatGrid.getSeatRow(heldSeatIds[i]),
+                    sourceSeatGrid.getSeatColumn(heldSeatIds[i]), SeatStatus.OPEN);
+        }
+    }
+
+    /**
+     * This class scans the available seats of a range of rows, split in halves until the range is small enough.
+     */
+    private static class AvailableSeatScan extends RecursiveAction {
+
+        private static final long serialVersionUID = 2907414745542123981L;
+
+        /**
+         * The source seat grid
+         */
+        private final SeatGrid sourceSeatGrid;
+
+        /**
+         * The first row of the range
+         */
+        private final int fromRow;
+
+        /**
+         * The row after the last row of the range
+         */
+        private final int toRow;
+
+        /**
+         * The no of rows below which the range is not split anymore
+         */
+        private final int rowsPerTask;
+
+        /**
+         * The position in the result of the first seat id of every row
+         */
+        private final int[] rowOffsets;
+
+        /**
+         * The result
+         */
+        private final int[] seatIds;
+
+        /**
+         * The no of seat ids written by every row
+         */
+        private final int[] rowSeatIdCounts;
+
+        /**
+         * Constructor for an AvailableSeatScan.
+         *
+         * @param sourceSeatGrid The source seat grid.
+         * @param fromRow The first row of the range.
+         * @param toRow The row after the last row of the range.
+         * @param rowsPerTask The no of rows below which the range is not split anymore.
+         * @param rowOffsets The position in the result of the first seat id of every row.
+         * @param seatIds The result.
+         * @param rowSeatIdCounts The no of seat ids written by every row.
+         */
+        private AvailableSeatScan(SeatGrid sourceSeatGrid, int fromRow, int toRow, int rowsPerTask, int[] rowOffsets,
+                                  int[] seatIds, int[] rowSeatIdCounts) {
+            this.sourceSeatGrid = sourceSeatGrid;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rowsPerTask = rowsPerTask;
+            this.rowOffsets = rowOffsets;
+            this.seatIds = seatIds;
+            this.rowSeatIdCounts = rowSeatIdCounts;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= rowsPerTask) {
+                for (int row = fromRow; row < toRow; row++) {
+                    rowSeatIdCounts[row] = sourceSeatGrid.getRowSeatIds(SeatStatus.OPEN, row, seatIds, rowOffsets[row],
+                            rowOffsets[row + 1] - rowOffsets[row]);
                 }
-                seatGroup.add(seatGroupCount);
-                seatNumber = seatNumber + seatGroupCount;
+                return;
             }
+            int middleRow = (fromRow + toRow) >>> 1;
+            invokeAll(new AvailableSeatScan(sourceSeatGrid, fromRow, middleRow, rowsPerTask, rowOffsets, seatIds,
+                            rowSeatIdCounts),
+                    new AvailableSeatScan(sourceSeatGrid, middleRow, toRow, rowsPerTask, rowOffsets, seatIds,
+                            rowSeatIdCounts));
         }
-        return seatGroup;
     }
 }
@@ -0,0 +1,480 @@
+package com.nmodi.ticketserviceapp.grid;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class keeps an index of the blocks of open seats next to each other, maintained on every seat status change.
+ *
+ * Each row keeps its open blocks by start column and by size, so the best fitting block of a row is found in
+ * logarithmic time. On top of the rows a segment tree keeps the largest open block of every row, which finds the
+ * furthest row able to accommodate a block in logarithmic time as well. Together they answer the stacked blocks of
+ * the rows next to each other: the tree skips the rows too small, and only the blocks of the remaining rows are
+ * intersected.
+ *
+ * The blocks of a row must only be updated and read while holding the lock of the row. The segment tree is shared by
+ * all the rows and is updated without locks, so a row found in the tree is only a hint which must be checked again
+ * with the blocks of the row under its lock.
+ */
+class OpenBlockIndex {
+
+    /**
+     * The open blocks of every row
+     */
+    private final RowBlocks[] rowBlocks;
+
+    /**
+     * The no of leaves of the segment tree, the smallest power of two covering all the rows
+     */
+    private final int leafCount;
+
+    /**
+     * The segment tree of the largest open block, the leaf of a row is at leafCount + row
+     */
+    private final AtomicIntegerArray largestBlocks;
+
+    /**
+     * Constructor for the index.
+     *
+     * @param noOfRows The no of rows.
+     * @param noOfColumns The no of columns.
+     * @param allOpen Whether all the seats are open initially.
+     */
+    OpenBlockIndex(int noOfRows, int noOfColumns, boolean allOpen) {
+        int leaves = 1;
+        while (leaves < noOfRows) {
+            leaves <<= 1;
+        }
+        this.leafCount = leaves;
+        int[] largest = new int[leaves << 1];
+        this.rowBlocks = new RowBlocks[noOfRows];
+        for (int row = 0; row < noOfRows; row++) {
+            rowBlocks[row] = new RowBlocks();
+            if (allOpen) {
+                rowBlocks[row].add(0, noOfColumns);
+                largest[leafCount + row] = noOfColumns;
+            }
+        }
+        for (int node = leafCount - 1; node > 0; node--) {
+            largest[node] = Math.max(largest[node << 1], largest[(node << 1) + 1]);
+        }
+        this.largestBlocks = new AtomicIntegerArray(largest);
+    }
+
+    /**
+     * This method is used to record that a seat became open.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     */
+    void seatOpened(int row, int column) {
+        RowBlocks blocks = rowBlocks[row];
+        int start = column;
+        int length = 1;
+        Map.Entry<Integer, Integer> previousBlock = blocks.byStart.floorEntry(column - 1);
+        if (previousBlock != null && previousBlock.getKey() + previousBlock.getValue() == column) {
+            start = previousBlock.getKey();
+            length += previousBlock.getValue();
+            blocks.remove(previousBlock.getKey(), previousBlock.getValue());
+        }
+        Integer nextBlockLength = blocks.byStart.get(column + 1);
+        if (nextBlockLength != null) {
+            length += nextBlockLength;
+            blocks.remove(column + 1, nextBlockLength);
+        }
+        blocks.add(start, length);
+        updateLargestBlock(row);
+    }
+
+    /**
+     * This method is used to record that an open seat was held, reserved or otherwise closed.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     */
+    void seatClosed(int row, int column) {
+        RowBlocks blocks = rowBlocks[row];
+        Map.Entry<Integer, Integer> block = blocks.byStart.floorEntry(column);
+        if (block == null || block.getKey() + block.getValue() <= column) {
+            return;
+        }
+        int start = block.getKey();
+        int end = start + block.getValue();
+        blocks.remove(start, block.getValue());
+        if (column > start) {
+            blocks.add(start, column - start);
+        }
+        if (end > column + 1) {
+            blocks.add(column + 1, end - column - 1);
+        }
+        updateLargestBlock(row);
+    }
+
+    /**
+     * This method is used to record a whole block of open seats, which must not touch any other open block of the row.
+     *
+     * @param row The row position.
+     * @param start The start column.
+     * @param length The no of seats of the block.
+     */
+    void blockOpened(int row, int start, int length) {
+        rowBlocks[row].add(start, length);
+        updateLargestBlock(row);
+    }
+
+    /**
+     * This method returns the size of the largest open block in the grid.
+     *
+     * @return The size of the largest open block, 0 if no seat is open
+     */
+    int getLargestBlock() {
+        return largestBlocks.get(1);
+    }
+
+    /**
+     * This method returns the size of the largest open block of a row.
+     *
+     * @param row The row position.
+     * @return The size of the largest open block, 0 if no seat of the row is open
+     */
+    int getLargestBlock(int row) {
+        return largestBlocks.get(leafCount + row);
+    }
+
+    /**
+     * This method finds the furthest row which has an open block of at least the given size.
+     *
+     * @param blockSize The required block size.
+     * @return The row position, -1 if no row has such a block
+     */
+    int findLastRowWithBlock(int blockSize) {
+        if (largestBlocks.get(1) < blockSize) {
+            return -1;
+        }
+        int node = 1;
+        while (node < leafCount) {
+            int right = (node << 1) + 1;
+            node = largestBlocks.get(right) >= blockSize ? right : right - 1;
+        }
+        return node - leafCount;
+    }
+
+    /**
+     * This method returns the size of the largest open block of a range of rows.
+     *
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     * @return The size of the largest open block, 0 if no seat of the rows is open
+     */
+    int getLargestBlock(int firstRow, int lastRow) {
+        int largest = 0;
+        for (int low = leafCount + firstRow, high = leafCount + lastRow + 1; low < high; low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                largest = Math.max(largest, largestBlocks.get(low++));
+            }
+            if ((high & 1) == 1) {
+                largest = Math.max(largest, largestBlocks.get(--high));
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * This method finds the furthest row of a range of rows which has an open block of at least the given size. Only
+     * the nodes of the segment tree covering the range are visited.
+     *
+     * @param blockSize The required block size.
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     * @return The row position, -1 if no row of the range has such a block
+     */
+    int findLastRowWithBlock(int blockSize, int firstRow, int lastRow) {
+        return findLastRowWithBlock(1, 0, leafCount - 1, blockSize, firstRow, lastRow);
+    }
+
+    /**
+     * This method finds the furthest row of a range of rows having an open block of at least the given size, below a
+     * segment tree node, the right child first.
+     *
+     * @param node The segment tree node.
+     * @param nodeFirstRow The first row covered by the node.
+     * @param nodeLastRow The last row covered by the node.
+     * @param blockSize The required block size.
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     * @return The row position, -1 if no row has such a block
+     */
+    private int findLastRowWithBlock(int node, int nodeFirstRow, int nodeLastRow, int blockSize, int firstRow,
+                                     int lastRow) {
+        if (nodeFirstRow > lastRow || nodeLastRow < firstRow || largestBlocks.get(node) < blockSize) {
+            return -1;
+        }
+        if (node >= leafCount) {
+            return nodeFirstRow;
+        }
+        int middleRow = (nodeFirstRow + nodeLastRow) >>> 1;
+        int row = findLastRowWithBlock((node << 1) + 1, middleRow + 1, nodeLastRow, blockSize, firstRow, lastRow);
+        return row >= 0 ? row : findLastRowWithBlock(node << 1, nodeFirstRow, middleRow, blockSize, firstRow, lastRow);
+    }
+
+    /**
+     * This method finds the best fitting open block of a row, which is the left most of the smallest blocks having at
+     * least the given size.
+     *
+     * @param row The row position.
+     * @param blockSize The required block size.
+     * @return The start column of the block, -1 if the row has no such block
+     */
+    int findBestFitBlock(int row, int blockSize) {
+        Map.Entry<Integer, TreeSet<Integer>> bestFit = rowBlocks[row].startsBySize.ceilingEntry(blockSize);
+        return bestFit == null ? -1 : bestFit.getValue().first();
+    }
+
+    /**
+     * This method returns the best fitting open blocks of a row, the smallest blocks having at least the given size
+     * first and the left most first for the same size.
+     *
+     * @param row The row position.
+     * @param blockSize The required block size.
+     * @param blockStarts The array to write the start column of every block to.
+     * @param blockSizes The array to write the size of every block to.
+     * @return The no of blocks written, at most the length of the arrays
+     */
+    int getBestFitBlocks(int row, int blockSize, int[] blockStarts, int[] blockSizes) {
+        int noOfBlocks = 0;
+        for (Map.Entry<Integer, TreeSet<Integer>> blocks
+                : rowBlocks[row].startsBySize.tailMap(blockSize, true).entrySet()) {
+            for (int blockStart : blocks.getValue()) {
+                if (noOfBlocks == blockStarts.length || noOfBlocks == blockSizes.length) {
+                    return noOfBlocks;
+                }
+                blockStarts[noOfBlocks] = blockStart;
+                blockSizes[noOfBlocks++] = blocks.getKey();
+            }
+        }
+        return noOfBlocks;
+    }
+
+    /**
+     * This method finds the block of the given no of seats with the highest score among the open blocks of a row, the
+     * left most for the same score. Only the open blocks large enough are scored, each start in constant time from the
+     * prefix sums of the seat scores.
+     *
+     * @param row The row position.
+     * @param blockSize The required block size.
+     * @param seatScores The seat scores.
+     * @return The start column of the block, -1 if the row has no such block
+     */
+    int findBestScoredBlock(int row, int blockSize, SeatScores seatScores) {
+        int bestStart = -1;
+        long bestScore = Long.MIN_VALUE;
+        for (Map.Entry<Integer, TreeSet<Integer>> blocks
+                : rowBlocks[row].startsBySize.tailMap(blockSize, true).entrySet()) {
+            int lastOffset = blocks.getKey() - blockSize;
+            for (int blockStart : blocks.getValue()) {
+                int start = seatScores.findBestBlockStart(row, blockStart, blockStart + lastOffset, blockSize);
+                long score = seatScores.getBlockScore(row, start, blockSize);
+                if (score > bestScore || (score == bestScore && start < bestStart)) {
+                    bestScore = score;
+                    bestStart = start;
+                }
+            }
+        }
+        return bestStart;
+    }
+
+    /**
+     * This method returns the open blocks of a row, from the left.
+     *
+     * @param row The row position.
+     * @param blockStarts The array to write the start column of every block to.
+     * @param blockSizes The array to write the size of every block to.
+     * @return The no of blocks written, at most the length of the arrays
+     */
+    int getBlocks(int row, int[] blockStarts, int[] blockSizes) {
+        int noOfBlocks = 0;
+        for (Map.Entry<Integer, Integer> block : rowBlocks[row].byStart.entrySet()) {
+            if (noOfBlocks == blockStarts.length || noOfBlocks == blockSizes.length) {
+                break;
+            }
+            blockStarts[noOfBlocks] = block.getKey();
+            blockSizes[noOfBlocks++] = block.getValue();
+        }
+        return noOfBlocks;
+    }
+
+    /**
+     * This method finds the column where every row of a stack of rows has an open block of its given size, all the
+     * blocks starting at this column. It is the left most such column, or the column with the highest total score
+     * with seat scores. All the rows of the stack must be locked.
+     *
+     * @param firstRow The front row of the stack.
+     * @param blockSizes The block size of every row of the stack, from the front row.
+     * @param seatScores The seat scores, null to pick the left most column.
+     * @return The start column of the blocks, -1 if the rows have no such blocks
+     */
+    int findStackedBlock(int firstRow, int[] blockSizes, SeatScores seatScores) {
+        int[] startRanges = getStartRanges(firstRow, blockSizes[0]);
+        for (int stackedRow = 1; stackedRow < blockSizes.length && startRanges.length > 0; stackedRow++) {
+            startRanges = intersect(startRanges, getStartRanges(firstRow + stackedRow, blockSizes[stackedRow]));
+        }
+        if (startRanges.length == 0 || seatScores == null) {
+            return startRanges.length == 0 ? -1 : startRanges[0];
+        }
+        int bestStart = -1;
+        long bestScore = Long.MIN_VALUE;
+        for (int range = 0; range < startRanges.length; range += 2) {
+            for (int start = startRanges[range]; start <= startRanges[range + 1]; start++) {
+                long score = 0;
+                for (int stackedRow = 0; stackedRow < blockSizes.length; stackedRow++) {
+                    score += seatScores.getBlockScore(firstRow + stackedRow, start, blockSizes[stackedRow]);
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestStart = start;
+                }
+            }
+        }
+        return bestStart;
+    }
+
+    /**
+     * This method returns whether the given seats of a row are all open.
+     *
+     * @param row The row position.
+     * @param start The start column.
+     * @param length The no of seats.
+     * @return true if an open block covers the seats
+     */
+    boolean isOpen(int row, int start, int length) {
+        Map.Entry<Integer, Integer> block = rowBlocks[row].byStart.floorEntry(start);
+        return block != null && block.getKey() + block.getValue() >= start + length;
+    }
+
+    /**
+     * This method returns the columns where a block of the given size can start within the open blocks of a row.
+     *
+     * @param row The row position.
+     * @param blockSize The block size.
+     * @return The first and the last start column of every open block large enough, from the left
+     */
+    private int[] getStartRanges(int row, int blockSize) {
+        int[] startRanges = new int[rowBlocks[row].byStart.size() << 1];
+        int noOfValues = 0;
+        for (Map.Entry<Integer, Integer> block : rowBlocks[row].byStart.entrySet()) {
+            if (block.getValue() >= blockSize) {
+                startRanges[noOfValues++] = block.getKey();
+                startRanges[noOfValues++] = block.getKey() + block.getValue() - blockSize;
+            }
+        }
+        return Arrays.copyOf(startRanges, noOfValues);
+    }
+
+    /**
+     * This method intersects two lists of disjoint ranges sorted from the left.
+     *
+     * @param ranges The first and the last value of every range of the first list.
+     * @param otherRanges The first and the last value of every range of the other list.
+     * @return The first and the last value of every range of the intersection
+     */
+    private static int[] intersect(int[] ranges, int[] otherRanges) {
+        int[] intersection = new int[ranges.length + otherRanges.length];
+        int noOfValues = 0;
+        for (int range = 0, otherRange = 0; range < ranges.length && otherRange < otherRanges.length; ) {
+            int first = Math.max(ranges[range], otherRanges[otherRange]);
+            int last = Math.min(ranges[range + 1], otherRanges[otherRange + 1]);
+            if (first <= last) {
+                intersection[noOfValues++] = first;
+                intersection[noOfValues++] = last;
+            }
+            if (ranges[range + 1] < otherRanges[otherRange + 1]) {
+                range += 2;
+            } else {
+                otherRange += 2;
+            }
+        }
+        return Arrays.copyOf(intersection, noOfValues);
+    }
+
+    /**
+     * This method refreshes the largest block of a row in the segment tree. Every parent node is set with a compare and
+     * set, and set again if its children changed meanwhile, so the last update of a node always sees the latest values
+     * of its children.
+     *
+     * @param row The row position.
+     */
+    private void updateLargestBlock(int row) {
+        TreeMap<Integer, TreeSet<Integer>> startsBySize = rowBlocks[row].startsBySize;
+        int node = leafCount + row;
+        largestBlocks.set(node, startsBySize.isEmpty() ? 0 : startsBySize.lastKey());
+        for (node >>= 1; node > 0; node >>= 1) {
+            while (true) {
+                int current = largestBlocks.get(node);
+                int largest = largestOfChildren(node);
+                if (largestBlocks.compareAndSet(node, current, largest) && largest == largestOfChildren(node)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method returns the largest block of the children of a segment tree node.
+     *
+     * @param node The segment tree node.
+     * @return The largest block of the children
+     */
+    private int largestOfChildren(int node) {
+        return Math.max(largestBlocks.get(node << 1), largestBlocks.get((node << 1) + 1));
+    }
+
+    /**
+     * This class holds the open blocks of a single row.
+     */
+    private static class RowBlocks {
+
+        /**
+         * The block sizes by start column
+         */
+        private final TreeMap<Integer, Integer> byStart = new TreeMap<Integer, Integer>();
+
+        /**
+         * The block start columns by block size
+         */
+        private final TreeMap<Integer, TreeSet<Integer>> startsBySize = new TreeMap<Integer, TreeSet<Integer>>();
+
+        /**
+         * This method adds a block.
+         *
+         * @param start The start column.
+         * @param size The block size.
+         */
+        private void add(int start, int size) {
+            byStart.put(start, size);
+            TreeSet<Integer> starts = startsBySize.get(size);
+            if (starts == null) {
+                starts = new TreeSet<Integer>();
+                startsBySize.put(size, starts);
+            }
+            starts.add(start);
+        }
+
+        /**
+         * This method removes a block.
+         *
+         * @param start The start column.
+         * @param size The block size.
+         */
+        private void remove(int start, int size) {
+            byStart.remove(start);
+            TreeSet<Integer> starts = startsBySize.get(size);
+            starts.remove(start);
+            if (starts.isEmpty()) {
+                startsBySize.remove(size);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.nmodi.ticketserviceapp.grid;
+
+/**
+ * This interface applies the status changes of the seats read from a {@link SeatChangeStream}, such as a seat map
+ * drawing the available seats.
+ */
+public interface SeatChangeListener {
+
+    /**
+     * This method is used to apply the status change of a seat.
+     *
+     * @param sequence The sequence of the change in the stream.
+     * @param seatId The seat id.
+     * @param previousSeatStatus The status of the seat before the change.
+     * @param seatStatus The status of the seat after the change.
+     */
+    void seatChanged(long sequence, int seatId, SeatStatus previousSeatStatus, SeatStatus seatStatus);
+}
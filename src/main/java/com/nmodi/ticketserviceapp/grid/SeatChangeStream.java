@@ -0,0 +1,248 @@
+package com.nmodi.ticketserviceapp.grid;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class publishes the status changes of the seats of a grid as a sequenced stream, so a seat map applies the
+ * changes as they happen instead of reading the whole grid again.
+ *
+ * The changes are written to a ring buffer of a fixed power of two capacity. A change claims its sequence with a
+ * single atomic increment and is written to the slot of its sequence, each change packed in a long with the seat id,
+ * the previous status value and the new status value, then the sequence of the slot is published. The changes of a
+ * seat are published under its row lock, so they are sequenced in the order they are made.
+ *
+ * A publisher delayed between claiming its sequence and writing its change may find its slot taken by a change
+ * claimed a lap later. The slot is therefore claimed with a compare and set on its sequence before the change is
+ * written, and only from an older sequence: the delayed change is dropped rather than overwriting the newer one, and
+ * the subscribers still waiting for it find the newer sequence and are overrun.
+ *
+ * The publishers never wait for the subscribers. A subscriber which falls behind by more than the capacity is
+ * overrun, the changes it missed being overwritten, and resyncs: it subscribes again, reads the seats of the grid
+ * again (see {@link SeatGrid#getSeatIds(SeatStatus, int[])}) and applies the changes from there. A change made while
+ * the seats are read may be applied again, which is harmless as every change sets the new status of its seat.
+ */
+public class SeatChangeStream {
+
+    /**
+     * The default capacity of the ring buffer
+     */
+    private static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    /**
+     * The bits of a status value in a packed change
+     */
+    private static final int STATUS_BITS = 2;
+
+    /**
+     * The mask of a status value in a packed change
+     */
+    private static final long STATUS_MASK = (1L << STATUS_BITS) - 1;
+
+    /**
+     * The mask of the slot of a sequence
+     */
+    private final int slotMask;
+
+    /**
+     * The packed changes, by slot
+     */
+    private final AtomicLongArray changes;
+
+    /**
+     * The sequence of the change published in every slot, -1 while a slot was never published, or
+     * -2 - sequence while the change of the sequence is written
+     */
+    private final AtomicLongArray publishedSequences;
+
+    /**
+     * The sequence of the next change
+     */
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * This is the no-arg constructor, which creates a ring buffer of the default capacity.
+     */
+    public SeatChangeStream() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * This is the single arg constructor with the capacity of the ring buffer.
+     *
+     * @param capacity The no of changes kept for the subscribers, a power of two.
+     */
+    public SeatChangeStream(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two");
+        }
+        this.slotMask = capacity - 1;
+        this.changes = new AtomicLongArray(capacity);
+        this.publishedSequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            publishedSequences.set(i, -1);
+        }
+    }
+
+    /**
+     * This method returns the no of changes kept for the subscribers.
+     *
+     * @return The capacity of the ring buffer
+     */
+    public int getCapacity() {
+        return slotMask + 1;
+    }
+
+    /**
+     * This method returns the sequence of the next change, which is the no of changes published so far.
+     *
+     * @return The sequence of the next change
+     */
+    public long getNextSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * This method is used to subscribe to the changes made from now on.
+     *
+     * @return The subscription
+     */
+    public Subscription subscribe() {
+        return new Subscription(nextSequence.get());
+    }
+
+    /**
+     * This method is used to publish the status change of a seat. The row lock of the seat must be held.
+     *
+     * @param seatId The seat id.
+     * @param previousValue The previous status value of the seat.
+     * @param newValue The new status value of the seat.
+     */
+    void publish(int seatId, int previousValue, int newValue) {
+        publish(claimSequence(), seatId, previousValue, newValue);
+    }
+
+    /**
+     * This method is used to claim the sequence of the next change.
+     *
+     * @return The sequence
+     */
+    long claimSequence() {
+        return nextSequence.getAndIncrement();
+    }
+
+    /**
+     * This method is used to publish the status change of a seat with its claimed sequence. The change is dropped if
+     * its slot was already taken by a newer sequence, and it waits for the change of an older sequence still being
+     * written to the slot.
+     *
+     * @param sequence The claimed sequence.
+     * @param seatId The seat id.
+     * @param previousValue The previous status value of the seat.
+     * @param newValue The new status value of the seat.
+     */
+    void publish(long sequence, int seatId, int previousValue, int newValue) {
+        int slot = (int) sequence & slotMask;
+        while (true) {
+            long slotSequence = publishedSequences.get(slot);
+            if (slotSequence(slotSequence) > sequence) {
+                // a change claimed a lap later took the slot
+                return;
+            }
+            if (slotSequence < -1) {
+                Thread.yield();
+            } else if (publishedSequences.compareAndSet(slot, slotSequence, -2 - sequence)) {
+                break;
+            }
+        }
+        changes.set(slot, ((long) seatId << (STATUS_BITS << 1)) | (previousValue << STATUS_BITS) | newValue);
+        publishedSequences.set(slot, sequence);
+    }
+
+    /**
+     * This method returns the sequence a slot is published or written with.
+     *
+     * @param slotSequence The sequence value of the slot.
+     * @return The sequence, -1 while the slot was never published
+     */
+    private static long slotSequence(long slotSequence) {
+        return slotSequence < -1 ? -2 - slotSequence : slotSequence;
+    }
+
+    /**
+     * This class reads the changes of the stream in sequence, from a single thread.
+     */
+    public final class Subscription {
+
+        /**
+         * The sequence of the next change to read
+         */
+        private long sequence;
+
+        /**
+         * Whether the subscriber fell behind and missed changes
+         */
+        private boolean overrun;
+
+        /**
+         * Constructor for a Subscription.
+         *
+         * @param sequence The sequence of the first change to read.
+         */
+        private Subscription(long sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * This method returns the sequence of the next change to read.
+         *
+         * @return The sequence
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * This method returns whether the subscriber fell behind and missed changes, in which case it must resync
+         * from a snapshot with a new subscription.
+         *
+         * @return true if the subscription was overrun
+         */
+        public boolean isOverrun() {
+            return overrun;
+        }
+
+        /**
+         * This method is used to hand the published changes to a listener, in sequence. It stops at the first change
+         * not published yet, so a change is never skipped.
+         *
+         * @param seatChangeListener The listener.
+         * @param maxChanges The maximum no of changes to read.
+         * @return The no of changes read, or -1 if the subscription was overrun
+         */
+        public int poll(SeatChangeListener seatChangeListener, int maxChanges) {
+            int noOfChanges = 0;
+            while (!overrun && noOfChanges < maxChanges) {
+                int slot = (int) sequence & slotMask;
+                long publishedSequence = publishedSequences.get(slot);
+                if (publishedSequence != sequence) {
+                    // an older sequence or this one is not published yet, a newer one overwrote the change
+                    overrun = slotSequence(publishedSequence) > sequence;
+                    break;
+                }
+                long change = changes.get(slot);
+                // the change may have been overwritten while it was read, by a sequence claimed a lap later
+                if (nextSequence.get() - sequence > slotMask + 1) {
+                    overrun = true;
+                    break;
+                }
+                seatChangeListener.seatChanged(sequence, (int) (change >>> (STATUS_BITS << 1)),
+                        SeatGrid.toSeatStatus((int) ((change >>> STATUS_BITS) & STATUS_MASK)),
+                        SeatGrid.toSeatStatus((int) (change & STATUS_MASK)));
+                sequence++;
+                noOfChanges++;
+            }
+            return overrun ? -1 : noOfChanges;
+        }
+    }
+}
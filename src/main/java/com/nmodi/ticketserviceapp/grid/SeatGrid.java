@@ -4,8 +4,53 @@ import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * This class provides the grid implementation which is the foundation for the seats to reside.
+ *
+ * The seat statuses are bit-packed, two bits per seat, into a single contiguous array of long words. Each row starts
+ * on a word boundary so a row scan only touches its own words, and the unused bits at the end of a row are filled
+ * with {@link #PADDING_VALUE} so they are never mistaken for an open seat.
+ *
+ * Every row has its own lock, which guards the words and the open blocks of the row. Seats of different rows can be
+ * held and reserved in parallel, while a group of seats taken from a row is taken atomically under the row lock.
+ *
+ * The no of seats of every status is counted for the grid and for every row as the seats change, so the counts are
+ * read in constant time without scanning the seats.
+ *
+ * The seat words are kept on the heap, or off the heap in a file mapped in memory (see
+ * {@link #openMapped(File, int, int)}). The mapped file starts with a header of {@link #FILE_HEADER_SIZE} bytes, the
+ * magic number, the layout version, the no of rows and the no of columns as little endian ints, followed by the seat
+ * words in the same layout as in memory, so the seats of a venue survive a restart and are loaded without copy.
+ *
+ * An irregular venue is created from a {@link VenueLayout}. Every row then only has the words of its own length, found
+ * from a table of row offsets, and its aisles and missing seats hold the padding value, so the scans and the open
+ * block index skip them like the padding at the end of a row. The seat ids and the columns are still counted up to
+ * the longest row, so a column after the end of a short row is simply not a seat.
+ *
+ * The rows can be zoned into sections sold at price tiers (see {@link #setSeatZones(List)}), the seats of every zone
+ * are counted as they change and the open blocks are searched within the rows of a zone.
+ *
+ * The public accessors validate the position of every seat and take the row lock for every update. The dao and the
+ * service, which only handle the seat ids found by the grid itself and already hold the row locks, read and update the
+ * seats through a {@link Cursor} instead, which skips both.
+ *
+ * The status changes of the seats can be published to a {@link SeatChangeStream}, so a seat map applies them as they
+ * happen instead of reading the whole grid again.
  */
 public class SeatGrid {
 
@@ -25,9 +70,134 @@ public class SeatGrid {
     private static final int DEFAULT_NO_OF_COLUMNS = 10;
 
     /**
-     * The seats array
+     * The number of bits used to store the status of a seat
+     */
+    static final int BITS_PER_SEAT = 2;
+
+    /**
+     * The number of seats packed in a single word
+     */
+    static final int SEATS_PER_WORD = Long.SIZE / BITS_PER_SEAT;
+
+    /**
+     * The shift to convert a column position to a word position within the row
+     */
+    static final int SEATS_PER_WORD_SHIFT = 5;
+
+    /**
+     * The mask to read the status of a single seat
+     */
+    static final long SEAT_MASK = (1L << BITS_PER_SEAT) - 1;
+
+    /**
+     * The value stored in the bits after the last seat of a row
+     */
+    static final int PADDING_VALUE = 3;
+
+    /**
+     * The word with the lowest bit of every seat set, used to fill a word with a single status
+     */
+    static final long LOW_BITS = 0x5555555555555555L;
+
+    /**
+     * The magic number of a seat grid file, "SEAT" in ascii
+     */
+    static final int FILE_MAGIC = 0x53454154;
+
+    /**
+     * The layout version of a seat grid file
+     */
+    static final int FILE_VERSION = 1;
+
+    /**
+     * The size in bytes of the header of a seat grid file, a multiple of the word size so the words stay aligned
+     */
+    static final int FILE_HEADER_SIZE = 16;
+
+    /**
+     * The no of seat statuses which are counted
+     */
+    private static final int NO_OF_SEAT_STATUSES = 3;
+
+    /**
+     * The access of a seat updated, in the error message of a position out of the grid
+     */
+    private static final String UPDATED = "updated to";
+
+    /**
+     * The access of a seat requested, in the error message of a position out of the grid
+     */
+    private static final String REQUESTED = "requested in";
+
+    /**
+     * The no of rows
+     */
+    private final int noOfRows;
+
+    /**
+     * The no of columns
+     */
+    private final int noOfColumns;
+
+    /**
+     * The no of columns of every row
+     */
+    private final int[] rowLengths;
+
+    /**
+     * The index of the first word of every row, followed by the total no of words
+     */
+    private final int[] rowWordOffsets;
+
+    /**
+     * The no of seats
+     */
+    private final int noOfSeats;
+
+    /**
+     * The bit-packed seat words, on the heap or mapped from a file
+     */
+    private final LongBuffer seats;
+
+    /**
+     * The mapped file buffer, null for a grid kept on the heap
+     */
+    private final MappedByteBuffer mappedBuffer;
+
+    /**
+     * The index of the open seat blocks
+     */
+    private final OpenBlockIndex openBlockIndex;
+
+    /**
+     * The lock of every row
+     */
+    private final ReentrantLock[] rowLocks;
+
+    /**
+     * The no of seats of every status in the grid
      */
-    private int[][] seats;
+    private final AtomicIntegerArray seatCounts;
+
+    /**
+     * The no of seats of every status by row, updated under the row lock
+     */
+    private final int[][] rowSeatCounts;
+
+    /**
+     * The precomputed seat scores of the seat scoring model, null to allocate the back rows first
+     */
+    private volatile SeatScores seatScores;
+
+    /**
+     * The zoning of the rows, null for a grid which is not zoned
+     */
+    private volatile SeatZoning seatZoning;
+
+    /**
+     * The stream the status changes are published to, null if they are not published
+     */
+    private volatile SeatChangeStream seatChangeStream;
 
     /**
      * This is the no-arg constructor. which internally makes call to the 2-arg constructor with the default no of rows
@@ -40,7 +210,7 @@ public class SeatGrid {
     /**
      * This is the 2-arg constructor. which internally makes call to the 3-arg constructor with the default seat status
      * which is open.
-     * 
+     *
      * @param noOfRows The no of rows in the theater.
      * @param noOfColumns The no of columns in the theater.
      */
@@ -50,127 +220,1418 @@ public class SeatGrid {
 
     /**
      * This is the 3-arg constructor.
-     * 
+     *
      * @param noOfRows The no of rows in the theater.
      * @param noOfColumns The no of columns in the theater.
      * @param seatStatus The seat status to set for each seat.
      */
     public SeatGrid(int noOfRows, int noOfColumns, SeatStatus seatStatus) {
+        this(noOfRows, noOfColumns, null, null, seatStatus);
+    }
+
+    /**
+     * This is the constructor of an irregular venue, with all the seats open.
+     *
+     * @param venueLayout The layout of the venue.
+     */
+    public SeatGrid(VenueLayout venueLayout) {
+        this(venueLayout, SeatStatus.OPEN);
+    }
+
+    /**
+     * This is the constructor of an irregular venue.
+     *
+     * @param venueLayout The layout of the venue.
+     * @param seatStatus The seat status to set for each seat.
+     */
+    public SeatGrid(VenueLayout venueLayout, SeatStatus seatStatus) {
+        this(venueLayout.getNoOfRows(), venueLayout.getNoOfColumns(),
+                venueLayout.isRectangular() ? null : venueLayout, null, seatStatus);
+    }
+
+    /**
+     * This is the constructor used for the heap, the irregular and the mapped grids.
+     *
+     * @param noOfRows The no of rows in the theater.
+     * @param noOfColumns The no of columns in the theater, the length of the longest row.
+     * @param venueLayout The layout of an irregular venue, null for a rectangle of seats.
+     * @param mappedBuffer The mapped file buffer, null to keep the seats on the heap.
+     * @param seatStatus The seat status to set for each seat, null to load the seats of the mapped file.
+     */
+    private SeatGrid(int noOfRows, int noOfColumns, VenueLayout venueLayout, MappedByteBuffer mappedBuffer,
+                     SeatStatus seatStatus) {
         LOGGER.debug("Creating SeatGrid for {} rows and {} columns", noOfRows, noOfColumns);
 
         if (noOfRows <= 0 || noOfColumns <= 0) {
             LOGGER.error("The no of rows and no of columns must be greater than 0: No of rows: {} No of column: {}", noOfRows, noOfColumns);
             throw new SeatingArrangementNotValidException("The no of rows and no of columns must be greater than 0");
         }
-        seats = new int[noOfRows][noOfColumns];
+        this.noOfRows = noOfRows;
+        this.noOfColumns = noOfColumns;
+        this.rowLengths = new int[noOfRows];
+        this.rowWordOffsets = new int[noOfRows + 1];
+        int seatsOfLayout = 0;
+        for (int row = 0; row < noOfRows; row++) {
+            rowLengths[row] = venueLayout == null ? noOfColumns : venueLayout.getRowLength(row);
+            rowWordOffsets[row + 1] = rowWordOffsets[row] + wordsPerRow(rowLengths[row]);
+            seatsOfLayout += venueLayout == null ? noOfColumns : venueLayout.getRowSeatCount(row);
+        }
+        this.noOfSeats = seatsOfLayout;
+        this.mappedBuffer = mappedBuffer;
+        if (mappedBuffer == null) {
+            this.seats = LongBuffer.wrap(new long[rowWordOffsets[noOfRows]]);
+        } else {
+            mappedBuffer.position(FILE_HEADER_SIZE);
+            this.seats = mappedBuffer.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+        this.rowLocks = new ReentrantLock[noOfRows];
         for (int i = 0; i < noOfRows; i++) {
-            for (int j = 0; j < noOfColumns; j++) {
-                seats[i][j] = seatStatus.getSeatStatusValue();
+            rowLocks[i] = new ReentrantLock();
+        }
+        this.seatCounts = new AtomicIntegerArray(NO_OF_SEAT_STATUSES);
+        this.rowSeatCounts = new int[NO_OF_SEAT_STATUSES][noOfRows];
+
+        if (seatStatus != null) {
+            fillSeats(seatStatus, venueLayout);
+            this.openBlockIndex = new OpenBlockIndex(noOfRows, noOfColumns,
+                    venueLayout == null && seatStatus == SeatStatus.OPEN);
+            this.seatCounts.set(seatStatus.getSeatStatusValue(), noOfSeats);
+            for (int i = 0; i < noOfRows; i++) {
+                rowSeatCounts[seatStatus.getSeatStatusValue()][i] =
+                        venueLayout == null ? noOfColumns : venueLayout.getRowSeatCount(i);
             }
+            if (venueLayout != null && seatStatus == SeatStatus.OPEN) {
+                openSeatBlocks(venueLayout);
+            }
+        } else {
+            this.openBlockIndex = new OpenBlockIndex(noOfRows, noOfColumns, false);
+            loadSeats();
+        }
+    }
+
+    /**
+     * This method is used to open a seat grid mapped from a file. A missing or empty file is created with all the seats
+     * open, else the seats of the file are loaded and the file must have the given no of rows and columns. Only the
+     * rectangular venues are mapped.
+     *
+     * The held seats of the file are made available again, as the holds do not survive a restart.
+     *
+     * @param file The seat grid file.
+     * @param noOfRows The no of rows in the theater.
+     * @param noOfColumns The no of columns in the theater.
+     * @return The seat grid
+     * @throws IOException if the file can't be read or written
+     */
+    public static SeatGrid openMapped(File file, int noOfRows, int noOfColumns) throws IOException {
+        if (noOfRows <= 0 || noOfColumns <= 0) {
+            throw new SeatingArrangementNotValidException("The no of rows and no of columns must be greater than 0");
+        }
+        if (!file.exists() || file.length() == 0) {
+            MappedByteBuffer mappedBuffer = mapFile(file,
+                    FILE_HEADER_SIZE + (long) noOfRows * wordsPerRow(noOfColumns) * (Long.SIZE / Byte.SIZE));
+            mappedBuffer.putInt(0, FILE_MAGIC);
+            mappedBuffer.putInt(4, FILE_VERSION);
+            mappedBuffer.putInt(8, noOfRows);
+            mappedBuffer.putInt(12, noOfColumns);
+            return new SeatGrid(noOfRows, noOfColumns, null, mappedBuffer, SeatStatus.OPEN);
+        }
+        SeatGrid seatGrid = openMapped(file);
+        if (seatGrid.noOfRows != noOfRows || seatGrid.noOfColumns != noOfColumns) {
+            throw new SeatingArrangementNotValidException("The seat grid file " + file + " has " + seatGrid.noOfRows
+                    + "X" + seatGrid.noOfColumns + " seats instead of " + noOfRows + "X" + noOfColumns);
+        }
+        return seatGrid;
+    }
+
+    /**
+     * This method is used to open a seat grid mapped from an existing file, with the no of rows and columns of the
+     * file. The held seats of the file are made available again, as the holds do not survive a restart.
+     *
+     * @param file The seat grid file.
+     * @return The seat grid
+     * @throws IOException if the file can't be read or written
+     */
+    public static SeatGrid openMapped(File file) throws IOException {
+        if (file.length() < FILE_HEADER_SIZE) {
+            throw new SeatingArrangementNotValidException("The seat grid file " + file + " is not valid");
+        }
+        MappedByteBuffer mappedBuffer = mapFile(file, file.length());
+        int noOfRows = mappedBuffer.getInt(8);
+        int noOfColumns = mappedBuffer.getInt(12);
+        if (mappedBuffer.getInt(0) != FILE_MAGIC || mappedBuffer.getInt(4) != FILE_VERSION
+                || noOfRows <= 0 || noOfColumns <= 0 || file.length()
+                != FILE_HEADER_SIZE + (long) noOfRows * wordsPerRow(noOfColumns) * (Long.SIZE / Byte.SIZE)) {
+            throw new SeatingArrangementNotValidException("The seat grid file " + file + " is not valid");
+        }
+        return new SeatGrid(noOfRows, noOfColumns, null, mappedBuffer, null);
+    }
+
+    /**
+     * This method maps a file in memory, read and write.
+     *
+     * @param file The file.
+     * @param size The size of the file in bytes.
+     * @return The mapped buffer, little endian
+     * @throws IOException if the file can't be mapped
+     */
+    private static MappedByteBuffer mapFile(File file, long size) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            MappedByteBuffer mappedBuffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mappedBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            return mappedBuffer;
+        } finally {
+            // the mapping stays valid once the channel is closed
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * This method returns whether the seats are mapped from a file.
+     *
+     * @return true if the seats are mapped from a file
+     */
+    public boolean isMapped() {
+        return mappedBuffer != null;
+    }
+
+    /**
+     * This method is used to write the seats of a mapped grid to the storage, it does nothing for a heap grid.
+     */
+    public void flush() {
+        if (mappedBuffer != null) {
+            mappedBuffer.force();
         }
     }
 
     /**
      * This method is used to set the status of a particular seat.
-     * 
+     *
      * @param row The row position.
      * @param column The column position.
      * @param seatStatus The status of the seat to set.
      */
     public void setSeatStatus(int row, int column, SeatStatus seatStatus) {
-        if (row >= seats.length || column >= seats[0].length || row < 0 || column < 0) {
-            LOGGER.error("The no of rows and no of columns must be updated to valid limits. {} X {}",
-                    seats.length, seats[0].length);
-            throw new SeatingArrangementNotValidException(
-                    "The no of rows and no of columns must be updated to valid limits." + seats.length + "X"
-                            + seats[0].length);
+        checkSeat(row, column, UPDATED);
+        rowLocks[row].lock();
+        try {
+            updateSeatStatus(row, column, seatStatus.getSeatStatusValue());
+        } finally {
+            rowLocks[row].unlock();
+        }
+    }
+
+    /**
+     * This method is used to set the status of a particular seat, only if the seat has the expected status.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @param expectedSeatStatus The status the seat must have.
+     * @param seatStatus The status of the seat to set.
+     * @return true if the seat had the expected status and was updated, otherwise false
+     */
+    public boolean compareAndSetSeatStatus(int row, int column, SeatStatus expectedSeatStatus, SeatStatus seatStatus) {
+        checkSeat(row, column, UPDATED);
+        rowLocks[row].lock();
+        try {
+            if (seatStatusValue(row, column) != expectedSeatStatus.getSeatStatusValue()) {
+                return false;
+            }
+            updateSeatStatus(row, column, seatStatus.getSeatStatusValue());
+            return true;
+        } finally {
+            rowLocks[row].unlock();
         }
-        seats[row][column] = seatStatus.getSeatStatusValue();
     }
 
     /**
      * This method is used to get the status of a particular seat.
-     * 
+     *
      * @param row The row position.
      * @param column The column position.
      * @return The SeatStatus enum value
      */
     public SeatStatus getSeatStatus(int row, int column) {
-        if (row >= seats.length || column >= seats[0].length || row < 0 || column < 0) {
-            LOGGER.error("The no of rows and no of columns must be requested in valid limits. {} X {}",
-                    seats.length, seats[0].length);
-            throw new SeatingArrangementNotValidException(
-                    "The no of rows and no of columns must be requested in valid limits." + seats.length + "X"
-                            + seats[0].length);
-        }
-        switch (seats[row][column]) {
-        case 0:
-            return SeatStatus.OPEN;
-        case 1:
-            return SeatStatus.HOLD;
-        case 2:
-            return SeatStatus.RESERVED;
-        default:
-            // Not implemented
-            return null;
-        }
+        checkSeat(row, column, REQUESTED);
+        return toSeatStatus(seatStatusValue(row, column));
     }
 
     /**
      * This method is used to get the particular seat detail.
-     * 
+     *
      * @param row The row position.
      * @param column The column position.
      * @return The new seat object
      */
     public Seat getSeat(int row, int column) {
-        if (row >= seats.length || column >= seats[0].length || row < 0 || column < 0) {
-            LOGGER.error("The no of rows and no of columns must be requested in valid limits." +
-                    seats.length + "X" + seats[0].length);
-            throw new SeatingArrangementNotValidException(
-                    "The no of rows and no of columns must be requested in valid limits." + seats.length + "X"
-                            + seats[0].length);
-        }
-        SeatStatus seatStatus = null;
-        switch (seats[row][column]) {
-        case 0:
-            seatStatus = SeatStatus.OPEN;
-            break;
-        case 1:
-            seatStatus = SeatStatus.HOLD;
-            break;
-        case 2:
-            seatStatus = SeatStatus.RESERVED;
-            break;
-        default:
-            // Not implemented
-        }
-        return new Seat(row, column, seatStatus);
+        checkSeat(row, column, REQUESTED);
+        return new Seat(row, column, toSeatStatus(seatStatusValue(row, column)));
     }
 
     /**
-     * This method returns the no of rows.
-     * 
+     * This method returns the no of rows, validated greater than 0 when the grid is created.
+     *
      * @return Returns the no of rows.
      */
     public int getNoOfRows() {
-        if (seats == null) {
-            LOGGER.error("Seating arrangement cant be null");
-            throw new SeatingArrangementNotValidException("Seating arrangement cant be null");
-        }
-        return seats.length;
+        return noOfRows;
     }
 
     /**
-     * This method returns the no of columns.
-     * 
+     * This method returns the no of columns, validated greater than 0 when the grid is created.
+     *
      * @return Returns the no of columns.
      */
     public int getNoOfColumns() {
-        if (seats.length <= 0) {
-            LOGGER.error("The no of rows should be greater than 0");
-            throw new SeatingArrangementNotValidException("The no of rows should be greater than 0");
+        return noOfColumns;
+    }
+
+    /**
+     * This method returns the no of columns of a row, which is the no of columns of the grid except for an irregular
+     * venue.
+     *
+     * @param row The row position.
+     * @return The no of columns of the row
+     */
+    public int getRowLength(int row) {
+        if (row >= noOfRows || row < 0) {
+            LOGGER.error("The row must be requested in valid limits. {}", noOfRows);
+            throw new SeatingArrangementNotValidException("The row must be requested in valid limits." + noOfRows);
+        }
+        return rowLengths[row];
+    }
+
+    /**
+     * This method returns the no of seats, without the aisles and the missing seats of an irregular venue.
+     *
+     * @return The no of seats
+     */
+    public int getNoOfSeats() {
+        return noOfSeats;
+    }
+
+    /**
+     * This method returns whether there is a seat at the given position. Every position of the grid is a seat except
+     * for an irregular venue.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @return true if the position is a seat
+     */
+    public boolean isSeat(int row, int column) {
+        return row >= 0 && row < noOfRows && column >= 0 && column < rowLengths[row]
+                && seatStatusValue(row, column) != PADDING_VALUE;
+    }
+
+    /**
+     * This method returns the no of seats having the given status in the grid.
+     *
+     * @param seatStatus The seat status.
+     * @return The no of seats
+     */
+    public int getSeatCount(SeatStatus seatStatus) {
+        return seatCounts.get(seatStatus.getSeatStatusValue());
+    }
+
+    /**
+     * This method returns the no of seats having the given status in a row.
+     *
+     * @param row The row position.
+     * @param seatStatus The seat status.
+     * @return The no of seats
+     */
+    public int getSeatCount(int row, SeatStatus seatStatus) {
+        if (row >= noOfRows || row < 0) {
+            LOGGER.error("The row must be requested in valid limits. {}", noOfRows);
+            throw new SeatingArrangementNotValidException("The row must be requested in valid limits." + noOfRows);
+        }
+        return rowSeatCounts[seatStatus.getSeatStatusValue()][row];
+    }
+
+    /**
+     * This method is used to get the seat ids of the seats having the given status, without creating any object. The
+     * packed words are matched a whole word at a time, so only the matching seats are visited.
+     *
+     * @param seatStatus The seat status.
+     * @param seatIds The array to write the seat ids to, in ascending order.
+     * @return The no of seat ids written, at most the length of the array
+     */
+    public int getSeatIds(SeatStatus seatStatus, int[] seatIds) {
+        int noOfSeatIds = 0;
+        for (int row = 0; row < noOfRows && noOfSeatIds < seatIds.length; row++) {
+            noOfSeatIds += getRowSeatIds(seatStatus, row, seatIds, noOfSeatIds, seatIds.length - noOfSeatIds);
+        }
+        return noOfSeatIds;
+    }
+
+    /**
+     * This method is used to get the seat ids of the seats of a row having the given status, without creating any
+     * object.
+     *
+     * @param seatStatus The seat status.
+     * @param row The row position.
+     * @param seatIds The array to write the seat ids to, in ascending order.
+     * @param offset The position in the array of the first seat id to write.
+     * @param maxSeatIds The maximum no of seat ids to write.
+     * @return The no of seat ids written
+     */
+    public int getRowSeatIds(SeatStatus seatStatus, int row, int[] seatIds, int offset, int maxSeatIds) {
+        if (row >= noOfRows || row < 0) {
+            LOGGER.error("The row must be requested in valid limits. {}", noOfRows);
+            throw new SeatingArrangementNotValidException("The row must be requested in valid limits." + noOfRows);
+        }
+        long statusWord = seatStatus.getSeatStatusValue() * LOW_BITS;
+        int rowOffset = rowWordOffsets[row];
+        int wordsInRow = rowWordOffsets[row + 1] - rowOffset;
+        int rowSeatId = row * noOfColumns;
+        int position = offset;
+        int end = offset + maxSeatIds;
+        for (int wordInRow = 0; wordInRow < wordsInRow; wordInRow++) {
+            // both bits of a seat are 0 once xor-ed, only for the seats having the status
+            long difference = seats.get(rowOffset + wordInRow) ^ statusWord;
+            long matches = ~(difference | (difference >>> 1)) & LOW_BITS;
+            if (matches == 0) {
+                continue;
+            }
+            int wordSeatId = rowSeatId + (wordInRow << SEATS_PER_WORD_SHIFT);
+            if (Long.bitCount(matches) > end - position) {
+                // only part of the word fits
+                while (position < end) {
+                    seatIds[position++] = wordSeatId + (Long.numberOfTrailingZeros(matches) >>> 1);
+                    matches &= matches - 1;
+                }
+                return position - offset;
+            }
+            while (matches != 0) {
+                seatIds[position++] = wordSeatId + (Long.numberOfTrailingZeros(matches) >>> 1);
+                matches &= matches - 1;
+            }
+        }
+        return position - offset;
+    }
+
+    /**
+     * This method returns the seat id of a seat, which identifies the seat within the grid as a single int.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @return The seat id, row * no of columns + column
+     */
+    public int getSeatId(int row, int column) {
+        return row * noOfColumns + column;
+    }
+
+    /**
+     * This method returns the row position of a seat id.
+     *
+     * @param seatId The seat id.
+     * @return The row position
+     */
+    public int getSeatRow(int seatId) {
+        return seatId / noOfColumns;
+    }
+
+    /**
+     * This method returns the column position of a seat id.
+     *
+     * @param seatId The seat id.
+     * @return The column position
+     */
+    public int getSeatColumn(int seatId) {
+        return seatId % noOfColumns;
+    }
+
+    /**
+     * This method returns the lock of a row. The lock must be held to check and update several seats of the row
+     * atomically, it is reentrant so the seat status can still be set while holding it.
+     *
+     * @param row The row position.
+     * @return The row lock
+     */
+    public Lock getRowLock(int row) {
+        if (row >= noOfRows || row < 0) {
+            LOGGER.error("The row must be requested in valid limits. {}", noOfRows);
+            throw new SeatingArrangementNotValidException("The row must be requested in valid limits." + noOfRows);
+        }
+        return rowLocks[row];
+    }
+
+    /**
+     * This method returns a cursor to read and update the seats without checking their position, for the callers
+     * handling the seat ids found by the grid.
+     *
+     * @return The cursor, on the first seat
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * This method returns the size of the largest block of open seats next to each other in the grid.
+     *
+     * @return The size of the largest open block, 0 if no seat is open
+     */
+    public int getLargestOpenBlock() {
+        return openBlockIndex.getLargestBlock();
+    }
+
+    /**
+     * This method returns the size of the largest block of open seats next to each other in a row.
+     *
+     * @param row The row position.
+     * @return The size of the largest open block, 0 if no seat of the row is open
+     */
+    public int getLargestOpenBlock(int row) {
+        if (row >= noOfRows || row < 0) {
+            LOGGER.error("The row must be requested in valid limits. {}", noOfRows);
+            throw new SeatingArrangementNotValidException("The row must be requested in valid limits." + noOfRows);
+        }
+        return openBlockIndex.getLargestBlock(row);
+    }
+
+    /**
+     * This method finds the furthest row which has a block of at least the given no of open seats next to each other.
+     *
+     * @param blockSize The no of seats required together.
+     * @return The row position, -1 if no row can accommodate the block
+     */
+    public int findLastRowWithOpenBlock(int blockSize) {
+        return openBlockIndex.findLastRowWithBlock(blockSize);
+    }
+
+    /**
+     * This method finds the best fitting block of open seats in a row. The block with the exact no of seats is
+     * preferred, else the smallest larger block is picked so bigger blocks stay available for bigger groups.
+     * The row lock must be held to hold the seats of the block found.
+     *
+     * @param row The row position.
+     * @param blockSize The no of seats required together.
+     * @return The first column of the block, -1 if the row can not accommodate the block
+     */
+    public int findBestFitOpenBlock(int row, int blockSize) {
+        if (row >= noOfRows || row < 0) {
+            LOGGER.error("The row must be requested in valid limits. {}", noOfRows);
+            throw new SeatingArrangementNotValidException("The row must be requested in valid limits." + noOfRows);
+        }
+        rowLocks[row].lock();
+        try {
+            return openBlockIndex.findBestFitBlock(row, blockSize);
+        } finally {
+            rowLocks[row].unlock();
+        }
+    }
+
+    /**
+     * This method returns the best fitting blocks of open seats of a row, read under the row lock: the smallest blocks
+     * having at least the given no of seats first, the left most first for the same size. Only as many blocks as the
+     * arrays hold are read, so a search can bound its candidates of a row without walking all its open blocks.
+     *
+     * @param row The row position.
+     * @param blockSize The no of seats required together.
+     * @param blockStarts The array to write the first column of every block to.
+     * @param blockSizes The array to write the no of seats of every block to.
+     * @return The no of blocks written, at most the length of the arrays
+     */
+    public int getBestFitOpenBlocks(int row, int blockSize, int[] blockStarts, int[] blockSizes) {
+        if (row >= noOfRows || row < 0) {
+            LOGGER.error("The row must be requested in valid limits. {}", noOfRows);
+            throw new SeatingArrangementNotValidException("The row must be requested in valid limits." + noOfRows);
+        }
+        rowLocks[row].lock();
+        try {
+            return openBlockIndex.getBestFitBlocks(row, blockSize, blockStarts, blockSizes);
+        } finally {
+            rowLocks[row].unlock();
+        }
+    }
+
+    /**
+     * This method returns the blocks of open seats next to each other of a row, read under the row lock. A row has at
+     * most (no of columns + 1) / 2 open blocks.
+     *
+     * @param row The row position.
+     * @param blockStarts The array to write the first column of every block to, from the left.
+     * @param blockSizes The array to write the no of seats of every block to.
+     * @return The no of blocks written, at most the length of the arrays
+     */
+    public int getOpenBlocks(int row, int[] blockStarts, int[] blockSizes) {
+        if (row >= noOfRows || row < 0) {
+            LOGGER.error("The row must be requested in valid limits. {}", noOfRows);
+            throw new SeatingArrangementNotValidException("The row must be requested in valid limits." + noOfRows);
+        }
+        rowLocks[row].lock();
+        try {
+            return openBlockIndex.getBlocks(row, blockStarts, blockSizes);
+        } finally {
+            rowLocks[row].unlock();
+        }
+    }
+
+    /**
+     * This method is used to set the model scoring the quality of the seats. The score of every seat is computed once
+     * here, so the best block of seats is then found with {@link #findBestScoredOpenBlock(int)}.
+     *
+     * @param seatScoringModel The seat scoring model, null to allocate the back rows first.
+     */
+    public void setSeatScoringModel(SeatScoringModel seatScoringModel) {
+        if (seatScoringModel == null) {
+            this.seatScores = null;
+            return;
+        }
+        // the seats of a row of an irregular venue may start after an aisle or a missing seat
+        int[] rowOffsets = new int[noOfRows];
+        int[] rowSeatLengths = new int[noOfRows];
+        for (int row = 0; row < noOfRows; row++) {
+            int firstSeat = 0;
+            while (firstSeat < rowLengths[row] - 1 && seatStatusValue(row, firstSeat) == PADDING_VALUE) {
+                firstSeat++;
+            }
+            int lastSeat = rowLengths[row] - 1;
+            while (lastSeat > firstSeat && seatStatusValue(row, lastSeat) == PADDING_VALUE) {
+                lastSeat--;
+            }
+            rowOffsets[row] = firstSeat;
+            rowSeatLengths[row] = lastSeat - firstSeat + 1;
+        }
+        this.seatScores = new SeatScores(seatScoringModel, noOfRows, noOfColumns, rowOffsets, rowSeatLengths);
+    }
+
+    /**
+     * This method returns the model scoring the quality of the seats.
+     *
+     * @return The seat scoring model, null if the back rows are allocated first
+     */
+    public SeatScoringModel getSeatScoringModel() {
+        SeatScores scores = seatScores;
+        return scores == null ? null : scores.getSeatScoringModel();
+    }
+
+    /**
+     * This method returns the score of a block of seats next to each other, as the sum of its seat scores.
+     *
+     * @param row The row position.
+     * @param column The first column of the block.
+     * @param blockSize The no of seats of the block.
+     * @return The score of the block
+     */
+    public long getBlockScore(int row, int column, int blockSize) {
+        SeatScores scores = seatScores;
+        if (scores == null) {
+            throw new SeatingArrangementNotValidException("No seat scoring model is set for the seat grid");
+        }
+        if (row >= noOfRows || column >= noOfColumns || row < 0 || column < 0 || blockSize < 0
+                || blockSize > noOfColumns - column) {
+            LOGGER.error("The block must be requested in valid limits. {} X {}", noOfRows, noOfColumns);
+            throw new SeatingArrangementNotValidException("The block must be requested in valid limits."
+                    + noOfRows + "X" + noOfColumns);
+        }
+        return scores.getBlockScore(row, column, blockSize);
+    }
+
+    /**
+     * This method finds the block of seats with the highest score starting within a range of columns of a row, the
+     * left most for the same score, whether the seats are open or not. Every start is scored in constant time from the
+     * precomputed scores.
+     *
+     * @param row The row position.
+     * @param firstColumn The first column the block may start at.
+     * @param lastColumn The last column the block may start at, inclusive.
+     * @param blockSize The no of seats of the block.
+     * @return The first column of the block
+     */
+    public int findBestScoredBlockStart(int row, int firstColumn, int lastColumn, int blockSize) {
+        SeatScores scores = seatScores;
+        if (scores == null) {
+            throw new SeatingArrangementNotValidException("No seat scoring model is set for the seat grid");
+        }
+        if (row >= noOfRows || row < 0 || firstColumn < 0 || firstColumn > lastColumn || blockSize <= 0
+                || blockSize > noOfColumns - lastColumn) {
+            LOGGER.error("The block must be requested in valid limits. {} X {}", noOfRows, noOfColumns);
+            throw new SeatingArrangementNotValidException("The block must be requested in valid limits."
+                    + noOfRows + "X" + noOfColumns);
+        }
+        return scores.findBestBlockStart(row, firstColumn, lastColumn, blockSize);
+    }
+
+    /**
+     * This method finds the block of open seats next to each other with the highest score in the grid. The rows are
+     * searched by their best seat score, and the search stops at the first row whose best seat score times the block
+     * size can not beat the best block found, so usually only a few rows are searched. For the same score the block
+     * of the row ranked first, then the left most block, is picked.
+     *
+     * The block is only a hint once found, it must be checked again with {@link #isOpenBlock(int, int, int)} under the
+     * row lock to hold its seats.
+     *
+     * @param blockSize The no of seats required together.
+     * @return The seat id of the first seat of the block, -1 if no row can accommodate the block
+     */
+    public int findBestScoredOpenBlock(int blockSize) {
+        return findBestScoredOpenBlock(blockSize, 0, noOfRows - 1);
+    }
+
+    /**
+     * This method finds the block of open seats next to each other with the highest score in a range of rows, as
+     * {@link #findBestScoredOpenBlock(int)} does for the whole grid.
+     *
+     * @param blockSize The no of seats required together.
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     * @return The seat id of the first seat of the block, -1 if no row of the range can accommodate the block
+     */
+    public int findBestScoredOpenBlock(int blockSize, int firstRow, int lastRow) {
+        checkRowRange(firstRow, lastRow);
+        SeatScores scores = seatScores;
+        if (scores == null) {
+            throw new SeatingArrangementNotValidException("No seat scoring model is set for the seat grid");
+        }
+        if (blockSize <= 0 || openBlockIndex.getLargestBlock(firstRow, lastRow) < blockSize) {
+            return -1;
+        }
+        int bestSeatId = -1;
+        long bestScore = Long.MIN_VALUE;
+        for (int row : scores.getRowRanking()) {
+            if (bestSeatId >= 0 && (long) blockSize * scores.getRowMaxScore(row) <= bestScore) {
+                break;
+            }
+            if (row < firstRow || row > lastRow || openBlockIndex.getLargestBlock(row) < blockSize) {
+                continue;
+            }
+            rowLocks[row].lock();
+            try {
+                int start = openBlockIndex.findBestScoredBlock(row, blockSize, scores);
+                if (start >= 0 && scores.getBlockScore(row, start, blockSize) > bestScore) {
+                    bestScore = scores.getBlockScore(row, start, blockSize);
+                    bestSeatId = getSeatId(row, start);
+                }
+            } finally {
+                rowLocks[row].unlock();
+            }
+        }
+        return bestSeatId;
+    }
+
+    /**
+     * This method is used to zone the rows into sections sold at price tiers, replacing any previous zones. The rows of
+     * the grid are all locked while the seats of every zone are counted, so the counts stay exact as the seats keep
+     * changing.
+     *
+     * @param seatZones The zones, which must not overlap, null or empty to remove the zones.
+     */
+    public void setSeatZones(List<SeatZone> seatZones) {
+        SeatZoning zoning = seatZones == null || seatZones.isEmpty() ? null : new SeatZoning(seatZones, noOfRows);
+        for (int row = 0; row < noOfRows; row++) {
+            rowLocks[row].lock();
+        }
+        try {
+            if (zoning != null) {
+                for (int row = 0; row < noOfRows; row++) {
+                    for (int statusValue = 0; statusValue < NO_OF_SEAT_STATUSES; statusValue++) {
+                        zoning.addSeats(row, statusValue, rowSeatCounts[statusValue][row]);
+                    }
+                }
+            }
+            this.seatZoning = zoning;
+        } finally {
+            for (int row = noOfRows - 1; row >= 0; row--) {
+                rowLocks[row].unlock();
+            }
+        }
+    }
+
+    /**
+     * This method is used to publish the status changes of the seats to a stream, from now on. A subscriber subscribes
+     * to the stream before it reads a snapshot of the grid, so it misses no change.
+     *
+     * @param seatChangeStream The stream, null to stop publishing the changes.
+     */
+    public void setSeatChangeStream(SeatChangeStream seatChangeStream) {
+        this.seatChangeStream = seatChangeStream;
+    }
+
+    /**
+     * This method returns the stream the status changes of the seats are published to.
+     *
+     * @return The stream, null if the changes are not published
+     */
+    public SeatChangeStream getSeatChangeStream() {
+        return seatChangeStream;
+    }
+
+    /**
+     * This method returns the zones of the grid.
+     *
+     * @return The zones, empty for a grid which is not zoned
+     */
+    public List<SeatZone> getSeatZones() {
+        SeatZoning zoning = seatZoning;
+        return zoning == null ? Collections.<SeatZone>emptyList() : zoning.getZones();
+    }
+
+    /**
+     * This method returns the zones of a price tier.
+     *
+     * @param tier The price tier.
+     * @return The zones of the tier
+     */
+    public List<SeatZone> getTierZones(String tier) {
+        return Collections.unmodifiableList(getSeatZoning().getTierZones(tier));
+    }
+
+    /**
+     * This method returns the no of seats of a section having the given status.
+     *
+     * @param section The section name.
+     * @param seatStatus The seat status.
+     * @return The no of seats
+     */
+    public int getZoneSeatCount(String section, SeatStatus seatStatus) {
+        SeatZoning zoning = getSeatZoning();
+        return zoning.getSeatCount(zoning.indexOf(section), seatStatus.getSeatStatusValue());
+    }
+
+    /**
+     * This method returns the no of seats of all the sections of a price tier having the given status.
+     *
+     * @param tier The price tier.
+     * @param seatStatus The seat status.
+     * @return The no of seats
+     */
+    public int getTierSeatCount(String tier, SeatStatus seatStatus) {
+        SeatZoning zoning = getSeatZoning();
+        int seatCount = 0;
+        for (SeatZone seatZone : zoning.getTierZones(tier)) {
+            seatCount += zoning.getSeatCount(zoning.indexOf(seatZone.getSection()), seatStatus.getSeatStatusValue());
+        }
+        return seatCount;
+    }
+
+    /**
+     * This method returns the size of the largest block of open seats next to each other in a range of rows.
+     *
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     * @return The size of the largest open block, 0 if no seat of the rows is open
+     */
+    public int getLargestOpenBlock(int firstRow, int lastRow) {
+        checkRowRange(firstRow, lastRow);
+        return openBlockIndex.getLargestBlock(firstRow, lastRow);
+    }
+
+    /**
+     * This method finds the furthest row of a range of rows which has a block of at least the given no of open seats
+     * next to each other.
+     *
+     * @param blockSize The no of seats required together.
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     * @return The row position, -1 if no row of the range can accommodate the block
+     */
+    public int findLastRowWithOpenBlock(int blockSize, int firstRow, int lastRow) {
+        checkRowRange(firstRow, lastRow);
+        if (firstRow == 0 && lastRow == noOfRows - 1) {
+            return openBlockIndex.findLastRowWithBlock(blockSize);
+        }
+        return openBlockIndex.findLastRowWithBlock(blockSize, firstRow, lastRow);
+    }
+
+    /**
+     * This method finds a stacked block of open seats, where a party too large for any row sits in rows next to each
+     * other, directly front and back. The seats are split evenly between the rows of the stack, the front row taking
+     * what is left over, and the blocks of all the rows start at the same column. E.g. 7 seats on 2 rows are 4 seats
+     * of the back row over 3 seats of the front row.
+     *
+     * Without a seat scoring model the furthest stack is picked, at its left most column, else the stack with the
+     * highest total score. The rows too small for the stack are skipped with the open block index, and the rows of a
+     * candidate stack are locked together while their blocks are intersected. The stack is only a hint once found,
+     * the blocks must be checked again with {@link #isOpenBlock(int, int, int)} under the row locks to hold the seats.
+     *
+     * @param requiredSeatCount The no of seats of the party.
+     * @param noOfStackedRows The no of rows of the stack.
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     * @return The seat id of the first seat of the front row of the stack, -1 if no stack was found
+     */
+    public int findStackedOpenBlock(int requiredSeatCount, int noOfStackedRows, int firstRow, int lastRow) {
+        checkRowRange(firstRow, lastRow);
+        if (noOfStackedRows < 2 || noOfStackedRows > lastRow - firstRow + 1) {
+            return -1;
+        }
+        int blockSize = getStackedBlockSize(requiredSeatCount, noOfStackedRows);
+        int frontBlockSize = requiredSeatCount - (noOfStackedRows - 1) * blockSize;
+        if (frontBlockSize <= 0) {
+            return -1;
+        }
+        int[] blockSizes = new int[noOfStackedRows];
+        Arrays.fill(blockSizes, blockSize);
+        blockSizes[0] = frontBlockSize;
+        SeatScores scores = seatScores;
+        int bestSeatId = -1;
+        long bestScore = Long.MIN_VALUE;
+        int backRow = lastRow;
+        while (true) {
+            backRow = openBlockIndex.findLastRowWithBlock(blockSize, firstRow + noOfStackedRows - 1, backRow);
+            if (backRow < 0) {
+                return bestSeatId;
+            }
+            int frontRow = backRow - noOfStackedRows + 1;
+            if (isStackCandidate(frontRow, blockSizes, scores, bestScore)) {
+                for (int row = frontRow; row <= backRow; row++) {
+                    rowLocks[row].lock();
+                }
+                try {
+                    int start = openBlockIndex.findStackedBlock(frontRow, blockSizes, scores);
+                    if (start >= 0 && scores == null) {
+                        return getSeatId(frontRow, start);
+                    }
+                    if (start >= 0 && getStackedBlockScore(scores, frontRow, start, blockSizes) > bestScore) {
+                        bestScore = getStackedBlockScore(scores, frontRow, start, blockSizes);
+                        bestSeatId = getSeatId(frontRow, start);
+                    }
+                } finally {
+                    for (int row = backRow; row >= frontRow; row--) {
+                        rowLocks[row].unlock();
+                    }
+                }
+            }
+            if (--backRow < firstRow + noOfStackedRows - 1) {
+                return bestSeatId;
+            }
+        }
+    }
+
+    /**
+     * This method returns the no of seats of every row of a stack but the front row, which takes what is left over.
+     *
+     * @param requiredSeatCount The no of seats of the party.
+     * @param noOfStackedRows The no of rows of the stack.
+     * @return The no of seats of a row of the stack
+     */
+    public static int getStackedBlockSize(int requiredSeatCount, int noOfStackedRows) {
+        return (requiredSeatCount + noOfStackedRows - 1) / noOfStackedRows;
+    }
+
+    /**
+     * This method returns whether the largest open blocks of the rows of a stack can accommodate it, and whether the
+     * best seat scores of the rows can beat the best stack found.
+     *
+     * @param frontRow The front row of the stack.
+     * @param blockSizes The block size of every row of the stack, from the front row.
+     * @param scores The seat scores, null without a seat scoring model.
+     * @param bestScore The score of the best stack found.
+     * @return true if the blocks of the rows must be intersected
+     */
+    private boolean isStackCandidate(int frontRow, int[] blockSizes, SeatScores scores, long bestScore) {
+        long maxScore = 0;
+        for (int stackedRow = 0; stackedRow < blockSizes.length; stackedRow++) {
+            if (openBlockIndex.getLargestBlock(frontRow + stackedRow) < blockSizes[stackedRow]) {
+                return false;
+            }
+            if (scores != null) {
+                maxScore += (long) blockSizes[stackedRow] * scores.getRowMaxScore(frontRow + stackedRow);
+            }
+        }
+        return scores == null || maxScore > bestScore;
+    }
+
+    /**
+     * This method returns the total score of the blocks of a stack.
+     *
+     * @param scores The seat scores.
+     * @param frontRow The front row of the stack.
+     * @param start The start column of the blocks.
+     * @param blockSizes The block size of every row of the stack, from the front row.
+     * @return The total score
+     */
+    private static long getStackedBlockScore(SeatScores scores, int frontRow, int start, int[] blockSizes) {
+        long score = 0;
+        for (int stackedRow = 0; stackedRow < blockSizes.length; stackedRow++) {
+            score += scores.getBlockScore(frontRow + stackedRow, start, blockSizes[stackedRow]);
+        }
+        return score;
+    }
+
+    /**
+     * This method returns whether the given seats of a row are all open. The row lock must be held to hold the seats
+     * afterwards.
+     *
+     * @param row The row position.
+     * @param column The first column of the seats.
+     * @param blockSize The no of seats.
+     * @return true if all the seats are open
+     */
+    public boolean isOpenBlock(int row, int column, int blockSize) {
+        if (row >= noOfRows || row < 0) {
+            LOGGER.error("The row must be requested in valid limits. {}", noOfRows);
+            throw new SeatingArrangementNotValidException("The row must be requested in valid limits." + noOfRows);
+        }
+        rowLocks[row].lock();
+        try {
+            return openBlockIndex.isOpen(row, column, blockSize);
+        } finally {
+            rowLocks[row].unlock();
+        }
+    }
+
+    /**
+     * This method returns the zoning of the grid.
+     *
+     * @return The zoning
+     */
+    private SeatZoning getSeatZoning() {
+        SeatZoning zoning = seatZoning;
+        if (zoning == null) {
+            throw new SeatingArrangementNotValidException("The seat grid is not zoned");
+        }
+        return zoning;
+    }
+
+    /**
+     * This method checks a range of rows is within the grid.
+     *
+     * @param firstRow The first row of the range.
+     * @param lastRow The last row of the range, inclusive.
+     */
+    private void checkRowRange(int firstRow, int lastRow) {
+        if (firstRow < 0 || lastRow >= noOfRows || lastRow < firstRow) {
+            LOGGER.error("The rows must be requested in valid limits. {}", noOfRows);
+            throw new SeatingArrangementNotValidException("The rows must be requested in valid limits." + noOfRows);
+        }
+    }
+
+    /**
+     * This method returns the no of words used by a row.
+     *
+     * @param row The row position.
+     * @return The no of words
+     */
+    int getWordsInRow(int row) {
+        return rowWordOffsets[row + 1] - rowWordOffsets[row];
+    }
+
+    /**
+     * This method returns a packed word of a row, without any bound checks. The row lock must be held to read a
+     * consistent row.
+     *
+     * @param row The row position.
+     * @param wordInRow The word position within the row.
+     * @return The word, two bits per seat from the lowest bits
+     */
+    long getSeatWord(int row, int wordInRow) {
+        return seats.get(rowWordOffsets[row] + wordInRow);
+    }
+
+    /**
+     * This method is used to restore the seats of a row from runs of seats having the same status. The row must have
+     * all its seats reserved, as in a grid just created with the reserved status, and the runs must cover the row up to
+     * the no of columns of the grid, with the padding value where the layout of the grid has no seat.
+     *
+     * @param row The row position.
+     * @param runValues The status value of every run.
+     * @param runLengths The no of seats of every run.
+     * @param noOfRuns The no of runs.
+     */
+    void restoreRow(int row, int[] runValues, int[] runLengths, int noOfRuns) {
+        int reservedValue = SeatStatus.RESERVED.getSeatStatusValue();
+        int openValue = SeatStatus.OPEN.getSeatStatusValue();
+        rowLocks[row].lock();
+        try {
+            SeatZoning zoning = seatZoning;
+            int rowOffset = rowWordOffsets[row];
+            int rowLength = rowLengths[row];
+            long word = seats.get(rowOffset);
+            int column = 0;
+            int openBlockStart = -1;
+            for (int run = 0; run < noOfRuns; run++) {
+                int value = runValues[run];
+                if (value == openValue && openBlockStart < 0) {
+                    openBlockStart = column;
+                } else if (value != openValue && openBlockStart >= 0) {
+                    openBlockIndex.blockOpened(row, openBlockStart, column - openBlockStart);
+                    openBlockStart = -1;
+                }
+                if (value != PADDING_VALUE) {
+                    rowSeatCounts[reservedValue][row] -= runLengths[run];
+                    rowSeatCounts[value][row] += runLengths[run];
+                    seatCounts.addAndGet(reservedValue, -runLengths[run]);
+                    seatCounts.addAndGet(value, runLengths[run]);
+                    if (zoning != null) {
+                        zoning.seatsChanged(row, reservedValue, value, runLengths[run]);
+                    }
+                }
+                int runEnd = column + runLengths[run];
+                // the columns after the end of the row have no word
+                for (int end = Math.min(runEnd, rowLength); column < end; column++) {
+                    int shift = bitShift(column);
+                    word = (word & ~(SEAT_MASK << shift)) | ((long) value << shift);
+                    if (shift == (SEATS_PER_WORD - 1) << 1 || column == rowLength - 1) {
+                        seats.put(rowOffset + (column >>> SEATS_PER_WORD_SHIFT), word);
+                        if (column < rowLength - 1) {
+                            word = seats.get(rowOffset + ((column + 1) >>> SEATS_PER_WORD_SHIFT));
+                        }
+                    }
+                }
+                column = runEnd;
+            }
+            if (openBlockStart >= 0) {
+                openBlockIndex.blockOpened(row, openBlockStart, column - openBlockStart);
+            }
+        } finally {
+            rowLocks[row].unlock();
+        }
+    }
+
+    /**
+     * This method is used to write the status value of a seat and to keep the open blocks up to date. The row lock
+     * must be held.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @param newValue The status value to set.
+     */
+    private void updateSeatStatus(int row, int column, int newValue) {
+        int wordIndex = wordIndex(row, column);
+        int shift = bitShift(column);
+        long word = seats.get(wordIndex);
+        int previousValue = (int) ((word >>> shift) & SEAT_MASK);
+        if (previousValue == newValue) {
+            return;
+        }
+        seats.put(wordIndex, (word & ~(SEAT_MASK << shift)) | ((long) newValue << shift));
+        rowSeatCounts[previousValue][row]--;
+        rowSeatCounts[newValue][row]++;
+        seatCounts.decrementAndGet(previousValue);
+        seatCounts.incrementAndGet(newValue);
+        SeatZoning zoning = seatZoning;
+        if (zoning != null) {
+            zoning.seatsChanged(row, previousValue, newValue, 1);
+        }
+        SeatChangeStream changeStream = seatChangeStream;
+        if (changeStream != null) {
+            changeStream.publish(row * noOfColumns + column, previousValue, newValue);
+        }
+        if (newValue == SeatStatus.OPEN.getSeatStatusValue()) {
+            openBlockIndex.seatOpened(row, column);
+        } else if (previousValue == SeatStatus.OPEN.getSeatStatusValue()) {
+            openBlockIndex.seatClosed(row, column);
+        }
+    }
+
+    /**
+     * This method is used to fill all the seats with a status, and the bits after the last seat of every row, the
+     * aisles and the missing seats with the padding value.
+     *
+     * @param seatStatus The seat status to set for each seat.
+     * @param venueLayout The layout of an irregular venue, null for a rectangle of seats.
+     */
+    private void fillSeats(SeatStatus seatStatus, VenueLayout venueLayout) {
+        long filledWord = seatStatus.getSeatStatusValue() * LOW_BITS;
+        for (int i = 0; i < noOfRows; i++) {
+            int rowOffset = rowWordOffsets[i];
+            int wordsInRow = rowWordOffsets[i + 1] - rowOffset;
+            int seatsInLastWord = rowLengths[i] - ((wordsInRow - 1) << SEATS_PER_WORD_SHIFT);
+            for (int j = 0; j < wordsInRow - 1; j++) {
+                seats.put(rowOffset + j, filledWord);
+            }
+            seats.put(rowOffset + wordsInRow - 1, seatsInLastWord == SEATS_PER_WORD ? filledWord
+                    : (filledWord & lowSeatsMask(seatsInLastWord)) | (PADDING_VALUE * LOW_BITS & ~lowSeatsMask(seatsInLastWord)));
+            if (venueLayout == null) {
+                continue;
+            }
+            for (int column = 0; column < rowLengths[i]; column++) {
+                if (!venueLayout.isSeat(i, column)) {
+                    int wordIndex = wordIndex(i, column);
+                    seats.put(wordIndex, seats.get(wordIndex) | ((long) PADDING_VALUE << bitShift(column)));
+                }
+            }
+        }
+    }
+
+    /**
+     * This method is used to add the blocks of seats between the aisles and the missing seats of an irregular venue to
+     * the open blocks, once all its seats are open.
+     *
+     * @param venueLayout The layout of the venue.
+     */
+    private void openSeatBlocks(VenueLayout venueLayout) {
+        for (int row = 0; row < noOfRows; row++) {
+            int blockStart = -1;
+            for (int column = 0; column <= rowLengths[row]; column++) {
+                boolean seat = column < rowLengths[row] && venueLayout.isSeat(row, column);
+                if (seat && blockStart < 0) {
+                    blockStart = column;
+                } else if (!seat && blockStart >= 0) {
+                    openBlockIndex.blockOpened(row, blockStart, column - blockStart);
+                    blockStart = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method checks there is a seat at a position within the grid, which is always the case except for the
+     * aisles, the missing seats and the columns after the end of a row of an irregular venue.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     */
+    private void checkSeat(int row, int column) {
+        if (column >= rowLengths[row] || seatStatusValue(row, column) == PADDING_VALUE) {
+            throw seatNotValid(row, column);
+        }
+    }
+
+    /**
+     * This method is used to check the position of a seat is within the grid and there is a seat at this position.
+     * The exceptions are built out of line, so the check stays small enough to be inlined in the accessors.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @param access How the seat is accessed, {@link #UPDATED} or {@link #REQUESTED}, for the error message.
+     */
+    private void checkSeat(int row, int column, String access) {
+        if (row < 0 || column < 0 || row >= noOfRows || column >= noOfColumns) {
+            throw positionNotValid(access);
+        }
+        checkSeat(row, column);
+    }
+
+    /**
+     * This method logs and returns the exception thrown for a position out of the grid.
+     *
+     * @param access How the seat is accessed, {@link #UPDATED} or {@link #REQUESTED}.
+     * @return The exception to throw
+     */
+    private SeatingArrangementNotValidException positionNotValid(String access) {
+        LOGGER.error("The no of rows and no of columns must be {} valid limits. {} X {}", access, noOfRows,
+                noOfColumns);
+        return new SeatingArrangementNotValidException("The no of rows and no of columns must be " + access
+                + " valid limits." + noOfRows + "X" + noOfColumns);
+    }
+
+    /**
+     * This method logs and returns the exception thrown for a position of the grid which is not a seat.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @return The exception to throw
+     */
+    private SeatingArrangementNotValidException seatNotValid(int row, int column) {
+        LOGGER.error("There is no seat at {} X {}", row, column);
+        return new SeatingArrangementNotValidException("There is no seat at " + row + "X" + column);
+    }
+
+    /**
+     * This method is used to rebuild the seat counts and the open blocks from the seats of a mapped file. The held
+     * seats are made available again.
+     */
+    private void loadSeats() {
+        int holdValue = SeatStatus.HOLD.getSeatStatusValue();
+        int openValue = SeatStatus.OPEN.getSeatStatusValue();
+        for (int row = 0; row < noOfRows; row++) {
+            for (int column = 0; column < noOfColumns; column++) {
+                int value = seatStatusValue(row, column);
+                if (value == holdValue) {
+                    int wordIndex = wordIndex(row, column);
+                    seats.put(wordIndex, seats.get(wordIndex) & ~(SEAT_MASK << bitShift(column)));
+                    value = openValue;
+                } else if (value >= NO_OF_SEAT_STATUSES) {
+                    throw new SeatingArrangementNotValidException("The seat grid file has an invalid seat at "
+                            + row + "X" + column);
+                }
+                rowSeatCounts[value][row]++;
+                seatCounts.incrementAndGet(value);
+                if (value == openValue) {
+                    openBlockIndex.seatOpened(row, column);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method is used to read the raw status value of a seat, without any bound checks.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @return The status value of the seat
+     */
+    private int seatStatusValue(int row, int column) {
+        return (int) ((seats.get(wordIndex(row, column)) >>> bitShift(column)) & SEAT_MASK);
+    }
+
+    /**
+     * This method returns the index of the word holding the given seat.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @return The word index
+     */
+    private int wordIndex(int row, int column) {
+        return rowWordOffsets[row] + (column >>> SEATS_PER_WORD_SHIFT);
+    }
+
+    /**
+     * This method returns the position of the given column's status bits within its word.
+     *
+     * @param column The column position.
+     * @return The bit shift
+     */
+    private static int bitShift(int column) {
+        return (column & (SEATS_PER_WORD - 1)) << 1;
+    }
+
+    /**
+     * This method returns the no of words used by each row.
+     *
+     * @param noOfColumns The no of columns.
+     * @return The no of words
+     */
+    private static int wordsPerRow(int noOfColumns) {
+        return (noOfColumns + SEATS_PER_WORD - 1) >>> SEATS_PER_WORD_SHIFT;
+    }
+
+    /**
+     * This method returns the mask covering the lowest seats of a word.
+     *
+     * @param noOfSeats The no of seats to cover, less than the seats per word.
+     * @return The mask
+     */
+    private static long lowSeatsMask(int noOfSeats) {
+        return (1L << (noOfSeats * BITS_PER_SEAT)) - 1;
+    }
+
+    /**
+     * This method converts the stored status value into the SeatStatus enum.
+     *
+     * @param seatStatusValue The stored status value.
+     * @return The SeatStatus enum value, null for an unknown value
+     */
+    static SeatStatus toSeatStatus(int seatStatusValue) {
+        switch (seatStatusValue) {
+        case 0:
+            return SeatStatus.OPEN;
+        case 1:
+            return SeatStatus.HOLD;
+        case 2:
+            return SeatStatus.RESERVED;
+        default:
+            // Not implemented
+            return null;
+        }
+    }
+
+    /**
+     * This class reads and updates the seats of the grid one at a time, without checking the position of the seat.
+     * It is meant for the trusted callers handling the seat ids found by the grid, once the request is validated, so
+     * a scan or a hold compiles to the word access alone. A position out of the grid or which is not a seat is not
+     * detected.
+     *
+     * The row lock of the seat must be held to update it, it is not taken by the cursor. A cursor is not thread safe,
+     * every thread uses its own.
+     */
+    public final class Cursor {
+
+        /**
+         * The row position
+         */
+        private int row;
+
+        /**
+         * The column position
+         */
+        private int column;
+
+        /**
+         * Constructor for a Cursor, on the first seat.
+         */
+        private Cursor() {
+        }
+
+        /**
+         * This method moves the cursor to a seat id.
+         *
+         * @param seatId The seat id.
+         * @return The cursor
+         */
+        public Cursor moveTo(int seatId) {
+            this.row = seatId / noOfColumns;
+            this.column = seatId - row * noOfColumns;
+            return this;
+        }
+
+        /**
+         * This method moves the cursor to a seat position.
+         *
+         * @param row The row position.
+         * @param column The column position.
+         * @return The cursor
+         */
+        public Cursor moveTo(int row, int column) {
+            this.row = row;
+            this.column = column;
+            return this;
+        }
+
+        /**
+         * This method returns the row position of the cursor.
+         *
+         * @return The row position
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * This method returns the column position of the cursor.
+         *
+         * @return The column position
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * This method returns the status of the seat of the cursor.
+         *
+         * @return The SeatStatus enum value
+         */
+        public SeatStatus getSeatStatus() {
+            return toSeatStatus(seatStatusValue(row, column));
+        }
+
+        /**
+         * This method returns a seat object of the seat of the cursor.
+         *
+         * @return The new seat object
+         */
+        public Seat getSeat() {
+            return new Seat(row, column, toSeatStatus(seatStatusValue(row, column)));
+        }
+
+        /**
+         * This method is used to set the status of the seat of the cursor. The row lock must be held.
+         *
+         * @param seatStatus The status of the seat to set.
+         */
+        public void setSeatStatus(SeatStatus seatStatus) {
+            assert rowLocks[row].isHeldByCurrentThread() : "The lock of the row " + row + " must be held";
+            updateSeatStatus(row, column, seatStatus.getSeatStatusValue());
+        }
+
+        /**
+         * This method is used to set the status of the seat of the cursor, only if the seat has the expected status.
+         * The row lock must be held.
+         *
+         * @param expectedSeatStatus The status the seat must have.
+         * @param seatStatus The status of the seat to set.
+         * @return true if the seat had the expected status and was updated, otherwise false
+         */
+        public boolean compareAndSetSeatStatus(SeatStatus expectedSeatStatus, SeatStatus seatStatus) {
+            assert rowLocks[row].isHeldByCurrentThread() : "The lock of the row " + row + " must be held";
+            if (seatStatusValue(row, column) != expectedSeatStatus.getSeatStatusValue()) {
+                return false;
+            }
+            updateSeatStatus(row, column, seatStatus.getSeatStatusValue());
+            return true;
         }
-        return seats[0].length;
     }
 }
@@ -0,0 +1,380 @@
+package com.nmodi.ticketserviceapp.grid;
+
+import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * This class writes and reads snapshots of seat grids, to checkpoint the seats of a venue or to ship them to another
+ * node.
+ *
+ * A snapshot starts with a header of 16 bytes, the magic number, the format version, the no of rows and the no of
+ * columns as little endian ints. Every row follows as its no of runs of seats having the same status, then every run
+ * as its no of seats shifted left by two bits with the status value in the lowest two bits, all as variable length
+ * ints. The aisles, the missing seats and the columns after the end of a shorter row of an irregular venue are written
+ * as runs of the padding value, so the layout of the venue is restored with its seats. The snapshot ends with the
+ * CRC32 of all the bytes before it, as a little endian int.
+ *
+ * The runs are read straight from the packed words of the grid, a whole word of the status of the current run being
+ * added at once, and are streamed through a single buffer, so no object is created per seat.
+ */
+public final class SeatGridSnapshot {
+
+    /**
+     * The magic number of a snapshot, "SNAP" in ascii
+     */
+    static final int MAGIC = 0x534e4150;
+
+    /**
+     * The format version of a snapshot
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The size in bytes of the header of a snapshot
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * The maximum size in bytes of a variable length int
+     */
+    private static final int MAX_VAR_INT_SIZE = 5;
+
+    /**
+     * The size of the buffer streamed to or from the channel
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * No instance is created
+     */
+    private SeatGridSnapshot() {
+    }
+
+    /**
+     * This method is used to write a snapshot of a seat grid. Every row is read under its lock, so every row is
+     * consistent while the grid keeps changing in the other rows.
+     *
+     * @param seatGrid The seat grid.
+     * @param channel The channel to write to.
+     * @throws IOException if the channel can't be written
+     */
+    public static void write(SeatGrid seatGrid, WritableByteChannel channel) throws IOException {
+        int noOfRows = seatGrid.getNoOfRows();
+        int noOfColumns = seatGrid.getNoOfColumns();
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, MAX_VAR_INT_SIZE * (noOfColumns + 1)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(noOfRows).putInt(noOfColumns);
+
+        int[] runValues = new int[noOfColumns];
+        int[] runLengths = new int[noOfColumns];
+        for (int row = 0; row < noOfRows; row++) {
+            int noOfRuns = readRuns(seatGrid, row, runValues, runLengths);
+            if (buffer.remaining() < MAX_VAR_INT_SIZE * (noOfRuns + 1)) {
+                writeBuffer(buffer, crc, channel);
+            }
+            putVarInt(buffer, noOfRuns);
+            for (int run = 0; run < noOfRuns; run++) {
+                putVarInt(buffer, (runLengths[run] << 2) | runValues[run]);
+            }
+        }
+        writeBuffer(buffer, crc, channel);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * This method is used to read a snapshot into a new seat grid. The held seats of the snapshot are made available,
+     * as the holds are not part of the snapshot.
+     *
+     * @param channel The channel to read from.
+     * @return The seat grid
+     * @throws IOException if the channel can't be read
+     */
+    public static SeatGrid read(ReadableByteChannel channel) throws IOException {
+        SnapshotReader reader = new SnapshotReader(channel);
+        reader.require(HEADER_SIZE);
+        ByteBuffer buffer = reader.buffer;
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new SeatingArrangementNotValidException("The seat grid snapshot is not valid");
+        }
+        int noOfRows = buffer.getInt();
+        int noOfColumns = buffer.getInt();
+        if (noOfRows <= 0 || noOfColumns <= 0) {
+            throw new SeatingArrangementNotValidException("The seat grid snapshot is not valid");
+        }
+
+        // the runs are all read first, as the layout of an irregular venue is only known from its padding runs
+        int holdValue = SeatStatus.HOLD.getSeatStatusValue();
+        int openValue = SeatStatus.OPEN.getSeatStatusValue();
+        int[] rowRunOffsets = new int[noOfRows + 1];
+        int[] runValues = new int[Math.max(16, noOfRows)];
+        int[] runLengths = new int[runValues.length];
+        boolean irregular = false;
+        for (int row = 0; row < noOfRows; row++) {
+            int noOfRuns = reader.getVarInt();
+            if (noOfRuns <= 0 || noOfRuns > noOfColumns) {
+                throw new SeatingArrangementNotValidException("The seat grid snapshot has an invalid row " + row);
+            }
+            int firstRun = rowRunOffsets[row];
+            if (firstRun + noOfRuns > runValues.length) {
+                runValues = Arrays.copyOf(runValues, Math.max(runValues.length * 2, firstRun + noOfRuns));
+                runLengths = Arrays.copyOf(runLengths, runValues.length);
+            }
+            int noOfSeats = 0;
+            for (int run = firstRun; run < firstRun + noOfRuns; run++) {
+                int encodedRun = reader.getVarInt();
+                int value = encodedRun & (int) SeatGrid.SEAT_MASK;
+                runLengths[run] = encodedRun >>> 2;
+                runValues[run] = value == holdValue ? openValue : value;
+                noOfSeats += runLengths[run];
+                irregular |= value == SeatGrid.PADDING_VALUE;
+                if (runLengths[run] <= 0 || noOfSeats > noOfColumns) {
+                    throw new SeatingArrangementNotValidException("The seat grid snapshot has an invalid row " + row);
+                }
+            }
+            if (noOfSeats != noOfColumns) {
+                throw new SeatingArrangementNotValidException("The seat grid snapshot has an invalid row " + row);
+            }
+            rowRunOffsets[row + 1] = firstRun + noOfRuns;
+        }
+        reader.checkCrc();
+
+        SeatGrid seatGrid = irregular
+                ? new SeatGrid(readLayout(noOfRows, noOfColumns, rowRunOffsets, runValues, runLengths),
+                SeatStatus.RESERVED)
+                : new SeatGrid(noOfRows, noOfColumns, SeatStatus.RESERVED);
+        int[] rowRunValues = new int[noOfColumns];
+        int[] rowRunLengths = new int[noOfColumns];
+        for (int row = 0; row < noOfRows; row++) {
+            int noOfRuns = rowRunOffsets[row + 1] - rowRunOffsets[row];
+            System.arraycopy(runValues, rowRunOffsets[row], rowRunValues, 0, noOfRuns);
+            System.arraycopy(runLengths, rowRunOffsets[row], rowRunLengths, 0, noOfRuns);
+            seatGrid.restoreRow(row, rowRunValues, rowRunLengths, noOfRuns);
+        }
+        return seatGrid;
+    }
+
+    /**
+     * This method builds the layout of an irregular venue from the padding runs of its rows. A padding run at the end
+     * of a row shortens the row, the other padding runs are missing seats.
+     *
+     * @param noOfRows The no of rows.
+     * @param noOfColumns The no of columns.
+     * @param rowRunOffsets The index of the first run of every row, followed by the total no of runs.
+     * @param runValues The status value of every run.
+     * @param runLengths The no of seats of every run.
+     * @return The layout
+     */
+    private static VenueLayout readLayout(int noOfRows, int noOfColumns, int[] rowRunOffsets, int[] runValues,
+                                          int[] runLengths) {
+        int[] rowLengths = new int[noOfRows];
+        for (int row = 0; row < noOfRows; row++) {
+            int lastRun = rowRunOffsets[row + 1] - 1;
+            rowLengths[row] = runValues[lastRun] == SeatGrid.PADDING_VALUE && runLengths[lastRun] < noOfColumns
+                    ? noOfColumns - runLengths[lastRun] : noOfColumns;
+        }
+        VenueLayout venueLayout = new VenueLayout(rowLengths);
+        for (int row = 0; row < noOfRows; row++) {
+            int column = 0;
+            for (int run = rowRunOffsets[row]; run < rowRunOffsets[row + 1]; run++) {
+                for (int end = Math.min(column + runLengths[run], rowLengths[row]);
+                     runValues[run] == SeatGrid.PADDING_VALUE && column < end; column++) {
+                    venueLayout.addMissingSeat(row, column);
+                }
+                column += runValues[run] == SeatGrid.PADDING_VALUE ? 0 : runLengths[run];
+            }
+        }
+        return venueLayout;
+    }
+
+    /**
+     * This method reads the runs of seats having the same status of a row, under the row lock.
+     *
+     * @param seatGrid The seat grid.
+     * @param row The row position.
+     * @param runValues The status value of every run, filled by this method.
+     * @param runLengths The no of seats of every run, filled by this method.
+     * @return The no of runs
+     */
+    private static int readRuns(SeatGrid seatGrid, int row, int[] runValues, int[] runLengths) {
+        int noOfColumns = seatGrid.getNoOfColumns();
+        int rowLength = seatGrid.getRowLength(row);
+        int wordsInRow = seatGrid.getWordsInRow(row);
+        int noOfRuns = 0;
+        int runValue = -1;
+        seatGrid.getRowLock(row).lock();
+        try {
+            for (int wordInRow = 0, column = 0; wordInRow < wordsInRow; wordInRow++) {
+                long word = seatGrid.getSeatWord(row, wordInRow);
+                int seatsInWord = Math.min(SeatGrid.SEATS_PER_WORD, rowLength - column);
+                if (seatsInWord == SeatGrid.SEATS_PER_WORD && runValue >= 0 && word == runValue * SeatGrid.LOW_BITS) {
+                    runLengths[noOfRuns - 1] += SeatGrid.SEATS_PER_WORD;
+                    column += SeatGrid.SEATS_PER_WORD;
+                    continue;
+                }
+                for (int seat = 0; seat < seatsInWord; seat++, column++) {
+                    int value = (int) ((word >>> (seat * SeatGrid.BITS_PER_SEAT)) & SeatGrid.SEAT_MASK);
+                    if (value == runValue) {
+                        runLengths[noOfRuns - 1]++;
+                    } else {
+                        runValues[noOfRuns] = value;
+                        runLengths[noOfRuns] = 1;
+                        noOfRuns++;
+                        runValue = value;
+                    }
+                }
+            }
+        } finally {
+            seatGrid.getRowLock(row).unlock();
+        }
+        if (rowLength < noOfColumns) {
+            if (runValue == SeatGrid.PADDING_VALUE) {
+                runLengths[noOfRuns - 1] += noOfColumns - rowLength;
+            } else {
+                runValues[noOfRuns] = SeatGrid.PADDING_VALUE;
+                runLengths[noOfRuns] = noOfColumns - rowLength;
+                noOfRuns++;
+            }
+        }
+        return noOfRuns;
+    }
+
+    /**
+     * This method writes the content of the buffer to the channel, and adds it to the checksum.
+     *
+     * @param buffer The buffer.
+     * @param crc The checksum.
+     * @param channel The channel.
+     * @throws IOException if the channel can't be written
+     */
+    private static void writeBuffer(ByteBuffer buffer, CRC32 crc, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        crc.update(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * This method writes a positive int with 7 bits per byte, the highest bit of a byte telling whether more follow.
+     *
+     * @param buffer The buffer.
+     * @param value The value.
+     */
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * This class reads a snapshot from a channel through a single buffer, and checks its checksum.
+     */
+    private static class SnapshotReader {
+
+        /**
+         * The channel
+         */
+        private final ReadableByteChannel channel;
+
+        /**
+         * The buffer, positioned at the next byte to read
+         */
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        /**
+         * The checksum of the bytes read before the checksum position
+         */
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * The position in the buffer up to which the bytes are in the checksum
+         */
+        private int crcPosition;
+
+        /**
+         * Constructor for a SnapshotReader.
+         *
+         * @param channel The channel.
+         */
+        private SnapshotReader(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        /**
+         * This method makes sure the buffer has the given no of bytes to read.
+         *
+         * @param noOfBytes The no of bytes, at most the buffer size.
+         * @throws IOException if the channel can't be read
+         */
+        private void require(int noOfBytes) throws IOException {
+            if (buffer.remaining() >= noOfBytes) {
+                return;
+            }
+            updateCrc();
+            buffer.compact();
+            crcPosition = 0;
+            while (buffer.position() < noOfBytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new SeatingArrangementNotValidException("The seat grid snapshot is truncated");
+                }
+            }
+            buffer.flip();
+        }
+
+        /**
+         * This method reads an int written by {@link SeatGridSnapshot#putVarInt(ByteBuffer, int)}.
+         *
+         * @return The value
+         * @throws IOException if the channel can't be read
+         */
+        private int getVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < MAX_VAR_INT_SIZE * 7; shift += 7) {
+                require(1);
+                byte b = buffer.get();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SeatingArrangementNotValidException("The seat grid snapshot is not valid");
+        }
+
+        /**
+         * This method reads the checksum at the end of the snapshot and compares it with the bytes read.
+         *
+         * @throws IOException if the channel can't be read
+         */
+        private void checkCrc() throws IOException {
+            require(4);
+            updateCrc();
+            if (buffer.getInt() != (int) crc.getValue()) {
+                throw new SeatingArrangementNotValidException("The seat grid snapshot checksum does not match");
+            }
+        }
+
+        /**
+         * This method adds the bytes read since the last update to the checksum.
+         */
+        private void updateCrc() {
+            crc.update(buffer.array(), buffer.arrayOffset() + crcPosition, buffer.position() - crcPosition);
+            crcPosition = buffer.position();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.nmodi.ticketserviceapp.grid;
+
+import java.util.Arrays;
+
+/**
+ * This class keeps the scores of a seat scoring model precomputed for every seat of a grid.
+ *
+ * Every row keeps the prefix sums of its seat scores, so the score of any block of seats next to each other is read in
+ * constant time. The rows are ranked by their best seat score, which bounds the score of any block of the row, so a
+ * search for the best block walks the rows in that order and stops at the first row unable to beat the best block
+ * found so far.
+ *
+ * The best start of a block within an open block is found from the prefix sums as well, a block score per start
+ * column. The open blocks are short, and no structure is kept per block size, so the memory of the scores stays a
+ * long per seat however many party sizes are searched.
+ */
+class SeatScores {
+
+    /**
+     * The seat scoring model
+     */
+    private final SeatScoringModel seatScoringModel;
+
+    /**
+     * The no of columns
+     */
+    private final int noOfColumns;
+
+    /**
+     * The prefix sums of the seat scores of every row, the sum of the first n seats of a row is at
+     * row * (no of columns + 1) + n
+     */
+    private final long[] prefixSums;
+
+    /**
+     * The best seat score of every row
+     */
+    private final int[] rowMaxScores;
+
+    /**
+     * The rows by best seat score, the best first and the back row first for the same score
+     */
+    private final int[] rowRanking;
+
+    /**
+     * Constructor for the scores, which scores every seat with the model.
+     *
+     * @param seatScoringModel The seat scoring model.
+     * @param noOfRows The no of rows.
+     * @param noOfColumns The no of columns.
+     * @param rowOffsets The column of the first seat of every row.
+     * @param rowLengths The no of columns from the first to the last seat of every row.
+     */
+    SeatScores(SeatScoringModel seatScoringModel, int noOfRows, int noOfColumns, int[] rowOffsets, int[] rowLengths) {
+        this.seatScoringModel = seatScoringModel;
+        this.noOfColumns = noOfColumns;
+        this.prefixSums = new long[noOfRows * (noOfColumns + 1)];
+        this.rowMaxScores = new int[noOfRows];
+        // the rows are sorted as best score and row packed in a long, the highest first
+        long[] rankedRows = new long[noOfRows];
+        for (int row = 0; row < noOfRows; row++) {
+            int rowOffset = row * (noOfColumns + 1);
+            int rowMaxScore = Integer.MIN_VALUE;
+            for (int column = 0; column < noOfColumns; column++) {
+                int score = seatScoringModel.scoreSeat(row, column, noOfRows, rowOffsets[row], rowLengths[row]);
+                prefixSums[rowOffset + column + 1] = prefixSums[rowOffset + column] + score;
+                rowMaxScore = Math.max(rowMaxScore, score);
+            }
+            rowMaxScores[row] = rowMaxScore;
+            rankedRows[row] = ((long) rowMaxScore << 32) | row;
+        }
+        Arrays.sort(rankedRows);
+        this.rowRanking = new int[noOfRows];
+        for (int i = 0; i < noOfRows; i++) {
+            rowRanking[i] = (int) rankedRows[noOfRows - 1 - i];
+        }
+    }
+
+    /**
+     * This method returns the seat scoring model.
+     *
+     * @return The seat scoring model
+     */
+    SeatScoringModel getSeatScoringModel() {
+        return seatScoringModel;
+    }
+
+    /**
+     * This method returns the score of a block of seats next to each other.
+     *
+     * @param row The row position.
+     * @param start The first column of the block.
+     * @param length The no of seats of the block.
+     * @return The sum of the seat scores of the block
+     */
+    long getBlockScore(int row, int start, int length) {
+        int rowOffset = row * (noOfColumns + 1);
+        return prefixSums[rowOffset + start + length] - prefixSums[rowOffset + start];
+    }
+
+    /**
+     * This method returns the best seat score of a row.
+     *
+     * @param row The row position.
+     * @return The best seat score
+     */
+    int getRowMaxScore(int row) {
+        return rowMaxScores[row];
+    }
+
+    /**
+     * This method returns the rows by best seat score, which must not be modified.
+     *
+     * @return The rows, the best first
+     */
+    int[] getRowRanking() {
+        return rowRanking;
+    }
+
+    /**
+     * This method finds the block of the given no of seats with the highest score starting within a range of columns
+     * of a row, the left most for the same score.
+     *
+     * @param row The row position.
+     * @param firstStart The first start column of the range.
+     * @param lastStart The last start column of the range, inclusive.
+     * @param blockSize The no of seats of the block.
+     * @return The start column of the best block
+     */
+    int findBestBlockStart(int row, int firstStart, int lastStart, int blockSize) {
+        int bestStart = firstStart;
+        long bestScore = getBlockScore(row, firstStart, blockSize);
+        for (int start = firstStart + 1; start <= lastStart; start++) {
+            long score = getBlockScore(row, start, blockSize);
+            if (score > bestScore) {
+                bestScore = score;
+                bestStart = start;
+            }
+        }
+        return bestStart;
+    }
+}
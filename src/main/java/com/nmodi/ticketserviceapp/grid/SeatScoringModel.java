@@ -0,0 +1,24 @@
+package com.nmodi.ticketserviceapp.grid;
+
+/**
+ * This interface scores the quality of every seat of a venue, such as its sightline or its distance to the center of
+ * the stage. A higher score is a better seat.
+ *
+ * The scores are computed once when the model is set on a seat grid (see
+ * {@link SeatGrid#setSeatScoringModel(SeatScoringModel)}), so a model does not need to be fast.
+ */
+public interface SeatScoringModel {
+
+    /**
+     * This method is used to score a seat. The seats of a row of an irregular venue may not start at the first column,
+     * so the row is given by the column of its first seat and its length up to its last seat.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @param noOfRows The no of rows of the venue.
+     * @param rowOffset The column of the first seat of the row.
+     * @param rowLength The no of columns of the row, from its first to its last seat.
+     * @return The score of the seat, higher is better
+     */
+    int scoreSeat(int row, int column, int noOfRows, int rowOffset, int rowLength);
+}
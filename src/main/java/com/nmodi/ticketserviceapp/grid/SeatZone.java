@@ -0,0 +1,71 @@
+package com.nmodi.ticketserviceapp.grid;
+
+import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
+import lombok.Getter;
+
+/**
+ * This class defines a zone of a venue, a section of whole rows next to each other sold at a price tier. Several
+ * sections may share the same tier.
+ */
+@Getter
+public class SeatZone {
+
+    /**
+     * The section name, unique within a venue
+     */
+    private final String section;
+
+    /**
+     * The price tier
+     */
+    private final String tier;
+
+    /**
+     * The first row of the section
+     */
+    private final int firstRow;
+
+    /**
+     * The last row of the section, inclusive
+     */
+    private final int lastRow;
+
+    /**
+     * Constructor for a SeatZone.
+     *
+     * @param section The section name.
+     * @param tier The price tier.
+     * @param firstRow The first row of the section.
+     * @param lastRow The last row of the section, inclusive.
+     */
+    public SeatZone(String section, String tier, int firstRow, int lastRow) {
+        if (section == null || section.trim().isEmpty() || tier == null || tier.trim().isEmpty()) {
+            throw new SeatingArrangementNotValidException("The section and the tier of a zone can't be null or empty");
+        }
+        if (firstRow < 0 || lastRow < firstRow) {
+            throw new SeatingArrangementNotValidException("The rows of the zone " + section + " must be valid: "
+                    + firstRow + " to " + lastRow);
+        }
+        this.section = section;
+        this.tier = tier;
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+    }
+
+    /**
+     * This method returns the no of rows of the section.
+     *
+     * @return The no of rows
+     */
+    public int getNoOfRows() {
+        return lastRow - firstRow + 1;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "SeatZone [section=" + section + ", tier=" + tier + ", rows=" + firstRow + "-" + lastRow + "]";
+    }
+}
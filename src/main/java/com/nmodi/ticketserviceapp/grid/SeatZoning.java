@@ -0,0 +1,169 @@
+package com.nmodi.ticketserviceapp.grid;
+
+import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class maps the rows of a grid to the zones of the venue, and counts the seats of every status by zone as the
+ * seats change.
+ *
+ * The zone of every row is kept in a primitive array, so a seat change updates the counts of its zone with a single
+ * lookup. The counts are updated under the lock of the row of the seat, like the counts of the row.
+ */
+class SeatZoning {
+
+    /**
+     * The no of seat statuses which are counted
+     */
+    private static final int NO_OF_SEAT_STATUSES = 3;
+
+    /**
+     * The zones, in the order they were given
+     */
+    private final List<SeatZone> zones;
+
+    /**
+     * The zone index of every row, -1 for a row outside of any zone
+     */
+    private final int[] zoneOfRow;
+
+    /**
+     * The zone indexes by section
+     */
+    private final Map<String, Integer> zonesBySection = new HashMap<String, Integer>();
+
+    /**
+     * The zones by tier
+     */
+    private final Map<String, List<SeatZone>> zonesByTier = new HashMap<String, List<SeatZone>>();
+
+    /**
+     * The no of seats of every status by zone, the count of a status of a zone is at zone * 3 + status value
+     */
+    private final AtomicIntegerArray seatCounts;
+
+    /**
+     * Constructor for the zoning. The counts start at 0, they are added by the grid before the zoning is used.
+     *
+     * @param zones The zones, which must not overlap.
+     * @param noOfRows The no of rows of the grid.
+     */
+    SeatZoning(List<SeatZone> zones, int noOfRows) {
+        this.zones = Collections.unmodifiableList(new ArrayList<SeatZone>(zones));
+        this.zoneOfRow = new int[noOfRows];
+        Arrays.fill(zoneOfRow, -1);
+        for (int zone = 0; zone < zones.size(); zone++) {
+            SeatZone seatZone = zones.get(zone);
+            if (seatZone == null) {
+                throw new SeatingArrangementNotValidException("A zone of the seat grid can't be null");
+            }
+            if (seatZone.getLastRow() >= noOfRows) {
+                throw new SeatingArrangementNotValidException("The zone " + seatZone.getSection()
+                        + " is out of the rows of the seat grid");
+            }
+            if (zonesBySection.put(seatZone.getSection(), zone) != null) {
+                throw new SeatingArrangementNotValidException("The section " + seatZone.getSection()
+                        + " is zoned twice");
+            }
+            for (int row = seatZone.getFirstRow(); row <= seatZone.getLastRow(); row++) {
+                if (zoneOfRow[row] >= 0) {
+                    throw new SeatingArrangementNotValidException("The zone " + seatZone.getSection()
+                            + " overlaps the zone " + zones.get(zoneOfRow[row]).getSection());
+                }
+                zoneOfRow[row] = zone;
+            }
+            List<SeatZone> tierZones = zonesByTier.get(seatZone.getTier());
+            if (tierZones == null) {
+                tierZones = new ArrayList<SeatZone>();
+                zonesByTier.put(seatZone.getTier(), tierZones);
+            }
+            tierZones.add(seatZone);
+        }
+        this.seatCounts = new AtomicIntegerArray(zones.size() * NO_OF_SEAT_STATUSES);
+    }
+
+    /**
+     * This method returns the zones.
+     *
+     * @return The zones, which can't be modified
+     */
+    List<SeatZone> getZones() {
+        return zones;
+    }
+
+    /**
+     * This method returns the zone index of a section.
+     *
+     * @param section The section name.
+     * @return The zone index
+     */
+    int indexOf(String section) {
+        Integer zone = zonesBySection.get(section);
+        if (zone == null) {
+            throw new SeatingArrangementNotValidException("No zone of the seat grid has the section " + section);
+        }
+        return zone;
+    }
+
+    /**
+     * This method returns the zones of a tier.
+     *
+     * @param tier The price tier.
+     * @return The zones, which must not be modified
+     */
+    List<SeatZone> getTierZones(String tier) {
+        List<SeatZone> tierZones = zonesByTier.get(tier);
+        if (tierZones == null) {
+            throw new SeatingArrangementNotValidException("No zone of the seat grid has the tier " + tier);
+        }
+        return tierZones;
+    }
+
+    /**
+     * This method is used to record that seats of a row changed status. The row lock must be held.
+     *
+     * @param row The row position.
+     * @param previousValue The previous status value.
+     * @param newValue The new status value.
+     * @param noOfSeats The no of seats.
+     */
+    void seatsChanged(int row, int previousValue, int newValue, int noOfSeats) {
+        int zone = zoneOfRow[row];
+        if (zone >= 0) {
+            seatCounts.addAndGet(zone * NO_OF_SEAT_STATUSES + previousValue, -noOfSeats);
+            seatCounts.addAndGet(zone * NO_OF_SEAT_STATUSES + newValue, noOfSeats);
+        }
+    }
+
+    /**
+     * This method is used to add the seats of a row to the counts of its zone. The row lock must be held.
+     *
+     * @param row The row position.
+     * @param statusValue The status value.
+     * @param noOfSeats The no of seats.
+     */
+    void addSeats(int row, int statusValue, int noOfSeats) {
+        int zone = zoneOfRow[row];
+        if (zone >= 0) {
+            seatCounts.addAndGet(zone * NO_OF_SEAT_STATUSES + statusValue, noOfSeats);
+        }
+    }
+
+    /**
+     * This method returns the no of seats of a zone having a status.
+     *
+     * @param zone The zone index.
+     * @param statusValue The status value.
+     * @return The no of seats
+     */
+    int getSeatCount(int zone, int statusValue) {
+        return seatCounts.get(zone * NO_OF_SEAT_STATUSES + statusValue);
+    }
+}
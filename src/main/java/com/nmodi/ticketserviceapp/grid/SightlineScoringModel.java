@@ -0,0 +1,54 @@
+package com.nmodi.ticketserviceapp.grid;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * This class scores the seats by their row and by their distance to the center of the row. The back rows are better,
+ * as in the default allocation, and within a row the seats get worse the further they are from the center.
+ *
+ * The score of a seat is rowWeight * row - centerWeight * |2 * column - (2 * row offset + row length - 1)|, so with
+ * the default weights one row back is worth half a seat closer to the center. The center is the middle of the seats of
+ * every row, so the shorter rows of an irregular venue are centered on their own seats.
+ */
+public class SightlineScoringModel implements SeatScoringModel {
+
+    /**
+     * The default weight of a row
+     */
+    private static final int DEFAULT_ROW_WEIGHT = 1;
+
+    /**
+     * The default weight of the distance to the center
+     */
+    private static final int DEFAULT_CENTER_WEIGHT = 1;
+
+    /**
+     * The weight of a row
+     */
+    @Getter
+    @Setter
+    private int rowWeight = DEFAULT_ROW_WEIGHT;
+
+    /**
+     * The weight of the distance to the center, counted in half seats
+     */
+    @Getter
+    @Setter
+    private int centerWeight = DEFAULT_CENTER_WEIGHT;
+
+    /**
+     * This method is used to score a seat by its row and its distance to the center of the row.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @param noOfRows The no of rows of the venue.
+     * @param rowOffset The column of the first seat of the row.
+     * @param rowLength The no of columns of the row, from its first to its last seat.
+     * @return The score of the seat, higher is better
+     */
+    @Override
+    public int scoreSeat(int row, int column, int noOfRows, int rowOffset, int rowLength) {
+        return rowWeight * row - centerWeight * Math.abs(2 * column - (2 * rowOffset + rowLength - 1));
+    }
+}
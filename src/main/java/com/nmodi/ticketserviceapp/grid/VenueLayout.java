@@ -0,0 +1,171 @@
+package com.nmodi.ticketserviceapp.grid;
+
+import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * This class defines the layout of an irregular venue, whose rows have different lengths and are broken by aisles or
+ * missing seats.
+ *
+ * The columns of a row go from 0 to the length of the row, and the no of columns of the venue is the length of its
+ * longest row. An aisle is a column which is not a seat in any row, a missing seat is a single column of a row which
+ * is not a seat. A seat grid created with a layout only stores the words of the seats of every row, and stores the
+ * aisles and the missing seats as {@link SeatGrid#PADDING_VALUE}, so they never take part in a block of open seats.
+ */
+public class VenueLayout {
+
+    /**
+     * The length of every row
+     */
+    private final int[] rowLengths;
+
+    /**
+     * The no of columns, the length of the longest row
+     */
+    private final int noOfColumns;
+
+    /**
+     * The columns which are aisles
+     */
+    private final BitSet aisles = new BitSet();
+
+    /**
+     * The missing seats of every row, null for a row without missing seats
+     */
+    private final BitSet[] missingSeats;
+
+    /**
+     * Constructor for a VenueLayout.
+     *
+     * @param rowLengths The no of columns of every row, from the front row.
+     */
+    public VenueLayout(int... rowLengths) {
+        if (rowLengths == null || rowLengths.length == 0) {
+            throw new SeatingArrangementNotValidException("The venue layout must have at least one row");
+        }
+        int longestRow = 0;
+        for (int row = 0; row < rowLengths.length; row++) {
+            if (rowLengths[row] <= 0) {
+                throw new SeatingArrangementNotValidException("The length of the row " + row
+                        + " must be greater than 0");
+            }
+            longestRow = Math.max(longestRow, rowLengths[row]);
+        }
+        this.rowLengths = rowLengths.clone();
+        this.noOfColumns = longestRow;
+        this.missingSeats = new BitSet[rowLengths.length];
+    }
+
+    /**
+     * This method is used to add an aisle, a column which is not a seat in any row.
+     *
+     * @param column The column position.
+     */
+    public void addAisle(int column) {
+        if (column < 0 || column >= noOfColumns) {
+            throw new SeatingArrangementNotValidException("The aisle must be within the columns of the venue: "
+                    + column);
+        }
+        aisles.set(column);
+    }
+
+    /**
+     * This method is used to add a missing seat, a column of a row which is not a seat.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     */
+    public void addMissingSeat(int row, int column) {
+        if (row < 0 || row >= rowLengths.length || column < 0 || column >= rowLengths[row]) {
+            throw new SeatingArrangementNotValidException("The missing seat must be within the rows of the venue: "
+                    + row + "X" + column);
+        }
+        if (missingSeats[row] == null) {
+            missingSeats[row] = new BitSet();
+        }
+        missingSeats[row].set(column);
+    }
+
+    /**
+     * This method returns the no of rows.
+     *
+     * @return The no of rows
+     */
+    public int getNoOfRows() {
+        return rowLengths.length;
+    }
+
+    /**
+     * This method returns the no of columns, the length of the longest row.
+     *
+     * @return The no of columns
+     */
+    public int getNoOfColumns() {
+        return noOfColumns;
+    }
+
+    /**
+     * This method returns the length of a row.
+     *
+     * @param row The row position.
+     * @return The no of columns of the row, seats or not
+     */
+    public int getRowLength(int row) {
+        return rowLengths[row];
+    }
+
+    /**
+     * This method returns whether there is a seat at the given position.
+     *
+     * @param row The row position.
+     * @param column The column position.
+     * @return true if the position is a seat, false for an aisle, a missing seat or a column after the end of the row
+     */
+    public boolean isSeat(int row, int column) {
+        return column >= 0 && column < rowLengths[row] && !aisles.get(column)
+                && (missingSeats[row] == null || !missingSeats[row].get(column));
+    }
+
+    /**
+     * This method returns the no of seats of a row.
+     *
+     * @param row The row position.
+     * @return The no of seats
+     */
+    public int getRowSeatCount(int row) {
+        int noOfSeats = rowLengths[row] - aisles.get(0, rowLengths[row]).cardinality();
+        if (missingSeats[row] != null) {
+            BitSet rowMissingSeats = (BitSet) missingSeats[row].clone();
+            rowMissingSeats.andNot(aisles);
+            noOfSeats -= rowMissingSeats.cardinality();
+        }
+        return noOfSeats;
+    }
+
+    /**
+     * This method returns whether every row has the same length without any aisle or missing seat.
+     *
+     * @return true for a rectangular venue
+     */
+    public boolean isRectangular() {
+        if (!aisles.isEmpty()) {
+            return false;
+        }
+        for (int row = 0; row < rowLengths.length; row++) {
+            if (rowLengths[row] != noOfColumns || missingSeats[row] != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "VenueLayout [rowLengths=" + Arrays.toString(rowLengths) + ", aisles=" + aisles + "]";
+    }
+}
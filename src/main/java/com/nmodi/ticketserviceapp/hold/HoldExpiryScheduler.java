@@ -0,0 +1,411 @@
+package com.nmodi.ticketserviceapp.hold;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class expires the held seats. Every hold is scheduled with its own deadline in a single delay queue, which is
+ * drained by a small fixed number of reaper threads whatever the number of outstanding holds.
+ *
+ * Scheduling a hold is a queue insert, and cancelling it only flags its expiry, which is dropped by the reaper once
+ * its deadline is reached. A cancelled expiry lets go of its action right away, so the hold and its seats are not kept
+ * reachable until the deadline, only a few bytes per cancelled hold stay queued.
+ *
+ * Optionally every hold waits for its deadline on a virtual thread of its own, parked until the hold expires or is
+ * cancelled, when the JVM has virtual threads. They are started by reflection so the scheduler still runs on the
+ * older JVMs, which fall back to the delay queue. The parked threads are unparked on shutdown, so none of them waits
+ * for its deadline once the scheduler is stopped.
+ */
+public class HoldExpiryScheduler {
+
+    /**
+     * The Logger
+     */
+    private final Logger LOGGER = LoggerFactory.getLogger(HoldExpiryScheduler.class);
+
+    /**
+     * The default number of reaper threads
+     */
+    private static final int DEFAULT_NO_OF_REAPER_THREADS = 1;
+
+    /**
+     * The method starting a virtual thread, null if the JVM has no virtual threads
+     */
+    private static final Method START_VIRTUAL_THREAD = findStartVirtualThread();
+
+    /**
+     * The scheduled expiries ordered by deadline
+     */
+    private final DelayQueue<ScheduledExpiry> expiryQueue = new DelayQueue<ScheduledExpiry>();
+
+    /**
+     * The reaper threads
+     */
+    private final Thread[] reaperThreads;
+
+    /**
+     * The executor starting the thread every hold waits for its deadline on, null if the holds wait in the delay queue
+     */
+    private final Executor waiterExecutor;
+
+    /**
+     * The expiries whose thread is waiting for their deadline
+     */
+    private final Set<ScheduledExpiry> waitingExpiries =
+            Collections.newSetFromMap(new ConcurrentHashMap<ScheduledExpiry, Boolean>());
+
+    /**
+     * The no of expiries waiting on a virtual thread
+     */
+    private final AtomicInteger virtualExpiryCount = new AtomicInteger();
+
+    /**
+     * Whether the scheduler is running
+     */
+    private volatile boolean running = true;
+
+    /**
+     * This is the no-arg constructor, which starts the default number of reaper threads.
+     */
+    public HoldExpiryScheduler() {
+        this(DEFAULT_NO_OF_REAPER_THREADS);
+    }
+
+    /**
+     * This is the single arg constructor with the number of reaper threads to start.
+     *
+     * @param noOfReaperThreads The number of reaper threads.
+     */
+    public HoldExpiryScheduler(int noOfReaperThreads) {
+        this(noOfReaperThreads, false);
+    }
+
+    /**
+     * This is the constructor with the number of reaper threads to start and whether the holds wait on virtual
+     * threads. The reaper threads are started either way, for the holds scheduled while the JVM can not start a
+     * virtual thread.
+     *
+     * @param noOfReaperThreads The number of reaper threads.
+     * @param virtualThreads true to wait for every hold on a virtual thread, if the JVM has virtual threads.
+     */
+    public HoldExpiryScheduler(int noOfReaperThreads, boolean virtualThreads) {
+        this(noOfReaperThreads, virtualThreads ? newVirtualThreadExecutor() : null);
+    }
+
+    /**
+     * This is the constructor with the number of reaper threads to start and the executor starting the thread every
+     * hold waits for its deadline on.
+     *
+     * @param noOfReaperThreads The number of reaper threads.
+     * @param waiterExecutor The executor starting a thread per hold, null to wait for the holds in the delay queue.
+     */
+    HoldExpiryScheduler(int noOfReaperThreads, Executor waiterExecutor) {
+        if (noOfReaperThreads <= 0) {
+            throw new IllegalArgumentException("The number of reaper threads must be greater than 0");
+        }
+        this.waiterExecutor = waiterExecutor;
+        reaperThreads = new Thread[noOfReaperThreads];
+        for (int i = 0; i < noOfReaperThreads; i++) {
+            reaperThreads[i] = new Thread(new Runnable() {
+                public void run() {
+                    reap();
+                }
+            }, "hold-expiry-reaper-" + i);
+            reaperThreads[i].setDaemon(true);
+            reaperThreads[i].start();
+        }
+    }
+
+    /**
+     * This method is used to schedule the expiry of a hold.
+     *
+     * @param expiryAction The action releasing the held seats.
+     * @param delayMillis The delay after which the hold expires, in milliseconds.
+     * @return The scheduled expiry, which can be cancelled once the seats are reserved
+     */
+    public ScheduledExpiry schedule(Runnable expiryAction, long delayMillis) {
+        if (!running) {
+            throw new IllegalStateException("The hold expiry scheduler is shut down");
+        }
+        ScheduledExpiry scheduledExpiry = new ScheduledExpiry(expiryAction,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        if (waiterExecutor == null || !startVirtualThread(scheduledExpiry)) {
+            expiryQueue.put(scheduledExpiry);
+        }
+        return scheduledExpiry;
+    }
+
+    /**
+     * This method returns the number of scheduled expiries, including the cancelled ones not yet dropped.
+     *
+     * @return The number of scheduled expiries
+     */
+    public int getScheduledExpiryCount() {
+        return expiryQueue.size() + virtualExpiryCount.get();
+    }
+
+    /**
+     * This method returns whether the holds wait for their deadline on virtual threads.
+     *
+     * @return true if the holds wait on virtual threads, false if they wait in the delay queue
+     */
+    public boolean isVirtualThreads() {
+        return waiterExecutor != null;
+    }
+
+    /**
+     * This method is used to stop the reaper threads, and the threads waiting for the deadline of a hold. The pending
+     * expiries are not run.
+     */
+    public void shutdown() {
+        running = false;
+        for (Thread reaperThread : reaperThreads) {
+            reaperThread.interrupt();
+        }
+        expiryQueue.clear();
+        // a thread parked from now on sees the scheduler stopped
+        for (ScheduledExpiry scheduledExpiry : waitingExpiries) {
+            Thread waitingThread = scheduledExpiry.waiter;
+            if (waitingThread != null) {
+                LockSupport.unpark(waitingThread);
+            }
+        }
+    }
+
+    /**
+     * This method runs the expiries as their deadline is reached, until the scheduler is shut down.
+     */
+    private void reap() {
+        while (running) {
+            try {
+                ScheduledExpiry scheduledExpiry = expiryQueue.take();
+                Runnable expiryAction = scheduledExpiry.fire();
+                if (expiryAction != null) {
+                    expiryAction.run();
+                }
+            } catch (InterruptedException ex) {
+                LOGGER.debug("Hold expiry reaper interrupted, running: {}", running);
+            } catch (RuntimeException ex) {
+                LOGGER.error("An error occurred while expiring held seats", ex);
+            }
+        }
+    }
+
+    /**
+     * This method is used to start the virtual thread waiting for the deadline of a hold.
+     *
+     * @param scheduledExpiry The expiry of the hold.
+     * @return true if the virtual thread was started, false if the expiry must be queued
+     */
+    private boolean startVirtualThread(final ScheduledExpiry scheduledExpiry) {
+        virtualExpiryCount.incrementAndGet();
+        try {
+            waiterExecutor.execute(new Runnable() {
+                public void run() {
+                    awaitExpiry(scheduledExpiry);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            LOGGER.warn("A virtual thread could not be started, the hold expires on a reaper thread", ex.getCause());
+        }
+        virtualExpiryCount.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * This method parks the virtual thread of a hold until its deadline, then runs its expiry unless the hold was
+     * cancelled meanwhile, which unparks the thread so it ends right away.
+     *
+     * @param scheduledExpiry The expiry of the hold.
+     */
+    private void awaitExpiry(ScheduledExpiry scheduledExpiry) {
+        try {
+            scheduledExpiry.waiter = Thread.currentThread();
+            waitingExpiries.add(scheduledExpiry);
+            long remainingNanos = scheduledExpiry.getDelay(TimeUnit.NANOSECONDS);
+            while (running && remainingNanos > 0 && !scheduledExpiry.isCancelled()) {
+                LockSupport.parkNanos(scheduledExpiry, remainingNanos);
+                remainingNanos = scheduledExpiry.getDelay(TimeUnit.NANOSECONDS);
+            }
+            Runnable expiryAction = running ? scheduledExpiry.fire() : null;
+            if (expiryAction != null) {
+                expiryAction.run();
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.error("An error occurred while expiring held seats", ex);
+        } finally {
+            waitingExpiries.remove(scheduledExpiry);
+            scheduledExpiry.waiter = null;
+            virtualExpiryCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * This method returns the executor starting a virtual thread per task.
+     *
+     * @return The executor, null if the JVM has no virtual threads
+     */
+    private static Executor newVirtualThreadExecutor() {
+        if (START_VIRTUAL_THREAD == null) {
+            LoggerFactory.getLogger(HoldExpiryScheduler.class)
+                    .info("Virtual threads are not supported by this JVM, the holds expire on the reaper threads");
+            return null;
+        }
+        return new Executor() {
+            public void execute(Runnable task) {
+                try {
+                    START_VIRTUAL_THREAD.invoke(null, task);
+                } catch (IllegalAccessException ex) {
+                    throw new RejectedExecutionException(ex);
+                } catch (InvocationTargetException ex) {
+                    throw new RejectedExecutionException(ex.getCause());
+                }
+            }
+        };
+    }
+
+    /**
+     * This method returns the method starting a virtual thread, Thread.startVirtualThread(Runnable).
+     *
+     * @return The method, null if the JVM has no virtual threads
+     */
+    private static Method findStartVirtualThread() {
+        try {
+            return Thread.class.getMethod("startVirtualThread", Runnable.class);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * This class is the expiry of a single hold.
+     */
+    public static class ScheduledExpiry implements Delayed {
+
+        /**
+         * The expiry is waiting for its deadline
+         */
+        private static final int PENDING = 0;
+
+        /**
+         * The expiry was cancelled
+         */
+        private static final int CANCELLED = 1;
+
+        /**
+         * The expiry action was run
+         */
+        private static final int FIRED = 2;
+
+        /**
+         * The action releasing the held seats, null once the expiry is cancelled or fired
+         */
+        private volatile Runnable expiryAction;
+
+        /**
+         * The deadline, as per System.nanoTime()
+         */
+        private final long deadlineNanos;
+
+        /**
+         * The state of the expiry
+         */
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        /**
+         * The virtual thread waiting for the deadline, null if the expiry is queued
+         */
+        private volatile Thread waiter;
+
+        /**
+         * Constructor for a ScheduledExpiry.
+         *
+         * @param expiryAction The action releasing the held seats.
+         * @param deadlineNanos The deadline, as per System.nanoTime().
+         */
+        private ScheduledExpiry(Runnable expiryAction, long deadlineNanos) {
+            this.expiryAction = expiryAction;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * This method is used to cancel the expiry. Only one of cancel and expiry can win, so once this method
+         * returns true the held seats will not be released by the scheduler.
+         *
+         * @return true if the expiry was cancelled, false if it already expired or was cancelled before
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            // the queued expiry no longer keeps the hold reachable
+            expiryAction = null;
+            Thread waitingThread = waiter;
+            if (waitingThread != null) {
+                LockSupport.unpark(waitingThread);
+            }
+            return true;
+        }
+
+        /**
+         * This method returns whether the expiry was cancelled.
+         *
+         * @return true if the expiry was cancelled
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * This method returns whether the hold expired.
+         *
+         * @return true if the expiry action was run or is running
+         */
+        public boolean isExpired() {
+            return state.get() == FIRED;
+        }
+
+        /**
+         * This method is used by the reaper to claim the expiry.
+         *
+         * @return The expiry action to run, null if the expiry was cancelled or claimed before
+         */
+        private Runnable fire() {
+            if (!state.compareAndSet(PENDING, FIRED)) {
+                return null;
+            }
+            Runnable action = expiryAction;
+            expiryAction = null;
+            return action;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof ScheduledExpiry) {
+                long difference = deadlineNanos - ((ScheduledExpiry) other).deadlineNanos;
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+            long difference = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+            return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+        }
+    }
+}
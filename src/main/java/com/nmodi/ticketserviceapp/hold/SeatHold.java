@@ -0,0 +1,81 @@
+package com.nmodi.ticketserviceapp.hold;
+
+import com.nmodi.ticketserviceapp.grid.Seat;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * This class defines the record of a hold, the seats held for a customer until they are reserved or the hold expires.
+ */
+@Getter
+public class SeatHold {
+
+    /**
+     * The seat hold id
+     */
+    private final int seatHoldId;
+
+    /**
+     * The seat grid the seats are held in
+     */
+    private final SeatGrid seatGrid;
+
+    /**
+     * The held seats, as seat ids of the grid
+     */
+    private final int[] seatIds;
+
+    /**
+     * The customer email, null for a hold made without customer
+     */
+    private final String customerEmail;
+
+    /**
+     * The time the hold expires at, in milliseconds
+     */
+    private final long expiresAtMillis;
+
+    /**
+     * The held seats as returned to the caller, kept up to date when the hold expires. Null for a hold identified
+     * by its id.
+     */
+    private final List<Seat> seatList;
+
+    /**
+     * The scheduled expiry of the hold
+     */
+    @Setter
+    private volatile HoldExpiryScheduler.ScheduledExpiry scheduledExpiry;
+
+    /**
+     * Constructor for a SeatHold.
+     *
+     * @param seatHoldId The seat hold id.
+     * @param seatGrid The seat grid the seats are held in.
+     * @param seatIds The held seats, as seat ids of the grid.
+     * @param customerEmail The customer email.
+     * @param expiresAtMillis The time the hold expires at, in milliseconds.
+     * @param seatList The held seats as returned to the caller.
+     */
+    public SeatHold(int seatHoldId, SeatGrid seatGrid, int[] seatIds, String customerEmail, long expiresAtMillis,
+                    List<Seat> seatList) {
+        this.seatHoldId = seatHoldId;
+        this.seatGrid = seatGrid;
+        this.seatIds = seatIds;
+        this.customerEmail = customerEmail;
+        this.expiresAtMillis = expiresAtMillis;
+        this.seatList = seatList;
+    }
+
+    /**
+     * This method returns the number of held seats.
+     *
+     * @return The number of held seats
+     */
+    public int getNoOfSeats() {
+        return seatIds.length;
+    }
+}
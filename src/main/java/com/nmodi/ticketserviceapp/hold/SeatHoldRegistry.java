@@ -0,0 +1,163 @@
+package com.nmodi.ticketserviceapp.hold;
+
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class keeps the outstanding holds by their seat hold id, so many holds can be outstanding at once and each one
+ * is looked up in constant time when it is reserved or expires.
+ *
+ * The holds are indexed by their seats as well, so a request naming the seats instead of the seat hold id finds the
+ * hold the seats belong to.
+ */
+public class SeatHoldRegistry {
+
+    /**
+     * The outstanding holds by seat hold id
+     */
+    private final ConcurrentMap<Integer, SeatHold> seatHolds = new ConcurrentHashMap<Integer, SeatHold>();
+
+    /**
+     * The outstanding holds by held seat
+     */
+    private final ConcurrentMap<HeldSeat, SeatHold> seatHoldsBySeat = new ConcurrentHashMap<HeldSeat, SeatHold>();
+
+    /**
+     * The last seat hold id given
+     */
+    private final AtomicInteger lastSeatHoldId = new AtomicInteger();
+
+    /**
+     * This method returns a new seat hold id.
+     *
+     * @return The seat hold id
+     */
+    public int nextSeatHoldId() {
+        return lastSeatHoldId.incrementAndGet();
+    }
+
+    /**
+     * This method is used to add an outstanding hold.
+     *
+     * @param seatHold The hold to add.
+     */
+    public void register(SeatHold seatHold) {
+        seatHolds.put(seatHold.getSeatHoldId(), seatHold);
+        for (int seatId : seatHold.getSeatIds()) {
+            seatHoldsBySeat.put(new HeldSeat(seatHold.getSeatGrid(), seatId), seatHold);
+        }
+    }
+
+    /**
+     * This method is used to get an outstanding hold.
+     *
+     * @param seatHoldId The seat hold id.
+     * @return The hold, null if there is no outstanding hold with this id
+     */
+    public SeatHold get(int seatHoldId) {
+        return seatHolds.get(seatHoldId);
+    }
+
+    /**
+     * This method is used to get the outstanding hold a seat belongs to.
+     *
+     * @param seatGrid The seat grid of the seat.
+     * @param seatId The seat id.
+     * @return The hold, null if the seat is not held by an outstanding hold
+     */
+    public SeatHold getBySeat(SeatGrid seatGrid, int seatId) {
+        return seatHoldsBySeat.get(new HeldSeat(seatGrid, seatId));
+    }
+
+    /**
+     * This method is used to remove a hold once it is reserved or expired.
+     *
+     * @param seatHold The hold to remove.
+     * @return true if the hold was outstanding
+     */
+    public boolean remove(SeatHold seatHold) {
+        if (!seatHolds.remove(seatHold.getSeatHoldId(), seatHold)) {
+            return false;
+        }
+        for (int seatId : seatHold.getSeatIds()) {
+            seatHoldsBySeat.remove(new HeldSeat(seatHold.getSeatGrid(), seatId), seatHold);
+        }
+        return true;
+    }
+
+    /**
+     * This method is used to remove an expired hold from the outstanding holds. Its seats stay indexed until they are
+     * released one by one with {@link #removeSeat(SeatHold, int)}.
+     *
+     * @param seatHold The hold to remove.
+     * @return true if the hold was outstanding
+     */
+    public boolean unregister(SeatHold seatHold) {
+        return seatHolds.remove(seatHold.getSeatHoldId(), seatHold);
+    }
+
+    /**
+     * This method is used to remove a seat of a hold, if the seat still belongs to the hold. The row lock of the seat
+     * must be held, so the seat is not held again meanwhile.
+     *
+     * @param seatHold The hold.
+     * @param seatId The seat id.
+     * @return true if the seat belonged to the hold
+     */
+    public boolean removeSeat(SeatHold seatHold, int seatId) {
+        return seatHoldsBySeat.remove(new HeldSeat(seatHold.getSeatGrid(), seatId), seatHold);
+    }
+
+    /**
+     * This method returns the number of outstanding holds.
+     *
+     * @return The number of outstanding holds
+     */
+    public int size() {
+        return seatHolds.size();
+    }
+
+    /**
+     * This class is the key of a held seat, the seat id within its seat grid.
+     */
+    private static final class HeldSeat {
+
+        /**
+         * The seat grid of the seat
+         */
+        private final SeatGrid seatGrid;
+
+        /**
+         * The seat id
+         */
+        private final int seatId;
+
+        /**
+         * Constructor for a HeldSeat.
+         *
+         * @param seatGrid The seat grid of the seat.
+         * @param seatId The seat id.
+         */
+        private HeldSeat(SeatGrid seatGrid, int seatId) {
+            this.seatGrid = seatGrid;
+            this.seatId = seatId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(seatGrid) + seatId;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof HeldSeat)) {
+                return false;
+            }
+            HeldSeat other = (HeldSeat) obj;
+            return seatGrid == other.seatGrid && seatId == other.seatId;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.nmodi.ticketserviceapp.hold;
+
+import lombok.Getter;
+
+/**
+ * This class defines a request to hold seats for a customer, as part of a batch of requests.
+ */
+@Getter
+public class SeatHoldRequest {
+
+    /**
+     * The default priority
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
+    /**
+     * The requested number of seats
+     */
+    private final int requestedSeats;
+
+    /**
+     * The customer email
+     */
+    private final String customerEmail;
+
+    /**
+     * The priority, the requests with a higher priority are served first
+     */
+    private final int priority;
+
+    /**
+     * The price tier, null for any seat of the venue
+     */
+    private final String tier;
+
+    /**
+     * Constructor for a SeatHoldRequest with the default priority.
+     *
+     * @param requestedSeats The requested number of seats.
+     * @param customerEmail The customer email.
+     */
+    public SeatHoldRequest(int requestedSeats, String customerEmail) {
+        this(requestedSeats, customerEmail, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Constructor for a SeatHoldRequest.
+     *
+     * @param requestedSeats The requested number of seats.
+     * @param customerEmail The customer email.
+     * @param priority The priority.
+     */
+    public SeatHoldRequest(int requestedSeats, String customerEmail, int priority) {
+        this(requestedSeats, customerEmail, priority, null);
+    }
+
+    /**
+     * Constructor for a SeatHoldRequest of the seats of a price tier.
+     *
+     * @param requestedSeats The requested number of seats.
+     * @param customerEmail The customer email.
+     * @param priority The priority.
+     * @param tier The price tier, null for any seat of the venue.
+     */
+    public SeatHoldRequest(int requestedSeats, String customerEmail, int priority, String tier) {
+        this.requestedSeats = requestedSeats;
+        this.customerEmail = customerEmail;
+        this.priority = priority;
+        this.tier = tier;
+    }
+}
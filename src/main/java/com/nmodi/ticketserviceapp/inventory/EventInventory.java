@@ -0,0 +1,601 @@
+package com.nmodi.ticketserviceapp.inventory;
+
+import com.nmodi.ticketserviceapp.dao.TicketHandlerDao;
+import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
+import com.nmodi.ticketserviceapp.grid.Seat;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.hold.HoldExpiryScheduler;
+import com.nmodi.ticketserviceapp.hold.SeatHoldRequest;
+import com.nmodi.ticketserviceapp.journal.SeatJournal;
+import com.nmodi.ticketserviceapp.metrics.TicketMetrics;
+import com.nmodi.ticketserviceapp.service.TicketServiceImpl;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.ListenableFutureTask;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class owns the seat grids of the events, keyed by event id. Every event has its own ticket service, so the
+ * holds of an event are registered and expired apart from the holds of the other events.
+ *
+ * The events are spread over a fixed number of shards, each one running on a single thread. All the operations of an
+ * event submitted through the inventory run on the thread of its shard, so they do not contend with each other and
+ * the grid of the event stays in the cache of the core running the shard, while events of different shards run in
+ * parallel.
+ *
+ * The operations return a listenable future, so an asynchronous caller registers a callback run on the shard once the
+ * operation is done instead of blocking a request thread on the result. The expired holds of an event are released on
+ * its shard too, so the seats of an event are only written by the thread of its shard and a request never waits for
+ * a row lock taken by the expiry of a hold.
+ */
+public class EventInventory {
+
+    /**
+     * The Logger
+     */
+    private final Logger LOGGER = LoggerFactory.getLogger(EventInventory.class);
+
+    /**
+     * The ticket handler dao
+     */
+    @Resource
+    private TicketHandlerDao ticketHandlerDao;
+
+    /**
+     * The hold expiry scheduler
+     */
+    @Resource
+    private HoldExpiryScheduler holdExpiryScheduler;
+
+    /**
+     * The metrics of the ticket services of the events
+     */
+    @Resource
+    @Getter
+    @Setter
+    private TicketMetrics ticketMetrics = new TicketMetrics();
+
+    /**
+     * The default time, in milliseconds, after which held seats are made available again
+     */
+    private static final long DEFAULT_HOLD_TIMEOUT_MILLIS = 3000;
+
+    /**
+     * The default time, in milliseconds, the shards are given to run the tasks already submitted when shutting down
+     */
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * The time, in milliseconds, the shards are given to run the tasks already submitted when shutting down
+     */
+    @Getter
+    @Setter
+    private long shutdownTimeoutMillis = DEFAULT_SHUTDOWN_TIMEOUT_MILLIS;
+
+    /**
+     * The hold timeout, in milliseconds, of the events registered from now on
+     */
+    @Getter
+    @Setter
+    private long holdTimeoutMillis = DEFAULT_HOLD_TIMEOUT_MILLIS;
+
+    /**
+     * The directory of the journals of the reserved seats, one journal per event, null to keep the reservations in
+     * memory only
+     */
+    @Getter
+    @Setter
+    private File journalDirectory;
+
+    /**
+     * The events by event id
+     */
+    private final ConcurrentMap<String, Event> events = new ConcurrentHashMap<String, Event>();
+
+    /**
+     * The closing of the journals of the removed events, until they are closed on their shard
+     */
+    private final ConcurrentMap<String, Future<Void>> closingJournals = new ConcurrentHashMap<String, Future<Void>>();
+
+    /**
+     * The single threaded executor of every shard
+     */
+    private final ExecutorService[] shards;
+
+    /**
+     * This is the no-arg constructor, which starts one shard per available processor.
+     */
+    public EventInventory() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * This is the single arg constructor with the number of shards to start.
+     *
+     * @param noOfShards The number of shards.
+     */
+    public EventInventory(int noOfShards) {
+        if (noOfShards <= 0) {
+            throw new IllegalArgumentException("The number of shards must be greater than 0");
+        }
+        shards = new ExecutorService[noOfShards];
+        for (int i = 0; i < noOfShards; i++) {
+            final String threadName = "event-inventory-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * This method is used to register an event, with a new seat grid having all the seats open.
+     *
+     * @param eventId The event id.
+     * @param noOfRows The no of rows of the venue.
+     * @param noOfColumns The no of columns of the venue.
+     * @return The seat grid of the event
+     */
+    public SeatGrid registerEvent(String eventId, int noOfRows, int noOfColumns) {
+        return registerEvent(eventId, new SeatGrid(noOfRows, noOfColumns));
+    }
+
+    /**
+     * This method is used to register an event with its seat grid. With a journal directory, the reservations of the
+     * journal of the event are replayed into the grid first, once the journal of the event removed before is closed.
+     *
+     * @param eventId The event id.
+     * @param seatGrid The seat grid of the event.
+     * @return The seat grid of the event
+     */
+    public SeatGrid registerEvent(String eventId, SeatGrid seatGrid) {
+        if (eventId == null || seatGrid == null) {
+            throw new SeatingArrangementNotValidException("The event id and the venue cant be null");
+        }
+        if (events.containsKey(eventId)) {
+            throw new SeatingArrangementNotValidException("The event " + eventId + " is already registered");
+        }
+        awaitJournalClose(eventId);
+        TicketServiceImpl ticketService = new TicketServiceImpl(ticketHandlerDao, holdExpiryScheduler);
+        ticketService.setHoldTimeoutMillis(holdTimeoutMillis);
+        ticketService.setTicketMetrics(ticketMetrics);
+        ticketService.setHoldExpiryExecutor(shards[shardOf(eventId)]);
+        if (journalDirectory != null) {
+            try {
+                ticketService.setSeatJournal(new SeatJournal(new File(journalDirectory, eventId + ".journal"), seatGrid));
+            } catch (IOException ex) {
+                LOGGER.error("The journal of the event " + eventId + " can't be opened", ex);
+                throw new SeatingArrangementNotValidException("The journal of the event " + eventId
+                        + " can't be opened", ex);
+            }
+        }
+        Event event = new Event(seatGrid, ticketService, shards[shardOf(eventId)]);
+        if (events.putIfAbsent(eventId, event) != null) {
+            closeJournal(eventId, event);
+            throw new SeatingArrangementNotValidException("The event " + eventId + " is already registered");
+        }
+        LOGGER.debug("Registered event {} on shard {}", eventId, shardOf(eventId));
+        return seatGrid;
+    }
+
+    /**
+     * This method is used to remove an event. The outstanding holds of the event still expire. The journal of the
+     * event is closed on its shard, once the tasks of the event already submitted are run.
+     *
+     * @param eventId The event id.
+     * @return true if the event was registered
+     */
+    public boolean removeEvent(final String eventId) {
+        final Event event = events.remove(eventId);
+        if (event == null) {
+            return false;
+        }
+        FutureTask<Void> journalClose = new FutureTask<Void>(new Runnable() {
+            public void run() {
+                closeJournal(eventId, event);
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                closingJournals.remove(eventId, this);
+            }
+        };
+        closingJournals.put(eventId, journalClose);
+        try {
+            event.shard.execute(journalClose);
+        } catch (RejectedExecutionException ex) {
+            // the shards are shut down, the tasks of the event already ran
+            journalClose.run();
+        }
+        return true;
+    }
+
+    /**
+     * This method returns the seat grid of an event.
+     *
+     * @param eventId The event id.
+     * @return The seat grid
+     */
+    public SeatGrid getSeatGrid(String eventId) {
+        return getEvent(eventId).seatGrid;
+    }
+
+    /**
+     * This method returns the ticket service of an event, which holds and reserves the seats of its grid.
+     *
+     * @param eventId The event id.
+     * @return The ticket service
+     */
+    public TicketServiceImpl getTicketService(String eventId) {
+        return getEvent(eventId).ticketService;
+    }
+
+    /**
+     * This method returns the number of registered events.
+     *
+     * @return The number of events
+     */
+    public int getNoOfEvents() {
+        return events.size();
+    }
+
+    /**
+     * This method returns the number of shards.
+     *
+     * @return The number of shards
+     */
+    public int getNoOfShards() {
+        return shards.length;
+    }
+
+    /**
+     * This method returns the shard of an event.
+     *
+     * @param eventId The event id.
+     * @return The shard position
+     */
+    public int shardOf(String eventId) {
+        int hash = eventId.hashCode();
+        // spread the high bits, as the ids of the events often differ only by their last characters
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % shards.length;
+    }
+
+    /**
+     * This method is used to run a task on the shard of an event. The callbacks of the future are run on the shard
+     * once the task is done, so they must not block.
+     *
+     * @param eventId The event id.
+     * @param task The task.
+     * @param <T> The result type of the task.
+     * @return The result of the task
+     */
+    public <T> ListenableFuture<T> submit(String eventId, Callable<T> task) {
+        return submit(getEvent(eventId), task);
+    }
+
+    /**
+     * This method is used to hold the best available seats of an event for a customer, on the shard of the event.
+     *
+     * @param eventId The event id.
+     * @param requestedSeats The requested number of seats.
+     * @param customerEmail The customer email.
+     * @return The seat hold id
+     */
+    public ListenableFuture<Integer> holdBestAvailableSeats(String eventId, int requestedSeats, String customerEmail) {
+        return holdBestAvailableSeats(eventId, requestedSeats, customerEmail, null);
+    }
+
+    /**
+     * This method is used to hold the best available seats of a price tier of an event for a customer, on the shard of
+     * the event.
+     *
+     * @param eventId The event id.
+     * @param requestedSeats The requested number of seats.
+     * @param customerEmail The customer email.
+     * @param tier The price tier, null for any seat of the venue.
+     * @return The seat hold id
+     */
+    public ListenableFuture<Integer> holdBestAvailableSeats(String eventId, final int requestedSeats,
+                                                            final String customerEmail, final String tier) {
+        final Event event = getEvent(eventId);
+        return submit(event, new Callable<Integer>() {
+            public Integer call() {
+                return event.ticketService.holdBestAvailableSeats(event.seatGrid, requestedSeats, customerEmail,
+                        tier);
+            }
+        });
+    }
+
+    /**
+     * This method is used to hold the best available seats of an event for a batch of requests, on the shard of the
+     * event.
+     *
+     * @param eventId The event id.
+     * @param seatHoldRequests The requests.
+     * @return The seat hold ids in the order of the requests
+     */
+    public ListenableFuture<List<Integer>> holdBestAvailableSeatsBatch(String eventId,
+                                                                       final List<SeatHoldRequest> seatHoldRequests) {
+        final Event event = getEvent(eventId);
+        return submit(event, new Callable<List<Integer>>() {
+            public List<Integer> call() {
+                return event.ticketService.holdBestAvailableSeatsBatch(event.seatGrid, seatHoldRequests);
+            }
+        });
+    }
+
+    /**
+     * This method is used to reserve the seats of a hold of an event, on the shard of the event. The shard does not
+     * wait for the journal of the event, it goes on with the next tasks while the reservation is synced with the
+     * reservations which follow, and the future is done on the shard once the reservation is journaled.
+     *
+     * @param eventId The event id.
+     * @param seatHoldId The seat hold id.
+     * @param customerEmail The customer email the seats are held for.
+     * @return The list of reserved seats
+     */
+    public ListenableFuture<List<Seat>> reserveHeldSeats(String eventId, final int seatHoldId,
+                                                         final String customerEmail) {
+        final Event event = getEvent(eventId);
+        final SettableListenableFuture<List<Seat>> reservedSeats = new SettableListenableFuture<List<Seat>>();
+        try {
+            event.shard.execute(new Runnable() {
+                public void run() {
+                    try {
+                        event.ticketService.reserveHeldSeatsAsync(event.seatGrid, seatHoldId, customerEmail)
+                                .addCallback(new ShardCallback<List<Seat>>(event, reservedSeats));
+                    } catch (RuntimeException ex) {
+                        reservedSeats.setException(ex);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            reservedSeats.setException(ex);
+        }
+        return reservedSeats;
+    }
+
+    /**
+     * This method returns the number of available seats of an event. The live seat counts are read without going
+     * through the shard.
+     *
+     * @param eventId The event id.
+     * @return The number of available seats
+     */
+    public int findTotalNumberOfAvailableSeats(String eventId) {
+        Event event = getEvent(eventId);
+        return event.ticketService.findTotalNumberOfAvailableSeats(event.seatGrid);
+    }
+
+    /**
+     * This method returns the number of available seats of a price tier of an event, from the live counts of the
+     * zones of the tier.
+     *
+     * @param eventId The event id.
+     * @param tier The price tier.
+     * @return The number of available seats of the tier
+     */
+    public int findTotalNumberOfAvailableSeats(String eventId, String tier) {
+        Event event = getEvent(eventId);
+        return event.ticketService.findTotalNumberOfAvailableSeats(event.seatGrid, tier);
+    }
+
+    /**
+     * This method is used to stop the shards. The tasks already submitted are run, within the shutdown timeout, before
+     * the journals are closed.
+     */
+    public void shutdown() {
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMillis;
+        for (ExecutorService shard : shards) {
+            try {
+                if (!shard.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("The event inventory shards did not run their tasks within {} ms",
+                            shutdownTimeoutMillis);
+                    break;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Map.Entry<String, Event> event : events.entrySet()) {
+            closeJournal(event.getKey(), event.getValue());
+        }
+    }
+
+    /**
+     * This method is used to wait until the journal of an event removed before is closed, so the journal of the event
+     * registered again does not replay a journal still written.
+     *
+     * @param eventId The event id.
+     */
+    private void awaitJournalClose(String eventId) {
+        Future<Void> journalClose = closingJournals.get(eventId);
+        if (journalClose == null) {
+            return;
+        }
+        try {
+            journalClose.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SeatingArrangementNotValidException("Interrupted while closing the journal of the event "
+                    + eventId, ex);
+        } catch (ExecutionException ex) {
+            LOGGER.error("The journal of the event " + eventId + " can't be closed", ex.getCause());
+        }
+    }
+
+    /**
+     * This method is used to close the journal of an event, if any.
+     *
+     * @param eventId The event id.
+     * @param event The event.
+     */
+    private void closeJournal(String eventId, Event event) {
+        SeatJournal seatJournal = event.ticketService.getSeatJournal();
+        if (seatJournal == null) {
+            return;
+        }
+        try {
+            seatJournal.close();
+        } catch (IOException ex) {
+            LOGGER.error("The journal of the event " + eventId + " can't be closed", ex);
+        }
+    }
+
+    /**
+     * This method is used to run a task on the shard of an event, as a listenable future. A task rejected by a shard
+     * already shut down fails its future, as a reservation does, instead of being thrown to the caller.
+     *
+     * @param event The event.
+     * @param task The task.
+     * @param <T> The result type of the task.
+     * @return The result of the task
+     */
+    private static <T> ListenableFuture<T> submit(Event event, Callable<T> task) {
+        ListenableFutureTask<T> futureTask = new ListenableFutureTask<T>(task);
+        try {
+            event.shard.execute(futureTask);
+        } catch (RejectedExecutionException ex) {
+            SettableListenableFuture<T> rejectedTask = new SettableListenableFuture<T>();
+            rejectedTask.setException(ex);
+            return rejectedTask;
+        }
+        return futureTask;
+    }
+
+    /**
+     * This method returns a registered event.
+     *
+     * @param eventId The event id.
+     * @return The event
+     */
+    private Event getEvent(String eventId) {
+        Event event = eventId == null ? null : events.get(eventId);
+        if (event == null) {
+            throw new SeatingArrangementNotValidException("No event is registered with id " + eventId);
+        }
+        return event;
+    }
+
+    /**
+     * This class completes a future on the shard of an event with the result of an operation done on another thread,
+     * so the callbacks of the future still run on the shard.
+     *
+     * @param <T> The result type of the operation.
+     */
+    private static class ShardCallback<T> implements ListenableFutureCallback<T> {
+
+        /**
+         * The event
+         */
+        private final Event event;
+
+        /**
+         * The future to complete on the shard
+         */
+        private final SettableListenableFuture<T> future;
+
+        /**
+         * Constructor for a ShardCallback.
+         *
+         * @param event The event.
+         * @param future The future to complete on the shard.
+         */
+        private ShardCallback(Event event, SettableListenableFuture<T> future) {
+            this.event = event;
+            this.future = future;
+        }
+
+        @Override
+        public void onSuccess(final T result) {
+            try {
+                event.shard.execute(new Runnable() {
+                    public void run() {
+                        future.set(result);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                // the shards are shut down, the future is done on this thread
+                future.set(result);
+            }
+        }
+
+        @Override
+        public void onFailure(final Throwable ex) {
+            try {
+                event.shard.execute(new Runnable() {
+                    public void run() {
+                        future.setException(ex);
+                    }
+                });
+            } catch (RejectedExecutionException rejectedEx) {
+                // the shards are shut down, the future is done on this thread
+                future.setException(ex);
+            }
+        }
+    }
+
+    /**
+     * This class holds what the inventory owns for a single event.
+     */
+    private static class Event {
+
+        /**
+         * The seat grid of the event
+         */
+        private final SeatGrid seatGrid;
+
+        /**
+         * The ticket service, with the outstanding holds of the event
+         */
+        private final TicketServiceImpl ticketService;
+
+        /**
+         * The executor of the shard of the event
+         */
+        private final ExecutorService shard;
+
+        /**
+         * Constructor for an Event.
+         *
+         * @param seatGrid The seat grid of the event.
+         * @param ticketService The ticket service of the event.
+         * @param shard The executor of the shard of the event.
+         */
+        private Event(SeatGrid seatGrid, TicketServiceImpl ticketService, ExecutorService shard) {
+            this.seatGrid = seatGrid;
+            this.ticketService = ticketService;
+            this.shard = shard;
+        }
+    }
+}
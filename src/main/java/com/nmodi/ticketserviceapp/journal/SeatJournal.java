@@ -0,0 +1,571 @@
+package com.nmodi.ticketserviceapp.journal;
+
+import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.zip.CRC32;
+
+/**
+ * This class is an append-only journal of the reserved seats of a seat grid, replayed into the grid on startup so the
+ * reservations survive a crash.
+ *
+ * The records appended by concurrent requests are buffered and written by a single flusher thread, which syncs the
+ * file once for all the records written together (group commit). A request waits for the sync of its own record with
+ * {@link #awaitDurable(long)}, or is called back by the flusher thread once it is synced, so the cost of a sync is
+ * shared by all the requests of the same batch. A request called back does not wait, so the records appended one after
+ * the other by a single thread are synced together as well.
+ *
+ * A batch which could not be written or synced may still be partly on the storage. The file is truncated back to the
+ * end of the last synced batch before any callback runs, so a reservation reported failed is never replayed. If the
+ * file can't be truncated either, the callbacks are told their records may still be replayed.
+ *
+ * The file starts with a header of {@link #HEADER_SIZE} bytes, the magic number, the layout version, the no of rows and
+ * the no of columns of the grid as little endian ints. Every record is the length of its payload as an int, the
+ * payload, and the CRC32 of the payload as an int. The payload is the operation as a byte, the no of seats, the first
+ * seat id and the difference of every following seat id with the previous one, as variable length ints, so a block of
+ * seats next to each other takes a byte per seat.
+ */
+public class SeatJournal implements Closeable {
+
+    /**
+     * The Logger
+     */
+    private final Logger LOGGER = LoggerFactory.getLogger(SeatJournal.class);
+
+    /**
+     * The operation of a record reserving seats
+     */
+    public static final byte RESERVE = 1;
+
+    /**
+     * The magic number of a journal file, "SJNL" in ascii
+     */
+    static final int FILE_MAGIC = 0x534a4e4c;
+
+    /**
+     * The layout version of a journal file
+     */
+    static final int FILE_VERSION = 1;
+
+    /**
+     * The size in bytes of the header of a journal file
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * The size in bytes of the length and of the checksum of a record
+     */
+    private static final int RECORD_OVERHEAD = 8;
+
+    /**
+     * The maximum size in bytes of a variable length int
+     */
+    private static final int MAX_VAR_INT_SIZE = 5;
+
+    /**
+     * The initial size of the buffer of the records waiting to be written
+     */
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The journal file
+     */
+    private final File file;
+
+    /**
+     * The file channel, written by the flusher thread only
+     */
+    private final FileChannel fileChannel;
+
+    /**
+     * The end of the records synced to the file, the position the next batch is written at, used by the flusher thread
+     * only
+     */
+    private long syncedLength;
+
+    /**
+     * The flusher thread
+     */
+    private final Thread flusherThread;
+
+    /**
+     * The records waiting to be written, guarded by this journal
+     */
+    private ByteBuffer pendingRecords = newRecordBuffer(INITIAL_BUFFER_SIZE);
+
+    /**
+     * The buffer of the records being written, swapped with the pending records
+     */
+    private ByteBuffer writtenRecords = newRecordBuffer(INITIAL_BUFFER_SIZE);
+
+    /**
+     * The sequence of the last appended record, guarded by this journal
+     */
+    private long appendedSequence;
+
+    /**
+     * The sequence of the last record synced to the storage, guarded by this journal
+     */
+    private long durableSequence;
+
+    /**
+     * The no of syncs of the file, guarded by this journal
+     */
+    private long noOfSyncs;
+
+    /**
+     * The callbacks waiting for the sync of their record, in the order of their sequence, guarded by this journal
+     */
+    private final Queue<PendingCallback> durabilityCallbacks = new ArrayDeque<PendingCallback>();
+
+    /**
+     * The error which stopped the flusher thread, guarded by this journal
+     */
+    private IOException failure;
+
+    /**
+     * Whether the journal is open, guarded by this journal
+     */
+    private boolean open = true;
+
+    /**
+     * This is the constructor, which replays the journal file into the seat grid and opens it to append records. A
+     * missing or empty file is created.
+     *
+     * @param file The journal file.
+     * @param seatGrid The seat grid of the journal.
+     * @throws IOException if the file can't be read or written
+     */
+    public SeatJournal(File file, SeatGrid seatGrid) throws IOException {
+        this(file, seatGrid, new RandomAccessFile(file, "rw").getChannel());
+    }
+
+    /**
+     * This is the constructor with the channel of the journal file, which replays the file into the seat grid and opens
+     * it to append records with the channel. The channel is closed with the journal.
+     *
+     * @param file The journal file.
+     * @param seatGrid The seat grid of the journal.
+     * @param fileChannel The channel of the journal file, opened to read and write.
+     * @throws IOException if the file can't be read or written
+     */
+    SeatJournal(File file, SeatGrid seatGrid, FileChannel fileChannel) throws IOException {
+        this.file = file;
+        this.fileChannel = fileChannel;
+        try {
+            long validLength = replay(file, seatGrid);
+            if (validLength == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(FILE_MAGIC).putInt(FILE_VERSION)
+                        .putInt(seatGrid.getNoOfRows()).putInt(seatGrid.getNoOfColumns()).flip();
+                fileChannel.truncate(0);
+                writeFully(header, 0);
+                fileChannel.force(true);
+                validLength = HEADER_SIZE;
+            } else if (fileChannel.size() > validLength) {
+                // a record torn by a crash is dropped, else the records appended after it would never be replayed
+                LOGGER.warn("Dropping {} bytes of torn records at the end of {}", fileChannel.size() - validLength, file);
+                fileChannel.truncate(validLength);
+                fileChannel.force(true);
+            }
+            fileChannel.position(validLength);
+            syncedLength = validLength;
+        } catch (IOException ex) {
+            fileChannel.close();
+            throw ex;
+        } catch (RuntimeException ex) {
+            fileChannel.close();
+            throw ex;
+        }
+        flusherThread = new Thread(new Runnable() {
+            public void run() {
+                flush();
+            }
+        }, "seat-journal-flusher-" + file.getName());
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+
+    /**
+     * This method is used to append a record. The record is written and synced asynchronously, with the records of the
+     * concurrent requests.
+     *
+     * @param operation The operation.
+     * @param seatIds The seat ids of the operation, as seat ids of the grid.
+     * @return The sequence of the record, to wait for with {@link #awaitDurable(long)}
+     */
+    public long append(byte operation, int[] seatIds) {
+        return append(operation, seatIds, null);
+    }
+
+    /**
+     * This method is used to append a record, and to be called back on the flusher thread once it is synced. The
+     * callback must not block, it delays the next sync.
+     *
+     * @param operation The operation.
+     * @param seatIds The seat ids of the operation, as seat ids of the grid.
+     * @param callback The callback, null to wait for the record with {@link #awaitDurable(long)} instead.
+     * @return The sequence of the record
+     */
+    public synchronized long append(byte operation, int[] seatIds, DurabilityCallback callback) {
+        if (!open) {
+            throw new IllegalStateException("The seat journal " + file + " is closed");
+        }
+        int maxRecordSize = RECORD_OVERHEAD + 1 + MAX_VAR_INT_SIZE * (seatIds.length + 1);
+        if (pendingRecords.remaining() < maxRecordSize) {
+            ByteBuffer largerBuffer = newRecordBuffer(Math.max(pendingRecords.capacity() * 2,
+                    pendingRecords.position() + maxRecordSize));
+            pendingRecords.flip();
+            largerBuffer.put(pendingRecords);
+            pendingRecords = largerBuffer;
+        }
+        int lengthPosition = pendingRecords.position();
+        pendingRecords.position(lengthPosition + 4);
+        pendingRecords.put(operation);
+        putVarInt(pendingRecords, seatIds.length);
+        int previousSeatId = 0;
+        for (int seatId : seatIds) {
+            int delta = seatId - previousSeatId;
+            // zig-zag encoding, so a small negative difference is short as well
+            putVarInt(pendingRecords, (delta << 1) ^ (delta >> 31));
+            previousSeatId = seatId;
+        }
+        int payloadLength = pendingRecords.position() - lengthPosition - 4;
+        pendingRecords.putInt(lengthPosition, payloadLength);
+        CRC32 crc = new CRC32();
+        crc.update(pendingRecords.array(), lengthPosition + 4, payloadLength);
+        pendingRecords.putInt((int) crc.getValue());
+        notifyAll();
+        appendedSequence++;
+        if (callback != null) {
+            durabilityCallbacks.add(new PendingCallback(appendedSequence, callback));
+        }
+        return appendedSequence;
+    }
+
+    /**
+     * This method is used to wait until a record is synced to the storage.
+     *
+     * @param sequence The sequence of the record.
+     * @throws IOException if the record could not be written
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized void awaitDurable(long sequence) throws IOException, InterruptedException {
+        while (durableSequence < sequence) {
+            if (failure != null) {
+                throw new IOException("The seat journal " + file + " could not be written", failure);
+            }
+            if (!open && flusherThread.getState() == Thread.State.TERMINATED) {
+                throw new IOException("The seat journal " + file + " is closed");
+            }
+            wait();
+        }
+    }
+
+    /**
+     * This method returns the no of syncs of the file so far, each one covering all the records written together.
+     *
+     * @return The no of syncs
+     */
+    public synchronized long getNoOfSyncs() {
+        return noOfSyncs;
+    }
+
+    /**
+     * This method is used to close the journal, once the appended records are synced. A journal stopped by a failure
+     * is closed as well.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            open = false;
+            notifyAll();
+        }
+        try {
+            flusherThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        fileChannel.close();
+    }
+
+    /**
+     * This method is used to replay a journal file into a seat grid.
+     *
+     * @param file The journal file.
+     * @param seatGrid The seat grid.
+     * @return The length of the valid records of the file including its header, 0 for a missing or empty file
+     * @throws IOException if the file can't be read
+     */
+    public static long replay(File file, SeatGrid seatGrid) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return 0;
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel fileChannel = randomAccessFile.getChannel();
+            ByteBuffer journal = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (journal.remaining() < HEADER_SIZE || journal.getInt() != FILE_MAGIC || journal.getInt() != FILE_VERSION
+                    || journal.getInt() != seatGrid.getNoOfRows() || journal.getInt() != seatGrid.getNoOfColumns()) {
+                throw new SeatingArrangementNotValidException("The seat journal " + file
+                        + " is not a journal of a " + seatGrid.getNoOfRows() + "X" + seatGrid.getNoOfColumns() + " venue");
+            }
+            CRC32 crc = new CRC32();
+            byte[] payload = new byte[256];
+            while (journal.remaining() >= RECORD_OVERHEAD) {
+                int recordPosition = journal.position();
+                int payloadLength = journal.getInt();
+                if (payloadLength <= 0 || payloadLength > journal.remaining() - 4) {
+                    journal.position(recordPosition);
+                    break;
+                }
+                if (payload.length < payloadLength) {
+                    payload = new byte[Math.max(payload.length * 2, payloadLength)];
+                }
+                journal.get(payload, 0, payloadLength);
+                crc.reset();
+                crc.update(payload, 0, payloadLength);
+                if (journal.getInt() != (int) crc.getValue()) {
+                    journal.position(recordPosition);
+                    break;
+                }
+                applyRecord(ByteBuffer.wrap(payload, 0, payloadLength), seatGrid);
+            }
+            return journal.position();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * This method is used to apply the payload of a record to a seat grid.
+     *
+     * @param payload The payload.
+     * @param seatGrid The seat grid.
+     */
+    private static void applyRecord(ByteBuffer payload, SeatGrid seatGrid) {
+        byte operation = payload.get();
+        if (operation != RESERVE) {
+            throw new SeatingArrangementNotValidException("Unknown seat journal operation " + operation);
+        }
+        int noOfSeats = getVarInt(payload);
+        int seatId = 0;
+        for (int i = 0; i < noOfSeats; i++) {
+            int zigZagDelta = getVarInt(payload);
+            seatId += (zigZagDelta >>> 1) ^ -(zigZagDelta & 1);
+            seatGrid.setSeatStatus(seatGrid.getSeatRow(seatId), seatGrid.getSeatColumn(seatId), SeatStatus.RESERVED);
+        }
+    }
+
+    /**
+     * This method runs on the flusher thread, it writes and syncs the pending records until the journal is closed.
+     */
+    private void flush() {
+        while (true) {
+            long sequence;
+            synchronized (this) {
+                while (open && pendingRecords.position() == 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        LOGGER.debug("Seat journal flusher interrupted, open: {}", open);
+                    }
+                }
+                if (pendingRecords.position() == 0) {
+                    notifyAll();
+                    return;
+                }
+                ByteBuffer records = pendingRecords;
+                pendingRecords = writtenRecords;
+                writtenRecords = records;
+                sequence = appendedSequence;
+            }
+            try {
+                writtenRecords.flip();
+                int batchLength = writtenRecords.remaining();
+                writeFully(writtenRecords, -1);
+                fileChannel.force(false);
+                writtenRecords.clear();
+                syncedLength += batchLength;
+            } catch (IOException ex) {
+                LOGGER.error("An error occurred while writing the seat journal " + file, ex);
+                // the batch is dropped from the file before the requests are told it failed
+                boolean discarded = discardBatch();
+                List<PendingCallback> failedCallbacks;
+                synchronized (this) {
+                    failure = ex;
+                    open = false;
+                    failedCallbacks = new ArrayList<PendingCallback>(durabilityCallbacks);
+                    durabilityCallbacks.clear();
+                    notifyAll();
+                }
+                IOException journalFailure = new IOException("The seat journal " + file + " could not be written", ex);
+                for (PendingCallback pendingCallback : failedCallbacks) {
+                    try {
+                        // the records appended after the batch were never written
+                        pendingCallback.callback.onFailure(journalFailure,
+                                discarded || pendingCallback.sequence > sequence);
+                    } catch (RuntimeException callbackEx) {
+                        LOGGER.error("A seat journal callback failed", callbackEx);
+                    }
+                }
+                return;
+            }
+            List<PendingCallback> durableCallbacks = new ArrayList<PendingCallback>();
+            synchronized (this) {
+                durableSequence = sequence;
+                noOfSyncs++;
+                while (!durabilityCallbacks.isEmpty() && durabilityCallbacks.peek().sequence <= sequence) {
+                    durableCallbacks.add(durabilityCallbacks.poll());
+                }
+                notifyAll();
+            }
+            // the callbacks are run out of the lock, so the requests keep appending records meanwhile
+            for (PendingCallback pendingCallback : durableCallbacks) {
+                try {
+                    pendingCallback.callback.onDurable();
+                } catch (RuntimeException ex) {
+                    LOGGER.error("A seat journal callback failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method truncates the file back to the end of the synced records, dropping the records of a batch which
+     * could not be written or synced, and syncs the truncation.
+     *
+     * @return true if the records of the batch are dropped, false if they may still be replayed
+     */
+    private boolean discardBatch() {
+        try {
+            fileChannel.truncate(syncedLength);
+            fileChannel.force(true);
+            return true;
+        } catch (IOException ex) {
+            LOGGER.error("The failed records of the seat journal " + file + " could not be dropped", ex);
+            return false;
+        }
+    }
+
+    /**
+     * This method writes a whole buffer to the file.
+     *
+     * @param buffer The buffer.
+     * @param position The file position to write at, -1 for the current position.
+     * @throws IOException if the file can't be written
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (position < 0) {
+                fileChannel.write(buffer);
+            } else {
+                position += fileChannel.write(buffer, position);
+            }
+        }
+    }
+
+    /**
+     * This method returns a new buffer of records.
+     *
+     * @param capacity The capacity in bytes.
+     * @return The buffer, little endian
+     */
+    private static ByteBuffer newRecordBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * This method writes a positive int with 7 bits per byte, the highest bit of a byte telling whether more follow.
+     *
+     * @param buffer The buffer.
+     * @param value The value.
+     */
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * This method reads an int written by {@link #putVarInt(ByteBuffer, int)}.
+     *
+     * @param buffer The buffer.
+     * @return The value
+     */
+    private static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * This interface is called back on the flusher thread once a record is synced, or could not be written.
+     */
+    public interface DurabilityCallback {
+
+        /**
+         * This method is called once the record is synced to the storage.
+         */
+        void onDurable();
+
+        /**
+         * This method is called if the record could not be written or synced.
+         *
+         * @param ex The error.
+         * @param discarded Whether the record is not in the file, false if it may still be replayed on startup.
+         */
+        void onFailure(IOException ex, boolean discarded);
+    }
+
+    /**
+     * This class holds a callback waiting for the sync of its record.
+     */
+    private static class PendingCallback {
+
+        /**
+         * The sequence of the record
+         */
+        private final long sequence;
+
+        /**
+         * The callback
+         */
+        private final DurabilityCallback callback;
+
+        /**
+         * Constructor for a PendingCallback.
+         *
+         * @param sequence The sequence of the record.
+         * @param callback The callback.
+         */
+        private PendingCallback(long sequence, DurabilityCallback callback) {
+            this.sequence = sequence;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.nmodi.ticketserviceapp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class records the distribution of non negative values, like latencies in nanoseconds, without locks. The values
+ * are counted in log-linear buckets: the values below 16 each have their own bucket, and every power of 2 above is
+ * split in 8 buckets, so a percentile is read within 12.5% of the recorded value whatever its magnitude, with a fixed
+ * array of a few hundred counts.
+ *
+ * Recording a value is a single atomic add to its bucket, plus an update of the max value when it is exceeded.
+ */
+public class Histogram {
+
+    /**
+     * The no of bits of the sub buckets of a power of 2
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * The no of sub buckets of a power of 2
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The values below which every value has its own bucket
+     */
+    private static final int LINEAR_BUCKET_COUNT = 2 * SUB_BUCKET_COUNT;
+
+    /**
+     * The power of 2 of the first bucket split in sub buckets
+     */
+    private static final int FIRST_SPLIT_EXPONENT = SUB_BUCKET_BITS + 1;
+
+    /**
+     * The no of buckets, up to the largest long
+     */
+    static final int BUCKET_COUNT = LINEAR_BUCKET_COUNT + (Long.SIZE - 1 - FIRST_SPLIT_EXPONENT) * SUB_BUCKET_COUNT;
+
+    /**
+     * The count of every bucket
+     */
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * The largest value recorded
+     */
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * This method is used to record a value.
+     *
+     * @param value The value, a negative value is recorded as 0.
+     */
+    public void record(long value) {
+        long recordedValue = Math.max(0, value);
+        bucketCounts.incrementAndGet(getBucket(recordedValue));
+        long max = maxValue.get();
+        while (recordedValue > max && !maxValue.compareAndSet(max, recordedValue)) {
+            max = maxValue.get();
+        }
+    }
+
+    /**
+     * This method returns a snapshot of the values recorded so far. The values recorded while the buckets are copied
+     * may be missed.
+     *
+     * @return The snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts[bucket] = bucketCounts.get(bucket);
+        }
+        return new HistogramSnapshot(counts, maxValue.get());
+    }
+
+    /**
+     * This method returns the bucket of a value.
+     *
+     * @param value The non negative value.
+     * @return The bucket
+     */
+    static int getBucket(long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return LINEAR_BUCKET_COUNT + (exponent - FIRST_SPLIT_EXPONENT) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * This method returns the largest value counted in a bucket.
+     *
+     * @param bucket The bucket.
+     * @return The largest value of the bucket
+     */
+    static long getBucketUpperBound(int bucket) {
+        if (bucket < LINEAR_BUCKET_COUNT) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT + FIRST_SPLIT_EXPONENT;
+        long subBucket = (bucket - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        long subBucketWidth = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + subBucket * subBucketWidth + subBucketWidth - 1;
+    }
+}
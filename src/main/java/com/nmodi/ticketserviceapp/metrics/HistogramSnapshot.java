@@ -0,0 +1,64 @@
+package com.nmodi.ticketserviceapp.metrics;
+
+import lombok.Getter;
+
+/**
+ * This class is a copy of the buckets of a histogram, read by the exporters without racing the recording threads.
+ */
+public class HistogramSnapshot {
+
+    /**
+     * The count of every bucket
+     */
+    private final long[] bucketCounts;
+
+    /**
+     * The no of values recorded
+     */
+    @Getter
+    private final long count;
+
+    /**
+     * The largest value recorded
+     */
+    @Getter
+    private final long maxValue;
+
+    /**
+     * Constructor for a HistogramSnapshot.
+     *
+     * @param bucketCounts The count of every bucket.
+     * @param maxValue The largest value recorded.
+     */
+    HistogramSnapshot(long[] bucketCounts, long maxValue) {
+        long count = 0;
+        for (long bucketCount : bucketCounts) {
+            count += bucketCount;
+        }
+        this.bucketCounts = bucketCounts;
+        this.count = count;
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * This method returns the value below which a fraction of the recorded values are, rounded up to the largest value
+     * of its bucket.
+     *
+     * @param fraction The percentile, between 0 and 1.
+     * @return The value, 0 without any value recorded
+     */
+    public long getValueAtPercentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long countBelow = 0;
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            countBelow += bucketCounts[bucket];
+            if (countBelow >= rank) {
+                return Math.min(Histogram.getBucketUpperBound(bucket), maxValue);
+            }
+        }
+        return maxValue;
+    }
+}
@@ -0,0 +1,53 @@
+package com.nmodi.ticketserviceapp.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class publishes the metrics of the ticket service as a log line, the latencies in microseconds.
+ */
+public class LoggingMetricsExporter implements MetricsExporter {
+
+    /**
+     * The Logger
+     */
+    private final Logger LOGGER = LoggerFactory.getLogger(LoggingMetricsExporter.class);
+
+    /**
+     * This method is used to log a snapshot of the metrics.
+     *
+     * @param metricsSnapshot The snapshot.
+     */
+    @Override
+    public void export(MetricsSnapshot metricsSnapshot) {
+        if (!LOGGER.isInfoEnabled()) {
+            return;
+        }
+        HistogramSnapshot holdLatency = metricsSnapshot.getHoldLatency();
+        HistogramSnapshot reserveLatency = metricsSnapshot.getReserveLatency();
+        LOGGER.info(String.format("holds placed=%d reserved=%d expired=%d outstanding=%d expirations/s=%.1f"
+                        + " | hold us p50=%.1f p99=%.1f p999=%.1f max=%.1f"
+                        + " | reserve us p50=%.1f p99=%.1f p999=%.1f max=%.1f"
+                        + " | searches p99=%d max=%d | lock contentions=%d wait us p99=%.1f",
+                metricsSnapshot.getHoldsPlaced(), metricsSnapshot.getHoldsReserved(),
+                metricsSnapshot.getHoldsExpired(), metricsSnapshot.getOutstandingHolds(),
+                metricsSnapshot.getExpirationsPerSecond(),
+                micros(holdLatency.getValueAtPercentile(0.50)), micros(holdLatency.getValueAtPercentile(0.99)),
+                micros(holdLatency.getValueAtPercentile(0.999)), micros(holdLatency.getMaxValue()),
+                micros(reserveLatency.getValueAtPercentile(0.50)), micros(reserveLatency.getValueAtPercentile(0.99)),
+                micros(reserveLatency.getValueAtPercentile(0.999)), micros(reserveLatency.getMaxValue()),
+                metricsSnapshot.getSearchLength().getValueAtPercentile(0.99),
+                metricsSnapshot.getSearchLength().getMaxValue(), metricsSnapshot.getLockContentions(),
+                micros(metricsSnapshot.getLockWait().getValueAtPercentile(0.99))));
+    }
+
+    /**
+     * This method converts nanoseconds to microseconds.
+     *
+     * @param nanos The nanoseconds.
+     * @return The microseconds
+     */
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
@@ -0,0 +1,15 @@
+package com.nmodi.ticketserviceapp.metrics;
+
+/**
+ * This interface publishes the metrics of the ticket service, to a log or a monitoring system. It is called by the
+ * reporter thread, never on the path of a request, so an exporter may do io.
+ */
+public interface MetricsExporter {
+
+    /**
+     * This method is used to publish a snapshot of the metrics.
+     *
+     * @param metricsSnapshot The snapshot.
+     */
+    void export(MetricsSnapshot metricsSnapshot);
+}
@@ -0,0 +1,95 @@
+package com.nmodi.ticketserviceapp.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class takes a snapshot of the metrics of the ticket service at a fixed period and hands it to an exporter, on a
+ * single daemon thread of its own so the exporter never runs on the path of a request.
+ */
+public class MetricsReporter {
+
+    /**
+     * The Logger
+     */
+    private final Logger LOGGER = LoggerFactory.getLogger(MetricsReporter.class);
+
+    /**
+     * The metrics reported
+     */
+    private final TicketMetrics ticketMetrics;
+
+    /**
+     * The exporter of the snapshots
+     */
+    private final MetricsExporter metricsExporter;
+
+    /**
+     * The period of the reports, in milliseconds
+     */
+    private final long periodMillis;
+
+    /**
+     * The reporter thread
+     */
+    private final Thread reporterThread;
+
+    /**
+     * Whether the reporter is running
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Constructor for a MetricsReporter, which starts the reporter thread.
+     *
+     * @param ticketMetrics The metrics reported.
+     * @param metricsExporter The exporter of the snapshots.
+     * @param periodMillis The period of the reports, in milliseconds.
+     */
+    public MetricsReporter(TicketMetrics ticketMetrics, MetricsExporter metricsExporter, long periodMillis) {
+        if (ticketMetrics == null || metricsExporter == null) {
+            throw new IllegalArgumentException("The metrics and the exporter can't be null");
+        }
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("The period of the reports must be greater than 0");
+        }
+        this.ticketMetrics = ticketMetrics;
+        this.metricsExporter = metricsExporter;
+        this.periodMillis = periodMillis;
+        this.reporterThread = new Thread(new Runnable() {
+            public void run() {
+                report();
+            }
+        }, "metrics-reporter");
+        reporterThread.setDaemon(true);
+        reporterThread.start();
+    }
+
+    /**
+     * This method is used to stop the reporter thread, after a last report.
+     */
+    public void shutdown() {
+        running = false;
+        reporterThread.interrupt();
+    }
+
+    /**
+     * This method exports a snapshot every period, until the reporter is shut down.
+     */
+    private void report() {
+        MetricsSnapshot previousSnapshot = null;
+        while (running) {
+            try {
+                Thread.sleep(periodMillis);
+            } catch (InterruptedException ex) {
+                LOGGER.debug("Metrics reporter interrupted, running: {}", running);
+            }
+            try {
+                previousSnapshot = ticketMetrics.snapshot(previousSnapshot);
+                metricsExporter.export(previousSnapshot);
+            } catch (RuntimeException ex) {
+                LOGGER.error("An error occurred while exporting the metrics", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.nmodi.ticketserviceapp.metrics;
+
+import lombok.Getter;
+
+/**
+ * This class is a point in time view of the metrics of the ticket service, handed to the exporters.
+ */
+@Getter
+public class MetricsSnapshot {
+
+    /**
+     * The time the snapshot was taken, in milliseconds
+     */
+    private final long timeMillis;
+
+    /**
+     * The no of holds placed
+     */
+    private final long holdsPlaced;
+
+    /**
+     * The no of holds reserved
+     */
+    private final long holdsReserved;
+
+    /**
+     * The no of holds expired
+     */
+    private final long holdsExpired;
+
+    /**
+     * The no of holds expired per second since the previous snapshot
+     */
+    private final double expirationsPerSecond;
+
+    /**
+     * The latency of the holds, in nanoseconds
+     */
+    private final HistogramSnapshot holdLatency;
+
+    /**
+     * The latency of the reservations, in nanoseconds
+     */
+    private final HistogramSnapshot reserveLatency;
+
+    /**
+     * The no of open block searches of every hold
+     */
+    private final HistogramSnapshot searchLength;
+
+    /**
+     * The time waited for a row lock held by another thread, in nanoseconds, a value per contended lock
+     */
+    private final HistogramSnapshot lockWait;
+
+    /**
+     * Constructor for a MetricsSnapshot.
+     *
+     * @param timeMillis The time the snapshot was taken, in milliseconds.
+     * @param holdsPlaced The no of holds placed.
+     * @param holdsReserved The no of holds reserved.
+     * @param holdsExpired The no of holds expired.
+     * @param expirationsPerSecond The no of holds expired per second since the previous snapshot.
+     * @param holdLatency The latency of the holds.
+     * @param reserveLatency The latency of the reservations.
+     * @param searchLength The no of open block searches of every hold.
+     * @param lockWait The time waited for a contended row lock.
+     */
+    MetricsSnapshot(long timeMillis, long holdsPlaced, long holdsReserved, long holdsExpired,
+                    double expirationsPerSecond, HistogramSnapshot holdLatency, HistogramSnapshot reserveLatency,
+                    HistogramSnapshot searchLength, HistogramSnapshot lockWait) {
+        this.timeMillis = timeMillis;
+        this.holdsPlaced = holdsPlaced;
+        this.holdsReserved = holdsReserved;
+        this.holdsExpired = holdsExpired;
+        this.expirationsPerSecond = expirationsPerSecond;
+        this.holdLatency = holdLatency;
+        this.reserveLatency = reserveLatency;
+        this.searchLength = searchLength;
+        this.lockWait = lockWait;
+    }
+
+    /**
+     * This method returns the no of holds outstanding, neither reserved nor expired yet.
+     *
+     * @return The no of outstanding holds
+     */
+    public long getOutstandingHolds() {
+        return Math.max(0, holdsPlaced - holdsReserved - holdsExpired);
+    }
+
+    /**
+     * This method returns the no of times a row lock was held by another thread when it was acquired.
+     *
+     * @return The no of lock contentions
+     */
+    public long getLockContentions() {
+        return lockWait.getCount();
+    }
+}
@@ -0,0 +1,64 @@
+package com.nmodi.ticketserviceapp.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a counter updated by many threads without contending on a single value. Every thread adds to its own
+ * stripe, picked by its thread id, and the stripes are summed when the counter is read. The stripes are a cache line
+ * apart, so the threads adding to different stripes don't share a line either.
+ */
+public class StripedCounter {
+
+    /**
+     * The no of longs between 2 stripes, a cache line of 64 bytes
+     */
+    private static final int STRIPE_PADDING = 8;
+
+    /**
+     * The stripes, a cache line apart
+     */
+    private final AtomicLongArray stripes;
+
+    /**
+     * The mask of the stripe of a thread, the no of stripes being a power of 2
+     */
+    private final int stripeMask;
+
+    /**
+     * This is the no-arg constructor, with 2 stripes per processor.
+     */
+    public StripedCounter() {
+        int noOfStripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.stripes = new AtomicLongArray(noOfStripes * STRIPE_PADDING);
+        this.stripeMask = noOfStripes - 1;
+    }
+
+    /**
+     * This method is used to add 1 to the counter.
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * This method is used to add a value to the counter.
+     *
+     * @param value The value to add, negative to subtract.
+     */
+    public void add(long value) {
+        stripes.addAndGet((int) (Thread.currentThread().getId() & stripeMask) * STRIPE_PADDING, value);
+    }
+
+    /**
+     * This method returns the value of the counter. The additions made while the stripes are summed may be missed.
+     *
+     * @return The value of the counter
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < stripes.length(); i += STRIPE_PADDING) {
+            sum += stripes.get(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,125 @@
+package com.nmodi.ticketserviceapp.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * This class is the instrumentation of the ticket service: the latencies of the holds and of the reservations, the
+ * holds placed, reserved and expired, the no of block searches of a hold, and the contention on the row locks.
+ *
+ * It is shared by the service and the dao of the same spring context. The recording methods only update striped
+ * counters and lock-free histograms, and are cheap enough to be called on every request; reading the metrics is left
+ * to an exporter, see {@link MetricsReporter}.
+ */
+public class TicketMetrics {
+
+    /**
+     * The latency of the holds, in nanoseconds
+     */
+    private final Histogram holdLatency = new Histogram();
+
+    /**
+     * The latency of the reservations, in nanoseconds
+     */
+    private final Histogram reserveLatency = new Histogram();
+
+    /**
+     * The no of open block searches of every hold
+     */
+    private final Histogram searchLength = new Histogram();
+
+    /**
+     * The time waited for a row lock held by another thread, in nanoseconds
+     */
+    private final Histogram lockWait = new Histogram();
+
+    /**
+     * The no of holds placed
+     */
+    private final StripedCounter holdsPlaced = new StripedCounter();
+
+    /**
+     * The no of holds reserved
+     */
+    private final StripedCounter holdsReserved = new StripedCounter();
+
+    /**
+     * The no of holds expired
+     */
+    private final StripedCounter holdsExpired = new StripedCounter();
+
+    /**
+     * The time the metrics started to be recorded, in milliseconds
+     */
+    private final long startTimeMillis = System.currentTimeMillis();
+
+    /**
+     * This method is used to record a hold placed.
+     *
+     * @param latencyNanos The latency of the hold, in nanoseconds.
+     */
+    public void recordHold(long latencyNanos) {
+        holdsPlaced.increment();
+        holdLatency.record(latencyNanos);
+    }
+
+    /**
+     * This method is used to record a reservation of held seats.
+     *
+     * @param latencyNanos The latency of the reservation, in nanoseconds.
+     * @param noOfHoldsReserved The no of outstanding holds the reservation reserved all the seats of.
+     */
+    public void recordReservation(long latencyNanos, int noOfHoldsReserved) {
+        holdsReserved.add(noOfHoldsReserved);
+        reserveLatency.record(latencyNanos);
+    }
+
+    /**
+     * This method is used to record a hold expired.
+     */
+    public void recordExpiry() {
+        holdsExpired.increment();
+    }
+
+    /**
+     * This method is used to record the no of open block searches done to hold the seats of a request.
+     *
+     * @param noOfSearches The no of searches.
+     */
+    public void recordSearchLength(int noOfSearches) {
+        searchLength.record(noOfSearches);
+    }
+
+    /**
+     * This method is used to acquire a row lock, recording the time waited when it is held by another thread.
+     *
+     * @param lock The row lock.
+     */
+    public void lock(Lock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        lock.lock();
+        lockWait.record(System.nanoTime() - startTime);
+    }
+
+    /**
+     * This method returns a snapshot of the metrics recorded so far.
+     *
+     * @param previousSnapshot The snapshot taken before, to measure the rates from, null to measure them from the start.
+     * @return The snapshot
+     */
+    public MetricsSnapshot snapshot(MetricsSnapshot previousSnapshot) {
+        long timeMillis = System.currentTimeMillis();
+        long placed = holdsPlaced.sum();
+        long reserved = holdsReserved.sum();
+        long expired = holdsExpired.sum();
+        long intervalMillis = Math.max(1, timeMillis - (previousSnapshot == null ? startTimeMillis
+                : previousSnapshot.getTimeMillis()));
+        long expiredInInterval = expired - (previousSnapshot == null ? 0 : previousSnapshot.getHoldsExpired());
+        return new MetricsSnapshot(timeMillis, placed, reserved, expired,
+                expiredInInterval * (double) TimeUnit.SECONDS.toMillis(1) / intervalMillis, holdLatency.snapshot(),
+                reserveLatency.snapshot(), searchLength.snapshot(), lockWait.snapshot());
+    }
+}
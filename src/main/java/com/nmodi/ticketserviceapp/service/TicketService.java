@@ -2,11 +2,17 @@ package com.nmodi.ticketserviceapp.service;
 
 import com.nmodi.ticketserviceapp.grid.Seat;
 import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.hold.SeatHoldRequest;
 
 import java.util.List;
 
 public interface TicketService {
 
+    /**
+     * The seat hold id returned for a request of a batch which could not be held
+     */
+    int NOT_HELD = -1;
+
     /**
      * This method is used to get all available seats at list.
      *
@@ -23,6 +29,23 @@ public interface TicketService {
      */
     int findTotalNumberOfAvailableSeats(SeatGrid sourceSeatGrid);
 
+    /**
+     * This method is used to get the number of available seats of a price tier.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param tier The price tier
+     * @return The number of available seats of the tier
+     */
+    int findTotalNumberOfAvailableSeats(SeatGrid sourceSeatGrid, String tier);
+
+    /**
+     * This method is used to get all available seats as seat ids, row * no of columns + column.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @return The available seat ids, in ascending order
+     */
+    int[] findTotalAvailableSeatIds(SeatGrid sourceSeatGrid);
+
     /**
      * This method is used to hold best available seats based on number of seats in request.
      *
@@ -32,6 +55,37 @@ public interface TicketService {
      */
     List<Seat> holdBestAvailableSeats(SeatGrid sourceSeatGrid, int requestedSeats);
 
+    /**
+     * This method is used to hold best available seats for a customer, based on number of seats in request.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param requestedSeats The requested number of seats
+     * @param customerEmail The customer email
+     * @return The seat hold id, to reserve the held seats with
+     */
+    int holdBestAvailableSeats(SeatGrid sourceSeatGrid, int requestedSeats, String customerEmail);
+
+    /**
+     * This method is used to hold best available seats of a price tier for a customer, based on number of seats in
+     * request.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param requestedSeats The requested number of seats
+     * @param customerEmail The customer email
+     * @param tier The price tier, null for any seat of the venue
+     * @return The seat hold id, to reserve the held seats with
+     */
+    int holdBestAvailableSeats(SeatGrid sourceSeatGrid, int requestedSeats, String customerEmail, String tier);
+
+    /**
+     * This method is used to hold best available seats for a batch of requests, served by priority.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param seatHoldRequests The requests
+     * @return The seat hold ids in the order of the requests, {@link #NOT_HELD} for a request which is not held
+     */
+    List<Integer> holdBestAvailableSeatsBatch(SeatGrid sourceSeatGrid, List<SeatHoldRequest> seatHoldRequests);
+
     /**
      * This method is used to reserve the held seats.
      *
@@ -41,4 +95,33 @@ public interface TicketService {
      */
     List<Seat> reserveHeldSeats(SeatGrid sourceSeatGrid, List<Seat> heldSeatList);
 
+    /**
+     * This method is used to reserve the seats of a hold.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seatHoldId The seat hold id
+     * @param customerEmail The customer email the seats are held for
+     * @return The list of reserved seats
+     */
+    List<Seat> reserveHeldSeats(SeatGrid sourceSeatGrid, int seatHoldId, String customerEmail);
+
+    /**
+     * This method is used to reserve the seats of a hold, as seat ids.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seatHoldId The seat hold id
+     * @param customerEmail The customer email the seats are held for
+     * @return The reserved seat ids
+     */
+    int[] reserveHeldSeatIds(SeatGrid sourceSeatGrid, int seatHoldId, String customerEmail);
+
+    /**
+     * This method is used to get the seats of an outstanding hold, as seat ids.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seatHoldId The seat hold id
+     * @return The held seat ids
+     */
+    int[] findHeldSeatIds(SeatGrid sourceSeatGrid, int seatHoldId);
+
 }
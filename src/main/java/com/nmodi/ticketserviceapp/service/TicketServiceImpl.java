@@ -7,16 +7,33 @@ import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
 import com.nmodi.ticketserviceapp.grid.Seat;
 import com.nmodi.ticketserviceapp.grid.SeatGrid;
 import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import com.nmodi.ticketserviceapp.hold.HoldExpiryScheduler;
+import com.nmodi.ticketserviceapp.hold.SeatHold;
+import com.nmodi.ticketserviceapp.hold.SeatHoldRegistry;
+import com.nmodi.ticketserviceapp.hold.SeatHoldRequest;
+import com.nmodi.ticketserviceapp.journal.SeatJournal;
+import com.nmodi.ticketserviceapp.metrics.TicketMetrics;
 import lombok.Getter;
 import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
-import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ListIterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
 
 public class TicketServiceImpl implements TicketService {
 
@@ -32,27 +49,70 @@ public class TicketServiceImpl implements TicketService {
     private TicketHandlerDao ticketHandlerDao;
 
     /**
-     * The executor servcie
+     * The hold expiry scheduler
      */
-    private static final ExecutorService threadpool = Executors.newFixedThreadPool(Integer.MAX_VALUE);
+    @Resource
+    private HoldExpiryScheduler holdExpiryScheduler;
+
+    /**
+     * The default time, in milliseconds, after which held seats are made available again
+     */
+    private static final long DEFAULT_HOLD_TIMEOUT_MILLIS = 3000;
+
+    /**
+     * The time, in milliseconds, after which held seats are made available again if they are not reserved
+     */
+    @Getter
+    @Setter
+    private long holdTimeoutMillis = DEFAULT_HOLD_TIMEOUT_MILLIS;
 
     /**
-     * The held seat grid
+     * The outstanding holds
+     */
+    @Getter
+    private final SeatHoldRegistry seatHoldRegistry = new SeatHoldRegistry();
+
+    /**
+     * The journal of the reserved seats, null when the reservations are kept in memory only. The journal is of a single
+     * seat grid, so a service with a journal must only reserve the seats of this grid.
      */
     @Getter
     @Setter
-    private SeatGrid seatGridHeld;
+    private SeatJournal seatJournal;
 
     /**
-     * The held seat list
+     * The metrics recording the holds, the reservations and the expiries, and the contention on the row locks
      */
+    @Resource
     @Getter
     @Setter
-    private List<Seat> seatListHeld;
+    private TicketMetrics ticketMetrics = new TicketMetrics();
 
+    /**
+     * The executor releasing the seats of the expired holds and of the reservations which could not be journaled, null
+     * to release them on the thread of the hold expiry scheduler or of the journal. The executor writing the other
+     * seats of the grid makes it the single writer of the grid.
+     */
     @Getter
     @Setter
-    private boolean checkHeldSeats = false;
+    private Executor holdExpiryExecutor;
+
+    /**
+     * This is the no-arg constructor, the dao and the hold expiry scheduler are injected.
+     */
+    public TicketServiceImpl() {
+    }
+
+    /**
+     * This is the 2-arg constructor, for a service created outside of the spring context.
+     *
+     * @param ticketHandlerDao The ticket handler dao.
+     * @param holdExpiryScheduler The hold expiry scheduler.
+     */
+    public TicketServiceImpl(TicketHandlerDao ticketHandlerDao, HoldExpiryScheduler holdExpiryScheduler) {
+        this.ticketHandlerDao = ticketHandlerDao;
+        this.holdExpiryScheduler = holdExpiryScheduler;
+    }
 
     /**
      * This method is used to get all available seats at list.
@@ -62,6 +122,55 @@ public class TicketServiceImpl implements TicketService {
      */
     @Override
     public List<Seat> findTotalAvailableSeats(SeatGrid sourceSeatGrid) {
+        validateSeatGrid(sourceSeatGrid);
+        return ticketHandlerDao.getAvailableSeatsAsList(sourceSeatGrid);
+    }
+
+    /**
+     * This method is used to get all available seats as seat ids, row * no of columns + column, without creating a
+     * seat object per seat.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @return The available seat ids, in ascending order
+     */
+    @Override
+    public int[] findTotalAvailableSeatIds(SeatGrid sourceSeatGrid) {
+        validateSeatGrid(sourceSeatGrid);
+        return ticketHandlerDao.getAvailableSeatIds(sourceSeatGrid);
+    }
+
+    /**
+     *
+     * This method is used to get the number of available seats, without listing them.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @return The total available seats number
+     */
+    @Override
+    public int findTotalNumberOfAvailableSeats(SeatGrid sourceSeatGrid) {
+        validateSeatGrid(sourceSeatGrid);
+        return ticketHandlerDao.getAvailableSeatCount(sourceSeatGrid);
+    }
+
+    /**
+     * This method is used to get the number of available seats of a price tier, from the live counts of its zones.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param tier The price tier
+     * @return The number of available seats of the tier
+     */
+    @Override
+    public int findTotalNumberOfAvailableSeats(SeatGrid sourceSeatGrid, String tier) {
+        validateSeatGrid(sourceSeatGrid);
+        return ticketHandlerDao.getAvailableSeatCount(sourceSeatGrid, tier);
+    }
+
+    /**
+     * This method is used to validate the seat grid of a request.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     */
+    private void validateSeatGrid(SeatGrid sourceSeatGrid) {
         if(sourceSeatGrid == null) {
             LOGGER.error("Seating arrangement for the venue is not proper, the venue cant be null");
             throw new SeatingArrangementNotValidException(
@@ -72,52 +181,328 @@ public class TicketServiceImpl implements TicketService {
             throw new SeatingArrangementNotValidException(
                     "Seating arrangement for the venue is not proper, the rows and columns must be greater than 0");
         }
-        return ticketHandlerDao.getAvailableSeatsAsList(sourceSeatGrid);
     }
 
     /**
+     * This method is used to hold best available seats based on number of seats in request.
      *
-     * This method is used to get all available seats at list.
+     * @param sourceSeatGrid The source seat grid.
+     * @param requestedSeats The requested number of seats
+     * @return The list of held seats, empty list in case none are hold
+     */
+    @Override
+    public List<Seat> holdBestAvailableSeats(SeatGrid sourceSeatGrid, int requestedSeats) {
+        return holdSeats(sourceSeatGrid, requestedSeats, null, null, true).getSeatList();
+    }
+
+    /**
+     * This method is used to hold best available seats for a customer, based on number of seats in request.
      *
      * @param sourceSeatGrid The source seat grid.
-     * @return The total available seats number
+     * @param requestedSeats The requested number of seats
+     * @param customerEmail The customer email
+     * @return The seat hold id, to reserve the held seats with
      */
     @Override
-    public int findTotalNumberOfAvailableSeats(SeatGrid sourceSeatGrid) {
-        return findTotalAvailableSeats(sourceSeatGrid).size();
+    public int holdBestAvailableSeats(SeatGrid sourceSeatGrid, int requestedSeats, String customerEmail) {
+        return holdBestAvailableSeats(sourceSeatGrid, requestedSeats, customerEmail, null);
     }
 
     /**
-     * This method is used to hold best available seats based on number of seats in request.
+     * This method is used to hold best available seats of a price tier for a customer, based on number of seats in
+     * request. Only the rows of the zones of the tier are searched.
      *
      * @param sourceSeatGrid The source seat grid.
      * @param requestedSeats The requested number of seats
-     * @return The list of held seats, empty list in case none are hold
+     * @param customerEmail The customer email
+     * @param tier The price tier, null for any seat of the venue
+     * @return The seat hold id, to reserve the held seats with
      */
     @Override
-    public List<Seat> holdBestAvailableSeats(SeatGrid sourceSeatGrid, int requestedSeats) {
-        if (sourceSeatGrid.getNoOfRows() <= 0 || sourceSeatGrid.getNoOfColumns() <= 0) {
-            throw new SeatingArrangementNotValidException(
-                    "Seating arrangement for the venue is not proper, the rows and columns must be greater than 0");
+    public int holdBestAvailableSeats(SeatGrid sourceSeatGrid, int requestedSeats, String customerEmail,
+                                      String tier) {
+        if (customerEmail == null || customerEmail.trim().isEmpty()) {
+            throw new CustomerRequestNotValidException("Customer email can't be null or empty");
+        }
+        return holdSeats(sourceSeatGrid, requestedSeats, customerEmail, tier, false).getSeatHoldId();
+    }
+
+    /**
+     * This method is used to hold best available seats for a batch of requests. The grid is validated once for the
+     * batch and the requests are served from the highest priority down, in the order of the batch for the same
+     * priority. A request which is not valid or can not be held anymore does not fail the batch.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param seatHoldRequests The requests
+     * @return The seat hold ids in the order of the requests, {@link #NOT_HELD} for a request which is not held
+     */
+    @Override
+    public List<Integer> holdBestAvailableSeatsBatch(SeatGrid sourceSeatGrid,
+                                                     final List<SeatHoldRequest> seatHoldRequests) {
+        validateSeatGrid(sourceSeatGrid);
+        if (seatHoldRequests == null) {
+            throw new CustomerRequestNotValidException("Seat hold requests can't be null");
         }
-        if (requestedSeats <= 0 ||
-                requestedSeats > ticketHandlerDao.getAvailableSeatsAsList(sourceSeatGrid).size()) {
-            throw new CustomerRequestNotValidException("Request order to hold seats must be valid, total available seats are: "
-                    + ticketHandlerDao.getAvailableSeatsAsList(sourceSeatGrid).size());
+        Integer[] requestOrder = new Integer[seatHoldRequests.size()];
+        for (int i = 0; i < requestOrder.length; i++) {
+            requestOrder[i] = i;
+        }
+        // the sort is stable, so the requests of the same priority keep their order
+        Arrays.sort(requestOrder, new Comparator<Integer>() {
+            public int compare(Integer first, Integer second) {
+                return Integer.compare(priorityOf(seatHoldRequests.get(second)),
+                        priorityOf(seatHoldRequests.get(first)));
+            }
+        });
+
+        Integer[] seatHoldIds = new Integer[requestOrder.length];
+        Arrays.fill(seatHoldIds, NOT_HELD);
+        long expiresAtMillis = System.currentTimeMillis() + holdTimeoutMillis;
+        for (int request : requestOrder) {
+            SeatHoldRequest seatHoldRequest = seatHoldRequests.get(request);
+            if (seatHoldRequest == null || seatHoldRequest.getRequestedSeats() <= 0
+                    || seatHoldRequest.getCustomerEmail() == null
+                    || seatHoldRequest.getCustomerEmail().trim().isEmpty()) {
+                LOGGER.debug("Seat hold request {} of the batch is not valid", request);
+                continue;
+            }
+            int requestedSeats = seatHoldRequest.getRequestedSeats();
+            String tier = seatHoldRequest.getTier();
+            long startTime = System.nanoTime();
+            try {
+                if (requestedSeats > (tier == null ? ticketHandlerDao.getAvailableSeatCount(sourceSeatGrid)
+                        : ticketHandlerDao.getAvailableSeatCount(sourceSeatGrid, tier))) {
+                    continue;
+                }
+                int[] seatIds = ticketHandlerDao.getBestAvailableSeatIds(sourceSeatGrid, requestedSeats, tier);
+                seatHoldIds[request] = registerHold(sourceSeatGrid, seatIds, null, seatHoldRequest.getCustomerEmail(),
+                        expiresAtMillis, startTime).getSeatHoldId();
+            } catch (CustomerRequestNotValidException ex) {
+                // the seats were taken by a concurrent request since they were counted
+                LOGGER.debug("Seat hold request {} of the batch could not be held: {}", request, ex.getMessage());
+            } catch (SeatingArrangementNotValidException ex) {
+                // the tier is not a tier of the venue
+                LOGGER.debug("Seat hold request {} of the batch is not valid: {}", request, ex.getMessage());
+            }
+        }
+        return Arrays.asList(seatHoldIds);
+    }
+
+    /**
+     * This method returns the priority of a request, the requests which are not valid come last.
+     *
+     * @param seatHoldRequest The request
+     * @return The priority
+     */
+    private static int priorityOf(SeatHoldRequest seatHoldRequest) {
+        return seatHoldRequest == null ? Integer.MIN_VALUE : seatHoldRequest.getPriority();
+    }
+
+    /**
+     * This method is used to reserve the seats of a hold, looked up by its id.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seatHoldId The seat hold id
+     * @param customerEmail The customer email the seats are held for
+     * @return The list of reserved seats
+     */
+    @Override
+    public List<Seat> reserveHeldSeats(SeatGrid sourceSeatGrid, int seatHoldId, String customerEmail) {
+        return awaitReservation(reserveHeldSeatsAsync(sourceSeatGrid, seatHoldId, customerEmail));
+    }
+
+    /**
+     * This method is used to reserve the seats of a hold, looked up by its id, without waiting for the journal. The
+     * request is checked and the seats are reserved before returning, and the future is done once the reservation is
+     * journaled, on the flusher thread of the journal.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seatHoldId The seat hold id
+     * @param customerEmail The customer email the seats are held for
+     * @return The list of reserved seats
+     */
+    public ListenableFuture<List<Seat>> reserveHeldSeatsAsync(final SeatGrid sourceSeatGrid, int seatHoldId,
+                                                              String customerEmail) {
+        final SettableListenableFuture<List<Seat>> reservedSeats = new SettableListenableFuture<List<Seat>>();
+        reserveHeldSeatIdsAsync(sourceSeatGrid, seatHoldId, customerEmail).addCallback(
+                new ListenableFutureCallback<int[]>() {
+                    public void onSuccess(int[] seatIds) {
+                        List<Seat> seats = new ArrayList<Seat>(seatIds.length);
+                        SeatGrid.Cursor cursor = sourceSeatGrid.cursor();
+                        for (int seatId : seatIds) {
+                            seats.add(cursor.moveTo(seatId).getSeat());
+                        }
+                        reservedSeats.set(seats);
+                    }
+
+                    public void onFailure(Throwable ex) {
+                        reservedSeats.setException(ex);
+                    }
+                });
+        return reservedSeats;
+    }
+
+    /**
+     * This method is used to reserve the seats of a hold, looked up by its id, as seat ids.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seatHoldId The seat hold id
+     * @param customerEmail The customer email the seats are held for
+     * @return The reserved seat ids
+     */
+    @Override
+    public int[] reserveHeldSeatIds(SeatGrid sourceSeatGrid, int seatHoldId, String customerEmail) {
+        return awaitReservation(reserveHeldSeatIdsAsync(sourceSeatGrid, seatHoldId, customerEmail));
+    }
+
+    /**
+     * This method is used to reserve the seats of a hold, looked up by its id, as seat ids without waiting for the
+     * journal. The request is checked and the seats are reserved before returning, and the future is done once the
+     * reservation is journaled, on the flusher thread of the journal.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seatHoldId The seat hold id
+     * @param customerEmail The customer email the seats are held for
+     * @return The reserved seat ids
+     */
+    public ListenableFuture<int[]> reserveHeldSeatIdsAsync(SeatGrid sourceSeatGrid, int seatHoldId,
+                                                           String customerEmail) {
+        long startTime = System.nanoTime();
+        SeatHold seatHold = seatHoldRegistry.get(seatHoldId);
+        if (seatHold == null || seatHold.getSeatGrid() != sourceSeatGrid) {
+            throw new ReservationRequestNotValidException("Request Invalid: No seats are held with id " + seatHoldId);
+        }
+        if (seatHold.getCustomerEmail() == null || !seatHold.getCustomerEmail().equals(customerEmail)) {
+            throw new ReservationRequestNotValidException("Request Invalid: The seats are not held for " + customerEmail);
+        }
+
+        int[] seatIds = seatHold.getSeatIds();
+        SettableListenableFuture<int[]> reservation = new SettableListenableFuture<int[]>();
+        ReservationCallback reservationCallback = new ReservationCallback(reservation, sourceSeatGrid, seatIds,
+                startTime, 1);
+        boolean journaled;
+        int[] rows = lockRows(sourceSeatGrid, rowsOf(sourceSeatGrid, seatIds));
+        try {
+            // the seats of the hold were found by the grid, and their rows are locked
+            SeatGrid.Cursor cursor = sourceSeatGrid.cursor();
+            for (int i = 0; i < seatIds.length; i++) {
+                if (!cursor.moveTo(seatIds[i]).compareAndSetSeatStatus(SeatStatus.HOLD, SeatStatus.RESERVED)) {
+                    rollBackReservation(cursor, seatIds, i);
+                    throw new ReservationRequestNotValidException("Request Invalid: The seats of the hold "
+                            + seatHoldId + " are not held anymore.");
+                }
+            }
+            // the hold is reserved only if it wins over its expiry, which releases the seats once the rows are unlocked
+            if (!seatHold.getScheduledExpiry().cancel()) {
+                rollBackReservation(cursor, seatIds, seatIds.length);
+                throw new ReservationRequestNotValidException("Request Invalid: The hold " + seatHoldId + " expired.");
+            }
+            seatHoldRegistry.remove(seatHold);
+            journaled = journalReservation(seatIds, reservationCallback);
+        } finally {
+            unlockRows(sourceSeatGrid, rows);
+        }
+        if (!journaled) {
+            reservationCallback.onDurable();
+        }
+        return reservation;
+    }
+
+    /**
+     * This method is used to put the seats reserved for a hold back on hold, when the hold can't be reserved. The row
+     * locks of the seats must be held.
+     *
+     * @param cursor The cursor of the seat grid.
+     * @param seatIds The seat ids of the hold
+     * @param noOfReservedSeats The no of seats of the hold reserved so far
+     */
+    private static void rollBackReservation(SeatGrid.Cursor cursor, int[] seatIds, int noOfReservedSeats) {
+        for (int i = 0; i < noOfReservedSeats; i++) {
+            cursor.moveTo(seatIds[i]).setSeatStatus(SeatStatus.HOLD);
+        }
+    }
+
+    /**
+     * This method is used to get the seats of an outstanding hold, as seat ids.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seatHoldId The seat hold id
+     * @return The held seat ids
+     */
+    @Override
+    public int[] findHeldSeatIds(SeatGrid sourceSeatGrid, int seatHoldId) {
+        SeatHold seatHold = seatHoldRegistry.get(seatHoldId);
+        if (seatHold == null || seatHold.getSeatGrid() != sourceSeatGrid) {
+            throw new ReservationRequestNotValidException("Request Invalid: No seats are held with id " + seatHoldId);
+        }
+        return seatHold.getSeatIds().clone();
+    }
+
+    /**
+     * This method is used to hold the best available seats, and to register the hold until it is reserved or expires.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param requestedSeats The requested number of seats
+     * @param customerEmail The customer email, null for a hold made without customer
+     * @param tier The price tier, null for any seat of the venue
+     * @param keepSeatList Whether the held seat list is kept up to date for the caller
+     * @return The hold
+     */
+    private SeatHold holdSeats(SeatGrid sourceSeatGrid, int requestedSeats, String customerEmail, String tier,
+                               boolean keepSeatList) {
+        long startTime = System.nanoTime();
+        validateSeatGrid(sourceSeatGrid);
+        int availableSeats = tier == null ? ticketHandlerDao.getAvailableSeatCount(sourceSeatGrid)
+                : ticketHandlerDao.getAvailableSeatCount(sourceSeatGrid, tier);
+        if (requestedSeats <= 0 || requestedSeats > availableSeats) {
+            throw new CustomerRequestNotValidException("Request order to hold seats must be valid, total available seats"
+                    + (tier == null ? "" : " in tier " + tier) + " are: " + availableSeats);
         }
         // best available hold seat
+        long expiresAtMillis = System.currentTimeMillis() + holdTimeoutMillis;
+        if (!keepSeatList) {
+            int[] seatIds = ticketHandlerDao.getBestAvailableSeatIds(sourceSeatGrid, requestedSeats, tier);
+            return registerHold(sourceSeatGrid, seatIds, null, customerEmail, expiresAtMillis, startTime);
+        }
         List<Seat> heldSeatList = ticketHandlerDao.getBestAvailableSeats(sourceSeatGrid, requestedSeats);
+        return registerHold(sourceSeatGrid, seatIdsOf(sourceSeatGrid, heldSeatList), heldSeatList, customerEmail,
+                expiresAtMillis, startTime);
+    }
 
-        setSeatGridHeld(sourceSeatGrid);
-        setSeatListHeld(heldSeatList);
-        setCheckHeldSeats(true);
-        threadpool.submit(thread);
-
-        return heldSeatList;
+    /**
+     * This method is used to register the hold of the held seats, and to schedule its expiry.
+     *
+     * @param sourceSeatGrid The source seat grid.
+     * @param seatIds The held seat ids
+     * @param heldSeatList The held seats kept up to date for the caller, null for a hold identified by its id
+     * @param customerEmail The customer email, null for a hold made without customer
+     * @param expiresAtMillis The time the hold expires at, in milliseconds
+     * @param startTime The time the request started at, in nanoseconds, to record the latency of the hold
+     * @return The hold
+     */
+    private SeatHold registerHold(SeatGrid sourceSeatGrid, int[] seatIds, List<Seat> heldSeatList,
+                                  String customerEmail, long expiresAtMillis, long startTime) {
+        SeatHold seatHold = new SeatHold(seatHoldRegistry.nextSeatHoldId(), sourceSeatGrid, seatIds, customerEmail,
+                expiresAtMillis, heldSeatList);
+        // the expiry is set before the hold is visible, a concurrent reservation of its seats may cancel it
+        HoldExpiry holdExpiry = new HoldExpiry(seatHold);
+        seatHold.setScheduledExpiry(holdExpiryScheduler.schedule(holdExpiry,
+                Math.max(0, expiresAtMillis - System.currentTimeMillis())));
+        seatHoldRegistry.register(seatHold);
+        if (seatHold.getScheduledExpiry().isExpired()) {
+            // the hold expired before it was registered, when its expiry found none of its seats to release
+            holdExpiry.run();
+        }
+        ticketMetrics.recordHold(System.nanoTime() - startTime);
+        LOGGER.debug("Held {} seats with seat hold id {}", seatIds.length, seatHold.getSeatHoldId());
+        return seatHold;
     }
 
     /**
-     * This method is used to reserve the held seats.
+     * This method is used to reserve the held seats. The rows of the seats are locked in ascending order, so the seats
+     * are checked and reserved atomically while other rows stay available to concurrent requests. The seats held for
+     * a customer can't be reserved this way, only by their seat hold id. A hold whose seats are all reserved is done,
+     * it is removed and doesn't expire.
      *
      * @param sourceSeatGrid The source seat grid/the venue
      * @param heldSeatList The held seats as list
@@ -129,47 +514,385 @@ public class TicketServiceImpl implements TicketService {
         if (heldSeatList == null || heldSeatList.size() == 0) {
             throw new ReservationRequestNotValidException("held seats list can't be null or empty");
         }
+        long startTime = System.nanoTime();
 
-        for (Seat seat: heldSeatList) {
-            if (!seat.getSeatStatus().equals(SeatStatus.HOLD)) {
-                throw new ReservationRequestNotValidException("Request Invalid: The requested seat is not held.");
+        SettableListenableFuture<int[]> reservation = new SettableListenableFuture<int[]>();
+        ReservationCallback reservationCallback;
+        boolean journaled;
+        int[] rows = lockRows(sourceSeatGrid, rowsOf(heldSeatList));
+        try {
+            for (Seat seat: heldSeatList) {
+                if (!seat.getSeatStatus().equals(SeatStatus.HOLD)
+                        || !sourceSeatGrid.getSeatStatus(seat.getRow(), seat.getColumn()).equals(SeatStatus.HOLD)) {
+                    throw new ReservationRequestNotValidException("Request Invalid: The requested seat is not held.");
+                }
+                // the seats held for a customer are only reserved by their seat hold id
+                SeatHold seatHold = seatHoldRegistry.getBySeat(sourceSeatGrid,
+                        sourceSeatGrid.getSeatId(seat.getRow(), seat.getColumn()));
+                if (seatHold != null && seatHold.getCustomerEmail() != null) {
+                    throw new ReservationRequestNotValidException(
+                            "Request Invalid: The requested seat is held for another customer.");
+                }
             }
-            sourceSeatGrid.setSeatStatus(seat.getRow(), seat.getColumn(), SeatStatus.RESERVED);
-            heldSeatList.set(heldSeatList.indexOf(seat), sourceSeatGrid.getSeat(seat.getRow(), seat.getColumn()));
+            // the seats were checked above, and their rows are locked
+            SeatGrid.Cursor cursor = sourceSeatGrid.cursor();
+            for (Seat seat : heldSeatList) {
+                cursor.moveTo(seat.getRow(), seat.getColumn()).setSeatStatus(SeatStatus.RESERVED);
+            }
+            int[] seatIds = seatIdsOf(sourceSeatGrid, heldSeatList);
+            int noOfHoldsReserved = removeReservedHolds(sourceSeatGrid, seatIds);
+            reservationCallback = new ReservationCallback(reservation, sourceSeatGrid, seatIds, startTime,
+                    noOfHoldsReserved);
+            journaled = journalReservation(seatIds, reservationCallback);
+        } finally {
+            unlockRows(sourceSeatGrid, rows);
+        }
+        if (!journaled) {
+            reservationCallback.onDurable();
+        }
+        awaitReservation(reservation);
+        // the seats of the caller are updated once the reservation is journaled
+        SeatGrid.Cursor cursor = sourceSeatGrid.cursor();
+        for (ListIterator<Seat> iterator = heldSeatList.listIterator(); iterator.hasNext(); ) {
+            Seat seat = iterator.next();
+            iterator.set(cursor.moveTo(seat.getRow(), seat.getColumn()).getSeat());
         }
         return heldSeatList;
     }
 
     /**
-     * The thread instance to verify whether the seat is reserved after 3 sec of interval.
+     * This method is used to remove the holds without customer whose seats are all reserved by a list of held seats,
+     * so they don't expire. A hold wins only over an expiry which did not fire yet, else the expiry removes it. A hold
+     * whose seats are only partly reserved stays, and its expiry releases the seats left on hold. The row locks of the
+     * reserved seats must be held.
      *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seatIds The reserved seat ids
+     * @return The no of holds removed
      */
-    Thread thread = new Thread( new Runnable() {
-        int counter = 0;
+    private int removeReservedHolds(SeatGrid sourceSeatGrid, int[] seatIds) {
+        int noOfHoldsRemoved = 0;
+        SeatGrid.Cursor cursor = sourceSeatGrid.cursor();
+        for (int seatId : seatIds) {
+            SeatHold seatHold = seatHoldRegistry.getBySeat(sourceSeatGrid, seatId);
+            if (seatHold == null || !isReserved(cursor, seatHold.getSeatIds())) {
+                continue;
+            }
+            if (seatHold.getScheduledExpiry().cancel() && seatHoldRegistry.remove(seatHold)) {
+                noOfHoldsRemoved++;
+            }
+        }
+        return noOfHoldsRemoved;
+    }
+
+    /**
+     * This method returns whether the seats are all reserved.
+     *
+     * @param cursor The cursor of the seat grid.
+     * @param seatIds The seat ids
+     * @return true if every seat is reserved
+     */
+    private static boolean isReserved(SeatGrid.Cursor cursor, int[] seatIds) {
+        for (int seatId : seatIds) {
+            if (cursor.moveTo(seatId).getSeatStatus() != SeatStatus.RESERVED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method is used to append the reserved seats to the journal, if any. The row locks of the seats must be
+     * held, so the records are in the order the seats are reserved.
+     *
+     * @param seatIds The reserved seat ids
+     * @param reservationCallback The callback of the reservation, called back once the record is synced
+     * @return true if the seats are journaled, false without journal
+     */
+    private boolean journalReservation(int[] seatIds, ReservationCallback reservationCallback) {
+        if (seatJournal == null) {
+            return false;
+        }
+        try {
+            seatJournal.append(SeatJournal.RESERVE, seatIds, reservationCallback);
+        } catch (IllegalStateException ex) {
+            // the journal is closed, the seats are made available again instead of staying reserved for nobody
+            releaseReservedSeats(reservationCallback.sourceSeatGrid.cursor(), seatIds);
+            LOGGER.error("The reservation could not be journaled, its seats are available again", ex);
+            throw new ReservationRequestNotValidException("The reservation could not be journaled", ex);
+        }
+        return true;
+    }
+
+    /**
+     * This method is used to make the seats of a reservation which could not be journaled available again. The row
+     * locks of the seats must be held.
+     *
+     * @param cursor The cursor of the seat grid.
+     * @param seatIds The reserved seat ids
+     */
+    private static void releaseReservedSeats(SeatGrid.Cursor cursor, int[] seatIds) {
+        for (int seatId : seatIds) {
+            cursor.moveTo(seatId).compareAndSetSeatStatus(SeatStatus.RESERVED, SeatStatus.OPEN);
+        }
+    }
+
+    /**
+     * This method is used to run a task writing the seats on the hold expiry executor if any, else on the current
+     * thread.
+     *
+     * @param task The task.
+     */
+    private void executeOnGridWriter(Runnable task) {
+        Executor executor = holdExpiryExecutor;
+        if (executor != null) {
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException ex) {
+                // the executor is shut down, the seats are still written
+                LOGGER.debug("Seats written on the current thread: {}", ex.getMessage());
+            }
+        }
+        task.run();
+    }
+
+    /**
+     * This method is used to wait until a reservation is done, once the row locks are released so the reservations of
+     * the other rows are journaled in the same sync.
+     *
+     * @param reservation The reservation.
+     * @param <T> The result type of the reservation.
+     * @return The result of the reservation
+     */
+    private static <T> T awaitReservation(ListenableFuture<T> reservation) {
+        try {
+            return reservation.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new ReservationRequestNotValidException("The reservation could not be journaled", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ReservationRequestNotValidException("Interrupted while journaling the reservation", ex);
+        }
+    }
+
+    /**
+     * This method returns the seat ids of the given seats.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seats The seats
+     * @return The seat ids
+     */
+    private static int[] seatIdsOf(SeatGrid sourceSeatGrid, List<Seat> seats) {
+        int[] seatIds = new int[seats.size()];
+        for (int i = 0; i < seatIds.length; i++) {
+            seatIds[i] = sourceSeatGrid.getSeatId(seats.get(i).getRow(), seats.get(i).getColumn());
+        }
+        return seatIds;
+    }
+
+    /**
+     * This method returns the rows of the given seats.
+     *
+     * @param seats The seats
+     * @return The rows, in ascending order
+     */
+    private static SortedSet<Integer> rowsOf(List<Seat> seats) {
+        SortedSet<Integer> rows = new TreeSet<Integer>();
+        for (Seat seat: seats) {
+            rows.add(seat.getRow());
+        }
+        return rows;
+    }
+
+    /**
+     * This method returns the rows of the given seat ids.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param seatIds The seat ids
+     * @return The rows, in ascending order
+     */
+    private static SortedSet<Integer> rowsOf(SeatGrid sourceSeatGrid, int[] seatIds) {
+        SortedSet<Integer> rows = new TreeSet<Integer>();
+        for (int seatId: seatIds) {
+            rows.add(sourceSeatGrid.getSeatRow(seatId));
+        }
+        return rows;
+    }
+
+    /**
+     * This method is used to lock the given rows, in ascending order to avoid deadlocks.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param rowSet The rows to lock, in ascending order
+     * @return The locked rows
+     */
+    private int[] lockRows(SeatGrid sourceSeatGrid, SortedSet<Integer> rowSet) {
+        int[] rows = new int[rowSet.size()];
+        int lockedRows = 0;
+        try {
+            for (Integer row: rowSet) {
+                ticketMetrics.lock(sourceSeatGrid.getRowLock(row));
+                rows[lockedRows++] = row;
+            }
+        } catch (RuntimeException ex) {
+            unlockRows(sourceSeatGrid, Arrays.copyOf(rows, lockedRows));
+            throw ex;
+        }
+        return rows;
+    }
+
+    /**
+     * This method is used to unlock the rows locked by {@link #lockRows(SeatGrid, SortedSet)}.
+     *
+     * @param sourceSeatGrid The source seat grid/the venue
+     * @param rows The locked rows
+     */
+    private static void unlockRows(SeatGrid sourceSeatGrid, int[] rows) {
+        for (int i = rows.length - 1; i >= 0; i--) {
+            sourceSeatGrid.getRowLock(rows[i]).unlock();
+        }
+    }
+
+    /**
+     * This class completes a reservation once it is journaled, and records it in the metrics.
+     */
+    private class ReservationCallback implements SeatJournal.DurabilityCallback {
+
+        /**
+         * The reservation, done with the reserved seat ids
+         */
+        private final SettableListenableFuture<int[]> reservation;
+
+        /**
+         * The source seat grid/the venue
+         */
+        private final SeatGrid sourceSeatGrid;
+
+        /**
+         * The reserved seat ids
+         */
+        private final int[] seatIds;
+
+        /**
+         * The time the request started at, in nanoseconds
+         */
+        private final long startTime;
+
+        /**
+         * The no of holds the reservation reserved all the seats of
+         */
+        private final int noOfHoldsReserved;
+
+        /**
+         * Constructor for a ReservationCallback.
+         *
+         * @param reservation The reservation.
+         * @param sourceSeatGrid The source seat grid/the venue.
+         * @param seatIds The reserved seat ids.
+         * @param startTime The time the request started at, in nanoseconds.
+         * @param noOfHoldsReserved The no of holds the reservation reserved all the seats of.
+         */
+        private ReservationCallback(SettableListenableFuture<int[]> reservation, SeatGrid sourceSeatGrid,
+                                    int[] seatIds, long startTime, int noOfHoldsReserved) {
+            this.reservation = reservation;
+            this.sourceSeatGrid = sourceSeatGrid;
+            this.seatIds = seatIds;
+            this.startTime = startTime;
+            this.noOfHoldsReserved = noOfHoldsReserved;
+        }
+
+        @Override
+        public void onDurable() {
+            ticketMetrics.recordReservation(System.nanoTime() - startTime, noOfHoldsReserved);
+            reservation.set(seatIds.clone());
+        }
+
+        @Override
+        public void onFailure(final IOException ex, boolean discarded) {
+            if (!discarded) {
+                // the record may be replayed on startup, so the seats stay reserved rather than being sold twice
+                LOGGER.error("The reservation could not be journaled, its seats stay reserved", ex);
+                reservation.setException(new ReservationRequestNotValidException(
+                        "The reservation could not be journaled", ex));
+                return;
+            }
+            LOGGER.error("The reservation could not be journaled, its seats are available again", ex);
+            // the seats are made available again instead of staying reserved for nobody
+            executeOnGridWriter(new Runnable() {
+                public void run() {
+                    int[] rows = lockRows(sourceSeatGrid, rowsOf(sourceSeatGrid, seatIds));
+                    try {
+                        releaseReservedSeats(sourceSeatGrid.cursor(), seatIds);
+                    } finally {
+                        unlockRows(sourceSeatGrid, rows);
+                    }
+                    reservation.setException(new ReservationRequestNotValidException(
+                            "The reservation could not be journaled", ex));
+                }
+            });
+        }
+    }
+
+    /**
+     * This class makes the held seats available again, if they are not reserved when the hold expires. The hold is
+     * removed right away, and its seats are released on the hold expiry executor if any. Only the seats still held by
+     * the hold are released, a seat released meanwhile may be held by another hold already.
+     */
+    private class HoldExpiry implements Runnable {
+
+        /**
+         * The expiring hold
+         */
+        private final SeatHold seatHold;
+
+        /**
+         * Constructor for a HoldExpiry.
+         *
+         * @param seatHold The expiring hold.
+         */
+        private HoldExpiry(SeatHold seatHold) {
+            this.seatHold = seatHold;
+        }
+
+        @Override
         public void run() {
-            while (true) {
+            if (seatHoldRegistry.unregister(seatHold)) {
+                ticketMetrics.recordExpiry();
+            }
+            executeOnGridWriter(new Runnable() {
+                public void run() {
+                    releaseSeats();
+                }
+            });
+        }
+
+        /**
+         * This method makes the held seats which are not reserved available again.
+         */
+        private void releaseSeats() {
+            SeatGrid seatGridHeld = seatHold.getSeatGrid();
+            int[] seatIds = seatHold.getSeatIds();
+            List<Seat> seatListHeld = seatHold.getSeatList();
+            SeatGrid.Cursor cursor = seatGridHeld.cursor();
+            for (int i = 0; i < seatIds.length; i++) {
+                cursor.moveTo(seatIds[i]);
+                Lock rowLock = seatGridHeld.getRowLock(cursor.getRow());
+                ticketMetrics.lock(rowLock);
                 try {
-                    if (counter > 3) {
-                        for (Seat seat : seatListHeld) {
-                            if (seat.getSeatStatus().equals(SeatStatus.HOLD)) {
-                                seatGridHeld.setSeatStatus(seat.getRow(), seat.getColumn(), SeatStatus.OPEN);
-                                seatListHeld.set(seatListHeld.indexOf(seat), seatGridHeld.getSeat(seat.getRow(), seat.getColumn()));
-                            }
-                        }
-                        checkHeldSeats = false;
+                    // the seats of a hold without customer may have been reserved by the seat list
+                    if (seatHoldRegistry.removeSeat(seatHold, seatIds[i])
+                            && cursor.compareAndSetSeatStatus(SeatStatus.HOLD, SeatStatus.OPEN) && seatListHeld != null) {
+                        seatListHeld.set(i, cursor.getSeat());
                     }
-                    Thread.sleep(1000);
-                    counter++;
-                } catch (InterruptedException ex) {
-                    ex.printStackTrace();
+                } finally {
+                    rowLock.unlock();
                 }
-                counter = checkHeldSeats == false ? 0 : counter;
             }
+            LOGGER.debug("Hold {} expired, {} seats are available again", seatHold.getSeatHoldId(), seatIds.length);
         }
-    });
-
-    @PreDestroy
-    public void preDestroy() {
-        threadpool.shutdown();
     }
 }
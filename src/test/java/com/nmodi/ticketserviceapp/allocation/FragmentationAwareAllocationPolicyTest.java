@@ -0,0 +1,136 @@
+package com.nmodi.ticketserviceapp.allocation;
+
+import com.nmodi.ticketserviceapp.dao.impl.TicketHandlerDaoImpl;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import com.nmodi.ticketserviceapp.grid.SightlineScoringModel;
+import com.nmodi.ticketserviceapp.util.SeatGridTestUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * This is a junit test to test the methods in FragmentationAwareAllocationPolicy class
+ * {@link FragmentationAwareAllocationPolicy}
+ */
+public class FragmentationAwareAllocationPolicyTest {
+
+    /**
+     * The SeatGrid object
+     */
+    private SeatGrid seatGrid = null;
+
+    /**
+     * Test set up settings
+     */
+    @Before
+    public final void setUpTestSettings() {
+        seatGrid = new SeatGrid(3, 10);
+        int[][] seats = new int[][]{
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 0, 2, 0, 0, 2, 0, 0, 0, 0},
+                {0, 0, 0, 2, 0, 0, 0, 0, 2, 2}};
+        SeatGridTestUtil.setGridSeats(seatGrid, seats);
+    }
+
+    /**
+     * This is to test a party is placed where it leaves no orphan seat, rather than in the furthest row
+     * public int findOpenBlock(SeatGrid seatGrid, int blockSize, int firstRow, int lastRow)
+     */
+    @Test
+    public void testFindOpenBlockLeavingNoOrphanSeat() {
+        FragmentationAwareAllocationPolicy allocationPolicy = new FragmentationAwareAllocationPolicy();
+
+        // the best fit of the back row leaves a single seat, the row 1 has a block of 2 seats
+        assertThat(new BestFitAllocationPolicy().findOpenBlock(seatGrid, 2, 0, 2), is(20));
+        assertThat(allocationPolicy.findOpenBlock(seatGrid, 2, 0, 2), is(10));
+        // the exact fits of the back row
+        assertThat(allocationPolicy.findOpenBlock(seatGrid, 3, 0, 2), is(20));
+        assertThat(allocationPolicy.findOpenBlock(seatGrid, 4, 0, 2), is(24));
+        // the only block able to accommodate the party, even if it leaves an orphan seat
+        assertThat(allocationPolicy.findOpenBlock(seatGrid, 9, 0, 2), is(0));
+        assertThat(allocationPolicy.findOpenBlock(seatGrid, 11, 0, 2), is(-1));
+
+        // with blocks of 3 seats at least sellable, the block of 4 seats of the row 1 is the exact fit
+        allocationPolicy.setMinSellableBlockSize(3);
+        assertThat(allocationPolicy.findOpenBlock(seatGrid, 3, 1, 2), is(20));
+        assertThat(allocationPolicy.findOpenBlock(seatGrid, 2, 1, 2), is(10));
+        assertThat(allocationPolicy.findOpenBlock(seatGrid, 3, 1, 1), is(16));
+    }
+
+    /**
+     * This is to test the best scored position of a party among the positions leaving no orphan seat
+     * public int findOpenBlock(SeatGrid seatGrid, int blockSize, int firstRow, int lastRow)
+     */
+    @Test
+    public void testFindScoredOpenBlockLeavingNoOrphanSeat() {
+        SeatGrid scoredSeatGrid = new SeatGrid(1, 8);
+        scoredSeatGrid.setSeatScoringModel(new SightlineScoringModel());
+
+        // the center of the row leaves a single seat on the left
+        assertThat(new BestFitAllocationPolicy().findOpenBlock(scoredSeatGrid, 5, 0, 0), is(1));
+        assertThat(new FragmentationAwareAllocationPolicy().findOpenBlock(scoredSeatGrid, 5, 0, 0), is(0));
+        // the center of the row leaves 2 seats on both sides
+        assertThat(new FragmentationAwareAllocationPolicy().findOpenBlock(scoredSeatGrid, 4, 0, 0), is(2));
+    }
+
+    /**
+     * This is to test the candidate blocks read from the open block index place a party as every open block of a
+     * fragmented grid would
+     * public int findOpenBlock(SeatGrid seatGrid, int blockSize, int firstRow, int lastRow)
+     */
+    @Test
+    public void testFindOpenBlockOfFragmentedGrid() {
+        SeatGrid fragmentedSeatGrid = new SeatGrid(20, 40);
+        Random random = new Random(7);
+        for (int i = 0; i < 300; i++) {
+            fragmentedSeatGrid.setSeatStatus(random.nextInt(20), random.nextInt(40), SeatStatus.RESERVED);
+        }
+        FragmentationAwareAllocationPolicy allocationPolicy = new FragmentationAwareAllocationPolicy();
+        allocationPolicy.setMinSellableBlockSize(3);
+        allocationPolicy.setMaxCandidateBlocks(1);
+
+        int[] blockStarts = new int[20];
+        int[] blockSizes = new int[20];
+        for (int blockSize = 1; blockSize <= 8; blockSize++) {
+            int expectedSeatId = -1;
+            int bestOrphanSeats = Integer.MAX_VALUE;
+            int bestBlockSize = Integer.MAX_VALUE;
+            for (int row = 19; row >= 0; row--) {
+                int noOfBlocks = fragmentedSeatGrid.getOpenBlocks(row, blockStarts, blockSizes);
+                for (int block = 0; block < noOfBlocks; block++) {
+                    int seatsLeftOver = blockSizes[block] - blockSize;
+                    int orphanSeats = seatsLeftOver > 0 && seatsLeftOver < 3 ? seatsLeftOver : 0;
+                    if (seatsLeftOver >= 0 && (orphanSeats < bestOrphanSeats
+                            || (orphanSeats == bestOrphanSeats && blockSizes[block] < bestBlockSize))) {
+                        bestOrphanSeats = orphanSeats;
+                        bestBlockSize = blockSizes[block];
+                        expectedSeatId = fragmentedSeatGrid.getSeatId(row, blockStarts[block]);
+                    }
+                }
+            }
+            assertThat(allocationPolicy.findOpenBlock(fragmentedSeatGrid, blockSize, 0, 19), is(expectedSeatId));
+        }
+    }
+
+    /**
+     * This is to test the dao holds the seats where the allocation policy places the party
+     * int[] getBestAvailableSeatIds(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+     */
+    @Test
+    public void testToHoldSeatsWithTheAllocationPolicy() {
+        TicketHandlerDaoImpl ticketHandlerDao = new TicketHandlerDaoImpl();
+        ticketHandlerDao.setAllocationPolicy(new FragmentationAwareAllocationPolicy());
+
+        int[] heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(seatGrid, 2);
+        assertThat(heldSeatIds[0], is(10));
+        assertThat(heldSeatIds[1], is(11));
+        heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(seatGrid, 2);
+        assertThat(heldSeatIds[0], is(13));
+        assertThat(seatGrid.getSeatCount(1, SeatStatus.HOLD), is(4));
+    }
+}
@@ -6,6 +6,9 @@ import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
 import com.nmodi.ticketserviceapp.grid.Seat;
 import com.nmodi.ticketserviceapp.grid.SeatGrid;
 import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import com.nmodi.ticketserviceapp.grid.SeatZone;
+import com.nmodi.ticketserviceapp.grid.VenueLayout;
+import com.nmodi.ticketserviceapp.grid.SightlineScoringModel;
 import com.nmodi.ticketserviceapp.service.TicketService;
 import com.nmodi.ticketserviceapp.util.SeatGridTestUtil;
 import org.junit.Before;
@@ -15,7 +18,17 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -118,5 +131,299 @@ public class TicketHandlerDaoImplTest {
             assertThat(heldSeat.getSeatStatus(), is(SeatStatus.HOLD));
         }
         assertThat(ticketHandlerDao.getAvailableSeatsAsList(actualSeatGrid).size(), is(8));
+        assertThat(ticketHandlerDao.getAvailableSeatCount(actualSeatGrid), is(8));
+    }
+
+    /**
+     * This is to test to hold the seats in the best fitting block of the furthest row
+     * List<Seat> getBestAvailableSeats(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+     */
+    @Test
+    public void testToHoldSeatsInBestFittingBlock() {
+        SeatGrid actualSeatGrid = new SeatGrid(3, 10);
+        int[][] seats = new int[][]{
+                {0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                {0, 0, 0, 0, 2, 0, 0, 0, 2, 2},
+                {0, 0, 0, 2, 0, 0, 2, 0, 0, 0}};
+        SeatGridTestUtil.setGridSeats(actualSeatGrid, seats);
+
+        List<Seat> heldSeats = ticketHandlerDao.getBestAvailableSeats(actualSeatGrid, 2);
+        assertThat(heldSeats.size(), is(2));
+        assertThat(heldSeats.get(0), is(new Seat(2, 4, SeatStatus.HOLD)));
+        assertThat(heldSeats.get(1), is(new Seat(2, 5, SeatStatus.HOLD)));
+
+        heldSeats = ticketHandlerDao.getBestAvailableSeats(actualSeatGrid, 4);
+        assertThat(heldSeats.size(), is(4));
+        assertThat(heldSeats.get(0), is(new Seat(1, 0, SeatStatus.HOLD)));
+        assertThat(heldSeats.get(3), is(new Seat(1, 3, SeatStatus.HOLD)));
+    }
+
+    /**
+     * This is to test to hold the seats split in the largest blocks, when no row nor stack of rows can accommodate all
+     * of them
+     * List<Seat> getBestAvailableSeats(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+     */
+    @Test
+    public void testToHoldSeatsSplitInLargestBlocks() {
+        SeatGrid actualSeatGrid = new SeatGrid(3, 5);
+        int[][] seats = new int[][]{
+                {0, 2, 0, 0, 2},
+                {0, 0, 0, 2, 0},
+                {2, 0, 2, 0, 2}};
+        SeatGridTestUtil.setGridSeats(actualSeatGrid, seats);
+
+        List<Seat> heldSeats = ticketHandlerDao.getBestAvailableSeats(actualSeatGrid, 5);
+        assertThat(heldSeats.size(), is(5));
+        assertThat(heldSeats.get(0), is(new Seat(1, 0, SeatStatus.HOLD)));
+        assertThat(heldSeats.get(2), is(new Seat(1, 2, SeatStatus.HOLD)));
+        assertThat(heldSeats.get(3), is(new Seat(0, 2, SeatStatus.HOLD)));
+        assertThat(heldSeats.get(4), is(new Seat(0, 3, SeatStatus.HOLD)));
+        assertThat(ticketHandlerDao.getAvailableSeatsAsList(actualSeatGrid).size(), is(4));
+    }
+
+    /**
+     * This is to test to hold a party too large for any row directly front and back, on the fewest rows
+     * int[] getBestAvailableSeatIds(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+     */
+    @Test
+    public void testToHoldSeatsFrontAndBack() {
+        SeatGrid actualSeatGrid = new SeatGrid(4, 8);
+        int[][] seats = new int[][]{
+                {0, 0, 0, 2, 0, 0, 0, 0},
+                {0, 0, 0, 0, 2, 0, 0, 0},
+                {0, 2, 0, 0, 0, 2, 0, 0},
+                {0, 2, 0, 0, 0, 0, 2, 0}};
+        SeatGridTestUtil.setGridSeats(actualSeatGrid, seats);
+
+        // 4 seats of the back row over 3 seats of the row in front of it, from the same column
+        int[] heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(actualSeatGrid, 7);
+        assertThat(heldSeatIds.length, is(7));
+        assertThat(heldSeatIds[0], is(26));
+        assertThat(heldSeatIds[3], is(29));
+        assertThat(heldSeatIds[4], is(18));
+        assertThat(heldSeatIds[6], is(20));
+
+        // the rows 2 and 3 can't take 3 seats anymore, the left most stack of the rows 0 and 1 is held
+        heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(actualSeatGrid, 6);
+        assertThat(heldSeatIds[0], is(8));
+        assertThat(heldSeatIds[2], is(10));
+        assertThat(heldSeatIds[3], is(0));
+        assertThat(heldSeatIds[5], is(2));
+        assertThat(actualSeatGrid.getSeatCount(SeatStatus.HOLD), is(13));
+    }
+
+    /**
+     * This is to test to hold the seats as seat ids, and to list the available seat ids
+     * int[] getBestAvailableSeatIds(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+     */
+    @Test
+    public void testToHoldSeatsAsSeatIds() {
+        SeatGrid actualSeatGrid = new SeatGrid(3, 5);
+        int[][] seats = new int[][]{
+                {0, 0, 2, 0, 2},
+                {0, 0, 0, 2, 0},
+                {2, 0, 2, 0, 2}};
+        SeatGridTestUtil.setGridSeats(actualSeatGrid, seats);
+
+        int[] heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(actualSeatGrid, 5);
+        assertThat(heldSeatIds.length, is(5));
+        assertThat(heldSeatIds[0], is(5));
+        assertThat(heldSeatIds[2], is(7));
+        assertThat(heldSeatIds[3], is(0));
+        assertThat(heldSeatIds[4], is(1));
+
+        int[] availableSeatIds = ticketHandlerDao.getAvailableSeatIds(actualSeatGrid);
+        assertThat(availableSeatIds.length, is(4));
+        assertThat(availableSeatIds[0], is(3));
+        assertThat(availableSeatIds[1], is(9));
+        assertThat(availableSeatIds[3], is(13));
+        assertThat(ticketHandlerDao.getAvailableSeatIds(actualSeatGrid, new int[2]), is(2));
+    }
+
+    /**
+     * This is to test to hold the best scored seats of a grid having a seat scoring model
+     * int[] getBestAvailableSeatIds(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+     */
+    @Test
+    public void testToHoldBestScoredSeats() {
+        SeatGrid actualSeatGrid = new SeatGrid(3, 7);
+        actualSeatGrid.setSeatScoringModel(new SightlineScoringModel());
+
+        int[] heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(actualSeatGrid, 3);
+        // the center of the back row
+        assertThat(heldSeatIds[0], is(16));
+        assertThat(heldSeatIds[2], is(18));
+
+        // 4 seats of the middle row over 4 seats of the front row, a better score than the whole middle row and a seat
+        heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(actualSeatGrid, 8);
+        assertThat(heldSeatIds[0], is(8));
+        assertThat(heldSeatIds[3], is(11));
+        assertThat(heldSeatIds[4], is(1));
+        assertThat(heldSeatIds[7], is(4));
+        assertThat(actualSeatGrid.getSeatCount(SeatStatus.HOLD), is(11));
+    }
+
+    /**
+     * This is to test to hold the seats of a price tier, only within the zones of the tier
+     * int[] getBestAvailableSeatIds(SeatGrid sourceSeatGrid, int numberOfRequestedSeats, String tier);
+     */
+    @Test
+    public void testToHoldSeatsOfATier() {
+        SeatGrid actualSeatGrid = new SeatGrid(5, 6);
+        actualSeatGrid.setSeatZones(Arrays.asList(new SeatZone("stalls", "STANDARD", 0, 2),
+                new SeatZone("balcony", "PREMIUM", 3, 4)));
+
+        int[] heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(actualSeatGrid, 4, "PREMIUM");
+        assertThat(heldSeatIds[0], is(24));
+        assertThat(heldSeatIds[3], is(27));
+        heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(actualSeatGrid, 4, "STANDARD");
+        assertThat(heldSeatIds[0], is(12));
+        assertThat(heldSeatIds[3], is(15));
+        assertThat(ticketHandlerDao.getAvailableSeatCount(actualSeatGrid, "PREMIUM"), is(8));
+        try {
+            ticketHandlerDao.getBestAvailableSeatIds(actualSeatGrid, 10, "PREMIUM");
+            fail("Not enough seats are available in tier PREMIUM to hold 10 seats");
+        } catch (CustomerRequestNotValidException ex) {
+            assertThat(ex.getMessage(), is("Not enough seats are available in tier PREMIUM to hold 10 seats"));
+        }
+        // the seats held before the failure are open again, and the other tier is not touched
+        assertThat(ticketHandlerDao.getAvailableSeatCount(actualSeatGrid, "PREMIUM"), is(8));
+        assertThat(ticketHandlerDao.getAvailableSeatCount(actualSeatGrid, "STANDARD"), is(14));
+    }
+
+    /**
+     * This is to test to hold the seats of an irregular venue, never across an aisle
+     * int[] getBestAvailableSeatIds(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+     */
+    @Test
+    public void testToHoldSeatsOfAnIrregularVenue() {
+        VenueLayout venueLayout = new VenueLayout(6, 8);
+        venueLayout.addAisle(4);
+        SeatGrid actualSeatGrid = new SeatGrid(venueLayout);
+
+        int[] heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(actualSeatGrid, 4);
+        assertThat(heldSeatIds[0], is(8));
+        assertThat(heldSeatIds[3], is(11));
+        heldSeatIds = ticketHandlerDao.getBestAvailableSeatIds(actualSeatGrid, 3);
+        assertThat(heldSeatIds[0], is(13));
+        assertThat(heldSeatIds[2], is(15));
+        assertThat(ticketHandlerDao.getAvailableSeatCount(actualSeatGrid), is(5));
+        assertThat(ticketHandlerDao.getAvailableSeatIds(actualSeatGrid).length, is(5));
+    }
+
+    /**
+     * This is to test the parallel scan of a large grid finds the same seat ids as the sequential scan
+     * int[] getAvailableSeatIds(SeatGrid sourceSeatGrid);
+     */
+    @Test
+    public void testParallelScanOfAvailableSeatIds() {
+        SeatGrid actualSeatGrid = new SeatGrid(300, 300);
+        Random random = new Random(7);
+        for (int i = 0; i < 30000; i++) {
+            actualSeatGrid.setSeatStatus(random.nextInt(300), random.nextInt(300),
+                    random.nextBoolean() ? SeatStatus.RESERVED : SeatStatus.HOLD);
+        }
+        int[] sequentialSeatIds = new int[actualSeatGrid.getSeatCount(SeatStatus.OPEN)];
+        assertThat(actualSeatGrid.getSeatIds(SeatStatus.OPEN, sequentialSeatIds), is(sequentialSeatIds.length));
+
+        TicketHandlerDaoImpl parallelTicketHandlerDao = new TicketHandlerDaoImpl();
+        parallelTicketHandlerDao.setParallelScanThreshold(1000);
+        int[] parallelSeatIds = parallelTicketHandlerDao.getAvailableSeatIds(actualSeatGrid);
+        assertTrue(Arrays.equals(parallelSeatIds, sequentialSeatIds));
+        List<Seat> availableSeats = parallelTicketHandlerDao.getAvailableSeatsAsList(actualSeatGrid);
+        assertThat(availableSeats.size(), is(sequentialSeatIds.length));
+        assertThat(availableSeats.get(1).getRow() * 300 + availableSeats.get(1).getColumn(),
+                is(sequentialSeatIds[1]));
+    }
+
+    /**
+     * This is to test the parallel scan never leaves out a seat which was available before the scan, while other seats
+     * of the same rows are released meanwhile
+     * int[] getAvailableSeatIds(SeatGrid sourceSeatGrid);
+     */
+    @Test
+    public void testParallelScanWhileSeatsAreReleased() throws Exception {
+        final SeatGrid actualSeatGrid = new SeatGrid(100, 100, SeatStatus.RESERVED);
+        final TicketHandlerDaoImpl parallelTicketHandlerDao = new TicketHandlerDaoImpl();
+        parallelTicketHandlerDao.setParallelScanThreshold(1000);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> releases = executorService.submit(new Runnable() {
+                public void run() {
+                    // the seats are released from the last column of every row down to the first
+                    for (int column = 99; column >= 0; column--) {
+                        for (int row = 0; row < 100; row++) {
+                            actualSeatGrid.setSeatStatus(row, column, SeatStatus.OPEN);
+                        }
+                    }
+                }
+            });
+            while (!releases.isDone()) {
+                int[] availableBefore = new int[actualSeatGrid.getNoOfSeats()];
+                availableBefore = Arrays.copyOf(availableBefore,
+                        actualSeatGrid.getSeatIds(SeatStatus.OPEN, availableBefore));
+                int[] availableSeatIds = parallelTicketHandlerDao.getAvailableSeatIds(actualSeatGrid);
+                for (int seatId : availableBefore) {
+                    assertTrue("The available seat " + seatId + " is missing",
+                            Arrays.binarySearch(availableSeatIds, seatId) >= 0);
+                }
+            }
+            releases.get();
+        } finally {
+            executorService.shutdown();
+        }
+        assertThat(parallelTicketHandlerDao.getAvailableSeatIds(actualSeatGrid).length, is(10000));
+    }
+
+    /**
+     * This is to test to hold more seats than available, the seats held so far must be open again
+     * List<Seat> getBestAvailableSeats(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+     */
+    @Test
+    public void testToHoldMoreSeatsThanAvailable() {
+        SeatGrid actualSeatGrid = new SeatGrid(2, 3);
+        int[][] seats = new int[][]{
+                {0, 2, 0},
+                {2, 0, 0}};
+        SeatGridTestUtil.setGridSeats(actualSeatGrid, seats);
+        try {
+            ticketHandlerDao.getBestAvailableSeats(actualSeatGrid, 5);
+            fail("Not enough seats are available to hold 5 seats");
+        } catch (CustomerRequestNotValidException ex) {
+            assertThat(ticketHandlerDao.getAvailableSeatsAsList(actualSeatGrid).size(), is(4));
+        }
+    }
+
+    /**
+     * This is to test that concurrent requests never get the same seat
+     * List<Seat> getBestAvailableSeats(SeatGrid sourceSeatGrid, int numberOfRequestedSeats);
+     */
+    @Test
+    public void testToHoldSeatsConcurrently() throws Exception {
+        final SeatGrid actualSeatGrid = new SeatGrid(40, 40);
+        final Set<Seat> heldSeats = Collections.newSetFromMap(new ConcurrentHashMap<Seat, Boolean>());
+        final AtomicInteger heldSeatCount = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<?>> results = new ArrayList<Future<?>>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executorService.submit(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 60; j++) {
+                        List<Seat> seats = ticketHandlerDao.getBestAvailableSeats(actualSeatGrid, 3);
+                        heldSeats.addAll(seats);
+                        heldSeatCount.addAndGet(seats.size());
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executorService.shutdown();
+
+        assertThat(heldSeatCount.get(), is(1440));
+        assertThat(heldSeats.size(), is(1440));
+        assertThat(ticketHandlerDao.getAvailableSeatsAsList(actualSeatGrid).size(), is(160));
+        assertThat(ticketHandlerDao.getAvailableSeatCount(actualSeatGrid), is(160));
     }
 }
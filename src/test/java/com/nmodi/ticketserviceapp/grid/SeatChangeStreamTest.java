@@ -0,0 +1,196 @@
+package com.nmodi.ticketserviceapp.grid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a junit test to test the methods in SeatChangeStream class
+ * {@link SeatChangeStream}
+ */
+public class SeatChangeStreamTest {
+
+    /**
+     * This is to test the changes of the seats are read in sequence, with their previous and new status
+     * public int poll(SeatChangeListener seatChangeListener, int maxChanges)
+     */
+    @Test
+    public void testChangesAreReadInSequence() {
+        SeatGrid seatGrid = new SeatGrid(3, 4);
+        seatGrid.setSeatStatus(0, 0, SeatStatus.RESERVED);
+        seatGrid.setSeatChangeStream(new SeatChangeStream(8));
+        SeatChangeStream.Subscription subscription = seatGrid.getSeatChangeStream().subscribe();
+
+        seatGrid.setSeatStatus(1, 2, SeatStatus.HOLD);
+        // an unchanged seat is not published
+        seatGrid.setSeatStatus(1, 2, SeatStatus.HOLD);
+        seatGrid.compareAndSetSeatStatus(1, 2, SeatStatus.HOLD, SeatStatus.RESERVED);
+        SeatGrid.Cursor cursor = seatGrid.cursor().moveTo(2, 3);
+        seatGrid.getRowLock(2).lock();
+        try {
+            cursor.setSeatStatus(SeatStatus.HOLD);
+            cursor.setSeatStatus(SeatStatus.OPEN);
+        } finally {
+            seatGrid.getRowLock(2).unlock();
+        }
+
+        final List<String> changes = new ArrayList<String>();
+        SeatChangeListener seatChangeListener = new SeatChangeListener() {
+            public void seatChanged(long sequence, int seatId, SeatStatus previousSeatStatus, SeatStatus seatStatus) {
+                changes.add(sequence + ":" + seatId + ":" + previousSeatStatus + ">" + seatStatus);
+            }
+        };
+        assertThat(subscription.poll(seatChangeListener, 3), is(3));
+        assertThat(subscription.poll(seatChangeListener, 10), is(1));
+        assertThat(subscription.poll(seatChangeListener, 10), is(0));
+        assertThat(changes, is(Arrays.asList("0:6:OPEN>HOLD", "1:6:HOLD>RESERVED", "2:11:OPEN>HOLD",
+                "3:11:HOLD>OPEN")));
+        assertThat(subscription.getSequence(), is(4L));
+        assertThat(seatGrid.getSeatChangeStream().getNextSequence(), is(4L));
+    }
+
+    /**
+     * This is to test a subscriber falling behind by more than the capacity is overrun, and resyncs from the grid
+     * public boolean isOverrun()
+     */
+    @Test
+    public void testOverrunSubscriberResyncs() {
+        SeatGrid seatGrid = new SeatGrid(4, 4);
+        SeatChangeStream seatChangeStream = new SeatChangeStream(4);
+        seatGrid.setSeatChangeStream(seatChangeStream);
+        SeatChangeStream.Subscription subscription = seatChangeStream.subscribe();
+        for (int column = 0; column < 4; column++) {
+            seatGrid.setSeatStatus(0, column, SeatStatus.RESERVED);
+        }
+        seatGrid.setSeatStatus(1, 0, SeatStatus.RESERVED);
+
+        int[] seatStatuses = new int[seatGrid.getNoOfSeats()];
+        assertThat(subscription.poll(new SeatMap(seatStatuses), 10), is(-1));
+        assertTrue(subscription.isOverrun());
+
+        subscription = seatChangeStream.subscribe();
+        seatStatuses = readSeats(seatGrid);
+        seatGrid.setSeatStatus(3, 3, SeatStatus.HOLD);
+        assertThat(subscription.poll(new SeatMap(seatStatuses), 10), is(1));
+        assertThat(seatStatuses, is(readSeats(seatGrid)));
+    }
+
+    /**
+     * This is to test a publisher delayed by a lap doesn't overwrite the newer change of its slot
+     * void publish(long sequence, int seatId, int previousValue, int newValue)
+     */
+    @Test
+    public void testDelayedPublisherDoesNotOverwriteNewerChange() {
+        SeatChangeStream seatChangeStream = new SeatChangeStream(4);
+        SeatChangeStream.Subscription subscription = seatChangeStream.subscribe();
+        long delayedSequence = seatChangeStream.claimSequence();
+        for (int seatId = 1; seatId < 4; seatId++) {
+            seatChangeStream.publish(seatId, 0, 2);
+        }
+        SeatChangeStream.Subscription lateSubscription = seatChangeStream.subscribe();
+        seatChangeStream.publish(4, 0, 1);
+        seatChangeStream.publish(delayedSequence, 0, 0, 2);
+
+        final List<String> changes = new ArrayList<String>();
+        SeatChangeListener seatChangeListener = new SeatChangeListener() {
+            public void seatChanged(long sequence, int seatId, SeatStatus previousSeatStatus, SeatStatus seatStatus) {
+                changes.add(sequence + ":" + seatId + ":" + previousSeatStatus + ">" + seatStatus);
+            }
+        };
+        assertThat(lateSubscription.poll(seatChangeListener, 10), is(1));
+        assertThat(changes, is(Arrays.asList("4:4:OPEN>HOLD")));
+        // the subscriber waiting for the delayed change is overrun instead
+        assertThat(subscription.poll(seatChangeListener, 10), is(-1));
+    }
+
+    /**
+     * This is to test a subscriber applying the changes made by many threads ends with the seats of the grid
+     */
+    @Test
+    public void testSeatMapFollowsConcurrentChanges() throws InterruptedException {
+        final SeatGrid seatGrid = new SeatGrid(20, 30);
+        seatGrid.setSeatChangeStream(new SeatChangeStream(1024));
+        SeatChangeStream.Subscription subscription = seatGrid.getSeatChangeStream().subscribe();
+        int[] seatStatuses = readSeats(seatGrid);
+        SeatMap seatMap = new SeatMap(seatStatuses);
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final Random random = new Random(i);
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 20000; j++) {
+                        seatGrid.setSeatStatus(random.nextInt(20), random.nextInt(30),
+                                SeatStatus.values()[random.nextInt(3)]);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        boolean running = true;
+        while (running) {
+            running = false;
+            for (Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+            if (subscription.poll(seatMap, 256) < 0) {
+                // resync from the grid as a renderer would
+                subscription = seatGrid.getSeatChangeStream().subscribe();
+                seatStatuses = readSeats(seatGrid);
+                seatMap = new SeatMap(seatStatuses);
+            }
+        }
+        assertTrue(subscription.poll(seatMap, Integer.MAX_VALUE) >= 0);
+        assertThat(seatStatuses, is(readSeats(seatGrid)));
+    }
+
+    /**
+     * This method reads the status value of every seat of the grid.
+     *
+     * @param seatGrid The seat grid.
+     * @return The status values by seat id
+     */
+    private static int[] readSeats(SeatGrid seatGrid) {
+        int[] seatStatuses = new int[seatGrid.getNoOfSeats()];
+        for (SeatStatus seatStatus : SeatStatus.values()) {
+            int[] seatIds = new int[seatGrid.getNoOfSeats()];
+            int noOfSeatIds = seatGrid.getSeatIds(seatStatus, seatIds);
+            for (int i = 0; i < noOfSeatIds; i++) {
+                seatStatuses[seatIds[i]] = seatStatus.getSeatStatusValue();
+            }
+        }
+        return seatStatuses;
+    }
+
+    /**
+     * This class applies the changes to the status values of the seats, as a seat map would.
+     */
+    private static class SeatMap implements SeatChangeListener {
+
+        /**
+         * The status values by seat id
+         */
+        private final int[] seatStatuses;
+
+        /**
+         * Constructor for a SeatMap.
+         *
+         * @param seatStatuses The status values by seat id.
+         */
+        private SeatMap(int[] seatStatuses) {
+            this.seatStatuses = seatStatuses;
+        }
+
+        @Override
+        public void seatChanged(long sequence, int seatId, SeatStatus previousSeatStatus, SeatStatus seatStatus) {
+            seatStatuses[seatId] = seatStatus.getSeatStatusValue();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.nmodi.ticketserviceapp.grid;
+
+import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This is a junit test to test the methods in SeatGridSnapshot class
+ * {@link SeatGridSnapshot}
+ */
+public class SeatGridSnapshotTest {
+
+    /**
+     * This is to test a snapshot restores the seats of the grid, with the held seats available again
+     */
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        SeatGrid seatGrid = new SeatGrid(50, 70);
+        Random random = new Random(42);
+        for (int i = 0; i < 1500; i++) {
+            seatGrid.setSeatStatus(random.nextInt(50), random.nextInt(70),
+                    random.nextBoolean() ? SeatStatus.RESERVED : SeatStatus.HOLD);
+        }
+
+        SeatGrid restoredSeatGrid = SeatGridSnapshot.read(Channels.newChannel(
+                new ByteArrayInputStream(writeSnapshot(seatGrid))));
+
+        assertThat(restoredSeatGrid.getNoOfRows(), is(50));
+        assertThat(restoredSeatGrid.getNoOfColumns(), is(70));
+        for (int row = 0; row < 50; row++) {
+            for (int column = 0; column < 70; column++) {
+                SeatStatus seatStatus = seatGrid.getSeatStatus(row, column);
+                assertThat(restoredSeatGrid.getSeatStatus(row, column),
+                        is(seatStatus == SeatStatus.HOLD ? SeatStatus.OPEN : seatStatus));
+            }
+            assertThat(restoredSeatGrid.getSeatCount(row, SeatStatus.RESERVED),
+                    is(seatGrid.getSeatCount(row, SeatStatus.RESERVED)));
+        }
+        assertThat(restoredSeatGrid.getSeatCount(SeatStatus.HOLD), is(0));
+        assertThat(restoredSeatGrid.getSeatCount(SeatStatus.OPEN),
+                is(seatGrid.getSeatCount(SeatStatus.OPEN) + seatGrid.getSeatCount(SeatStatus.HOLD)));
+    }
+
+    /**
+     * This is to test the open blocks of a restored grid, and the size of a snapshot of whole rows
+     */
+    @Test
+    public void testRestoredOpenBlocks() throws IOException {
+        SeatGrid seatGrid = new SeatGrid(3, 100);
+        seatGrid.setSeatStatus(0, 40, SeatStatus.RESERVED);
+        seatGrid.setSeatStatus(0, 41, SeatStatus.HOLD);
+        seatGrid.setSeatStatus(2, 99, SeatStatus.RESERVED);
+
+        byte[] snapshot = writeSnapshot(seatGrid);
+        // the header, the rows of 4, 1 and 2 runs and the checksum
+        assertThat(snapshot.length, is(SeatGridSnapshot.HEADER_SIZE + 7 + 3 + 4 + 4));
+        SeatGrid restoredSeatGrid = SeatGridSnapshot.read(Channels.newChannel(new ByteArrayInputStream(snapshot)));
+
+        assertThat(restoredSeatGrid.getLargestOpenBlock(0), is(59));
+        assertThat(restoredSeatGrid.findBestFitOpenBlock(0, 59), is(41));
+        assertThat(restoredSeatGrid.findBestFitOpenBlock(0, 40), is(0));
+        assertThat(restoredSeatGrid.getLargestOpenBlock(1), is(100));
+        assertThat(restoredSeatGrid.getLargestOpenBlock(2), is(99));
+        assertThat(restoredSeatGrid.findLastRowWithOpenBlock(100), is(1));
+        restoredSeatGrid.setSeatStatus(0, 40, SeatStatus.OPEN);
+        assertThat(restoredSeatGrid.getLargestOpenBlock(0), is(100));
+    }
+
+    /**
+     * This is to test a snapshot restores the layout of an irregular venue with its seats
+     */
+    @Test
+    public void testIrregularSnapshotRoundTrip() throws IOException {
+        VenueLayout venueLayout = new VenueLayout(10, 36, 70);
+        venueLayout.addAisle(5);
+        venueLayout.addMissingSeat(2, 40);
+        venueLayout.addMissingSeat(2, 41);
+        SeatGrid seatGrid = new SeatGrid(venueLayout);
+        seatGrid.setSeatStatus(1, 35, SeatStatus.RESERVED);
+        seatGrid.setSeatStatus(2, 42, SeatStatus.RESERVED);
+        seatGrid.setSeatStatus(2, 0, SeatStatus.HOLD);
+
+        SeatGrid restoredSeatGrid = SeatGridSnapshot.read(Channels.newChannel(
+                new ByteArrayInputStream(writeSnapshot(seatGrid))));
+
+        assertThat(restoredSeatGrid.getNoOfColumns(), is(70));
+        assertThat(restoredSeatGrid.getNoOfSeats(), is(seatGrid.getNoOfSeats()));
+        for (int row = 0; row < 3; row++) {
+            assertThat(restoredSeatGrid.getRowLength(row), is(seatGrid.getRowLength(row)));
+            for (int column = 0; column < 70; column++) {
+                assertThat(restoredSeatGrid.isSeat(row, column), is(seatGrid.isSeat(row, column)));
+            }
+            assertThat(restoredSeatGrid.getLargestOpenBlock(row), is(seatGrid.getLargestOpenBlock(row)));
+        }
+        assertThat(restoredSeatGrid.getSeatStatus(2, 42), is(SeatStatus.RESERVED));
+        assertThat(restoredSeatGrid.getSeatStatus(2, 0), is(SeatStatus.OPEN));
+        assertThat(restoredSeatGrid.getSeatCount(SeatStatus.RESERVED), is(2));
+        assertThat(restoredSeatGrid.getSeatCount(SeatStatus.OPEN), is(seatGrid.getNoOfSeats() - 2));
+    }
+
+    /**
+     * This is to test a corrupted or truncated snapshot is rejected
+     */
+    @Test
+    public void testCorruptedSnapshot() throws IOException {
+        SeatGrid seatGrid = new SeatGrid(10, 10);
+        seatGrid.setSeatStatus(5, 5, SeatStatus.RESERVED);
+        byte[] snapshot = writeSnapshot(seatGrid);
+
+        byte[] corruptedSnapshot = snapshot.clone();
+        corruptedSnapshot[SeatGridSnapshot.HEADER_SIZE + 7] ^= 0x04;
+        try {
+            SeatGridSnapshot.read(Channels.newChannel(new ByteArrayInputStream(corruptedSnapshot)));
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertTrue(ex.getMessage().startsWith("The seat grid snapshot"));
+        }
+        try {
+            SeatGridSnapshot.read(Channels.newChannel(new ByteArrayInputStream(snapshot, 0, snapshot.length - 2)));
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("The seat grid snapshot is truncated"));
+        }
+    }
+
+    /**
+     * This method writes the snapshot of a grid.
+     *
+     * @param seatGrid The seat grid.
+     * @return The snapshot
+     * @throws IOException if the snapshot can't be written
+     */
+    private static byte[] writeSnapshot(SeatGrid seatGrid) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SeatGridSnapshot.write(seatGrid, Channels.newChannel(outputStream));
+        return outputStream.toByteArray();
+    }
+}
@@ -5,7 +5,15 @@ import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
 import com.nmodi.ticketserviceapp.util.SeatGridTestUtil;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -23,6 +31,12 @@ public class SeatGridTest {
      */
     private SeatGrid seatGrid = null;
 
+    /**
+     * The folder of the seat grid files
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /**
      * Test set up settings
      */
@@ -137,8 +151,439 @@ public class SeatGridTest {
         }
     }
 
+    /**
+     * This is to test that seats spread across several packed words keep their own status
+     * public void setSeatStatus(int row, int column, SeatStatus seatStatus) - Success Scenario
+     */
+    @Test
+    public void testUpdateSeatStatusAcrossWordBoundaries() {
+        SeatGrid wideSeatGrid = new SeatGrid(3, 70);
+        wideSeatGrid.setSeatStatus(1, 31, SeatStatus.RESERVED);
+        wideSeatGrid.setSeatStatus(1, 32, SeatStatus.HOLD);
+        wideSeatGrid.setSeatStatus(1, 69, SeatStatus.RESERVED);
+        wideSeatGrid.setSeatStatus(2, 0, SeatStatus.HOLD);
+
+        assertThat(wideSeatGrid.getSeatStatus(1, 30), is(SeatStatus.OPEN));
+        assertThat(wideSeatGrid.getSeatStatus(1, 31), is(SeatStatus.RESERVED));
+        assertThat(wideSeatGrid.getSeatStatus(1, 32), is(SeatStatus.HOLD));
+        assertThat(wideSeatGrid.getSeatStatus(1, 33), is(SeatStatus.OPEN));
+        assertThat(wideSeatGrid.getSeatStatus(1, 69), is(SeatStatus.RESERVED));
+        assertThat(wideSeatGrid.getSeatStatus(2, 0), is(SeatStatus.HOLD));
+        assertThat(wideSeatGrid.getSeatStatus(0, 69), is(SeatStatus.OPEN));
+
+        wideSeatGrid.setSeatStatus(1, 31, SeatStatus.OPEN);
+        assertThat(wideSeatGrid.getSeatStatus(1, 31), is(SeatStatus.OPEN));
+        assertThat(wideSeatGrid.getSeatStatus(1, 32), is(SeatStatus.HOLD));
+    }
+
+    /**
+     * This is to test creating SeatGrid with an initial seat status - Success Scenario
+     */
+    @Test
+    public void testCreateSeatGridWithInitialSeatStatus() {
+        SeatGrid reservedSeatGrid = new SeatGrid(2, 33, SeatStatus.RESERVED);
+        for (int row = 0; row < 2; row++) {
+            for (int column = 0; column < 33; column++) {
+                assertThat(reservedSeatGrid.getSeatStatus(row, column), is(SeatStatus.RESERVED));
+            }
+        }
+        try {
+            reservedSeatGrid.getSeatStatus(0, 33);
+            fail("Test case fails if it reaches here.");
+        } catch(SeatingArrangementNotValidException e) {
+            assertTrue(true);
+        }
+    }
+
+    /**
+     * This is to test the open block index is kept up to date when seats are closed and opened again
+     * public int findLastRowWithOpenBlock(int blockSize) - Success Scenario
+     */
+    @Test
+    public void testOpenBlocksFollowSeatStatusUpdates() {
+        assertThat(seatGrid.getLargestOpenBlock(), is(8));
+        assertThat(seatGrid.findLastRowWithOpenBlock(8), is(2));
+        assertThat(seatGrid.findLastRowWithOpenBlock(2), is(2));
+        assertThat(seatGrid.findLastRowWithOpenBlock(1), is(7));
+
+        seatGrid.setSeatStatus(2, 3, SeatStatus.HOLD);
+        assertThat(seatGrid.getLargestOpenBlock(2), is(4));
+        assertThat(seatGrid.findBestFitOpenBlock(2, 4), is(4));
+        assertThat(seatGrid.findBestFitOpenBlock(2, 2), is(0));
+        assertThat(seatGrid.findLastRowWithOpenBlock(5), is(-1));
+
+        seatGrid.setSeatStatus(2, 3, SeatStatus.OPEN);
+        assertThat(seatGrid.getLargestOpenBlock(), is(8));
+        assertThat(seatGrid.findBestFitOpenBlock(2, 5), is(0));
+    }
+
+    /**
+     * This is to test the seat counts are kept up to date when seats are updated
+     * public int getSeatCount(SeatStatus seatStatus) - Success Scenario
+     */
+    @Test
+    public void testSeatCountsFollowSeatStatusUpdates() {
+        assertThat(seatGrid.getSeatCount(SeatStatus.OPEN), is(29));
+        assertThat(seatGrid.getSeatCount(SeatStatus.HOLD), is(17));
+        assertThat(seatGrid.getSeatCount(SeatStatus.RESERVED), is(18));
+        assertThat(seatGrid.getSeatCount(1, SeatStatus.HOLD), is(4));
+
+        seatGrid.setSeatStatus(1, 0, SeatStatus.HOLD);
+        seatGrid.setSeatStatus(1, 1, SeatStatus.RESERVED);
+        // setting the same status again is not counted twice
+        seatGrid.setSeatStatus(1, 1, SeatStatus.RESERVED);
+
+        assertThat(seatGrid.getSeatCount(SeatStatus.OPEN), is(28));
+        assertThat(seatGrid.getSeatCount(SeatStatus.HOLD), is(17));
+        assertThat(seatGrid.getSeatCount(SeatStatus.RESERVED), is(19));
+        assertThat(seatGrid.getSeatCount(1, SeatStatus.OPEN), is(2));
+        assertThat(seatGrid.getSeatCount(1, SeatStatus.RESERVED), is(2));
+        assertThat(new SeatGrid(3, 40, SeatStatus.RESERVED).getSeatCount(SeatStatus.RESERVED), is(120));
+    }
+
+    /**
+     * This is to test the seats of a mapped grid survive a reopen, with the held seats available again
+     * public static SeatGrid openMapped(File file, int noOfRows, int noOfColumns) - Success Scenario
+     */
+    @Test
+    public void testMappedSeatGridSurvivesReopen() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "venue.seats");
+        SeatGrid mappedSeatGrid = SeatGrid.openMapped(file, 3, 40);
+        assertTrue(mappedSeatGrid.isMapped());
+        assertThat(file.length(), is((long) SeatGrid.FILE_HEADER_SIZE + 3 * 2 * 8));
+        mappedSeatGrid.setSeatStatus(0, 33, SeatStatus.RESERVED);
+        mappedSeatGrid.setSeatStatus(2, 0, SeatStatus.RESERVED);
+        mappedSeatGrid.setSeatStatus(2, 1, SeatStatus.HOLD);
+        mappedSeatGrid.flush();
+
+        SeatGrid reopenedSeatGrid = SeatGrid.openMapped(file, 3, 40);
+        assertThat(reopenedSeatGrid.getSeatStatus(0, 33), is(SeatStatus.RESERVED));
+        assertThat(reopenedSeatGrid.getSeatStatus(2, 0), is(SeatStatus.RESERVED));
+        assertThat(reopenedSeatGrid.getSeatStatus(2, 1), is(SeatStatus.OPEN));
+        assertThat(reopenedSeatGrid.getSeatCount(SeatStatus.OPEN), is(118));
+        assertThat(reopenedSeatGrid.getSeatCount(SeatStatus.HOLD), is(0));
+        assertThat(reopenedSeatGrid.getSeatCount(0, SeatStatus.RESERVED), is(1));
+        assertThat(reopenedSeatGrid.getLargestOpenBlock(0), is(33));
+        assertThat(reopenedSeatGrid.getLargestOpenBlock(2), is(39));
+        assertThat(reopenedSeatGrid.findLastRowWithOpenBlock(40), is(1));
+        assertThat(SeatGrid.openMapped(file).getNoOfColumns(), is(40));
+    }
+
+    /**
+     * This is to test a seat grid file which does not match the venue or is not valid
+     * public static SeatGrid openMapped(File file, int noOfRows, int noOfColumns) - Failure Scenario
+     */
+    @Test
+    public void testMappedSeatGridWithInvalidFile() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "venue.seats");
+        SeatGrid.openMapped(file, 4, 4);
+        try {
+            SeatGrid.openMapped(file, 4, 5);
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("The seat grid file " + file + " has 4X4 seats instead of 4X5"));
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.writeInt(0);
+        randomAccessFile.close();
+        try {
+            SeatGrid.openMapped(file);
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("The seat grid file " + file + " is not valid"));
+        }
+    }
+
     @Test
     public void testSeat() {
         Seat[][] seats = new Seat[5][5];
     }
+
+    /**
+     * This is to test the seat ids of the seats having a status, across word boundaries and without the padding
+     * public int getSeatIds(SeatStatus seatStatus, int[] seatIds) - Success Scenario
+     */
+    @Test
+    public void testGetSeatIdsByStatus() {
+        SeatGrid wideSeatGrid = new SeatGrid(2, 35, SeatStatus.RESERVED);
+        wideSeatGrid.setSeatStatus(0, 0, SeatStatus.OPEN);
+        wideSeatGrid.setSeatStatus(0, 31, SeatStatus.OPEN);
+        wideSeatGrid.setSeatStatus(0, 32, SeatStatus.OPEN);
+        wideSeatGrid.setSeatStatus(1, 34, SeatStatus.OPEN);
+        wideSeatGrid.setSeatStatus(1, 3, SeatStatus.HOLD);
+
+        int[] seatIds = new int[10];
+        assertThat(wideSeatGrid.getSeatIds(SeatStatus.OPEN, seatIds), is(4));
+        assertThat(seatIds[0], is(0));
+        assertThat(seatIds[1], is(31));
+        assertThat(seatIds[2], is(32));
+        assertThat(seatIds[3], is(69));
+        assertThat(wideSeatGrid.getSeatIds(SeatStatus.HOLD, seatIds), is(1));
+        assertThat(seatIds[0], is(38));
+        // the array is filled up to its length
+        assertThat(wideSeatGrid.getSeatIds(SeatStatus.RESERVED, new int[3]), is(3));
+        assertThat(wideSeatGrid.getSeatIds(SeatStatus.RESERVED, new int[100]), is(65));
+    }
+
+    /**
+     * This is to test the best scored block of open seats is found, and found again once it is taken
+     * public int findBestScoredOpenBlock(int blockSize) - Success Scenario
+     */
+    @Test
+    public void testFindBestScoredOpenBlock() {
+        SeatGrid scoredSeatGrid = new SeatGrid(5, 9);
+        scoredSeatGrid.setSeatScoringModel(new SightlineScoringModel());
+
+        // the center of the back row
+        assertThat(scoredSeatGrid.findBestScoredOpenBlock(3), is(39));
+        assertThat(scoredSeatGrid.getBlockScore(4, 3, 3), is(8L));
+        scoredSeatGrid.setSeatStatus(4, 4, SeatStatus.RESERVED);
+        // the center of the row before is better than a side of the back row
+        assertThat(scoredSeatGrid.findBestScoredOpenBlock(3), is(30));
+        assertThat(scoredSeatGrid.findBestScoredOpenBlock(10), is(-1));
+        assertTrue(scoredSeatGrid.isOpenBlock(4, 0, 4));
+        assertThat(scoredSeatGrid.isOpenBlock(4, 2, 3), is(false));
+        try {
+            new SeatGrid(2, 2).findBestScoredOpenBlock(1);
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("No seat scoring model is set for the seat grid"));
+        }
+    }
+
+    /**
+     * This is to test the best scored block of a fragmented grid against every open block of the grid
+     * public int findBestScoredOpenBlock(int blockSize) - Success Scenario
+     */
+    @Test
+    public void testFindBestScoredOpenBlockOfFragmentedGrid() {
+        SeatGrid scoredSeatGrid = new SeatGrid(20, 40);
+        SightlineScoringModel seatScoringModel = new SightlineScoringModel();
+        seatScoringModel.setRowWeight(3);
+        scoredSeatGrid.setSeatScoringModel(seatScoringModel);
+        Random random = new Random(11);
+        for (int i = 0; i < 400; i++) {
+            scoredSeatGrid.setSeatStatus(random.nextInt(20), random.nextInt(40), SeatStatus.RESERVED);
+        }
+
+        for (int blockSize = 1; blockSize <= 6; blockSize++) {
+            long bestScore = Long.MIN_VALUE;
+            for (int row = 0; row < 20; row++) {
+                for (int column = 0; column + blockSize <= 40; column++) {
+                    if (scoredSeatGrid.isOpenBlock(row, column, blockSize)) {
+                        bestScore = Math.max(bestScore, scoredSeatGrid.getBlockScore(row, column, blockSize));
+                    }
+                }
+            }
+            int seatId = scoredSeatGrid.findBestScoredOpenBlock(blockSize);
+            int row = scoredSeatGrid.getSeatRow(seatId);
+            int column = scoredSeatGrid.getSeatColumn(seatId);
+            assertTrue(scoredSeatGrid.isOpenBlock(row, column, blockSize));
+            assertThat(scoredSeatGrid.getBlockScore(row, column, blockSize), is(bestScore));
+        }
+    }
+
+    /**
+     * This is to test the best scored block of an irregular venue is centered on the seats of its own row
+     * public int findBestScoredOpenBlock(int blockSize) - Success Scenario
+     */
+    @Test
+    public void testFindBestScoredOpenBlockOfIrregularVenue() {
+        SeatGrid irregularSeatGrid = new SeatGrid(new VenueLayout(4, 10));
+        irregularSeatGrid.setSeatScoringModel(new SightlineScoringModel());
+        for (int column = 0; column < 10; column++) {
+            irregularSeatGrid.setSeatStatus(1, column, SeatStatus.RESERVED);
+        }
+        assertThat(irregularSeatGrid.findBestScoredOpenBlock(2), is(1));
+
+        VenueLayout venueLayout = new VenueLayout(5, 5);
+        venueLayout.addAisle(0);
+        SeatGrid aisleSeatGrid = new SeatGrid(venueLayout);
+        aisleSeatGrid.setSeatScoringModel(new SightlineScoringModel());
+        assertThat(aisleSeatGrid.findBestScoredOpenBlock(2), is(aisleSeatGrid.getSeatId(1, 2)));
+    }
+
+    /**
+     * This is to test the seats of the zones are counted, and the open blocks are searched within the rows of a zone
+     * public void setSeatZones(List<SeatZone> seatZones) - Success Scenario
+     */
+    @Test
+    public void testSeatZones() {
+        SeatGrid zonedSeatGrid = new SeatGrid(6, 10);
+        zonedSeatGrid.setSeatStatus(5, 0, SeatStatus.RESERVED);
+        zonedSeatGrid.setSeatStatus(5, 1, SeatStatus.RESERVED);
+        zonedSeatGrid.setSeatZones(Arrays.asList(new SeatZone("stalls", "STANDARD", 0, 2),
+                new SeatZone("box", "PREMIUM", 3, 3), new SeatZone("balcony", "PREMIUM", 4, 5)));
+
+        // the seats changed before the zoning are counted
+        assertThat(zonedSeatGrid.getZoneSeatCount("balcony", SeatStatus.OPEN), is(18));
+        assertThat(zonedSeatGrid.getZoneSeatCount("balcony", SeatStatus.RESERVED), is(2));
+        assertThat(zonedSeatGrid.getTierSeatCount("PREMIUM", SeatStatus.OPEN), is(28));
+        zonedSeatGrid.setSeatStatus(1, 1, SeatStatus.HOLD);
+        assertThat(zonedSeatGrid.getZoneSeatCount("stalls", SeatStatus.OPEN), is(29));
+        assertThat(zonedSeatGrid.getTierSeatCount("STANDARD", SeatStatus.HOLD), is(1));
+        assertThat(zonedSeatGrid.getTierZones("PREMIUM").size(), is(2));
+
+        assertThat(zonedSeatGrid.findLastRowWithOpenBlock(10, 0, 2), is(2));
+        zonedSeatGrid.setSeatStatus(2, 9, SeatStatus.RESERVED);
+        assertThat(zonedSeatGrid.findLastRowWithOpenBlock(10, 0, 2), is(0));
+        assertThat(zonedSeatGrid.findLastRowWithOpenBlock(10, 1, 2), is(-1));
+        assertThat(zonedSeatGrid.getLargestOpenBlock(4, 5), is(10));
+        assertThat(zonedSeatGrid.getLargestOpenBlock(5, 5), is(8));
+    }
+
+    /**
+     * This is to test zones which overlap, and a tier which is not zoned
+     * public void setSeatZones(List<SeatZone> seatZones) - Failure Scenario
+     */
+    @Test
+    public void testSeatZonesNotValid() {
+        SeatGrid zonedSeatGrid = new SeatGrid(6, 10);
+        try {
+            zonedSeatGrid.setSeatZones(Arrays.asList(new SeatZone("stalls", "STANDARD", 0, 3),
+                    new SeatZone("balcony", "PREMIUM", 3, 5)));
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("The zone balcony overlaps the zone stalls"));
+        }
+        assertThat(zonedSeatGrid.getSeatZones().isEmpty(), is(true));
+        zonedSeatGrid.setSeatZones(Arrays.asList(new SeatZone("stalls", "STANDARD", 0, 5)));
+        try {
+            zonedSeatGrid.getTierSeatCount("PREMIUM", SeatStatus.OPEN);
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("No zone of the seat grid has the tier PREMIUM"));
+        }
+    }
+
+    /**
+     * This is to test the stacks of open blocks of the rows next to each other, starting at the same column
+     * public int findStackedOpenBlock(int requiredSeatCount, int noOfStackedRows, int firstRow, int lastRow)
+     */
+    @Test
+    public void testFindStackedOpenBlock() {
+        SeatGrid stackedSeatGrid = new SeatGrid(3, 6);
+        stackedSeatGrid.setSeatStatus(2, 0, SeatStatus.RESERVED);
+        stackedSeatGrid.setSeatStatus(2, 1, SeatStatus.RESERVED);
+
+        // 4 seats of the row 2 over 3 seats of the row 1
+        assertThat(stackedSeatGrid.findStackedOpenBlock(7, 2, 0, 2), is(8));
+        assertThat(stackedSeatGrid.findStackedOpenBlock(7, 2, 0, 1), is(0));
+        // 3, 3 and 1 seats
+        assertThat(stackedSeatGrid.findStackedOpenBlock(7, 3, 0, 2), is(2));
+        // 4 seats can't be split evenly on 3 rows, nor stacked on more rows than the range
+        assertThat(stackedSeatGrid.findStackedOpenBlock(4, 3, 0, 2), is(-1));
+        assertThat(stackedSeatGrid.findStackedOpenBlock(4, 3, 1, 2), is(-1));
+        assertThat(SeatGrid.getStackedBlockSize(7, 3), is(3));
+
+        stackedSeatGrid.setSeatStatus(2, 2, SeatStatus.RESERVED);
+        assertThat(stackedSeatGrid.findStackedOpenBlock(4, 2, 0, 2), is(9));
+        // the center seats of the front rows beat the side seats of the back rows
+        SightlineScoringModel sightlineScoringModel = new SightlineScoringModel();
+        sightlineScoringModel.setCenterWeight(2);
+        stackedSeatGrid.setSeatScoringModel(sightlineScoringModel);
+        assertThat(stackedSeatGrid.findStackedOpenBlock(4, 2, 0, 2), is(2));
+        stackedSeatGrid.setSeatStatus(0, 3, SeatStatus.HOLD);
+        assertThat(stackedSeatGrid.findStackedOpenBlock(4, 2, 0, 2), is(9));
+    }
+
+    /**
+     * This is to test the seats, the counts and the open blocks of an irregular venue
+     * public SeatGrid(VenueLayout venueLayout)
+     */
+    @Test
+    public void testIrregularVenueLayout() {
+        VenueLayout venueLayout = new VenueLayout(8, 10, 40);
+        venueLayout.addAisle(4);
+        venueLayout.addMissingSeat(2, 35);
+        SeatGrid irregularSeatGrid = new SeatGrid(venueLayout);
+
+        assertThat(irregularSeatGrid.getNoOfColumns(), is(40));
+        assertThat(irregularSeatGrid.getRowLength(0), is(8));
+        assertThat(irregularSeatGrid.getNoOfSeats(), is(54));
+        assertThat(irregularSeatGrid.getSeatCount(SeatStatus.OPEN), is(54));
+        assertThat(irregularSeatGrid.getSeatCount(0, SeatStatus.OPEN), is(7));
+        assertThat(irregularSeatGrid.isSeat(0, 8), is(false));
+        assertThat(irregularSeatGrid.isSeat(1, 4), is(false));
+        assertThat(irregularSeatGrid.isSeat(2, 35), is(false));
+        assertThat(irregularSeatGrid.isSeat(2, 39), is(true));
+
+        // the aisle and the missing seat split the open blocks
+        assertThat(irregularSeatGrid.getLargestOpenBlock(0), is(4));
+        assertThat(irregularSeatGrid.getLargestOpenBlock(1), is(5));
+        assertThat(irregularSeatGrid.getLargestOpenBlock(2), is(30));
+        assertThat(irregularSeatGrid.findBestFitOpenBlock(1, 5), is(5));
+        assertThat(irregularSeatGrid.findBestFitOpenBlock(2, 4), is(0));
+        assertThat(irregularSeatGrid.findLastRowWithOpenBlock(31), is(-1));
+        irregularSeatGrid.setSeatStatus(2, 20, SeatStatus.RESERVED);
+        assertThat(irregularSeatGrid.findLastRowWithOpenBlock(16), is(-1));
+        assertThat(irregularSeatGrid.findLastRowWithOpenBlock(5), is(2));
+
+        int[] seatIds = new int[54];
+        assertThat(irregularSeatGrid.getSeatIds(SeatStatus.OPEN, seatIds), is(53));
+        assertThat(seatIds[3], is(3));
+        assertThat(seatIds[4], is(5));
+        assertThat(seatIds[7], is(40));
+        assertThat(seatIds[52], is(119));
+    }
+
+    /**
+     * This is to test the positions of an irregular venue which are not seats
+     * public void setSeatStatus(int row, int column, SeatStatus seatStatus) - Failure Scenario
+     */
+    @Test
+    public void testIrregularVenueLayoutNotValid() {
+        VenueLayout venueLayout = new VenueLayout(8, 10);
+        venueLayout.addAisle(4);
+        SeatGrid irregularSeatGrid = new SeatGrid(venueLayout);
+        try {
+            irregularSeatGrid.setSeatStatus(0, 9, SeatStatus.RESERVED);
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("There is no seat at 0X9"));
+        }
+        try {
+            irregularSeatGrid.getSeatStatus(1, 4);
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("There is no seat at 1X4"));
+        }
+        try {
+            new VenueLayout(8, 0);
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("The length of the row 1 must be greater than 0"));
+        }
+        assertThat(irregularSeatGrid.getSeatCount(SeatStatus.RESERVED), is(0));
+    }
+
+    /**
+     * This is to test the cursor reads and updates the seats like the checked accessors, and keeps the counts and the
+     * open blocks up to date
+     * public Cursor cursor()
+     */
+    @Test
+    public void testCursor() {
+        SeatGrid.Cursor cursor = seatGrid.cursor();
+        assertThat(cursor.moveTo(seatGrid.getSeatId(3, 2)).getRow(), is(3));
+        assertThat(cursor.getColumn(), is(2));
+        assertThat(cursor.getSeatStatus(), is(SeatStatus.RESERVED));
+        assertThat(cursor.moveTo(1, 1).getSeat(), is(seatGrid.getSeat(1, 1)));
+
+        int openSeats = seatGrid.getSeatCount(SeatStatus.OPEN);
+        seatGrid.getRowLock(2).lock();
+        try {
+            for (int column = 0; column < 8; column++) {
+                cursor.moveTo(2, column).setSeatStatus(SeatStatus.HOLD);
+            }
+            assertThat(cursor.moveTo(2, 3).compareAndSetSeatStatus(SeatStatus.OPEN, SeatStatus.RESERVED), is(false));
+            assertThat(cursor.compareAndSetSeatStatus(SeatStatus.HOLD, SeatStatus.OPEN), is(true));
+        } finally {
+            seatGrid.getRowLock(2).unlock();
+        }
+        assertThat(seatGrid.getSeatStatus(2, 3), is(SeatStatus.OPEN));
+        assertThat(seatGrid.getSeatCount(SeatStatus.OPEN), is(openSeats - 7));
+        assertThat(seatGrid.getSeatCount(2, SeatStatus.HOLD), is(7));
+        assertThat(seatGrid.getLargestOpenBlock(2), is(1));
+    }
 }
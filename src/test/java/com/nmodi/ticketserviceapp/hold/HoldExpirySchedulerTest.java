@@ -0,0 +1,192 @@
+package com.nmodi.ticketserviceapp.hold;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a junit test to test the methods in HoldExpiryScheduler class
+ * {@link HoldExpiryScheduler}
+ */
+public class HoldExpirySchedulerTest {
+
+    /**
+     * The HoldExpiryScheduler object
+     */
+    private HoldExpiryScheduler holdExpiryScheduler = null;
+
+    /**
+     * Test set up settings
+     */
+    @Before
+    public final void setUpTestSettings() {
+        holdExpiryScheduler = new HoldExpiryScheduler(2);
+    }
+
+    /**
+     * Test tear down settings
+     */
+    @After
+    public final void tearDownTestSettings() {
+        holdExpiryScheduler.shutdown();
+    }
+
+    /**
+     * This is to test that every hold expires with its own deadline
+     */
+    @Test
+    public void testScheduledExpiriesRunAfterTheirDelay() throws InterruptedException {
+        final CountDownLatch expiredHolds = new CountDownLatch(1000);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            holdExpiryScheduler.schedule(new Runnable() {
+                public void run() {
+                    expiredHolds.countDown();
+                }
+            }, 100 + i % 100);
+        }
+        assertTrue(expiredHolds.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(holdExpiryScheduler.getScheduledExpiryCount(), is(0));
+    }
+
+    /**
+     * This is to test that a cancelled hold does not expire
+     */
+    @Test
+    public void testCancelledExpiryDoesNotRun() throws InterruptedException {
+        final AtomicInteger expiredHolds = new AtomicInteger();
+        Runnable expiryAction = new Runnable() {
+            public void run() {
+                expiredHolds.incrementAndGet();
+            }
+        };
+        HoldExpiryScheduler.ScheduledExpiry cancelledExpiry = holdExpiryScheduler.schedule(expiryAction, 50);
+        HoldExpiryScheduler.ScheduledExpiry scheduledExpiry = holdExpiryScheduler.schedule(expiryAction, 50);
+        assertTrue(cancelledExpiry.cancel());
+
+        Thread.sleep(500);
+        assertThat(expiredHolds.get(), is(1));
+        assertTrue(cancelledExpiry.isCancelled());
+        assertTrue(scheduledExpiry.isExpired());
+        // an expired hold can not be cancelled anymore
+        assertThat(scheduledExpiry.cancel(), is(false));
+    }
+
+    /**
+     * This is to test a cancelled expiry still queued until its deadline doesn't keep its action reachable
+     */
+    @Test
+    public void testCancelledExpiryReleasesItsAction() throws InterruptedException {
+        Runnable expiryAction = new Runnable() {
+            public void run() {
+            }
+        };
+        WeakReference<Runnable> expiryActionReference = new WeakReference<Runnable>(expiryAction);
+        HoldExpiryScheduler.ScheduledExpiry scheduledExpiry = holdExpiryScheduler.schedule(expiryAction, 60000);
+        expiryAction = null;
+        assertTrue(scheduledExpiry.cancel());
+
+        for (int i = 0; i < 50 && expiryActionReference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(expiryActionReference.get() == null, is(true));
+        assertThat(holdExpiryScheduler.getScheduledExpiryCount(), is(1));
+    }
+
+    /**
+     * This is to test the holds expire or are cancelled alike when they wait on virtual threads, or in the delay queue
+     * on a JVM without virtual threads
+     */
+    @Test
+    public void testVirtualThreadExpiries() throws InterruptedException {
+        HoldExpiryScheduler virtualThreadScheduler = new HoldExpiryScheduler(1, true);
+        try {
+            final CountDownLatch expiredHolds = new CountDownLatch(100);
+            Runnable expiryAction = new Runnable() {
+                public void run() {
+                    expiredHolds.countDown();
+                }
+            };
+            HoldExpiryScheduler.ScheduledExpiry cancelledExpiry = virtualThreadScheduler.schedule(expiryAction, 10000);
+            for (int i = 0; i < 100; i++) {
+                virtualThreadScheduler.schedule(expiryAction, 50 + i);
+            }
+            assertTrue(cancelledExpiry.cancel());
+            assertTrue(expiredHolds.await(5, TimeUnit.SECONDS));
+
+            if (virtualThreadScheduler.isVirtualThreads()) {
+                // the thread of the cancelled hold ends without waiting for its deadline
+                long deadline = System.currentTimeMillis() + 5000;
+                while (virtualThreadScheduler.getScheduledExpiryCount() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertThat(virtualThreadScheduler.getScheduledExpiryCount(), is(0));
+            } else {
+                // the cancelled hold stays queued until its deadline
+                assertThat(virtualThreadScheduler.getScheduledExpiryCount(), is(1));
+            }
+            assertTrue(cancelledExpiry.isCancelled());
+        } finally {
+            virtualThreadScheduler.shutdown();
+        }
+    }
+
+    /**
+     * This is to test the threads waiting for the deadline of a hold, started here as platform threads in place of the
+     * virtual threads: they expire their hold, end once it is cancelled, and end on shutdown without waiting for their
+     * deadline
+     */
+    @Test
+    public void testWaitingThreadsExpireEndOnCancelAndOnShutdown() throws InterruptedException {
+        final List<Thread> waitingThreads = Collections.synchronizedList(new ArrayList<Thread>());
+        HoldExpiryScheduler waitingThreadScheduler = new HoldExpiryScheduler(1, new Executor() {
+            public void execute(Runnable task) {
+                Thread waitingThread = new Thread(task);
+                waitingThreads.add(waitingThread);
+                waitingThread.start();
+            }
+        });
+        assertTrue(waitingThreadScheduler.isVirtualThreads());
+        final CountDownLatch expiredHolds = new CountDownLatch(1);
+        Runnable expiryAction = new Runnable() {
+            public void run() {
+                expiredHolds.countDown();
+            }
+        };
+        waitingThreadScheduler.schedule(expiryAction, 50);
+        assertTrue(expiredHolds.await(5, TimeUnit.SECONDS));
+        waitingThreads.get(0).join(5000);
+
+        HoldExpiryScheduler.ScheduledExpiry cancelledExpiry = waitingThreadScheduler.schedule(expiryAction, 60000);
+        assertTrue(cancelledExpiry.cancel());
+        waitingThreads.get(1).join(5000);
+        assertThat(waitingThreads.get(1).isAlive(), is(false));
+
+        for (int i = 0; i < 10; i++) {
+            waitingThreadScheduler.schedule(expiryAction, 60000);
+        }
+        assertThat(waitingThreadScheduler.getScheduledExpiryCount(), is(10));
+        waitingThreadScheduler.shutdown();
+        for (Thread waitingThread : waitingThreads) {
+            waitingThread.join(5000);
+            assertThat(waitingThread.isAlive(), is(false));
+        }
+        assertThat(waitingThreadScheduler.getScheduledExpiryCount(), is(0));
+        assertThat(expiredHolds.getCount(), is(0L));
+    }
+}
@@ -0,0 +1,278 @@
+package com.nmodi.ticketserviceapp.inventory;
+
+import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
+import com.nmodi.ticketserviceapp.grid.Seat;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This is a junit test to test the methods in EventInventory class
+ * {@link EventInventory}
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:/applicationContext-test.xml")
+public class EventInventoryTest {
+
+    @Resource
+    private EventInventory eventInventory;
+
+    /**
+     * The folder of the journals
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The events registered by a test
+     */
+    private final List<String> eventIds = new ArrayList<String>();
+
+    /**
+     * Test tear down settings
+     */
+    @After
+    public final void tearDownTestSettings() {
+        for (String eventId : eventIds) {
+            eventInventory.removeEvent(eventId);
+        }
+        eventInventory.setJournalDirectory(null);
+    }
+
+    /**
+     * This is to test that the seats of an event are held and reserved apart from the other events
+     */
+    @Test
+    public void testHoldAndReserveByEvent() throws Exception {
+        SeatGrid concertGrid = registerEvent("concert", 5, 6);
+        SeatGrid playGrid = registerEvent("play", 4, 4);
+
+        int concertHoldId = eventInventory.holdBestAvailableSeats("concert", 4, "guest@gmail.com").get();
+        int playHoldId = eventInventory.holdBestAvailableSeats("play", 2, "guest@gmail.com").get();
+        // every event has its own holds
+        assertThat(concertHoldId, is(1));
+        assertThat(playHoldId, is(1));
+        assertThat(eventInventory.findTotalNumberOfAvailableSeats("concert"), is(26));
+        assertThat(eventInventory.findTotalNumberOfAvailableSeats("play"), is(14));
+
+        List<Seat> reservedSeats = eventInventory.reserveHeldSeats("play", playHoldId, "guest@gmail.com").get();
+        assertThat(reservedSeats.size(), is(2));
+        assertThat(playGrid.getSeatCount(SeatStatus.RESERVED), is(2));
+        assertThat(concertGrid.getSeatCount(SeatStatus.HOLD), is(4));
+        assertThat(concertGrid.getSeatCount(SeatStatus.RESERVED), is(0));
+    }
+
+    /**
+     * This is to test that the tasks of an event run on the shard of the event
+     */
+    @Test
+    public void testTasksOfAnEventRunOnItsShard() throws Exception {
+        registerEvent("festival", 3, 3);
+        Callable<String> threadName = new Callable<String>() {
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        };
+        Future<String> firstTask = eventInventory.submit("festival", threadName);
+        Future<String> secondTask = eventInventory.submit("festival", threadName);
+        assertThat(firstTask.get(), is("event-inventory-shard-" + eventInventory.shardOf("festival")));
+        assertThat(secondTask.get(), is(firstTask.get()));
+    }
+
+    /**
+     * This is to test a hold and its reservation are chained by callbacks run on the shard, without blocking the caller
+     */
+    @Test
+    public void testCallbacksRunOnTheShard() throws Exception {
+        registerEvent("recital", 3, 4);
+        final CountDownLatch reserved = new CountDownLatch(1);
+        final AtomicReference<String> callbackThread = new AtomicReference<String>();
+        final AtomicReference<List<Seat>> reservedSeats = new AtomicReference<List<Seat>>();
+        eventInventory.holdBestAvailableSeats("recital", 2, "guest@gmail.com").addCallback(
+                new ListenableFutureCallback<Integer>() {
+                    public void onSuccess(Integer seatHoldId) {
+                        callbackThread.set(Thread.currentThread().getName());
+                        eventInventory.reserveHeldSeats("recital", seatHoldId, "guest@gmail.com").addCallback(
+                                new ListenableFutureCallback<List<Seat>>() {
+                                    public void onSuccess(List<Seat> seats) {
+                                        reservedSeats.set(seats);
+                                        reserved.countDown();
+                                    }
+
+                                    public void onFailure(Throwable ex) {
+                                        reserved.countDown();
+                                    }
+                                });
+                    }
+
+                    public void onFailure(Throwable ex) {
+                        reserved.countDown();
+                    }
+                });
+        assertTrue(reserved.await(5, TimeUnit.SECONDS));
+        assertThat(callbackThread.get(), is("event-inventory-shard-" + eventInventory.shardOf("recital")));
+        assertThat(reservedSeats.get().size(), is(2));
+        assertThat(eventInventory.getSeatGrid("recital").getSeatCount(SeatStatus.RESERVED), is(2));
+    }
+
+    /**
+     * This is to test the reservations of an event are journaled and replayed when the event is registered again
+     */
+    @Test
+    public void testReservationsAreReplayedFromTheJournal() throws Exception {
+        eventInventory.setJournalDirectory(temporaryFolder.getRoot());
+        registerEvent("gala", 4, 5);
+        int seatHoldId = eventInventory.holdBestAvailableSeats("gala", 3, "guest@gmail.com").get();
+        eventInventory.reserveHeldSeats("gala", seatHoldId, "guest@gmail.com").get();
+        eventInventory.holdBestAvailableSeats("gala", 2, "guest@gmail.com").get();
+        eventInventory.removeEvent("gala");
+
+        // the held seats are not journaled
+        SeatGrid restartedGrid = registerEvent("gala", 4, 5);
+        assertThat(restartedGrid.getSeatCount(SeatStatus.RESERVED), is(3));
+        assertThat(restartedGrid.getSeatCount(SeatStatus.HOLD), is(0));
+        assertThat(eventInventory.findTotalNumberOfAvailableSeats("gala"), is(17));
+    }
+
+    /**
+     * This is to test the reservations of an event are synced together, as the shard does not wait for the journal
+     */
+    @Test
+    public void testReservationsOfAnEventShareTheSyncs() throws Exception {
+        eventInventory.setJournalDirectory(temporaryFolder.getRoot());
+        registerEvent("tour", 10, 10);
+        int noOfReservations = 50;
+        List<Integer> seatHoldIds = new ArrayList<Integer>();
+        for (int i = 0; i < noOfReservations; i++) {
+            seatHoldIds.add(eventInventory.holdBestAvailableSeats("tour", 2, "guest" + i + "@gmail.com").get());
+        }
+        long noOfSyncs = eventInventory.getTicketService("tour").getSeatJournal().getNoOfSyncs();
+
+        // the reservations are queued on the shard, and run one after the other once it is released
+        final CountDownLatch shardBlocked = new CountDownLatch(1);
+        eventInventory.submit("tour", new Callable<Boolean>() {
+            public Boolean call() throws InterruptedException {
+                return shardBlocked.await(5, TimeUnit.SECONDS);
+            }
+        });
+        List<Future<List<Seat>>> reservations = new ArrayList<Future<List<Seat>>>();
+        for (int i = 0; i < noOfReservations; i++) {
+            reservations.add(eventInventory.reserveHeldSeats("tour", seatHoldIds.get(i), "guest" + i + "@gmail.com"));
+        }
+        shardBlocked.countDown();
+        for (Future<List<Seat>> reservation : reservations) {
+            assertThat(reservation.get(5, TimeUnit.SECONDS).size(), is(2));
+        }
+        assertThat(eventInventory.getSeatGrid("tour").getSeatCount(SeatStatus.RESERVED), is(100));
+        long reservationSyncs = eventInventory.getTicketService("tour").getSeatJournal().getNoOfSyncs() - noOfSyncs;
+        assertTrue("" + reservationSyncs + " syncs for " + noOfReservations + " reservations",
+                reservationSyncs < noOfReservations);
+    }
+
+    /**
+     * This is to test the journal of a removed event is closed only once the tasks of the event already submitted ran
+     */
+    @Test
+    public void testRemovedEventRunsItsSubmittedTasksBeforeClosingTheJournal() throws Exception {
+        eventInventory.setJournalDirectory(temporaryFolder.getRoot());
+        registerEvent("ballet", 3, 4);
+        int seatHoldId = eventInventory.holdBestAvailableSeats("ballet", 3, "guest@gmail.com").get();
+        final CountDownLatch shardBlocked = new CountDownLatch(1);
+        eventInventory.submit("ballet", new Callable<Boolean>() {
+            public Boolean call() throws InterruptedException {
+                return shardBlocked.await(5, TimeUnit.SECONDS);
+            }
+        });
+        Future<List<Seat>> reservation = eventInventory.reserveHeldSeats("ballet", seatHoldId, "guest@gmail.com");
+        assertThat(eventInventory.removeEvent("ballet"), is(true));
+        shardBlocked.countDown();
+        assertThat(reservation.get(5, TimeUnit.SECONDS).size(), is(3));
+
+        SeatGrid restartedGrid = registerEvent("ballet", 3, 4);
+        assertThat(restartedGrid.getSeatCount(SeatStatus.RESERVED), is(3));
+    }
+
+    /**
+     * This is to test the tasks submitted once the shards are shut down fail their future instead of throwing
+     */
+    @Test
+    public void testTasksSubmittedAfterShutdownFailTheirFuture() throws Exception {
+        EventInventory stoppedInventory = new EventInventory(1);
+        stoppedInventory.registerEvent("derby", 3, 3);
+        stoppedInventory.shutdown();
+        List<Future<?>> rejectedTasks = new ArrayList<Future<?>>();
+        rejectedTasks.add(stoppedInventory.submit("derby", new Callable<Boolean>() {
+            public Boolean call() {
+                return true;
+            }
+        }));
+        rejectedTasks.add(stoppedInventory.holdBestAvailableSeats("derby", 2, "guest@gmail.com"));
+        rejectedTasks.add(stoppedInventory.reserveHeldSeats("derby", 1, "guest@gmail.com"));
+        for (Future<?> rejectedTask : rejectedTasks) {
+            try {
+                rejectedTask.get(5, TimeUnit.SECONDS);
+                fail("Expected an ExecutionException to be thrown");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof RejectedExecutionException);
+            }
+        }
+    }
+
+    /**
+     * This is to test an event which is not registered, or registered twice
+     */
+    @Test
+    public void testUnknownAndDuplicateEvents() {
+        registerEvent("match", 3, 3);
+        try {
+            eventInventory.registerEvent("match", 4, 4);
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("The event match is already registered"));
+        }
+        try {
+            eventInventory.getSeatGrid("opera");
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("No event is registered with id opera"));
+        }
+        assertThat(eventInventory.removeEvent("match"), is(true));
+        assertThat(eventInventory.removeEvent("match"), is(false));
+    }
+
+    /**
+     * This method registers an event for the test.
+     *
+     * @param eventId The event id.
+     * @param noOfRows The no of rows.
+     * @param noOfColumns The no of columns.
+     * @return The seat grid of the event
+     */
+    private SeatGrid registerEvent(String eventId, int noOfRows, int noOfColumns) {
+        eventIds.add(eventId);
+        return eventInventory.registerEvent(eventId, noOfRows, noOfColumns);
+    }
+}
@@ -0,0 +1,312 @@
+package com.nmodi.ticketserviceapp.journal;
+
+import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This is a junit test to test the methods in SeatJournal class
+ * {@link SeatJournal}
+ */
+public class SeatJournalTest {
+
+    /**
+     * The folder of the journal files
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The journal file
+     */
+    private File file = null;
+
+    /**
+     * Test set up settings
+     */
+    @Before
+    public final void setUpTestSettings() {
+        file = new File(temporaryFolder.getRoot(), "event.journal");
+    }
+
+    /**
+     * This is to test the reserved seats are replayed into a new grid
+     */
+    @Test
+    public void testReservationsAreReplayed() throws Exception {
+        SeatJournal seatJournal = new SeatJournal(file, new SeatGrid(10, 40));
+        seatJournal.append(SeatJournal.RESERVE, new int[]{5, 6, 7, 8});
+        long sequence = seatJournal.append(SeatJournal.RESERVE, new int[]{399, 120, 41});
+        seatJournal.awaitDurable(sequence);
+        seatJournal.close();
+
+        SeatGrid seatGrid = new SeatGrid(10, 40);
+        SeatJournal.replay(file, seatGrid);
+        assertThat(seatGrid.getSeatCount(SeatStatus.RESERVED), is(7));
+        assertThat(seatGrid.getSeatStatus(0, 5), is(SeatStatus.RESERVED));
+        assertThat(seatGrid.getSeatStatus(0, 8), is(SeatStatus.RESERVED));
+        assertThat(seatGrid.getSeatStatus(9, 39), is(SeatStatus.RESERVED));
+        assertThat(seatGrid.getSeatStatus(3, 0), is(SeatStatus.RESERVED));
+        assertThat(seatGrid.getSeatStatus(1, 1), is(SeatStatus.RESERVED));
+        assertThat(seatGrid.getSeatStatus(0, 9), is(SeatStatus.OPEN));
+    }
+
+    /**
+     * This is to test the records appended concurrently are all made durable
+     */
+    @Test
+    public void testConcurrentAppendsAreGroupCommitted() throws Exception {
+        final SeatJournal seatJournal = new SeatJournal(file, new SeatGrid(100, 50));
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int i = 0; i < 8; i++) {
+            final int thread = i;
+            futures.add(executorService.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    for (int j = 0; j < 250; j++) {
+                        int seatId = (thread * 250 + j) * 2;
+                        seatJournal.awaitDurable(seatJournal.append(SeatJournal.RESERVE, new int[]{seatId, seatId + 1}));
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+        seatJournal.close();
+
+        SeatGrid seatGrid = new SeatGrid(100, 50);
+        SeatJournal.replay(file, seatGrid);
+        assertThat(seatGrid.getSeatCount(SeatStatus.RESERVED), is(4000));
+    }
+
+    /**
+     * This is to test a record torn by a crash is dropped, and the records appended after it are replayed
+     */
+    @Test
+    public void testTornRecordIsDropped() throws Exception {
+        SeatJournal seatJournal = new SeatJournal(file, new SeatGrid(4, 4));
+        seatJournal.awaitDurable(seatJournal.append(SeatJournal.RESERVE, new int[]{0, 1}));
+        seatJournal.close();
+        FileOutputStream tornRecord = new FileOutputStream(file, true);
+        tornRecord.write(new byte[]{9, 0, 0, 0, 1, 2});
+        tornRecord.close();
+
+        SeatGrid seatGrid = new SeatGrid(4, 4);
+        seatJournal = new SeatJournal(file, seatGrid);
+        assertThat(seatGrid.getSeatCount(SeatStatus.RESERVED), is(2));
+        seatJournal.awaitDurable(seatJournal.append(SeatJournal.RESERVE, new int[]{15}));
+        seatJournal.close();
+
+        seatGrid = new SeatGrid(4, 4);
+        SeatJournal.replay(file, seatGrid);
+        assertThat(seatGrid.getSeatCount(SeatStatus.RESERVED), is(3));
+        assertThat(seatGrid.getSeatStatus(3, 3), is(SeatStatus.RESERVED));
+    }
+
+    /**
+     * This is to test a journal can't be replayed into a grid of another venue
+     */
+    @Test
+    public void testReplayIntoAnotherVenue() throws IOException {
+        new SeatJournal(file, new SeatGrid(4, 4)).close();
+        try {
+            SeatJournal.replay(file, new SeatGrid(4, 5));
+            fail("Expected a SeatingArrangementNotValidException to be thrown");
+        } catch (SeatingArrangementNotValidException ex) {
+            assertThat(ex.getMessage(), is("The seat journal " + file + " is not a journal of a 4X5 venue"));
+        }
+    }
+
+    /**
+     * This is to test the records of a batch which could not be synced are dropped from the file before the requests
+     * are told, and may still be replayed only if the file can't be truncated
+     */
+    @Test
+    public void testFailedFlushIsNotReplayed() throws Exception {
+        for (boolean failTruncate : new boolean[]{false, true}) {
+            file.delete();
+            FailingFileChannel fileChannel = new FailingFileChannel(new RandomAccessFile(file, "rw").getChannel());
+            SeatJournal seatJournal = new SeatJournal(file, new SeatGrid(4, 4), fileChannel);
+            seatJournal.awaitDurable(seatJournal.append(SeatJournal.RESERVE, new int[]{0, 1}));
+
+            // the record is written but not synced
+            fileChannel.failNextForce = true;
+            fileChannel.failTruncate = failTruncate;
+            final AtomicBoolean discarded = new AtomicBoolean();
+            final CountDownLatch failed = new CountDownLatch(1);
+            seatJournal.append(SeatJournal.RESERVE, new int[]{15}, new SeatJournal.DurabilityCallback() {
+                public void onDurable() {
+                }
+
+                public void onFailure(IOException ex, boolean recordDiscarded) {
+                    discarded.set(recordDiscarded);
+                    failed.countDown();
+                }
+            });
+            assertTrue(failed.await(10, TimeUnit.SECONDS));
+            assertThat(discarded.get(), is(!failTruncate));
+            seatJournal.close();
+
+            SeatGrid seatGrid = new SeatGrid(4, 4);
+            SeatJournal.replay(file, seatGrid);
+            assertThat(seatGrid.getSeatStatus(0, 1), is(SeatStatus.RESERVED));
+            assertThat(seatGrid.getSeatStatus(3, 3), is(failTruncate ? SeatStatus.RESERVED : SeatStatus.OPEN));
+        }
+    }
+
+    /**
+     * This class is a file channel failing the next sync, or every truncation of the file, on demand.
+     */
+    private static class FailingFileChannel extends FileChannel {
+
+        /**
+         * The channel of the file
+         */
+        private final FileChannel fileChannel;
+
+        /**
+         * Whether the next sync fails
+         */
+        private volatile boolean failNextForce;
+
+        /**
+         * Whether the truncations fail
+         */
+        private volatile boolean failTruncate;
+
+        /**
+         * Constructor for a FailingFileChannel.
+         *
+         * @param fileChannel The channel of the file.
+         */
+        private FailingFileChannel(FileChannel fileChannel) {
+            this.fileChannel = fileChannel;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failNextForce) {
+                failNextForce = false;
+                throw new IOException("The file can't be synced");
+            }
+            fileChannel.force(metaData);
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            if (failTruncate) {
+                throw new IOException("The file can't be truncated");
+            }
+            fileChannel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return fileChannel.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return fileChannel.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return fileChannel.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return fileChannel.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return fileChannel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            fileChannel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return fileChannel.size();
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return fileChannel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return fileChannel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return fileChannel.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return fileChannel.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return fileChannel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return fileChannel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return fileChannel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            fileChannel.close();
+        }
+    }
+}
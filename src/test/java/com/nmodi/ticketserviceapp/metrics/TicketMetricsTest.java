@@ -0,0 +1,167 @@
+package com.nmodi.ticketserviceapp.metrics;
+
+import com.nmodi.ticketserviceapp.dao.impl.TicketHandlerDaoImpl;
+import com.nmodi.ticketserviceapp.grid.Seat;
+import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import com.nmodi.ticketserviceapp.hold.HoldExpiryScheduler;
+import com.nmodi.ticketserviceapp.service.TicketServiceImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This is a junit test to test the metrics of the ticket service
+ * {@link TicketMetrics}
+ */
+public class TicketMetricsTest {
+
+    /**
+     * The TicketMetrics object
+     */
+    private TicketMetrics ticketMetrics = null;
+
+    /**
+     * The HoldExpiryScheduler object
+     */
+    private HoldExpiryScheduler holdExpiryScheduler = null;
+
+    /**
+     * Test set up settings
+     */
+    @Before
+    public final void setUpTestSettings() {
+        ticketMetrics = new TicketMetrics();
+        holdExpiryScheduler = new HoldExpiryScheduler();
+    }
+
+    /**
+     * Test tear down settings
+     */
+    @After
+    public final void tearDownTestSettings() {
+        holdExpiryScheduler.shutdown();
+    }
+
+    /**
+     * This is to test the percentiles of a histogram are read within the precision of its buckets
+     * public long getValueAtPercentile(double fraction)
+     */
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+        assertThat(histogram.snapshot().getValueAtPercentile(0.99), is(0L));
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        HistogramSnapshot histogramSnapshot = histogram.snapshot();
+        assertThat(histogramSnapshot.getCount(), is(1000L));
+        assertThat(histogramSnapshot.getMaxValue(), is(1000L));
+        assertThat(histogramSnapshot.getValueAtPercentile(0.01), is(10L));
+        long median = histogramSnapshot.getValueAtPercentile(0.50);
+        assertTrue(median >= 500 && median <= 500 * 9 / 8);
+        assertThat(histogramSnapshot.getValueAtPercentile(1.0), is(1000L));
+
+        // every value lies within the bounds of its bucket, a bucket starting right after the previous one
+        long[] values = {0, 15, 16, 17, 31, 32, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.getBucket(value);
+            assertTrue(value <= Histogram.getBucketUpperBound(bucket));
+            assertTrue(bucket == 0 || value > Histogram.getBucketUpperBound(bucket - 1));
+        }
+        assertThat(Histogram.getBucket(Long.MAX_VALUE), is(Histogram.BUCKET_COUNT - 1));
+    }
+
+    /**
+     * This is to test a striped counter sums the additions of concurrent threads
+     * public long sum()
+     */
+    @Test
+    public void testStripedCounterFromManyThreads() throws InterruptedException {
+        final StripedCounter stripedCounter = new StripedCounter();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        stripedCounter.increment();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        stripedCounter.add(-40000);
+        assertThat(stripedCounter.sum(), is(0L));
+    }
+
+    /**
+     * This is to test the service records its holds, reservations and expiries
+     * public MetricsSnapshot snapshot(MetricsSnapshot previousSnapshot)
+     */
+    @Test
+    public void testServiceRecordsHoldsReservationsAndExpiries() throws InterruptedException {
+        TicketHandlerDaoImpl ticketHandlerDao = new TicketHandlerDaoImpl();
+        ticketHandlerDao.setTicketMetrics(ticketMetrics);
+        TicketServiceImpl ticketService = new TicketServiceImpl(ticketHandlerDao, holdExpiryScheduler);
+        ticketService.setTicketMetrics(ticketMetrics);
+        ticketService.setHoldTimeoutMillis(50);
+        SeatGrid seatGrid = new SeatGrid(3, 4);
+
+        int seatHoldId = ticketService.holdBestAvailableSeats(seatGrid, 2, "reserved@gmail.com");
+        ticketService.reserveHeldSeatIds(seatGrid, seatHoldId, "reserved@gmail.com");
+        ticketService.holdBestAvailableSeats(seatGrid, 9, "expired@gmail.com");
+        MetricsSnapshot metricsSnapshot = ticketMetrics.snapshot(null);
+        assertThat(metricsSnapshot.getHoldsPlaced(), is(2L));
+        assertThat(metricsSnapshot.getHoldsReserved(), is(1L));
+        assertThat(metricsSnapshot.getOutstandingHolds(), is(1L));
+        assertThat(metricsSnapshot.getHoldLatency().getCount(), is(2L));
+        assertThat(metricsSnapshot.getReserveLatency().getCount(), is(1L));
+        // the party of 2 is found at once, the party of 9 is split over the rows after searching for larger blocks
+        assertThat(metricsSnapshot.getSearchLength().getValueAtPercentile(0.0), is(1L));
+        assertTrue(metricsSnapshot.getSearchLength().getMaxValue() > 3);
+
+        Thread.sleep(500);
+        metricsSnapshot = ticketMetrics.snapshot(metricsSnapshot);
+        assertThat(metricsSnapshot.getHoldsExpired(), is(1L));
+        assertThat(metricsSnapshot.getOutstandingHolds(), is(0L));
+        assertTrue(metricsSnapshot.getExpirationsPerSecond() > 0);
+    }
+
+    /**
+     * This is to test a hold reserved by its list of seats is recorded as reserved, and doesn't expire
+     * public MetricsSnapshot snapshot(MetricsSnapshot previousSnapshot)
+     */
+    @Test
+    public void testServiceRecordsHoldsReservedBySeatList() throws InterruptedException {
+        TicketServiceImpl ticketService = new TicketServiceImpl(new TicketHandlerDaoImpl(), holdExpiryScheduler);
+        ticketService.setTicketMetrics(ticketMetrics);
+        ticketService.setHoldTimeoutMillis(50);
+        SeatGrid seatGrid = new SeatGrid(3, 4);
+
+        List<Seat> heldSeats = ticketService.holdBestAvailableSeats(seatGrid, 3);
+        ticketService.reserveHeldSeats(seatGrid, heldSeats);
+        // only a part of the seats of the second hold is reserved, the rest of them expire
+        List<Seat> partlyReservedSeats = ticketService.holdBestAvailableSeats(seatGrid, 2);
+        ticketService.reserveHeldSeats(seatGrid, partlyReservedSeats.subList(0, 1));
+        assertThat(ticketService.getSeatHoldRegistry().size(), is(1));
+        MetricsSnapshot metricsSnapshot = ticketMetrics.snapshot(null);
+        assertThat(metricsSnapshot.getHoldsReserved(), is(1L));
+        assertThat(metricsSnapshot.getOutstandingHolds(), is(1L));
+
+        Thread.sleep(500);
+        metricsSnapshot = ticketMetrics.snapshot(metricsSnapshot);
+        assertThat(metricsSnapshot.getHoldsExpired(), is(1L));
+        assertThat(metricsSnapshot.getOutstandingHolds(), is(0L));
+        assertThat(ticketService.getSeatHoldRegistry().size(), is(0));
+        assertThat(seatGrid.getSeatCount(SeatStatus.RESERVED), is(4));
+    }
+}
@@ -3,6 +3,7 @@ package com.nmodi.ticketserviceapp.service;
 import com.nmodi.ticketserviceapp.exception.SeatingArrangementNotValidException;
 import com.nmodi.ticketserviceapp.grid.Seat;
 import com.nmodi.ticketserviceapp.grid.SeatGrid;
+import com.nmodi.ticketserviceapp.grid.SeatStatus;
 import com.nmodi.ticketserviceapp.util.SeatGridTestUtil;
 import org.junit.Before;
 import org.junit.Test;
@@ -161,4 +162,18 @@ public class FindAvailableSeatsTest {
             assertTrue(true);
         }
     }
+
+    /**
+     * This is to test the find total available seat ids
+     * int[] findTotalAvailableSeatIds(SeatGrid sourceSeatGrid)
+     */
+    @Test
+    public void testFindTotalAvailableSeatIds() {
+        sourceSeatGrid.setSeatStatus(0, 1, SeatStatus.RESERVED);
+        int[] availableSeatIds = ticketServiceImpl.findTotalAvailableSeatIds(sourceSeatGrid);
+        assertThat(availableSeatIds.length, is(167));
+        assertThat(availableSeatIds[0], is(0));
+        assertThat(availableSeatIds[1], is(2));
+        assertThat(availableSeatIds[166], is(12 * 14 - 1));
+    }
 }
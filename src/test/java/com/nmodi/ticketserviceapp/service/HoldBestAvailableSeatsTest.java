@@ -4,6 +4,8 @@ import com.nmodi.ticketserviceapp.exception.CustomerRequestNotValidException;
 import com.nmodi.ticketserviceapp.grid.Seat;
 import com.nmodi.ticketserviceapp.grid.SeatGrid;
 import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import com.nmodi.ticketserviceapp.grid.SeatZone;
+import com.nmodi.ticketserviceapp.hold.SeatHoldRequest;
 import com.nmodi.ticketserviceapp.util.SeatGridTestUtil;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,6 +14,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import javax.annotation.Resource;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.core.Is.is;
@@ -158,4 +161,74 @@ public class HoldBestAvailableSeatsTest {
             assertTrue(true);
         }
     }
+
+    /**
+     * This is to test to hold the seats of a batch of requests, served by priority
+     * List<Integer> holdBestAvailableSeatsBatch(SeatGrid sourceSeatGrid, List<SeatHoldRequest> seatHoldRequests);
+     */
+    @Test
+    public void testHoldBestAvailableSeatsBatchByPriority() {
+        SeatGrid actualSeatGrid = new SeatGrid(3, 4);
+        int[][] seats = new int[][]{
+                {0, 0, 0, 0},
+                {2, 2, 0, 0},
+                {2, 2, 2, 2}};
+        SeatGridTestUtil.setGridSeats(actualSeatGrid, seats);
+
+        List<Integer> seatHoldIds = ticketServiceImpl.holdBestAvailableSeatsBatch(actualSeatGrid, Arrays.asList(
+                new SeatHoldRequest(4, "first@gmail.com"),
+                new SeatHoldRequest(0, "invalid@gmail.com", 10),
+                new SeatHoldRequest(2, "vip@gmail.com", 5),
+                new SeatHoldRequest(2, ""),
+                new SeatHoldRequest(1, "last@gmail.com")));
+
+        // the vip is served first and takes the best seats, then the requests in their order while seats are left
+        assertThat(seatHoldIds.get(1), is(TicketService.NOT_HELD));
+        assertThat(seatHoldIds.get(3), is(TicketService.NOT_HELD));
+        assertThat(seatHoldIds.get(4), is(TicketService.NOT_HELD));
+        assertTrue(seatHoldIds.get(2) < seatHoldIds.get(0));
+        assertThat(actualSeatGrid.getSeatStatus(1, 2), is(SeatStatus.HOLD));
+        assertThat(actualSeatGrid.getSeatStatus(1, 3), is(SeatStatus.HOLD));
+        assertThat(actualSeatGrid.getSeatCount(SeatStatus.HOLD), is(6));
+        assertThat(ticketServiceImpl.findTotalNumberOfAvailableSeats(actualSeatGrid), is(0));
+
+        List<Seat> reservedSeats = ticketServiceImpl.reserveHeldSeats(actualSeatGrid, seatHoldIds.get(0),
+                "first@gmail.com");
+        assertThat(reservedSeats.size(), is(4));
+        for (Seat reservedSeat: reservedSeats) {
+            assertThat(reservedSeat.getRow(), is(0));
+        }
+    }
+
+    /**
+     * This is to test to hold the seats of a price tier for a customer, alone and in a batch
+     * int holdBestAvailableSeats(SeatGrid sourceSeatGrid, int requestedSeats, String customerEmail, String tier);
+     */
+    @Test
+    public void testHoldBestAvailableSeatsOfATier() {
+        sourceSeatGrid.setSeatZones(Arrays.asList(new SeatZone("front", "STANDARD", 0, 4),
+                new SeatZone("back", "PREMIUM", 5, 6)));
+        assertThat(ticketServiceImpl.findTotalNumberOfAvailableSeats(sourceSeatGrid, "PREMIUM"), is(12));
+
+        int seatHoldId = ticketServiceImpl.holdBestAvailableSeats(sourceSeatGrid, 3, "guest@gmail.com", "STANDARD");
+        assertTrue(seatHoldId > 0);
+        assertThat(ticketServiceImpl.findTotalNumberOfAvailableSeats(sourceSeatGrid, "STANDARD"), is(23));
+        assertThat(ticketServiceImpl.findTotalNumberOfAvailableSeats(sourceSeatGrid, "PREMIUM"), is(12));
+        try {
+            ticketServiceImpl.holdBestAvailableSeats(sourceSeatGrid, 13, "guest@gmail.com", "PREMIUM");
+            fail("Expected a CustomerRequestNotValidException to be thrown");
+        } catch (CustomerRequestNotValidException ex) {
+            assertThat(ex.getMessage(),
+                    is("Request order to hold seats must be valid, total available seats in tier PREMIUM are: 12"));
+        }
+
+        List<Integer> seatHoldIds = ticketServiceImpl.holdBestAvailableSeatsBatch(sourceSeatGrid, Arrays.asList(
+                new SeatHoldRequest(7, "first@gmail.com", 0, "PREMIUM"),
+                new SeatHoldRequest(7, "second@gmail.com", 0, "PREMIUM"),
+                new SeatHoldRequest(2, "third@gmail.com", 0, "BALCONY")));
+        assertTrue(seatHoldIds.get(0) > 0);
+        assertThat(seatHoldIds.get(1), is(TicketService.NOT_HELD));
+        assertThat(seatHoldIds.get(2), is(TicketService.NOT_HELD));
+        assertThat(ticketServiceImpl.findTotalNumberOfAvailableSeats(sourceSeatGrid, "PREMIUM"), is(5));
+    }
 }
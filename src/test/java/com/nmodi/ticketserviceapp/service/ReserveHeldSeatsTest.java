@@ -1,17 +1,24 @@
 package com.nmodi.ticketserviceapp.service;
 
+import com.nmodi.ticketserviceapp.dao.TicketHandlerDao;
 import com.nmodi.ticketserviceapp.exception.ReservationRequestNotValidException;
 import com.nmodi.ticketserviceapp.grid.Seat;
 import com.nmodi.ticketserviceapp.grid.SeatGrid;
 import com.nmodi.ticketserviceapp.grid.SeatStatus;
+import com.nmodi.ticketserviceapp.hold.HoldExpiryScheduler;
+import com.nmodi.ticketserviceapp.journal.SeatJournal;
 import com.nmodi.ticketserviceapp.util.SeatGridTestUtil;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import javax.annotation.Resource;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.core.Is.is;
@@ -33,6 +40,18 @@ public class ReserveHeldSeatsTest {
     @Resource
     private SeatGrid sourceSeatGrid = null;
 
+    @Resource
+    private TicketHandlerDao ticketHandlerDao;
+
+    @Resource
+    private HoldExpiryScheduler holdExpiryScheduler;
+
+    /**
+     * The folder of the journals
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void setUp() {
         sourceSeatGrid = new SeatGrid(7, 7);
@@ -140,4 +159,193 @@ public class ReserveHeldSeatsTest {
             assertTrue(true);
         }
     }
+
+    /**
+     * This is to test to hold seats for several customers and reserve them by their seat hold id
+     */
+    @Test
+    public void testReserveHeldSeatsBySeatHoldIdScenario() {
+        int firstSeatHoldId = ticketServiceImpl.holdBestAvailableSeats(sourceSeatGrid, 4, "first@customer.com");
+        int secondSeatHoldId = ticketServiceImpl.holdBestAvailableSeats(sourceSeatGrid, 2, "second@customer.com");
+        assertThat(firstSeatHoldId == secondSeatHoldId, is(false));
+        assertThat(ticketServiceImpl.findTotalNumberOfAvailableSeats(sourceSeatGrid), is(30));
+
+        List<Seat> reservedSeats = ticketServiceImpl.reserveHeldSeats(sourceSeatGrid, secondSeatHoldId,
+                "second@customer.com");
+        assertThat(reservedSeats.size(), is(2));
+        for (Seat reservedSeat: reservedSeats) {
+            assertThat(reservedSeat.getSeatStatus(), is(SeatStatus.RESERVED));
+        }
+        reservedSeats = ticketServiceImpl.reserveHeldSeats(sourceSeatGrid, firstSeatHoldId, "first@customer.com");
+        assertThat(reservedSeats.size(), is(4));
+        assertThat(ticketServiceImpl.findTotalNumberOfAvailableSeats(sourceSeatGrid), is(30));
+
+        // a hold can be reserved only once
+        try {
+            ticketServiceImpl.reserveHeldSeats(sourceSeatGrid, firstSeatHoldId, "first@customer.com");
+            fail("Request Invalid: No seats are held with id " + firstSeatHoldId);
+        } catch (ReservationRequestNotValidException ex) {
+            assertTrue(true);
+        }
+    }
+
+    /**
+     * This is to test to find the held seat ids of a hold and reserve them as seat ids
+     */
+    @Test
+    public void testReserveHeldSeatIdsScenario() {
+        int seatHoldId = ticketServiceImpl.holdBestAvailableSeats(sourceSeatGrid, 3, "first@customer.com");
+        int[] heldSeatIds = ticketServiceImpl.findHeldSeatIds(sourceSeatGrid, seatHoldId);
+        assertThat(heldSeatIds.length, is(3));
+        for (int seatId : heldSeatIds) {
+            assertThat(sourceSeatGrid.getSeatStatus(sourceSeatGrid.getSeatRow(seatId),
+                    sourceSeatGrid.getSeatColumn(seatId)), is(SeatStatus.HOLD));
+        }
+
+        int[] reservedSeatIds = ticketServiceImpl.reserveHeldSeatIds(sourceSeatGrid, seatHoldId, "first@customer.com");
+        assertThat(reservedSeatIds, is(heldSeatIds));
+        for (int seatId : reservedSeatIds) {
+            assertThat(sourceSeatGrid.getSeatStatus(sourceSeatGrid.getSeatRow(seatId),
+                    sourceSeatGrid.getSeatColumn(seatId)), is(SeatStatus.RESERVED));
+        }
+    }
+
+    /**
+     * This is to test to reserve the seats held for another customer
+     */
+    @Test
+    public void testReserveSeatsHeldForAnotherCustomerScenario() {
+        int seatHoldId = ticketServiceImpl.holdBestAvailableSeats(sourceSeatGrid, 3, "first@customer.com");
+        try {
+            ticketServiceImpl.reserveHeldSeats(sourceSeatGrid, seatHoldId, "second@customer.com");
+            fail("Request Invalid: The seats are not held for second@customer.com");
+        } catch (ReservationRequestNotValidException ex) {
+            assertTrue(true);
+        }
+        assertThat(ticketServiceImpl.reserveHeldSeats(sourceSeatGrid, seatHoldId, "first@customer.com").size(), is(3));
+    }
+
+    /**
+     * This is to test try to reserve the seats by seat hold id after the hold expired
+     */
+    @Test
+    public void testToReserveSeatsBySeatHoldIdAfterTimeOutScenario() throws InterruptedException {
+        int seatHoldId = ticketServiceImpl.holdBestAvailableSeats(sourceSeatGrid, 5, "first@customer.com");
+        assertThat(ticketServiceImpl.findTotalNumberOfAvailableSeats(sourceSeatGrid), is(31));
+        // Lets wait for 5 sec. to make system the seat open/available again
+        Thread.sleep(5000);
+        assertThat(ticketServiceImpl.findTotalNumberOfAvailableSeats(sourceSeatGrid), is(36));
+        try {
+            ticketServiceImpl.reserveHeldSeats(sourceSeatGrid, seatHoldId, "first@customer.com");
+            fail("Request Invalid: No seats are held with id " + seatHoldId);
+        } catch (ReservationRequestNotValidException ex) {
+            assertTrue(true);
+        }
+    }
+
+    /**
+     * This is to test the seats held for a customer can't be reserved by a seat list covering them, so they are not
+     * sold twice when the customer reserves them by the seat hold id
+     */
+    @Test
+    public void testReserveSeatListCoveringSeatsHeldForCustomerScenario() {
+        int seatHoldId = ticketServiceImpl.holdBestAvailableSeats(sourceSeatGrid, 3, "first@customer.com");
+        int[] heldSeatIds = ticketServiceImpl.findHeldSeatIds(sourceSeatGrid, seatHoldId);
+        List<Seat> forgedSeatList = new ArrayList<Seat>();
+        for (int seatId : heldSeatIds) {
+            forgedSeatList.add(new Seat(sourceSeatGrid.getSeatRow(seatId), sourceSeatGrid.getSeatColumn(seatId),
+                    SeatStatus.HOLD));
+        }
+        try {
+            ticketServiceImpl.reserveHeldSeats(sourceSeatGrid, forgedSeatList);
+            fail("Request Invalid: The requested seat is held for another customer.");
+        } catch (ReservationRequestNotValidException ex) {
+            assertTrue(true);
+        }
+        for (int seatId : heldSeatIds) {
+            assertThat(sourceSeatGrid.getSeatStatus(sourceSeatGrid.getSeatRow(seatId),
+                    sourceSeatGrid.getSeatColumn(seatId)), is(SeatStatus.HOLD));
+        }
+        assertThat(ticketServiceImpl.reserveHeldSeatIds(sourceSeatGrid, seatHoldId, "first@customer.com"),
+                is(heldSeatIds));
+    }
+
+    /**
+     * This is to test a hold is not reserved when one of its seats is not held anymore, and its other seats stay held
+     */
+    @Test
+    public void testReserveSeatHoldWithSeatNotHeldScenario() {
+        int seatHoldId = ticketServiceImpl.holdBestAvailableSeats(sourceSeatGrid, 3, "first@customer.com");
+        int[] heldSeatIds = ticketServiceImpl.findHeldSeatIds(sourceSeatGrid, seatHoldId);
+        int lastSeatId = heldSeatIds[heldSeatIds.length - 1];
+        sourceSeatGrid.setSeatStatus(sourceSeatGrid.getSeatRow(lastSeatId), sourceSeatGrid.getSeatColumn(lastSeatId),
+                SeatStatus.RESERVED);
+        try {
+            ticketServiceImpl.reserveHeldSeatIds(sourceSeatGrid, seatHoldId, "first@customer.com");
+            fail("Request Invalid: The seats of the hold " + seatHoldId + " are not held anymore.");
+        } catch (ReservationRequestNotValidException ex) {
+            assertTrue(true);
+        }
+        for (int i = 0; i < heldSeatIds.length - 1; i++) {
+            assertThat(sourceSeatGrid.getSeatStatus(sourceSeatGrid.getSeatRow(heldSeatIds[i]),
+                    sourceSeatGrid.getSeatColumn(heldSeatIds[i])), is(SeatStatus.HOLD));
+        }
+        assertThat(ticketServiceImpl.findHeldSeatIds(sourceSeatGrid, seatHoldId), is(heldSeatIds));
+    }
+
+    /**
+     * This is to test the seats of a hold are available again when its reservation can't be journaled, instead of
+     * staying reserved for nobody
+     */
+    @Test
+    public void testReserveSeatHoldWhenTheJournalFailsScenario() throws Exception {
+        TicketServiceImpl journaledTicketService = new TicketServiceImpl(ticketHandlerDao, holdExpiryScheduler);
+        SeatJournal seatJournal = new SeatJournal(new File(temporaryFolder.getRoot(), "venue.journal"), sourceSeatGrid);
+        journaledTicketService.setSeatJournal(seatJournal);
+        int seatHoldId = journaledTicketService.holdBestAvailableSeats(sourceSeatGrid, 4, "first@customer.com");
+        assertThat(journaledTicketService.findTotalNumberOfAvailableSeats(sourceSeatGrid), is(32));
+
+        seatJournal.close();
+        try {
+            journaledTicketService.reserveHeldSeatIds(sourceSeatGrid, seatHoldId, "first@customer.com");
+            fail("The reservation could not be journaled");
+        } catch (ReservationRequestNotValidException ex) {
+            assertTrue(true);
+        }
+        assertThat(sourceSeatGrid.getSeatCount(SeatStatus.RESERVED), is(13));
+        assertThat(journaledTicketService.findTotalNumberOfAvailableSeats(sourceSeatGrid), is(36));
+    }
+
+    /**
+     * This is to test the expiry of a hold releases only the seats still held by the hold, not the seats released
+     * meanwhile and held again by another hold
+     */
+    @Test
+    public void testHoldExpiryReleasesOnlyItsOwnSeatsScenario() throws Exception {
+        TicketServiceImpl journaledTicketService = new TicketServiceImpl(ticketHandlerDao, holdExpiryScheduler);
+        SeatJournal seatJournal = new SeatJournal(new File(temporaryFolder.getRoot(), "row.journal"),
+                new SeatGrid(1, 4));
+        journaledTicketService.setSeatJournal(seatJournal);
+        journaledTicketService.setHoldTimeoutMillis(200);
+        SeatGrid rowSeatGrid = new SeatGrid(1, 4);
+        List<Seat> heldSeats = journaledTicketService.holdBestAvailableSeats(rowSeatGrid, 4);
+
+        // the reservation of 2 of the seats can't be journaled, so they are available again and held by another hold
+        seatJournal.close();
+        try {
+            journaledTicketService.reserveHeldSeats(rowSeatGrid, new ArrayList<Seat>(heldSeats.subList(0, 2)));
+            fail("The reservation could not be journaled");
+        } catch (ReservationRequestNotValidException ex) {
+            assertTrue(true);
+        }
+        journaledTicketService.setHoldTimeoutMillis(60000);
+        List<Seat> otherHeldSeats = journaledTicketService.holdBestAvailableSeats(rowSeatGrid, 2);
+        assertThat(otherHeldSeats.get(0).getColumn(), is(0));
+
+        Thread.sleep(600);
+        assertThat(rowSeatGrid.getSeatCount(SeatStatus.HOLD), is(2));
+        assertThat(rowSeatGrid.getSeatStatus(0, 0), is(SeatStatus.HOLD));
+        assertThat(rowSeatGrid.getSeatStatus(0, 3), is(SeatStatus.OPEN));
+        assertThat(journaledTicketService.getSeatHoldRegistry().size(), is(1));
+    }
 }